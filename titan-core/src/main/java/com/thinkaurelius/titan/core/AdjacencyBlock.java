@@ -0,0 +1,70 @@
+package com.thinkaurelius.titan.core;
+
+/**
+ * Adjacency information for a set of vertices in compressed sparse row (CSR) layout as returned by
+ * {@link TitanMultiVertexQuery#adjacency(String...)}.
+ * <p/>
+ * The anchor vertices are identified by their position in the block. The neighbors of the anchor vertex at position
+ * <i>i</i> are stored in {@link #getNeighborIds()} from index <code>getOffsets()[i]</code> (inclusive) to
+ * <code>getOffsets()[i+1]</code> (exclusive). The values of the requested edge properties are stored in property columns
+ * which are aligned with the neighbor id array.
+ * <p/>
+ * The returned arrays are not copied and must not be modified.
+ */
+public interface AdjacencyBlock {
+
+    /**
+     * Returns the number of anchor vertices in this block.
+     *
+     * @return
+     */
+    public int size();
+
+    /**
+     * Returns the ids of the anchor vertices in this block, indexed by position.
+     *
+     * @return
+     */
+    public long[] getVertexIds();
+
+    /**
+     * Returns the offsets into {@link #getNeighborIds()} for each anchor vertex. The array has length {@link #size()}+1
+     * and the last entry is equal to the total number of edges in this block.
+     *
+     * @return
+     */
+    public int[] getOffsets();
+
+    /**
+     * Returns the ids of the adjacent vertices for all anchor vertices, grouped by anchor vertex.
+     *
+     * @return
+     */
+    public long[] getNeighborIds();
+
+    /**
+     * Returns the total number of edges in this block.
+     *
+     * @return
+     */
+    public int numEdges();
+
+    /**
+     * Returns the number of edges incident on the anchor vertex at the given position.
+     *
+     * @param pos
+     * @return
+     */
+    public int getDegree(int pos);
+
+    /**
+     * Returns the values of the given edge property aligned with {@link #getNeighborIds()}. Edges which do not
+     * have this property have a null entry.
+     *
+     * @param key name of a property key that was requested when executing the query
+     * @return
+     * @throws IllegalArgumentException if the property was not requested
+     */
+    public Object[] getPropertyColumn(String key);
+
+}
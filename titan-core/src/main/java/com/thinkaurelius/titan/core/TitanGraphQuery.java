@@ -1,6 +1,8 @@
 package com.thinkaurelius.titan.core;
 
 import com.thinkaurelius.titan.graphdb.query.TitanPredicate;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
+import com.thinkaurelius.titan.graphdb.query.profile.SimpleQueryProfiler;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.GraphQuery;
 import com.tinkerpop.blueprints.Predicate;
@@ -113,4 +115,35 @@ public interface TitanGraphQuery extends GraphQuery {
      */
     public TitanGraphQuery orderBy(TitanKey key, Order order);
 
+    /**
+     * Records the optimization and execution of this query with the given profiler, i.e. which indexes were picked
+     * and how many results each index call and backend query returned, how many results were filtered in memory
+     * and how long each stage took.
+     *
+     * @param profiler the profiler to record the execution trace with, e.g. a {@link SimpleQueryProfiler}
+     * @return This query
+     */
+    public TitanGraphQuery profiler(QueryProfiler profiler);
+
+    /**
+     * Returns the plan for retrieving the vertices that match the conditions without executing the query.
+     *
+     * @return
+     */
+    public SimpleQueryProfiler explainVertices();
+
+    /**
+     * Returns the plan for retrieving the edges that match the conditions without executing the query.
+     *
+     * @return
+     */
+    public SimpleQueryProfiler explainEdges();
+
+    /**
+     * Returns the plan for retrieving the properties that match the conditions without executing the query.
+     *
+     * @return
+     */
+    public SimpleQueryProfiler explainProperties();
+
 }
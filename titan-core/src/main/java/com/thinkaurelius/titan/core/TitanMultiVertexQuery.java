@@ -125,4 +125,18 @@ public interface TitanMultiVertexQuery extends BaseVertexQuery {
      */
     public Map<TitanVertex, VertexList> vertexIds();
 
+    /**
+     * Retrieves the ids of all vertices connected to each of the query's central vertices by edges matching the
+     * conditions defined in this query, together with the values of the given edge properties, as a single
+     * block of primitive arrays.
+     * <p/>
+     * Where possible, the ids and property values are decoded directly from the data retrieved from the storage backend
+     * without constructing edge objects, which makes this method suitable for traversals that expand large numbers
+     * of edges but only need the adjacent vertex ids.
+     *
+     * @param keys names of the edge properties to retrieve for each edge
+     * @return Adjacency block for the query's central vertices
+     */
+    public AdjacencyBlock adjacency(String... keys);
+
 }
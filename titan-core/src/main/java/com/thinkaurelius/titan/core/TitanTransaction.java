@@ -49,6 +49,22 @@ public interface TitanTransaction extends TransactionalGraph, KeyIndexableGraph
      */
     public TitanVertex addVertex(Long id);
 
+    /**
+     * Creates a new partitioned vertex in the graph.
+     * <p/>
+     * The edges of a partitioned vertex are not stored in a single row but split across multiple rows which are
+     * placed in different partitions of the id space. Edges are assigned to a row by the adjacent vertex. This avoids
+     * that the adjacency list of a vertex with a very large number of edges ends up on a single storage node at the
+     * expense of having to read all rows when querying the vertex.
+     * Hence, this should only be used for vertices which are expected to become very high-degree vertices.
+     * Whether a vertex is partitioned is determined upon creation and cannot be changed later on.
+     * <p/>
+     * The number of rows is configured via {@link com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration#IDS_PARTITIONED_VERTEX_CUTS}.
+     *
+     * @return New partitioned vertex in the graph created in the context of this transaction.
+     */
+    public TitanVertex addPartitionedVertex();
+
     /**
      * Creates a new edge connecting the specified vertices.
      * <p/>
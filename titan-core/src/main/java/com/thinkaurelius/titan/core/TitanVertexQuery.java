@@ -1,5 +1,7 @@
 package com.thinkaurelius.titan.core;
 
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
+import com.thinkaurelius.titan.graphdb.query.profile.SimpleQueryProfiler;
 import com.tinkerpop.blueprints.*;
 
 /**
@@ -64,6 +66,16 @@ public interface TitanVertexQuery extends BaseVertexQuery, VertexQuery {
     @Override
     public TitanVertexQuery limit(int limit);
 
+    /**
+     * Records the optimization and execution of this query with the given profiler, i.e. which slice queries were
+     * executed and how many relations each returned, how many relations were filtered in memory, how often a slice
+     * query was re-executed with a larger limit and how long each stage took.
+     *
+     * @param profiler the profiler to record the execution trace with, e.g. a {@link SimpleQueryProfiler}
+     * @return This query
+     */
+    public TitanVertexQuery profiler(QueryProfiler profiler);
+
 
     /* ---------------------------------------------------------------
     * Query execution
@@ -128,5 +140,19 @@ public interface TitanVertexQuery extends BaseVertexQuery, VertexQuery {
      */
     public VertexList vertexIds();
 
+    /**
+     * Returns the plan for retrieving the incident edges that match this query without executing the query.
+     *
+     * @return
+     */
+    public SimpleQueryProfiler explainEdges();
+
+    /**
+     * Returns the plan for retrieving the incident properties that match this query without executing the query.
+     *
+     * @return
+     */
+    public SimpleQueryProfiler explainProperties();
+
 
 }
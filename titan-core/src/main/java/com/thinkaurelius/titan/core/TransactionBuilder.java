@@ -38,6 +38,15 @@ public interface TransactionBuilder {
 
     public TransactionBuilder setDirtyVertexSize(int size);
 
+    /**
+     * Configures the implementation of the vertex cache used in the transaction, either "guava" or "clock".
+     *
+     * @param type
+     * @return
+     * @see com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration#TX_CACHE_TYPE
+     */
+    public TransactionBuilder setVertexCacheType(String type);
+
     /**
      * Enables checks that verify that each vertex actually exists in the underlying data store when it is retrieved.
      * This might be useful to address common data degradation issues but has adverse impacts on performance due to
@@ -0,0 +1,455 @@
+package com.thinkaurelius.titan.core.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.RateLimiter;
+import com.thinkaurelius.titan.core.*;
+import com.thinkaurelius.titan.core.olap.OLAPJob;
+import com.thinkaurelius.titan.core.olap.StateInitializer;
+import com.thinkaurelius.titan.graphdb.database.StandardTitanGraph;
+import com.thinkaurelius.titan.graphdb.database.idassigner.IDPoolExhaustedException;
+import com.thinkaurelius.titan.graphdb.fulgora.FulgoraBuilder;
+import com.thinkaurelius.titan.graphdb.idmanagement.IDInspector;
+import com.thinkaurelius.titan.graphdb.idmanagement.IDManager;
+import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
+import com.tinkerpop.blueprints.Direction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Improves the locality of the graph by moving vertices into the partition that most of their neighbors are placed in.
+ * <p/>
+ * The partition of a vertex is encoded in its id and hence cannot be changed. Instead, a vertex is migrated by
+ * creating a new vertex in the target partition, copying all properties and edges (including their properties)
+ * and removing the original vertex in the same transaction. Indexes are updated as part of that transaction.
+ * <b>The ids of migrated vertices and their edges change</b>, which is why {@link Result#getMigratedVertices()}
+ * reports the new id of each migrated vertex.
+ * <p/>
+ * The job first measures the edge cut across partitions with an {@link OLAPJob} and then migrates the vertices
+ * with the largest gain. Since other vertices might have been migrated in the meantime, the gain of each candidate
+ * is recomputed right before it is migrated. To prevent densely connected components from collapsing into a single
+ * partition, a vertex is only migrated into a partition whose number of vertices stays within the configured
+ * imbalance of the average number of vertices per partition and which lies within the local partition id ranges.
+ * The rate at which relations are rewritten can be limited to reduce the load on the storage backend.
+ * <p/>
+ * Partitioned vertices (see {@link TitanTransaction#addPartitionedVertex()}) are included in the edge cut but never
+ * migrated since their adjacency list is spread across partitions anyway.
+ * <p/>
+ * <b>The graph must not be modified while this job runs.</b> Migrating a vertex does not acquire any locks, so
+ * edges which are concurrently added to a vertex after its relations have been copied are lost or left dangling
+ * when the vertex is removed.
+ */
+public class TitanPartitionRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(TitanPartitionRebalancer.class);
+
+    private static final String STATE_KEY = "placement";
+    private static final long ANALYSIS_TIMEOUT_MS = TimeUnit.HOURS.toMillis(24);
+
+    private final StandardTitanGraph graph;
+    private final IDInspector idInspector;
+
+    private int minGain = 1;
+    private double maxImbalance = 1.2;
+    private int maxMigrations = Integer.MAX_VALUE;
+    private double maxRelationsPerSecond = 0;
+    private int numProcessingThreads = 1;
+
+    public TitanPartitionRebalancer(TitanGraph graph) {
+        Preconditions.checkArgument(graph instanceof StandardTitanGraph, "Invalid graph instance detected: %s", graph.getClass());
+        this.graph = (StandardTitanGraph) graph;
+        this.idInspector = this.graph.getIDInspector();
+    }
+
+    /**
+     * Vertices are only migrated if the number of neighbors in the target partition exceeds the number of
+     * neighbors in their current partition by at least this amount. Defaults to 1.
+     *
+     * @param minGain
+     * @return
+     */
+    public TitanPartitionRebalancer setMinGain(int minGain) {
+        Preconditions.checkArgument(minGain > 0, "Gain must be positive: %s", minGain);
+        this.minGain = minGain;
+        return this;
+    }
+
+    /**
+     * Vertices are only migrated into a partition if the number of vertices in that partition does not exceed this
+     * factor times the average number of vertices per partition afterwards. Partitions which do not contain any vertex
+     * are not counted. Defaults to 1.2.
+     *
+     * @param maxImbalance
+     * @return
+     */
+    public TitanPartitionRebalancer setMaxImbalance(double maxImbalance) {
+        Preconditions.checkArgument(maxImbalance >= 1.0, "Invalid imbalance: %s", maxImbalance);
+        this.maxImbalance = maxImbalance;
+        return this;
+    }
+
+    /**
+     * The maximum number of vertices migrated in one run. Unlimited by default.
+     *
+     * @param maxMigrations
+     * @return
+     */
+    public TitanPartitionRebalancer setMaxMigrations(int maxMigrations) {
+        Preconditions.checkArgument(maxMigrations >= 0);
+        this.maxMigrations = maxMigrations;
+        return this;
+    }
+
+    /**
+     * Limits the number of relations that are rewritten per second while migrating vertices. Each migrated relation is
+     * deleted and written again. 0 disables the limit, which is the default.
+     *
+     * @param maxRelationsPerSecond
+     * @return
+     */
+    public TitanPartitionRebalancer setMaxRelationsPerSecond(double maxRelationsPerSecond) {
+        Preconditions.checkArgument(maxRelationsPerSecond >= 0);
+        this.maxRelationsPerSecond = maxRelationsPerSecond;
+        return this;
+    }
+
+    /**
+     * Number of threads used to measure the edge cut.
+     *
+     * @param numThreads
+     * @return
+     */
+    public TitanPartitionRebalancer setNumProcessingThreads(int numThreads) {
+        Preconditions.checkArgument(numThreads > 0);
+        this.numProcessingThreads = numThreads;
+        return this;
+    }
+
+    /**
+     * Measures the edge cut across partitions without migrating any vertices.
+     *
+     * @return
+     */
+    public Result analyze() {
+        Result result = new Result();
+        analyze(result, new HashMap<Integer, Long>());
+        return result;
+    }
+
+    /**
+     * Measures the edge cut across partitions and migrates all vertices whose gain is at least the configured
+     * minimum gain into a partition with sufficient capacity, starting with the largest gain.
+     *
+     * @return
+     */
+    public Result rebalance() {
+        Result result = new Result();
+        Map<Integer, Long> partitionSizes = new HashMap<Integer, Long>();
+        List<Placement> candidates = analyze(result, partitionSizes);
+        double capacity = maxImbalance * result.numVertices / Math.max(1, partitionSizes.size());
+        Collections.sort(candidates, new Comparator<Placement>() {
+            @Override
+            public int compare(Placement p1, Placement p2) {
+                return p2.gain - p1.gain;
+            }
+        });
+        RateLimiter limiter = maxRelationsPerSecond > 0 ? RateLimiter.create(maxRelationsPerSecond) : null;
+        long start = System.currentTimeMillis();
+        for (Placement candidate : candidates) {
+            if (result.migratedVertices.size() >= maxMigrations) break;
+            migrate(candidate.vertexId, candidate.degree, partitionSizes, capacity, limiter, result);
+        }
+        log.info("Migrated {} vertices and {} relations in {} ms", result.migratedVertices.size(), result.migratedRelations,
+                System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private List<Placement> analyze(Result result, Map<Integer, Long> partitionSizes) {
+        FulgoraBuilder<Placement> builder = new FulgoraBuilder<Placement>(graph);
+        builder.setStateKey(STATE_KEY);
+        builder.setNumProcessingThreads(numProcessingThreads);
+        builder.setInitializer(new StateInitializer<Placement>() {
+            @Override
+            public Placement initialState() {
+                return new Placement();
+            }
+        });
+        builder.setJob(new OLAPJob() {
+            @Override
+            public void process(TitanVertex vertex) {
+                Placement placement = vertex.getProperty(STATE_KEY);
+                placement.vertexId = vertex.getID();
+                if (idInspector.isPartitionedVertexId(vertex.getID())) {
+                    //The OLAP job only reads the row of a partitioned vertex, the cut rows holding its edges are read separately
+                    TitanTransaction tx = graph.buildTransaction().readOnly().start();
+                    try {
+                        computePlacement(tx.getVertex(vertex.getID()), placement, null, 0);
+                    } finally {
+                        tx.rollback();
+                    }
+                    placement.gain = 0;
+                } else {
+                    computePlacement(vertex, placement, null, 0);
+                }
+            }
+        });
+        builder.addQuery().edges();
+
+        Map<Long, Placement> placements;
+        try {
+            placements = builder.execute().get(ANALYSIS_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            throw new TitanException("Interrupted while measuring the edge cut", e);
+        } catch (ExecutionException e) {
+            throw new TitanException("Could not measure the edge cut", e);
+        } catch (TimeoutException e) {
+            throw new TitanException("Timed out while measuring the edge cut", e);
+        }
+
+        List<Placement> candidates = new ArrayList<Placement>();
+        for (Placement placement : placements.values()) {
+            if (placement == null) continue;
+            result.numVertices++;
+            addToSize(placement.partition, 1, partitionSizes);
+            result.numEdgeEndpoints += placement.degree;
+            result.numCutEdgeEndpoints += placement.cut;
+            if (placement.gain >= minGain) candidates.add(placement);
+        }
+        result.numCandidates = candidates.size();
+        log.info("Measured edge cut: {}", result);
+        return candidates;
+    }
+
+    /**
+     * Computes the degree, the number of neighbors outside the partition of the vertex and the partition that most
+     * neighbors are placed in. Only local partitions are considered as the target and, if partition sizes are given,
+     * only those which can take another vertex without exceeding the capacity.
+     *
+     * @param vertex
+     * @param placement
+     * @param partitionSizes number of vertices per partition or null to ignore the capacity
+     * @param capacity
+     */
+    private void computePlacement(TitanVertex vertex, Placement placement, Map<Integer, Long> partitionSizes, double capacity) {
+        Map<Integer, Integer> neighbors = new HashMap<Integer, Integer>();
+        int partition = (int) idInspector.getPartitionId(vertex.getID());
+        int degree = 0;
+        for (TitanEdge edge : vertex.getTitanEdges(Direction.BOTH)) {
+            long neighborId = edge.getOtherVertex(vertex).getID();
+            if (neighborId == vertex.getID()) continue;
+            degree++;
+            int neighborPartition = (int) idInspector.getPartitionId(neighborId);
+            Integer count = neighbors.get(neighborPartition);
+            neighbors.put(neighborPartition, count == null ? 1 : count + 1);
+        }
+        Integer local = neighbors.get(partition);
+        int bestPartition = partition, bestCount = local == null ? 0 : local;
+        for (Map.Entry<Integer, Integer> entry : neighbors.entrySet()) {
+            if (entry.getValue() > bestCount && graph.isLocalPartition(entry.getKey())
+                    && (partitionSizes == null || hasCapacity(entry.getKey(), partitionSizes, capacity))) {
+                bestPartition = entry.getKey();
+                bestCount = entry.getValue();
+            }
+        }
+        placement.partition = partition;
+        placement.degree = degree;
+        placement.cut = degree - (local == null ? 0 : local);
+        placement.targetPartition = bestPartition;
+        placement.gain = bestCount - (local == null ? 0 : local);
+    }
+
+    private static boolean hasCapacity(int partition, Map<Integer, Long> partitionSizes, double capacity) {
+        Long size = partitionSizes.get(partition);
+        return (size == null ? 0 : size) + 1 <= capacity;
+    }
+
+    private static void addToSize(int partition, long delta, Map<Integer, Long> partitionSizes) {
+        Long size = partitionSizes.get(partition);
+        partitionSizes.put(partition, (size == null ? 0 : size) + delta);
+    }
+
+    private void migrate(long vertexId, int expectedRelations, Map<Integer, Long> partitionSizes, double capacity,
+                         RateLimiter limiter, Result result) {
+        if (limiter != null) limiter.acquire(Math.max(1, expectedRelations));
+        StandardTitanTx tx = (StandardTitanTx) graph.newTransaction();
+        try {
+            TitanVertex vertex = tx.getVertex(vertexId);
+            if (vertex == null) {
+                tx.rollback();
+                return;
+            }
+            //Recompute the placement since neighbors might have been migrated in the meantime
+            Placement placement = new Placement();
+            computePlacement(vertex, placement, partitionSizes, capacity);
+            if (placement.gain < minGain) {
+                tx.rollback();
+                return;
+            }
+
+            //Copy all relations before the vertex is removed
+            List<RelationCopy> properties = new ArrayList<RelationCopy>();
+            for (TitanProperty property : vertex.getProperties()) {
+                properties.add(new RelationCopy(property.getPropertyKey(), property.getValue(), property));
+            }
+            List<RelationCopy> edges = new ArrayList<RelationCopy>();
+            //Loops are returned for both directions
+            for (TitanEdge edge : new LinkedHashSet<TitanEdge>(Lists.newArrayList(vertex.getTitanEdges(Direction.BOTH)))) {
+                TitanVertex out = edge.getVertex(Direction.OUT), in = edge.getVertex(Direction.IN);
+                edges.add(new RelationCopy(edge.getTitanLabel(), out.equals(vertex) ? null : out, in.equals(vertex) ? null : in, edge));
+            }
+
+            TitanVertex moved = tx.addVertex(IDManager.VertexIDType.Vertex, placement.targetPartition);
+            vertex.remove();
+            for (RelationCopy property : properties) {
+                property.copyProperties(moved.addProperty((TitanKey) property.type, property.value));
+            }
+            for (RelationCopy edge : edges) {
+                TitanVertex out = edge.outVertex == null ? moved : edge.outVertex;
+                TitanVertex in = edge.inVertex == null ? moved : edge.inVertex;
+                edge.copyProperties(tx.addEdge(out, in, (TitanLabel) edge.type));
+            }
+            tx.commit();
+            addToSize(placement.partition, -1, partitionSizes);
+            addToSize(placement.targetPartition, 1, partitionSizes);
+            result.migratedVertices.put(vertexId, moved.getID());
+            result.migratedRelations += properties.size() + edges.size();
+        } catch (IDPoolExhaustedException e) {
+            log.warn("Could not migrate vertex [{}] since its target partition is exhausted", vertexId);
+            tx.rollback();
+        } catch (RuntimeException e) {
+            if (tx.isOpen()) tx.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Snapshot of a property or edge of a vertex that is being migrated. For edges, a null end point stands for the
+     * migrated vertex.
+     */
+    private static class RelationCopy {
+
+        private final TitanType type;
+        private final Object value;
+        private final TitanVertex outVertex;
+        private final TitanVertex inVertex;
+        private final Map<String, Object> properties = new HashMap<String, Object>();
+
+        private RelationCopy(TitanKey key, Object value, TitanProperty property) {
+            this(key, value, null, null, property);
+        }
+
+        private RelationCopy(TitanLabel label, TitanVertex outVertex, TitanVertex inVertex, TitanEdge edge) {
+            this(label, null, outVertex, inVertex, edge);
+        }
+
+        private RelationCopy(TitanType type, Object value, TitanVertex outVertex, TitanVertex inVertex, TitanRelation relation) {
+            this.type = type;
+            this.value = value;
+            this.outVertex = outVertex;
+            this.inVertex = inVertex;
+            for (String key : relation.getPropertyKeys()) properties.put(key, relation.getProperty(key));
+        }
+
+        private void copyProperties(TitanRelation relation) {
+            for (Map.Entry<String, Object> property : properties.entrySet())
+                relation.setProperty(property.getKey(), property.getValue());
+        }
+
+    }
+
+    private static class Placement {
+
+        private long vertexId;
+        private int partition;
+        private int degree;
+        private int cut;
+        private int targetPartition;
+        private int gain;
+
+    }
+
+    /**
+     * Statistics of a rebalancing run. Edges are counted from both of their end points.
+     */
+    public static class Result {
+
+        private long numVertices = 0;
+        private long numEdgeEndpoints = 0;
+        private long numCutEdgeEndpoints = 0;
+        private long numCandidates = 0;
+        private long migratedRelations = 0;
+        private final Map<Long, Long> migratedVertices = new HashMap<Long, Long>();
+
+        public long getNumVertices() {
+            return numVertices;
+        }
+
+        /**
+         * Returns the number of edges (excluding loops) before any vertex was migrated
+         *
+         * @return
+         */
+        public long getNumEdges() {
+            return numEdgeEndpoints / 2;
+        }
+
+        /**
+         * Returns the number of edges whose end points were placed in different partitions before any vertex was migrated
+         *
+         * @return
+         */
+        public long getNumCutEdges() {
+            return numCutEdgeEndpoints / 2;
+        }
+
+        /**
+         * Returns the fraction of edges whose end points were placed in different partitions before any vertex was migrated
+         *
+         * @return
+         */
+        public double getEdgeCutRatio() {
+            return numEdgeEndpoints == 0 ? 0.0 : ((double) numCutEdgeEndpoints) / numEdgeEndpoints;
+        }
+
+        /**
+         * Returns the number of vertices which could be moved to a partition with more of their neighbors
+         *
+         * @return
+         */
+        public long getNumCandidates() {
+            return numCandidates;
+        }
+
+        /**
+         * Returns the number of properties and edges that have been rewritten
+         *
+         * @return
+         */
+        public long getNumMigratedRelations() {
+            return migratedRelations;
+        }
+
+        /**
+         * Returns a map from the original id to the new id of each migrated vertex
+         *
+         * @return
+         */
+        public Map<Long, Long> getMigratedVertices() {
+            return Collections.unmodifiableMap(migratedVertices);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("vertices=%d, edges=%d, cut edges=%d (%.3f), candidates=%d, migrated vertices=%d",
+                    getNumVertices(), getNumEdges(), getNumCutEdges(), getEdgeCutRatio(), getNumCandidates(),
+                    migratedVertices.size());
+        }
+
+    }
+
+}
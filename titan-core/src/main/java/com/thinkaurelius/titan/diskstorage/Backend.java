@@ -26,7 +26,9 @@ import com.thinkaurelius.titan.diskstorage.log.Log;
 import com.thinkaurelius.titan.diskstorage.log.LogManager;
 import com.thinkaurelius.titan.diskstorage.log.ReadMarker;
 import com.thinkaurelius.titan.diskstorage.log.kcvs.KCVSLogManager;
+import com.thinkaurelius.titan.diskstorage.util.BackendCompression;
 import com.thinkaurelius.titan.diskstorage.util.BackendOperation;
+import com.thinkaurelius.titan.diskstorage.util.CompressedValueStoreManager;
 import com.thinkaurelius.titan.diskstorage.util.MetricInstrumentedStore;
 import com.thinkaurelius.titan.diskstorage.configuration.backend.KCVSConfiguration;
 import com.thinkaurelius.titan.diskstorage.util.StandardTransactionHandleConfig;
@@ -114,6 +116,7 @@ public class Backend implements LockerProvider {
     private final int bufferSize;
     private final Duration maxWriteTime;
     private final Duration maxReadTime;
+    private final Duration slowOperationThreshold;
     private final boolean cacheEnabled;
     private final ExecutorService threadPool;
 
@@ -146,13 +149,7 @@ public class Backend implements LockerProvider {
 
         maxWriteTime = configuration.get(STORAGE_WRITE_WAITTIME);
         maxReadTime = configuration.get(STORAGE_READ_WAITTIME);
-
-        if (!storeFeatures.hasLocking()) {
-            Preconditions.checkArgument(storeFeatures.isKeyConsistent(),"Store needs to support some form of locking");
-            storeManagerLocking = new ExpectedValueCheckingStoreManager(storeManager,LOCK_STORE_SUFFIX,this,maxReadTime);
-        } else {
-            storeManagerLocking = storeManager;
-        }
+        slowOperationThreshold = configuration.get(METRICS_SLOW_OPERATION_THRESHOLD);
 
         if (configuration.get(PARALLEL_BACKEND_OPS)) {
             int poolsize = Runtime.getRuntime().availableProcessors() * THREAD_POOL_SIZE_SCALE_FACTOR;
@@ -162,6 +159,22 @@ public class Backend implements LockerProvider {
             threadPool = null;
         }
 
+        KeyColumnValueStoreManager dataStoreManager = storeManager;
+        BackendCompression compression = getValueCompression(configuration);
+        if (compression != null) {
+            dataStoreManager = new CompressedValueStoreManager(storeManager, compression, ImmutableMap.of(
+                    EDGESTORE_NAME, configuration.get(EDGESTORE_COMPRESSION_THRESHOLD),
+                    INDEXSTORE_NAME, configuration.get(INDEXSTORE_COMPRESSION_THRESHOLD)));
+            log.info("Configured value compression: {}", configuration.get(STORAGE_VALUE_COMPRESSION));
+        }
+
+        if (!storeFeatures.hasLocking()) {
+            Preconditions.checkArgument(storeFeatures.isKeyConsistent(),"Store needs to support some form of locking");
+            storeManagerLocking = new ExpectedValueCheckingStoreManager(dataStoreManager,LOCK_STORE_SUFFIX,this,maxReadTime,threadPool);
+        } else {
+            storeManagerLocking = dataStoreManager;
+        }
+
         final String lockBackendName = configuration.get(LOCK_BACKEND);
         if (REGISTERED_LOCKERS.containsKey(lockBackendName)) {
             lockerCreator = REGISTERED_LOCKERS.get(lockBackendName);
@@ -402,6 +415,19 @@ public class Backend implements LockerProvider {
         return builder.build();
     }
 
+    /**
+     * Returns the compression which is applied to edge store and graph index values or null if values are not compressed.
+     *
+     * @param configuration
+     * @return
+     * @see com.thinkaurelius.titan.diskstorage.util.CompressedValueStore
+     */
+    public static BackendCompression getValueCompression(Configuration configuration) {
+        String compressionName = configuration.get(STORAGE_VALUE_COMPRESSION);
+        if (compressionName.equalsIgnoreCase(NO_COMPRESSION)) return null;
+        return getImplementationClass(configuration, compressionName, REGISTERED_COMPRESSIONS);
+    }
+
     public final static <T> T getImplementationClass(Configuration config, String clazzname, Map<String, String> registeredImpls) {
         if (registeredImpls.containsKey(clazzname.toLowerCase())) {
             clazzname = registeredImpls.get(clazzname.toLowerCase());
@@ -451,7 +477,7 @@ public class Backend implements LockerProvider {
 
         return new BackendTransaction(cacheTx, configuration, storeFeatures,
                 edgeStore, indexStore,
-                maxReadTime, indexTx, threadPool);
+                maxReadTime, slowOperationThreshold, indexTx, threadPool);
     }
 
     public void close() throws StorageException {
@@ -527,6 +553,12 @@ public class Backend implements LockerProvider {
         put("es", "com.thinkaurelius.titan.diskstorage.es.ElasticSearchIndex");
     }};
 
+    private static final String NO_COMPRESSION = "none";
+
+    private static final Map<String,String> REGISTERED_COMPRESSIONS = new HashMap<String, String>() {{
+        put("deflate","com.thinkaurelius.titan.diskstorage.util.DeflateCompression");
+    }};
+
     private static final Map<String,String> REGISTERED_LOG_MANAGERS = new HashMap<String, String>() {{
         put("default","com.thinkaurelius.titan.diskstorage.log.kcvs.KCVSLogManager");
     }};
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.cache.KCVSCache;
@@ -30,6 +31,7 @@ import com.thinkaurelius.titan.diskstorage.keycolumnvalue.cache.CacheTransaction
 import com.thinkaurelius.titan.diskstorage.util.BackendOperation;
 import com.thinkaurelius.titan.diskstorage.util.BufferUtil;
 import com.thinkaurelius.titan.graphdb.database.serialize.DataOutput;
+import com.thinkaurelius.titan.util.stats.MetricManager;
 
 /**
  * Bundles all transaction handles from the various backend systems and provides a proxy for some of their
@@ -44,8 +46,32 @@ public class BackendTransaction implements LoggableTransaction {
     private static final Logger log =
             LoggerFactory.getLogger(BackendTransaction.class);
 
+    /**
+     * Name of the logger to which slow backend operations are logged, see
+     * {@link com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration#METRICS_SLOW_OPERATION_THRESHOLD}
+     */
+    public static final String SLOW_OPERATION_LOGGER = BackendTransaction.class.getName() + ".slow";
+
+    private static final Logger slowLog = LoggerFactory.getLogger(SLOW_OPERATION_LOGGER);
+
     public static final int MIN_TASKS_TO_PARALLELIZE = 2;
 
+    public static final String M_BACKEND = "backend";
+    public static final String M_TIME = "time";
+    public static final String M_RETRIES = "retries";
+    public static final String M_SLOW = "slow";
+
+    public static final String M_EDGESTORE_QUERY = "edgeStoreQuery";
+    public static final String M_EDGESTORE_MULTIQUERY = "edgeStoreMultiQuery";
+    public static final String M_EDGESTORE_KEYS = "edgeStoreKeys";
+    public static final String M_EDGESTORE_CONTAINS_KEY = "edgeStoreContainsKey";
+    public static final String M_INDEXSTORE_QUERY = "indexStoreQuery";
+    public static final String M_INDEX_QUERY = "indexQuery";
+    public static final String M_RAW_QUERY = "rawQuery";
+    public static final String M_FLUSH_STORAGE = "flushStorage";
+    public static final String M_COMMIT_STORAGE = "commitStorage";
+    public static final String M_COMMIT_INDEXES = "commitIndexes";
+
     //Assumes 64 bit key length as specified in IDManager
     public static final StaticBuffer EDGESTORE_MIN_KEY = BufferUtil.zeroBuffer(8);
     public static final StaticBuffer EDGESTORE_MAX_KEY = BufferUtil.oneBuffer(8);
@@ -58,6 +84,7 @@ public class BackendTransaction implements LoggableTransaction {
     private final KCVSCache indexStore;
 
     private final Duration maxReadTime;
+    private final long slowOperationNanos;
 
     private final Executor threadPool;
 
@@ -65,7 +92,7 @@ public class BackendTransaction implements LoggableTransaction {
 
     public BackendTransaction(CacheTransaction storeTx, TransactionHandleConfig txConfig,
                               StoreFeatures features, KCVSCache edgeStore, KCVSCache indexStore,
-                              Duration maxReadTime,
+                              Duration maxReadTime, Duration slowOperationThreshold,
                               Map<String, IndexTransaction> indexTx, Executor threadPool) {
         this.storeTx = storeTx;
         this.txConfig = txConfig;
@@ -73,6 +100,7 @@ public class BackendTransaction implements LoggableTransaction {
         this.edgeStore = edgeStore;
         this.indexStore = indexStore;
         this.maxReadTime = maxReadTime;
+        this.slowOperationNanos = slowOperationThreshold.getLength(TimeUnit.NANOSECONDS);
         this.indexTx = indexTx;
         this.threadPool = threadPool;
     }
@@ -85,6 +113,15 @@ public class BackendTransaction implements LoggableTransaction {
         return txConfig;
     }
 
+    /**
+     * Returns the thread pool for parallel backend operations, or null if operations should not be parallelized
+     *
+     * @return
+     */
+    public Executor getThreadPool() {
+        return threadPool;
+    }
+
     public IndexTransaction getIndexTransactionHandle(String index) {
         Preconditions.checkArgument(StringUtils.isNotBlank(index));
         IndexTransaction itx = indexTx.get(index);
@@ -93,10 +130,16 @@ public class BackendTransaction implements LoggableTransaction {
     }
 
     public void commitStorage() throws StorageException {
-        storeTx.commit();
+        long start = System.nanoTime();
+        try {
+            storeTx.commit();
+        } finally {
+            recordOperation(M_COMMIT_STORAGE, "storage", start, 0);
+        }
     }
 
     public Map<String,Throwable> commitIndexes() {
+        long start = System.nanoTime();
         Map<String,Throwable> exceptions = new HashMap<String, Throwable>(indexTx.size());
         for (Map.Entry<String,IndexTransaction> txentry : indexTx.entrySet()) {
             try {
@@ -105,6 +148,7 @@ public class BackendTransaction implements LoggableTransaction {
                 exceptions.put(txentry.getKey(),e);
             }
         }
+        recordOperation(M_COMMIT_INDEXES, indexTx.keySet(), start, 0);
         return exceptions;
     }
 
@@ -115,7 +159,12 @@ public class BackendTransaction implements LoggableTransaction {
     }
 
     public void flushStorage() throws StorageException {
-        storeTx.flush();
+        long start = System.nanoTime();
+        try {
+            storeTx.flush();
+        } finally {
+            recordOperation(M_FLUSH_STORAGE, "storage", start, 0);
+        }
     }
 
     @Override
@@ -235,7 +284,7 @@ public class BackendTransaction implements LoggableTransaction {
      */
 
     public EntryList edgeStoreQuery(final KeySliceQuery query) {
-        return executeRead(new Callable<EntryList>() {
+        return executeRead(M_EDGESTORE_QUERY, query, new Callable<EntryList>() {
             @Override
             public EntryList call() throws Exception {
                 return edgeStore.getSlice(query, storeTx);
@@ -249,8 +298,9 @@ public class BackendTransaction implements LoggableTransaction {
     }
 
     public Map<StaticBuffer,EntryList> edgeStoreMultiQuery(final List<StaticBuffer> keys, final SliceQuery query) {
+        Object target = new MultiQueryDescription(keys, query);
         if (storeFeatures.hasMultiQuery()) {
-            return executeRead(new Callable<Map<StaticBuffer,EntryList>>() {
+            return executeRead(M_EDGESTORE_MULTIQUERY, target, new Callable<Map<StaticBuffer,EntryList>>() {
                 @Override
                 public Map<StaticBuffer,EntryList> call() throws Exception {
                     return edgeStore.getSlice(keys, query, storeTx);
@@ -262,6 +312,7 @@ public class BackendTransaction implements LoggableTransaction {
                 }
             });
         } else {
+            long start = System.nanoTime();
             final Map<StaticBuffer,EntryList> results = new HashMap<StaticBuffer,EntryList>(keys.size());
             if (threadPool == null || keys.size() < MIN_TASKS_TO_PARALLELIZE) {
                 for (StaticBuffer key : keys) {
@@ -288,10 +339,32 @@ public class BackendTransaction implements LoggableTransaction {
                     results.put(keys.get(i),resultArray[i]);
                 }
             }
+            //Retries are recorded for the individual queries
+            recordOperation(M_EDGESTORE_MULTIQUERY, target, start, 0);
             return results;
         }
     }
 
+    /**
+     * Describes a multi-query in the slow operation log without listing all keys
+     */
+    private static class MultiQueryDescription {
+
+        private final List<StaticBuffer> keys;
+        private final SliceQuery query;
+
+        private MultiQueryDescription(List<StaticBuffer> keys, SliceQuery query) {
+            this.keys = keys;
+            this.query = query;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("MultiSliceQuery(keys: %d, first: %s, start: %s, end: %s, limit:%d)", keys.size(),
+                    keys.isEmpty() ? null : keys.get(0), query.getSliceStart(), query.getSliceEnd(), query.getLimit());
+        }
+    }
+
     private class SliceQueryRunner implements Runnable {
 
         final KeySliceQuery kq;
@@ -326,7 +399,7 @@ public class BackendTransaction implements LoggableTransaction {
 
     //TODO: remove and also KeyColumnValueStore.containsKey
     public boolean edgeStoreContainsKey(final StaticBuffer key) {
-        return executeRead(new Callable<Boolean>() {
+        return executeRead(M_EDGESTORE_CONTAINS_KEY, key, new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
                 return edgeStore.containsKey(key, storeTx);
@@ -343,7 +416,7 @@ public class BackendTransaction implements LoggableTransaction {
         if (!storeFeatures.hasScan())
             throw new UnsupportedOperationException("The configured storage backend does not support global graph operations - use Faunus instead");
 
-        return executeRead(new Callable<KeyIterator>() {
+        return executeRead(M_EDGESTORE_KEYS, sliceQuery, new Callable<KeyIterator>() {
             @Override
             public KeyIterator call() throws Exception {
                 return (storeFeatures.isKeyOrdered())
@@ -361,7 +434,7 @@ public class BackendTransaction implements LoggableTransaction {
     public KeyIterator edgeStoreKeys(final KeyRangeQuery range) {
         Preconditions.checkArgument(storeFeatures.hasOrderedScan(), "The configured storage backend does not support ordered scans");
 
-        return executeRead(new Callable<KeyIterator>() {
+        return executeRead(M_EDGESTORE_KEYS, range, new Callable<KeyIterator>() {
             @Override
             public KeyIterator call() throws Exception {
                 return edgeStore.getKeys(range, storeTx);
@@ -375,7 +448,7 @@ public class BackendTransaction implements LoggableTransaction {
     }
 
     public EntryList indexQuery(final KeySliceQuery query) {
-        return executeRead(new Callable<EntryList>() {
+        return executeRead(M_INDEXSTORE_QUERY, query, new Callable<EntryList>() {
             @Override
             public EntryList call() throws Exception {
                 return indexStore.getSlice(query, storeTx);
@@ -392,7 +465,7 @@ public class BackendTransaction implements LoggableTransaction {
 
     public List<String> indexQuery(final String index, final IndexQuery query) {
         final IndexTransaction indexTx = getIndexTransactionHandle(index);
-        return executeRead(new Callable<List<String>>() {
+        return executeRead(M_INDEX_QUERY, query, new Callable<List<String>>() {
             @Override
             public List<String> call() throws Exception {
                 return indexTx.query(query);
@@ -407,7 +480,7 @@ public class BackendTransaction implements LoggableTransaction {
 
     public Iterable<RawQuery.Result<String>> rawQuery(final String index, final RawQuery query) {
         final IndexTransaction indexTx = getIndexTransactionHandle(index);
-        return executeRead(new Callable<Iterable<RawQuery.Result<String>>>() {
+        return executeRead(M_RAW_QUERY, query.getQuery(), new Callable<Iterable<RawQuery.Result<String>>>() {
             @Override
             public Iterable<RawQuery.Result<String>> call() throws Exception {
                 return indexTx.query(query);
@@ -421,8 +494,50 @@ public class BackendTransaction implements LoggableTransaction {
     }
 
 
-    private final <V> V executeRead(Callable<V> exe) throws TitanException {
-        return BackendOperation.execute(exe, maxReadTime);
+    private final <V> V executeRead(String opName, Object target, final Callable<V> exe) throws TitanException {
+        final int[] attempts = new int[1];
+        long start = System.nanoTime();
+        try {
+            return BackendOperation.execute(new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    attempts[0]++;
+                    return exe.call();
+                }
+
+                @Override
+                public String toString() {
+                    return exe.toString();
+                }
+            }, maxReadTime);
+        } finally {
+            recordOperation(opName, target, start, Math.max(0, attempts[0] - 1));
+        }
+    }
+
+    /**
+     * Records the latency and retries of the given operation with the metrics of the transaction's group (if any)
+     * and logs the operation if it exceeded the slow operation threshold.
+     *
+     * @param opName name of the operation
+     * @param target what the operation was executed on, e.g. the query. Only converted to a string for slow operations.
+     * @param start start time of the operation as returned by {@link System#nanoTime()}
+     * @param retries number of times the operation was retried
+     */
+    private void recordOperation(String opName, Object target, long start, int retries) {
+        long time = System.nanoTime() - start;
+        boolean slow = slowOperationNanos > 0 && time >= slowOperationNanos;
+        if (txConfig.hasGroupName()) {
+            MetricManager mgr = MetricManager.INSTANCE;
+            String group = txConfig.getGroupName();
+            mgr.getTimer(group, M_BACKEND, opName, M_TIME).update(time, TimeUnit.NANOSECONDS);
+            if (retries > 0) mgr.getCounter(group, M_BACKEND, opName, M_RETRIES).inc(retries);
+            if (slow) mgr.getCounter(group, M_BACKEND, opName, M_SLOW).inc();
+        }
+        if (slow) {
+            slowLog.warn("Slow backend operation [{}] took {} ms with {} retries in transaction group [{}]: {}",
+                    new Object[]{opName, TimeUnit.NANOSECONDS.toMillis(time), retries, txConfig.getGroupName(), target});
+        }
     }
 
 
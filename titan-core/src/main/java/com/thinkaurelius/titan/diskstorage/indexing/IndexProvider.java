@@ -61,7 +61,8 @@ public interface IndexProvider extends IndexInformation {
      * @param query Query to execute
      * @param informations Information on the keys used in the query accessible through {@link KeyInformation.IndexRetriever}.
      * @param tx Enclosing transaction
-     * @return Results objects for all matching documents (i.e. document id and score)
+     * @return Results objects for all matching documents (i.e. document id and score). Implementations may retrieve
+     * large result sets lazily while the result is being iterated.
      * @throws StorageException
      * @see RawQuery
      */
@@ -1,7 +1,6 @@
 package com.thinkaurelius.titan.diskstorage.keycolumnvalue;
 
 import com.google.common.base.Preconditions;
-import com.thinkaurelius.titan.diskstorage.Entry;
 import com.thinkaurelius.titan.diskstorage.EntryList;
 import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.util.BufferUtil;
@@ -10,9 +9,7 @@ import com.thinkaurelius.titan.graphdb.query.BackendQuery;
 import com.thinkaurelius.titan.graphdb.query.BaseQuery;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.List;
 
 
 /**
@@ -90,19 +87,45 @@ public class SliceQuery extends BaseQuery implements BackendQuery<SliceQuery> {
             return sliceStart.compareTo(oth.sliceStart) == 0 && sliceEnd.compareTo(oth.sliceEnd) >= 0;
     }
 
-    //TODO: make this more efficient by using reuseIterator() on otherResult
+    /**
+     * Returns the subset of the result of the given query which matches this query. Since the entries of the result
+     * are sorted by column, the subset is a contiguous range which is returned as a view of the given result, if
+     * supported, so that no data is copied.
+     *
+     * @param otherQuery a query which subsumes this query
+     * @param otherResult the result of otherQuery
+     * @return
+     */
     public EntryList getSubset(final SliceQuery otherQuery, final EntryList otherResult) {
         assert otherQuery.subsumes(this);
-        int pos = Collections.binarySearch(otherResult, sliceStart);
-        if (pos < 0) pos = -pos - 1;
-
-        List<Entry> result = new ArrayList<Entry>();
-        for (; pos < otherResult.size() && result.size() < getLimit(); pos++) {
-            Entry e = otherResult.get(pos);
-            if (e.getColumnAs(StaticBuffer.STATIC_FACTORY).compareTo(sliceEnd) < 0) result.add(e);
-            else break;
-        }
-        return StaticArrayEntryList.of(result);
+        int start = Collections.binarySearch(otherResult, sliceStart);
+        if (start < 0) start = -start - 1;
+        int end = Collections.binarySearch(otherResult, sliceEnd);
+        if (end < 0) end = -end - 1;
+        if (hasLimit()) end = Math.min(end, start + getLimit());
+        if (start >= end) return EntryList.EMPTY_LIST;
+
+        if (otherResult instanceof StaticArrayEntryList) return ((StaticArrayEntryList) otherResult).subList(start, end);
+        else return StaticArrayEntryList.of(otherResult.subList(start, end));
+    }
+
+    /**
+     * Returns a query for the remainder of this slice which starts right after the given column, i.e. the next page
+     * of results when the given column is the last one returned for this query. Because the slice start is
+     * inclusive, the continuation starts at the immediate successor of the column so no column is returned twice.
+     * <p/>
+     * Returns null if no column can lie between the given column and the end of this slice.
+     *
+     * @param lastColumn last column retrieved by this query
+     * @param newLimit limit for the continuation
+     * @return
+     */
+    public SliceQuery continueAfter(StaticBuffer lastColumn, int newLimit) {
+        Preconditions.checkArgument(sliceStart.compareTo(lastColumn) <= 0 && sliceEnd.compareTo(lastColumn) > 0,
+                "Column does not belong to this slice: %s", lastColumn);
+        StaticBuffer nextStart = BufferUtil.immediateSuccessor(lastColumn);
+        if (nextStart.compareTo(sliceEnd) >= 0) return null;
+        return new SliceQuery(nextStart, sliceEnd).setLimit(newLimit);
     }
 
     public static StaticBuffer pointRange(StaticBuffer point) {
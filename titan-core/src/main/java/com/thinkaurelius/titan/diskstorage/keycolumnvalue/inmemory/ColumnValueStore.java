@@ -5,67 +5,73 @@ import com.thinkaurelius.titan.diskstorage.Entry;
 import com.thinkaurelius.titan.diskstorage.EntryList;
 import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.*;
-import com.thinkaurelius.titan.diskstorage.util.NoLock;
 import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-
-import static com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration.STORAGE_TRANSACTIONAL;
 
 /**
  * Implements a row in the in-memory implementation {@link InMemoryKeyColumnValueStore} which is comprised of
- * column-value pairs. This data is held in a sorted array for space and retrieval efficiency.
+ * column-value pairs. This data is held in sorted arrays for space and retrieval efficiency.
+ * <p/>
+ * The row is an immutable snapshot which is replaced on every mutation, so reads operate on a consistent
+ * version of the row without locking. The snapshot is split into chunks of at most {@link #MAX_CHUNK_SIZE} entries
+ * and a mutation only copies the chunks it modifies (and the array of chunk references), hence small mutations
+ * of large rows do not copy the entire row.
  *
  * @author Matthias Broecheler (me@matthiasb.com)
  */
 
 class ColumnValueStore {
 
-    private static final double SIZE_THRESHOLD = 0.66;
+    static final int MAX_CHUNK_SIZE = 128;
+    private static final int MIN_CHUNK_SIZE = MAX_CHUNK_SIZE / 4;
+
+    private static final Entry[] EMPTY_CHUNK = new Entry[0];
 
-    private Data data;
+    private volatile Data data;
 
     public ColumnValueStore() {
-        data = new Data(new Entry[0], 0);
+        data = new Data(new Entry[0][], 0);
     }
 
     boolean isEmpty(StoreTransaction txh) {
-        Lock lock = getLock(txh);
-        lock.lock();
-        try {
-            return data.isEmpty();
-        } finally {
-            lock.unlock();
-        }
+        return data.isEmpty();
     }
 
     EntryList getSlice(KeySliceQuery query, StoreTransaction txh) {
-        Lock lock = getLock(txh);
-        lock.lock();
-        try {
-            Data datacp = data;
-            int start = datacp.getIndex(query.getSliceStart());
-            if (start < 0) start = (-start - 1);
-            int end = datacp.getIndex(query.getSliceEnd());
-            if (end < 0) end = (-end - 1);
-            if (start < end) {
-                MemoryEntryList result = new MemoryEntryList(end - start);
-                for (int i = start; i < end; i++) {
-                    if (query.hasLimit() && result.size() >= query.getLimit()) break;
-                    result.add(datacp.get(i));
-                }
-                return result;
-            } else {
-                return EntryList.EMPTY_LIST;
+        Data datacp = data;
+        Entry start = StaticArrayEntry.of(query.getSliceStart());
+        Entry end = StaticArrayEntry.of(query.getSliceEnd());
+        if (datacp.isEmpty() || start.compareTo(end) >= 0) return EntryList.EMPTY_LIST;
+
+        int chunk = datacp.getChunk(start);
+        int pos = Arrays.binarySearch(datacp.chunks[chunk], start);
+        if (pos < 0) pos = (-pos - 1);
+        MemoryEntryList result = new MemoryEntryList(query.hasLimit() ? Math.min(query.getLimit(), 16) : 16);
+        for (; chunk < datacp.chunks.length; chunk++, pos = 0) {
+            Entry[] entries = datacp.chunks[chunk];
+            for (; pos < entries.length; pos++) {
+                if (query.hasLimit() && result.size() >= query.getLimit()) return result;
+                if (entries[pos].compareTo(end) >= 0) return result.isEmpty() ? EntryList.EMPTY_LIST : result;
+                result.add(entries[pos]);
             }
-        } finally {
-            lock.unlock();
         }
+        return result.isEmpty() ? EntryList.EMPTY_LIST : result;
+    }
+
+    /**
+     * Returns all entries of the current version of this row in sorted order
+     *
+     * @return
+     */
+    List<Entry> getAll() {
+        Data datacp = data;
+        List<Entry> result = new ArrayList<Entry>(datacp.size);
+        for (Entry[] chunk : datacp.chunks) result.addAll(Arrays.asList(chunk));
+        return result;
     }
 
     private static class MemoryEntryList extends ArrayList<Entry> implements EntryList {
@@ -90,6 +96,15 @@ class ColumnValueStore {
     }
 
 
+    /**
+     * Copies the entry into an array of its own before it is retained in the row. The entries passed to a mutation
+     * may be slices of larger shared buffers (see {@link com.thinkaurelius.titan.diskstorage.util.WriteBufferArena})
+     * which must not be kept alive by the store.
+     */
+    static Entry copy(Entry entry) {
+        return new StaticArrayEntry(entry.as(StaticBuffer.ARRAY_FACTORY), entry.getValuePosition());
+    }
+
     synchronized void mutate(List<Entry> additions, List<StaticBuffer> deletions, StoreTransaction txh) {
         //Prepare data
         Entry[] add;
@@ -97,11 +112,11 @@ class ColumnValueStore {
             add = new Entry[additions.size()];
             int pos = 0;
             for (Entry e : additions) {
-                add[pos] = e;
+                add[pos] = copy(e);
                 pos++;
             }
             Arrays.sort(add);
-        } else add = new Entry[0];
+        } else add = EMPTY_CHUNK;
 
         //Filter out deletions that are also added
         Entry[] del;
@@ -115,105 +130,153 @@ class ColumnValueStore {
             }
             if (pos<deletions.size()) del = Arrays.copyOf(del,pos);
             Arrays.sort(del);
-        } else del = new Entry[0];
-
-        Lock lock = getLock(txh);
-        lock.lock();
-        try {
-            Entry[] olddata = data.array;
-            int oldsize = data.size;
-            Entry[] newdata = new Entry[oldsize + add.length];
-
-            //Merge sort
-            int i = 0, iold = 0, iadd = 0, idel = 0;
-            while (iold < oldsize) {
-                Entry e = olddata[iold];
-                iold++;
-                //Compare with additions
-                if (iadd < add.length) {
-                    int compare = e.compareTo(add[iadd]);
-                    if (compare >= 0) {
-                        e = add[iadd];
-                        iadd++;
-                        //Skip duplicates
-                        while (iadd < add.length && e.equals(add[iadd])) iadd++;
-                    }
-                    if (compare > 0) iold--;
-                }
-                //Compare with deletions
-                if (idel < del.length) {
-                    int compare = e.compareTo(del[idel]);
-                    if (compare == 0) e = null;
-                    if (compare >= 0) idel++;
-                }
-                if (e != null) {
-                    newdata[i] = e;
-                    i++;
-                }
-            }
-            while (iadd < add.length) {
-                newdata[i] = add[iadd];
-                i++;
-                iadd++;
+        } else del = EMPTY_CHUNK;
+
+        if (add.length == 0 && del.length == 0) return;
+
+        Data olddata = data;
+        Entry[][] oldchunks = olddata.chunks;
+        List<Entry[]> newchunks = new ArrayList<Entry[]>(oldchunks.length + 1 + add.length / MAX_CHUNK_SIZE);
+        int size = 0;
+        int chunk = 0, iadd = 0, idel = 0;
+        while (iadd < add.length || idel < del.length) {
+            //Find the chunk which the next addition or deletion belongs to and keep all chunks before it
+            Entry next;
+            if (iadd >= add.length) next = del[idel];
+            else if (idel >= del.length) next = add[iadd];
+            else next = add[iadd].compareTo(del[idel]) <= 0 ? add[iadd] : del[idel];
+            int target = Math.max(chunk, olddata.getChunk(next));
+            for (; chunk < target; chunk++) {
+                newchunks.add(oldchunks[chunk]);
+                size += oldchunks[chunk].length;
             }
 
-            if (i * 1.0 / newdata.length < SIZE_THRESHOLD) {
-                //shrink array to free space
-                Entry[] tmpdata = newdata;
-                newdata = new Entry[i];
-                System.arraycopy(tmpdata, 0, newdata, 0, i);
+            //Merge all additions and deletions that precede the next chunk into the target chunk
+            int addEnd = add.length, delEnd = del.length;
+            if (target + 1 < oldchunks.length) {
+                Entry bound = oldchunks[target + 1][0];
+                addEnd = upperIndex(add, iadd, bound);
+                delEnd = upperIndex(del, idel, bound);
             }
-            data = new Data(newdata, i);
-        } finally {
-            lock.unlock();
+            Entry[] merged = merge(target < oldchunks.length ? oldchunks[target] : EMPTY_CHUNK,
+                    add, iadd, addEnd, del, idel, delEnd);
+            iadd = addEnd;
+            idel = delEnd;
+            chunk = target + 1;
+            size += merged.length;
+            addChunk(newchunks, merged);
+        }
+        for (; chunk < oldchunks.length; chunk++) {
+            newchunks.add(oldchunks[chunk]);
+            size += oldchunks[chunk].length;
         }
+        data = new Data(newchunks.toArray(new Entry[newchunks.size()][]), size);
     }
 
-    private ReentrantLock lock = null;
+    /**
+     * Returns the index of the first entry in the given array, starting at the given index, which is not smaller
+     * than the bound
+     */
+    private static int upperIndex(Entry[] entries, int from, Entry bound) {
+        int pos = Arrays.binarySearch(entries, from, entries.length, bound);
+        return pos < 0 ? -pos - 1 : pos;
+    }
 
-    private Lock getLock(StoreTransaction txh) {
-        Boolean txOn = txh.getConfiguration().getCustomOption(STORAGE_TRANSACTIONAL);
-        if (null != txOn && txOn) {
-            if (lock == null) {
-                synchronized (this) {
-                    if (lock == null) {
-                        lock = new ReentrantLock();
-                    }
+    private static Entry[] merge(Entry[] old, Entry[] add, int addFrom, int addTo, Entry[] del, int delFrom, int delTo) {
+        Entry[] result = new Entry[old.length + addTo - addFrom];
+        int i = 0, iold = 0, iadd = addFrom, idel = delFrom;
+        while (iold < old.length || iadd < addTo) {
+            Entry e;
+            if (iadd >= addTo) {
+                e = old[iold++];
+            } else if (iold >= old.length) {
+                e = add[iadd++];
+            } else {
+                int compare = old[iold].compareTo(add[iadd]);
+                if (compare < 0) {
+                    e = old[iold++];
+                } else {
+                    //Additions replace existing entries
+                    e = add[iadd++];
+                    if (compare == 0) iold++;
                 }
             }
-            return lock;
-        } else return NoLock.INSTANCE;
+            //Skip duplicates
+            while (iadd < addTo && e.compareTo(add[iadd]) == 0) iadd++;
+            //Compare with deletions
+            while (idel < delTo && del[idel].compareTo(e) < 0) idel++;
+            if (idel < delTo && del[idel].compareTo(e) == 0) continue;
+            result[i++] = e;
+        }
+        return i < result.length ? Arrays.copyOf(result, i) : result;
+    }
+
+    /**
+     * Appends the given sorted entries to the list of chunks: empty chunks are dropped, large chunks are split
+     * and small chunks are combined with the preceding chunk.
+     */
+    private static void addChunk(List<Entry[]> chunks, Entry[] entries) {
+        if (entries.length == 0) return;
+        if (entries.length > MAX_CHUNK_SIZE) {
+            //Split into half-full chunks to leave room for subsequent additions
+            int numChunks = (entries.length + MAX_CHUNK_SIZE / 2 - 1) / (MAX_CHUNK_SIZE / 2);
+            for (int i = 0; i < numChunks; i++) {
+                chunks.add(Arrays.copyOfRange(entries, (int) ((long) entries.length * i / numChunks),
+                        (int) ((long) entries.length * (i + 1) / numChunks)));
+            }
+        } else if (entries.length < MIN_CHUNK_SIZE && !chunks.isEmpty()
+                && chunks.get(chunks.size() - 1).length + entries.length <= MAX_CHUNK_SIZE / 2) {
+            Entry[] previous = chunks.get(chunks.size() - 1);
+            Entry[] combined = Arrays.copyOf(previous, previous.length + entries.length);
+            System.arraycopy(entries, 0, combined, previous.length, entries.length);
+            chunks.set(chunks.size() - 1, combined);
+        } else {
+            chunks.add(entries);
+        }
     }
 
     private static class Data {
 
-        final Entry[] array;
+        final Entry[][] chunks;
         final int size;
 
-        Data(final Entry[] array, final int size) {
-            Preconditions.checkArgument(size >= 0 && size <= array.length);
-            assert isSorted();
-            this.array = array;
+        Data(final Entry[][] chunks, final int size) {
+            Preconditions.checkArgument(size >= 0);
+            this.chunks = chunks;
             this.size = size;
+            assert isSorted();
         }
 
         boolean isEmpty() {
             return size == 0;
         }
 
-        int getIndex(StaticBuffer column) {
-            return Arrays.binarySearch(array, 0, size, StaticArrayEntry.of(column));
-        }
-
-        Entry get(int index) {
-            return array[index];
+        /**
+         * Returns the index of the last chunk whose first entry is not greater than the given column,
+         * or 0 if there is no such chunk
+         */
+        int getChunk(Entry column) {
+            int low = 0, high = chunks.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (chunks[mid][0].compareTo(column) <= 0) low = mid + 1;
+                else high = mid - 1;
+            }
+            return Math.max(0, high);
         }
 
         boolean isSorted() {
-            for (int i = 1; i < size; i++) {
-                if (!(array[i].compareTo(array[i - 1]) > 0)) return false;
+            int count = 0;
+            Entry previous = null;
+            for (Entry[] chunk : chunks) {
+                if (chunk.length == 0) return false;
+                for (Entry e : chunk) {
+                    if (previous != null && !(e.compareTo(previous) > 0)) return false;
+                    previous = e;
+                    count++;
+                }
             }
-            return true;
+            return count == size;
         }
 
     }
@@ -9,6 +9,7 @@ import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.StorageException;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.*;
 import com.thinkaurelius.titan.diskstorage.util.RecordIterator;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayBuffer;
 import org.apache.commons.lang.StringUtils;
 
 import javax.annotation.Nullable;
@@ -21,7 +22,8 @@ import java.util.concurrent.ConcurrentSkipListMap;
 /**
  * An in-memory implementation of {@link KeyColumnValueStore}.
  * This implementation is thread-safe. All data is held in memory, which means that the capacity of this store is
- * determined by the available heap space. No data is persisted and all data lost when the jvm terminates or store closed.
+ * determined by the available heap space. Unless the store manager is configured to persist the data through an
+ * {@link InMemoryPersistence}, no data is persisted and all data lost when the jvm terminates or store closed.
  *
  * @author Matthias Broecheler (me@matthiasb.com)
  */
@@ -30,11 +32,21 @@ public class InMemoryKeyColumnValueStore implements KeyColumnValueStore {
 
     private final String name;
     private final ConcurrentNavigableMap<StaticBuffer, ColumnValueStore> kcv;
+    private final InMemoryPersistence persistence;
 
     public InMemoryKeyColumnValueStore(final String name) {
+        this(name, null);
+    }
+
+    /**
+     * @param name
+     * @param persistence records all mutations to this store, or null if the data is not persisted
+     */
+    InMemoryKeyColumnValueStore(final String name, @Nullable InMemoryPersistence persistence) {
         Preconditions.checkArgument(StringUtils.isNotBlank(name));
         this.name = name;
         this.kcv = new ConcurrentSkipListMap<StaticBuffer, ColumnValueStore>();
+        this.persistence = persistence;
     }
 
     @Override
@@ -57,12 +69,45 @@ public class InMemoryKeyColumnValueStore implements KeyColumnValueStore {
 
     @Override
     public void mutate(StaticBuffer key, List<Entry> additions, List<StaticBuffer> deletions, StoreTransaction txh) throws StorageException {
+        ColumnValueStore cvs = getRow(key);
+        if (persistence == null) {
+            cvs.mutate(additions, deletions, txh);
+            return;
+        }
+        persistence.beginMutation();
+        try {
+            //Mutations of the same row must be logged in the order in which they are applied
+            synchronized (cvs) {
+                persistence.log(name, key, additions, deletions);
+                cvs.mutate(additions, deletions, txh);
+            }
+        } finally {
+            persistence.endMutation();
+        }
+    }
+
+    /**
+     * Applies the given mutation without recording it in the {@link InMemoryPersistence}. Used to restore persisted data.
+     */
+    void restore(StaticBuffer key, List<Entry> additions, List<StaticBuffer> deletions) {
+        getRow(key).mutate(additions, deletions, null);
+    }
+
+    private ColumnValueStore getRow(StaticBuffer key) {
         ColumnValueStore cvs = kcv.get(key);
         if (cvs == null) {
-            kcv.putIfAbsent(key, new ColumnValueStore());
+            //Copy the key since it may be a slice of a shared buffer which must not be retained
+            kcv.putIfAbsent(new StaticArrayBuffer(key.as(StaticBuffer.ARRAY_FACTORY)), new ColumnValueStore());
             cvs = kcv.get(key);
         }
-        cvs.mutate(additions, deletions, txh);
+        return cvs;
+    }
+
+    /**
+     * Returns a live view of the rows of this store, used to take snapshots
+     */
+    Map<StaticBuffer, ColumnValueStore> getRows() {
+        return kcv;
     }
 
     @Override
@@ -96,7 +141,8 @@ public class InMemoryKeyColumnValueStore implements KeyColumnValueStore {
 
     @Override
     public void close() throws StorageException {
-        kcv.clear();
+        //Persisted data is retained until the store manager has written its final snapshot
+        if (persistence == null) kcv.clear();
     }
 
 
@@ -0,0 +1,403 @@
+package com.thinkaurelius.titan.diskstorage.keycolumnvalue.inmemory;
+
+import com.google.common.base.Preconditions;
+import com.thinkaurelius.titan.diskstorage.Entry;
+import com.thinkaurelius.titan.diskstorage.PermanentStorageException;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
+import com.thinkaurelius.titan.diskstorage.StorageException;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayBuffer;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
+import com.thinkaurelius.titan.util.system.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persists the data of an {@link InMemoryStoreManager} in a local directory so that it survives restarts.
+ * <p/>
+ * Every mutation is appended to a write-ahead log before it is applied. A snapshot of all stores is written
+ * periodically and when the store manager is closed, after which the write-ahead logs preceding the snapshot are
+ * deleted. On startup, the latest snapshot is loaded and the subsequent write-ahead logs are replayed.
+ * <p/>
+ * Snapshots are taken while the stores are being mutated and hence may or may not contain the mutations recorded
+ * in the write-ahead log that is started with the snapshot. Since mutations set or delete individual columns,
+ * replaying them on top of the snapshot yields the same data either way.
+ * <p/>
+ * The write-ahead log is flushed to the operating system after each mutation but not synced to disk, i.e. mutations
+ * survive a crash of the jvm but not necessarily of the machine.
+ */
+class InMemoryPersistence {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryPersistence.class);
+
+    private static final String SNAPSHOT_FILE = "snapshot";
+    private static final String TEMP_SNAPSHOT_FILE = "snapshot.tmp";
+    private static final String LOG_FILE_PREFIX = "wal.";
+
+    private static final int SNAPSHOT_MAGIC = 0x54494d53;
+
+    private final File directory;
+
+    /**
+     * Mutations hold the read lock while they are logged and applied, switching to a new log requires the write lock
+     * so that all mutations recorded in previous logs are contained in the subsequent snapshot.
+     */
+    private final ReadWriteLock logLock = new ReentrantReadWriteLock();
+
+    /**
+     * Guards the write-ahead log stream. Held by mutations while appending a record and by {@link #openNextLog()},
+     * which callers invoke under the write lock. Lock order: {@link #snapshotLock}, {@link #logLock}, this lock.
+     */
+    private final Object logStreamLock = new Object();
+
+    /**
+     * Serializes snapshots, clearing and closing. Never acquired by mutations, so that writing a snapshot does not
+     * stall them.
+     */
+    private final Object snapshotLock = new Object();
+
+    private long logNumber;
+    private DataOutputStream logOut;
+
+    InMemoryPersistence(File directory) {
+        Preconditions.checkArgument(directory != null && directory.isDirectory(), "Invalid directory: %s", directory);
+        this.directory = directory;
+    }
+
+    /**
+     * Restores the persisted data into the stores of the given store manager and starts a new write-ahead log.
+     *
+     * @param manager
+     * @throws StorageException
+     */
+    void recover(InMemoryStoreManager manager) throws StorageException {
+        synchronized (snapshotLock) {
+            Preconditions.checkState(!isStarted(), "Persistence has already been started");
+            long firstLog = 0;
+            File snapshot = new File(directory, SNAPSHOT_FILE);
+            if (snapshot.exists()) {
+                firstLog = readSnapshot(snapshot, manager);
+            }
+            long lastLog = firstLog - 1;
+            for (long number : getLogNumbers()) {
+                if (number < firstLog) continue;
+                replayLog(getLogFile(number), manager);
+                lastLog = number;
+            }
+            logLock.writeLock().lock();
+            try {
+                synchronized (logStreamLock) {
+                    logNumber = lastLog;
+                    openNextLog();
+                }
+            } finally {
+                logLock.writeLock().unlock();
+            }
+        }
+    }
+
+    void beginMutation() {
+        logLock.readLock().lock();
+    }
+
+    void endMutation() {
+        logLock.readLock().unlock();
+    }
+
+    /**
+     * Appends the given mutation to the write-ahead log. Must be called between {@link #beginMutation()}
+     * and {@link #endMutation()}.
+     */
+    void log(String store, StaticBuffer key, List<Entry> additions, List<StaticBuffer> deletions) throws StorageException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(store);
+            writeBuffer(out, key);
+            out.writeInt(additions.size());
+            for (Entry e : additions) writeEntry(out, e);
+            out.writeInt(deletions.size());
+            for (StaticBuffer b : deletions) writeBuffer(out, b);
+            out.flush();
+        } catch (IOException e) {
+            throw new PermanentStorageException("Could not serialize mutation", e);
+        }
+        byte[] record = bytes.toByteArray();
+        CRC32 checksum = new CRC32();
+        checksum.update(record);
+        synchronized (logStreamLock) {
+            Preconditions.checkState(logOut != null, "Persistence has not been started or has been closed");
+            try {
+                logOut.writeInt(record.length);
+                logOut.write(record);
+                logOut.writeLong(checksum.getValue());
+                logOut.flush();
+            } catch (IOException e) {
+                throw new PermanentStorageException("Could not write to write-ahead log: " + getLogFile(logNumber), e);
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given stores and deletes the write-ahead logs that are no longer needed.
+     *
+     * @param stores
+     * @throws StorageException
+     */
+    void snapshot(Collection<InMemoryKeyColumnValueStore> stores) throws StorageException {
+        synchronized (snapshotLock) {
+            writeSnapshot(stores);
+        }
+    }
+
+    private void writeSnapshot(Collection<InMemoryKeyColumnValueStore> stores) throws StorageException {
+        long snapshotLog;
+        logLock.writeLock().lock();
+        try {
+            synchronized (logStreamLock) {
+                Preconditions.checkState(logOut != null, "Persistence has not been started or has been closed");
+                openNextLog();
+                snapshotLog = logNumber;
+            }
+        } finally {
+            logLock.writeLock().unlock();
+        }
+        //Mutations proceed against the new log while the snapshot is written
+        long time = System.currentTimeMillis();
+        File temp = new File(directory, TEMP_SNAPSHOT_FILE);
+        FileOutputStream fileOut = null;
+        try {
+            fileOut = new FileOutputStream(temp);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(snapshotLog);
+            for (InMemoryKeyColumnValueStore store : stores) {
+                out.writeBoolean(true);
+                out.writeUTF(store.getName());
+                for (Map.Entry<StaticBuffer, ColumnValueStore> row : store.getRows().entrySet()) {
+                    List<Entry> entries = row.getValue().getAll();
+                    if (entries.isEmpty()) continue;
+                    out.writeBoolean(true);
+                    writeBuffer(out, row.getKey());
+                    out.writeInt(entries.size());
+                    for (Entry e : entries) writeEntry(out, e);
+                }
+                out.writeBoolean(false);
+            }
+            out.writeBoolean(false);
+            out.flush();
+            fileOut.getFD().sync();
+            out.close();
+            fileOut = null;
+        } catch (IOException e) {
+            throw new PermanentStorageException("Could not write snapshot: " + temp, e);
+        } finally {
+            IOUtils.closeQuietly(fileOut);
+        }
+        File snapshot = new File(directory, SNAPSHOT_FILE);
+        if (!temp.renameTo(snapshot)) {
+            if (!snapshot.delete() || !temp.renameTo(snapshot))
+                throw new PermanentStorageException("Could not replace snapshot: " + snapshot);
+        }
+        for (long number : getLogNumbers()) {
+            if (number < snapshotLog && !getLogFile(number).delete())
+                log.warn("Could not delete write-ahead log: {}", getLogFile(number));
+        }
+        log.debug("Wrote snapshot of in-memory stores in {} ms", System.currentTimeMillis() - time);
+    }
+
+    /**
+     * Deletes all persisted data and starts a new write-ahead log
+     *
+     * @throws StorageException
+     */
+    void clear() throws StorageException {
+        synchronized (snapshotLock) {
+            logLock.writeLock().lock();
+            try {
+                synchronized (logStreamLock) {
+                    closeLog();
+                    for (long number : getLogNumbers()) getLogFile(number).delete();
+                    new File(directory, SNAPSHOT_FILE).delete();
+                    new File(directory, TEMP_SNAPSHOT_FILE).delete();
+                    openNextLog();
+                }
+            } finally {
+                logLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes a final snapshot of the given stores and closes the write-ahead log
+     *
+     * @param stores
+     * @throws StorageException
+     */
+    void close(Collection<InMemoryKeyColumnValueStore> stores) throws StorageException {
+        synchronized (snapshotLock) {
+            if (!isStarted()) return;
+            try {
+                writeSnapshot(stores);
+            } finally {
+                logLock.writeLock().lock();
+                try {
+                    synchronized (logStreamLock) {
+                        closeLog();
+                    }
+                } finally {
+                    logLock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private boolean isStarted() {
+        synchronized (logStreamLock) {
+            return logOut != null;
+        }
+    }
+
+    /**
+     * Closes the current write-ahead log and opens the next one. Callers must hold the write lock and
+     * {@link #logStreamLock}.
+     */
+    private void openNextLog() throws StorageException {
+        closeLog();
+        logNumber++;
+        File file = getLogFile(logNumber);
+        try {
+            logOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        } catch (IOException e) {
+            throw new PermanentStorageException("Could not open write-ahead log: " + file, e);
+        }
+    }
+
+    private void closeLog() throws StorageException {
+        if (logOut == null) return;
+        try {
+            logOut.close();
+        } catch (IOException e) {
+            throw new PermanentStorageException("Could not close write-ahead log: " + getLogFile(logNumber), e);
+        } finally {
+            logOut = null;
+        }
+    }
+
+    private File getLogFile(long number) {
+        return new File(directory, LOG_FILE_PREFIX + number);
+    }
+
+    private List<Long> getLogNumbers() {
+        List<Long> numbers = new ArrayList<Long>();
+        String[] files = directory.list();
+        if (files == null) return numbers;
+        for (String file : files) {
+            if (!file.startsWith(LOG_FILE_PREFIX)) continue;
+            try {
+                numbers.add(Long.parseLong(file.substring(LOG_FILE_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring unexpected file in storage directory: {}", file);
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private static long readSnapshot(File file, InMemoryStoreManager manager) throws StorageException {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != SNAPSHOT_MAGIC)
+                throw new PermanentStorageException("Not a valid snapshot of in-memory stores: " + file);
+            long firstLog = in.readLong();
+            while (in.readBoolean()) {
+                InMemoryKeyColumnValueStore store = manager.openDatabase(in.readUTF());
+                while (in.readBoolean()) {
+                    StaticBuffer key = readBuffer(in);
+                    int size = in.readInt();
+                    List<Entry> entries = new ArrayList<Entry>(size);
+                    for (int i = 0; i < size; i++) entries.add(readEntry(in));
+                    store.restore(key, entries, Collections.<StaticBuffer>emptyList());
+                }
+            }
+            return firstLog;
+        } catch (IOException e) {
+            throw new PermanentStorageException("Could not read snapshot: " + file, e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static void replayLog(File file, InMemoryStoreManager manager) throws StorageException {
+        DataInputStream in = null;
+        int records = 0;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            while (true) {
+                byte[] record;
+                long checksum;
+                try {
+                    int length = in.readInt();
+                    if (length < 0) break;
+                    record = new byte[length];
+                    in.readFully(record);
+                    checksum = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if (crc.getValue() != checksum) {
+                    log.warn("Ignoring corrupt record at the end of write-ahead log {}", file);
+                    break;
+                }
+                DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(record));
+                InMemoryKeyColumnValueStore store = manager.openDatabase(recordIn.readUTF());
+                StaticBuffer key = readBuffer(recordIn);
+                int numAdditions = recordIn.readInt();
+                List<Entry> additions = new ArrayList<Entry>(numAdditions);
+                for (int i = 0; i < numAdditions; i++) additions.add(readEntry(recordIn));
+                int numDeletions = recordIn.readInt();
+                List<StaticBuffer> deletions = new ArrayList<StaticBuffer>(numDeletions);
+                for (int i = 0; i < numDeletions; i++) deletions.add(readBuffer(recordIn));
+                store.restore(key, additions, deletions);
+                records++;
+            }
+        } catch (IOException e) {
+            throw new PermanentStorageException("Could not read write-ahead log: " + file, e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        log.debug("Replayed {} mutations from write-ahead log {}", records, file);
+    }
+
+    private static void writeBuffer(DataOutputStream out, StaticBuffer buffer) throws IOException {
+        out.writeInt(buffer.length());
+        out.write(buffer.as(StaticBuffer.ARRAY_FACTORY));
+    }
+
+    private static StaticBuffer readBuffer(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return StaticArrayBuffer.of(bytes);
+    }
+
+    private static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+        out.writeInt(entry.getValuePosition());
+        writeBuffer(out, entry);
+    }
+
+    private static Entry readEntry(DataInputStream in) throws IOException {
+        int valuePosition = in.readInt();
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new StaticArrayEntry(bytes, valuePosition);
+    }
+
+}
@@ -1,27 +1,56 @@
 package com.thinkaurelius.titan.diskstorage.keycolumnvalue.inmemory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.thinkaurelius.titan.core.TitanException;
+import com.thinkaurelius.titan.core.time.Duration;
+import com.thinkaurelius.titan.core.time.SimpleDuration;
 import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.StorageException;
 import com.thinkaurelius.titan.diskstorage.TransactionHandleConfig;
 import com.thinkaurelius.titan.diskstorage.common.AbstractStoreTransaction;
+import com.thinkaurelius.titan.diskstorage.configuration.ConfigOption;
 import com.thinkaurelius.titan.diskstorage.configuration.Configuration;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.*;
+import com.thinkaurelius.titan.diskstorage.util.DirectoryUtil;
 import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * In-memory backend storage engine.
+ * <p/>
+ * If {@link #PERSISTENCE} is enabled, the data is persisted in the configured storage directory through an
+ * {@link InMemoryPersistence} and restored when the store manager is opened again.
  *
  * @author Matthias Broecheler (me@matthiasb.com)
  */
 
 public class InMemoryStoreManager implements KeyColumnValueStoreManager {
 
+    private static final Logger log = LoggerFactory.getLogger(InMemoryStoreManager.class);
+
+    public static final ConfigOption<Boolean> PERSISTENCE = new ConfigOption<Boolean>(GraphDatabaseConfiguration.STORAGE_NS,"inmemory-persistence",
+            "Whether the in-memory storage backend persists its data in the storage directory by means of a write-ahead log " +
+                    "and periodic snapshots",
+            ConfigOption.Type.LOCAL, false);
+
+    public static final ConfigOption<Duration> SNAPSHOT_INTERVAL = new ConfigOption<Duration>(GraphDatabaseConfiguration.STORAGE_NS,"inmemory-snapshot-interval",
+            "Time in ms between snapshots of the persisted in-memory storage backend. Snapshots bound the length of the " +
+                    "write-ahead log that needs to be replayed on startup. If zero, a snapshot is only taken on close.",
+            ConfigOption.Type.LOCAL, new SimpleDuration(10L, TimeUnit.MINUTES));
+
     private final ConcurrentHashMap<String, InMemoryKeyColumnValueStore> stores;
 
+    private final InMemoryPersistence persistence;
+    private final ScheduledExecutorService snapshotService;
+
     private final StoreFeatures features;
 
     public InMemoryStoreManager() {
@@ -32,6 +61,38 @@ public class InMemoryStoreManager implements KeyColumnValueStoreManager {
 
         stores = new ConcurrentHashMap<String, InMemoryKeyColumnValueStore>();
 
+        if (configuration.get(PERSISTENCE)) {
+            Preconditions.checkArgument(configuration.has(GraphDatabaseConfiguration.STORAGE_DIRECTORY),
+                    "Need to configure a storage directory to persist the in-memory storage backend");
+            try {
+                persistence = new InMemoryPersistence(DirectoryUtil.getOrCreateDataDirectory(
+                        configuration.get(GraphDatabaseConfiguration.STORAGE_DIRECTORY)));
+                persistence.recover(this);
+            } catch (StorageException e) {
+                throw new TitanException("Could not restore persisted data of in-memory storage backend", e);
+            }
+            long interval = configuration.get(SNAPSHOT_INTERVAL).getLength(TimeUnit.MILLISECONDS);
+            if (interval > 0) {
+                snapshotService = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("InMemorySnapshot-%d")
+                        .build());
+                snapshotService.scheduleWithFixedDelay(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            persistence.snapshot(stores.values());
+                        } catch (Throwable e) {
+                            log.error("Could not take snapshot of in-memory storage backend", e);
+                        }
+                    }
+                }, interval, interval, TimeUnit.MILLISECONDS);
+            } else snapshotService = null;
+        } else {
+            persistence = null;
+            snapshotService = null;
+        }
+
         features = new StandardStoreFeatures.Builder()
             .orderedScan(true)
             .unorderedScan(true)
@@ -59,6 +120,8 @@ public class InMemoryStoreManager implements KeyColumnValueStoreManager {
 
     @Override
     public void close() throws StorageException {
+        if (snapshotService != null) snapshotService.shutdownNow();
+        if (persistence != null) persistence.close(stores.values());
         for (InMemoryKeyColumnValueStore store : stores.values()) {
             store.close();
         }
@@ -70,6 +133,7 @@ public class InMemoryStoreManager implements KeyColumnValueStoreManager {
         for (InMemoryKeyColumnValueStore store : stores.values()) {
             store.clear();
         }
+        if (persistence != null) persistence.clear();
     }
 
     @Override
@@ -78,11 +142,11 @@ public class InMemoryStoreManager implements KeyColumnValueStoreManager {
     }
 
     @Override
-    public KeyColumnValueStore openDatabase(final String name) throws StorageException {
+    public InMemoryKeyColumnValueStore openDatabase(final String name) throws StorageException {
         if (!stores.containsKey(name)) {
-            stores.putIfAbsent(name, new InMemoryKeyColumnValueStore(name));
+            stores.putIfAbsent(name, new InMemoryKeyColumnValueStore(name, persistence));
         }
-        KeyColumnValueStore store = stores.get(name);
+        InMemoryKeyColumnValueStore store = stores.get(name);
         Preconditions.checkNotNull(store);
         return store;
     }
@@ -266,6 +266,27 @@ public abstract class AbstractLocker<S extends LockStatus> implements Locker {
      */
     protected abstract void checkSingleLock(KeyColumn lockID, S lockStatus, StoreTransaction tx) throws Throwable;
 
+    /**
+     * Try to verify that every lock in {@code locks} is already held by
+     * {@code tx}. The values of {@code locks} are the objects returned by prior
+     * calls to {@link #writeSingleLock(KeyColumn, StoreTransaction)}.
+     * <p/>
+     * The default implementation calls
+     * {@link #checkSingleLock(KeyColumn, LockStatus, StoreTransaction)} on each
+     * lock in turn. Implementations which can verify several locks at once
+     * with fewer round-trips to the locking backend may override this method.
+     *
+     * @param locks the locks written by {@code tx}
+     * @param tx    identifies the process claiming these locks
+     * @throws Throwable if any lock fails the check or if the attempted check
+     *                   encountered an error
+     */
+    protected void checkAllLocks(Map<KeyColumn, S> locks, StoreTransaction tx) throws Throwable {
+        for (KeyColumn kc : locks.keySet()) {
+            checkSingleLock(kc, locks.get(kc), tx);
+        }
+    }
+
     /**
      * Try to unlock/release/delete the lock identified by {@code lockID} and
      * both held by and verified for {@code tx}. This method is only called with
@@ -343,9 +364,7 @@ public abstract class AbstractLocker<S extends LockStatus> implements Locker {
         // interrupt
         boolean ok = false;
         try {
-            for (KeyColumn kc : m.keySet()) {
-                checkSingleLock(kc, m.get(kc), tx);
-            }
+            checkAllLocks(m, tx);
             ok = true;
         } catch (InterruptedException e) {
             throw new TemporaryLockingException(e);
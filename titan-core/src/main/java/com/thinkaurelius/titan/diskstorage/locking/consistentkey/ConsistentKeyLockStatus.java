@@ -14,11 +14,24 @@ public class ConsistentKeyLockStatus implements LockStatus {
 
     private final Timepoint write;
     private final Timepoint expire;
+    private final boolean written;
     private boolean checked;
 
     public ConsistentKeyLockStatus(Timepoint written, Timepoint expire) {
-        this.write = written;
+        this(written, expire, true);
+    }
+
+    /**
+     * @param claimed the timestamp of the lock claim; this is the write
+     *                timestamp if {@code written} is true
+     * @param expire  the expiration instant of the lock
+     * @param written whether the lock claim has already been written to the store
+     *                or is still pending a batched write
+     */
+    public ConsistentKeyLockStatus(Timepoint claimed, Timepoint expire, boolean written) {
+        this.write = claimed;
         this.expire = expire;
+        this.written = written;
         this.checked = false;
     }
 
@@ -35,6 +48,10 @@ public class ConsistentKeyLockStatus implements LockStatus {
         return write;
     }
 
+    public boolean isWritten() {
+        return written;
+    }
+
     public boolean isChecked() {
         return checked;
     }
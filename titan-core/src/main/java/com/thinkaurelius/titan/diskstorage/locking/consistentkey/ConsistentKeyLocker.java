@@ -4,6 +4,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.thinkaurelius.titan.core.TitanConfigurationException;
 import com.thinkaurelius.titan.core.time.Duration;
@@ -20,8 +21,13 @@ import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A global {@link Locker} that resolves inter-thread lock contention via
@@ -102,6 +108,19 @@ import java.util.List;
  * {@code rid} is only unique at the process level.  Without a mediator, distinct
  * threads could write lock columns with the same {@code rid} and be unable to
  * tell their lock claims apart.
+ * <p/>
+ * <h4>Batched locking</h4>
+ * <p/>
+ * When built with {@link Builder#batchLocks(boolean)} enabled, the first step
+ * above is deferred: {@code writeLock} only claims the lock locally and the
+ * lock columns for all of a transaction's pending claims are written together
+ * when the transaction's locks are checked. The pending columns share one
+ * timestamp and are written with a single
+ * {@link KeyColumnValueStoreManager#mutateMany(Map, StoreTransaction)} call
+ * where the store supports batch mutation. The {@code lockWait} interval is
+ * then waited out once for the whole batch and all lock keys are read back
+ * with a single multi-key slice where the store supports multi-queries.
+ * The seniority check itself is unchanged.
  */
 public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus> implements Locker {
 
@@ -119,6 +138,12 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
 
     private final int lockRetryCount;
 
+    /**
+     * Whether lock claims are deferred and written in batches; see
+     * {@link Builder#batchLocks(boolean)}.
+     */
+    private final boolean batchLocks;
+
     /**
      * Expired lock cleaner in charge of {@link #store}.
      */
@@ -139,6 +164,7 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
         // Optional (has default)
         private Duration lockWait;
         private int lockRetryCount;
+        private boolean batchLocks;
 
         private enum CleanerConfig {
             NONE,
@@ -154,6 +180,7 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
             this.manager = manager;
             this.lockWait = GraphDatabaseConfiguration.LOCK_WAIT.getDefaultValue();
             this.lockRetryCount = GraphDatabaseConfiguration.LOCK_RETRY.getDefaultValue();
+            this.batchLocks = GraphDatabaseConfiguration.LOCK_BATCH.getDefaultValue();
         }
 
         public Builder lockWait(Duration d) {
@@ -166,6 +193,18 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
             return self();
         }
 
+        /**
+         * Whether to defer writing lock claims until the locks are checked,
+         * and then write and check all of a transaction's claims in a batch.
+         *
+         * @param batch true to batch lock claims
+         * @return this builder
+         */
+        public Builder batchLocks(boolean batch) {
+            this.batchLocks = batch;
+            return self();
+        }
+
         public Builder standardCleaner() {
             this.cleanerConfig = CleanerConfig.STANDARD;
             this.customCleanerService = null;
@@ -195,6 +234,8 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
 
             lockExpire(config.get(GraphDatabaseConfiguration.LOCK_EXPIRE));
 
+            batchLocks(config.get(GraphDatabaseConfiguration.LOCK_BATCH));
+
             if (config.get(GraphDatabaseConfiguration.LOCK_CLEAN_EXPIRED)) {
                 standardCleaner();
             }
@@ -225,7 +266,7 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
                     lockWait,
                     lockRetryCount,
                     lockExpire,
-                    lockState, cleaner);
+                    lockState, cleaner, batchLocks);
         }
 
         @Override
@@ -248,13 +289,14 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
                                 LocalLockMediator<StoreTransaction> llm, Duration lockWait,
                                 int lockRetryCount, Duration lockExpire,
                                 LockerState<ConsistentKeyLockStatus> lockState,
-                                LockCleanerService cleanerService) {
+                                LockCleanerService cleanerService, boolean batchLocks) {
         super(rid, times, serializer, llm, lockState, lockExpire, log);
         this.store = store;
         this.manager = manager;
         this.lockWait = lockWait;
         this.lockRetryCount = lockRetryCount;
         this.cleanerService = cleanerService;
+        this.batchLocks = batchLocks;
     }
 
     /**
@@ -278,6 +320,12 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
     @Override
     protected ConsistentKeyLockStatus writeSingleLock(KeyColumn lockID, StoreTransaction txh) throws Throwable {
 
+        if (batchLocks) {
+            // Defer the write until checkAllLocks(...)
+            final Timepoint claimInstant = times.getTime();
+            return new ConsistentKeyLockStatus(claimInstant, claimInstant.add(lockExpire), false);
+        }
+
         final StaticBuffer lockKey = serializer.toLockKey(lockID.getKey(), lockID.getColumn());
         StaticBuffer oldLockCol = null;
 
@@ -289,29 +337,66 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
                 return new ConsistentKeyLockStatus(writeInstant, expireInstant);
             }
             oldLockCol = wr.getLockCol();
-            handleMutationFailure(lockID, lockKey, wr, txh);
+            handleMutationFailure(lockID, ImmutableList.of(lockKey), wr, txh);
         }
-        tryDeleteLockOnce(lockKey, oldLockCol, txh);
+        tryDeleteLockOnce(ImmutableList.of(lockKey), oldLockCol, txh);
         // TODO log exception or successful too-slow write here
         throw new TemporaryStorageException("Lock write retry count exceeded");
     }
 
+    /**
+     * Write lock claims for all {@code lockIDs} with a shared timestamp, using
+     * the same retry logic as {@link #writeSingleLock(KeyColumn, StoreTransaction)}.
+     *
+     * @param lockIDs locks with pending claims
+     * @param txh     transaction
+     * @return the status of each lock whose claim was written
+     * @throws TemporaryLockingException if the lock retry count is exceeded without successfully
+     *                                   writing the locks in less than the wait limit
+     * @throws Throwable                 if the storage layer throws anything else
+     */
+    private Map<KeyColumn, ConsistentKeyLockStatus> writeLockBatch(Collection<KeyColumn> lockIDs, StoreTransaction txh) throws Throwable {
+
+        final List<StaticBuffer> lockKeys = new ArrayList<StaticBuffer>(lockIDs.size());
+        for (KeyColumn kc : lockIDs) {
+            lockKeys.add(serializer.toLockKey(kc.getKey(), kc.getColumn()));
+        }
+        StaticBuffer oldLockCol = null;
+
+        for (int i = 0; i < lockRetryCount; i++) {
+            WriteResult wr = tryWriteLockOnce(lockKeys, oldLockCol, txh);
+            if (wr.isSuccessful() && wr.getDuration().compareTo(lockWait) <= 0) {
+                final Timepoint writeInstant = wr.getWriteTimestamp();
+                final Timepoint expireInstant = writeInstant.add(lockExpire);
+                Map<KeyColumn, ConsistentKeyLockStatus> result = new HashMap<KeyColumn, ConsistentKeyLockStatus>(lockIDs.size());
+                for (KeyColumn kc : lockIDs) {
+                    result.put(kc, new ConsistentKeyLockStatus(writeInstant, expireInstant));
+                }
+                return result;
+            }
+            oldLockCol = wr.getLockCol();
+            handleMutationFailure(lockIDs, lockKeys, wr, txh);
+        }
+        tryDeleteLockOnce(lockKeys, oldLockCol, txh);
+        throw new TemporaryStorageException("Lock write retry count exceeded for batch of " + lockIDs.size() + " locks");
+    }
+
     /**
      * Log a message and/or throw an exception in response to a lock write
      * mutation that failed. "Failed" means that the mutation either succeeded
      * but took longer to complete than configured lock wait time, or that
      * the call to mutate threw something.
      *
-     * @param lockID  coordinates identifying the lock we tried but failed to
-     *                acquire
-     * @param lockKey the byte value of the key that we mutated or attempted to
-     *                mutate in the lock store
-     * @param wr      result of the mutation
-     * @param txh     transaction attempting the lock
+     * @param lockID   coordinates identifying the lock(s) we tried but failed to
+     *                 acquire
+     * @param lockKeys the byte values of the keys that we mutated or attempted to
+     *                 mutate in the lock store
+     * @param wr       result of the mutation
+     * @param txh      transaction attempting the lock
      * @throws Throwable if {@link WriteResult#getThrowable()} is not an instance of
      *                   {@link TemporaryStorageException}
      */
-    private void handleMutationFailure(KeyColumn lockID, StaticBuffer lockKey, WriteResult wr, StoreTransaction txh) throws Throwable {
+    private void handleMutationFailure(Object lockID, List<StaticBuffer> lockKeys, WriteResult wr, StoreTransaction txh) throws Throwable {
         Throwable error = wr.getThrowable();
         if (null != error) {
             if (error instanceof TemporaryStorageException) {
@@ -324,7 +409,7 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
                  * we have retries left.
                  */
                 log.error("Fatal exception encountered during attempted lock write", error);
-                WriteResult dwr = tryDeleteLockOnce(lockKey, wr.getLockCol(), txh);
+                WriteResult dwr = tryDeleteLockOnce(lockKeys, wr.getLockCol(), txh);
                 if (!dwr.isSuccessful()) {
                     log.warn("Failed to delete lock write: abandoning potentially-unreleased lock on " + lockID, dwr.getThrowable());
                 }
@@ -336,13 +421,17 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
     }
 
     private WriteResult tryWriteLockOnce(StaticBuffer key, StaticBuffer del, StoreTransaction txh) {
+        return tryWriteLockOnce(ImmutableList.of(key), del, txh);
+    }
+
+    private WriteResult tryWriteLockOnce(List<StaticBuffer> keys, StaticBuffer del, StoreTransaction txh) {
         Throwable t = null;
         final Timer writeTimer = new Timer(times).start();
         StaticBuffer newLockCol = serializer.toLockCol(writeTimer.getStartTime(timeUnit), rid);
         Entry newLockEntry = StaticArrayEntry.of(newLockCol, zeroBuf);
         try {
             StoreTransaction newTx = overrideTimestamp(txh, writeTimer.getStartTime());
-            store.mutate(key, Arrays.asList(newLockEntry), null == del ? KeyColumnValueStore.NO_DELETIONS : Arrays.asList(del), newTx);
+            mutateLockKeys(keys, newLockEntry, del, newTx);
         } catch (StorageException e) {
             log.debug("Lock write attempt failed with exception", e);
             t = e;
@@ -352,12 +441,12 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
         return new WriteResult(writeTimer.elapsed(), writeTimer.getStartTime(), newLockCol, t);
     }
 
-    private WriteResult tryDeleteLockOnce(StaticBuffer key, StaticBuffer col, StoreTransaction txh) {
+    private WriteResult tryDeleteLockOnce(List<StaticBuffer> keys, StaticBuffer col, StoreTransaction txh) {
         Throwable t = null;
         final Timer delTimer = new Timer(times).start();
         try {
             StoreTransaction newTx = overrideTimestamp(txh, delTimer.getStartTime());
-            store.mutate(key, ImmutableList.<Entry>of(), Arrays.asList(col), newTx);
+            mutateLockKeys(keys, null, col, newTx);
         } catch (StorageException e) {
             t = e;
         }
@@ -366,6 +455,33 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
         return new WriteResult(delTimer.elapsed(), delTimer.getStartTime(), null, t);
     }
 
+    /**
+     * Add {@code add} to and/or delete {@code del} from every key in
+     * {@code keys}. Multiple keys are written with a single
+     * {@code mutateMany} call if the store manager supports batch mutations.
+     */
+    private void mutateLockKeys(List<StaticBuffer> keys, Entry add, StaticBuffer del, StoreTransaction tx) throws StorageException {
+        if (1 == keys.size()) {
+            store.mutate(keys.get(0), null == add ? ImmutableList.<Entry>of() : Arrays.asList(add),
+                    null == del ? KeyColumnValueStore.NO_DELETIONS : Arrays.asList(del), tx);
+        } else if (manager instanceof KeyColumnValueStoreManager && manager.getFeatures().hasBatchMutation()) {
+            Map<StaticBuffer, KCVMutation> mutations = new HashMap<StaticBuffer, KCVMutation>(keys.size());
+            for (StaticBuffer key : keys) {
+                List<Entry> additions = new ArrayList<Entry>(1);
+                if (null != add) additions.add(add);
+                List<StaticBuffer> deletions = new ArrayList<StaticBuffer>(1);
+                if (null != del) deletions.add(del);
+                mutations.put(key, new KCVMutation(additions, deletions));
+            }
+            ((KeyColumnValueStoreManager) manager).mutateMany(ImmutableMap.of(store.getName(), mutations), tx);
+        } else {
+            for (StaticBuffer key : keys) {
+                store.mutate(key, null == add ? ImmutableList.<Entry>of() : Arrays.asList(add),
+                        null == del ? KeyColumnValueStore.NO_DELETIONS : Arrays.asList(del), tx);
+            }
+        }
+    }
+
     @Override
     protected void checkSingleLock(final KeyColumn kc, final ConsistentKeyLockStatus ls, final StoreTransaction tx) throws StorageException, InterruptedException {
 
@@ -380,6 +496,75 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
         KeySliceQuery ksq = new KeySliceQuery(serializer.toLockKey(kc.getKey(), kc.getColumn()), LOCK_COL_START, LOCK_COL_END);
         List<Entry> claimEntries = getSliceWithRetries(ksq, tx);
 
+        checkClaims(kc, ls, claimEntries, now, tx);
+        ls.setChecked();
+    }
+
+    /**
+     * Batched counterpart of {@link #checkSingleLock(KeyColumn, ConsistentKeyLockStatus, StoreTransaction)}.
+     * If batching is disabled, this just delegates to the superclass.
+     * Otherwise, all pending claims are written at once, the lock wait is
+     * slept once for the most recent claim, and all unchecked locks are read
+     * back together.
+     */
+    @Override
+    protected void checkAllLocks(Map<KeyColumn, ConsistentKeyLockStatus> locks, StoreTransaction tx) throws Throwable {
+
+        if (!batchLocks) {
+            super.checkAllLocks(locks, tx);
+            return;
+        }
+
+        final Map<KeyColumn, ConsistentKeyLockStatus> unchecked = new LinkedHashMap<KeyColumn, ConsistentKeyLockStatus>(locks.size());
+        final List<KeyColumn> unwritten = new ArrayList<KeyColumn>(locks.size());
+        for (Map.Entry<KeyColumn, ConsistentKeyLockStatus> e : locks.entrySet()) {
+            if (e.getValue().isChecked())
+                continue;
+            unchecked.put(e.getKey(), e.getValue());
+            if (!e.getValue().isWritten())
+                unwritten.add(e.getKey());
+        }
+
+        if (unchecked.isEmpty())
+            return;
+
+        // Write all pending claims
+        if (!unwritten.isEmpty()) {
+            Map<KeyColumn, ConsistentKeyLockStatus> written = writeLockBatch(unwritten, tx);
+            for (Map.Entry<KeyColumn, ConsistentKeyLockStatus> e : written.entrySet()) {
+                llm.lock(e.getKey(), tx, e.getValue().getExpirationTimestamp()); // update local lock expiration time
+                lockState.take(tx, e.getKey(), e.getValue());
+                unchecked.put(e.getKey(), e.getValue());
+            }
+        }
+
+        // Sleep once, until the most recent claim is at least lockWait old
+        Timepoint latest = null;
+        for (ConsistentKeyLockStatus ls : unchecked.values()) {
+            if (null == latest || 0 < ls.getWriteTimestamp().compareTo(latest))
+                latest = ls.getWriteTimestamp();
+        }
+        final Timepoint now = times.sleepPast(latest.add(lockWait));
+
+        // Slice the store for all lock keys at once
+        final List<StaticBuffer> lockKeys = new ArrayList<StaticBuffer>(unchecked.size());
+        for (KeyColumn kc : unchecked.keySet()) {
+            lockKeys.add(serializer.toLockKey(kc.getKey(), kc.getColumn()));
+        }
+        Map<StaticBuffer, ? extends List<Entry>> claims = getSlicesWithRetries(lockKeys, tx);
+
+        int i = 0;
+        for (Map.Entry<KeyColumn, ConsistentKeyLockStatus> e : unchecked.entrySet()) {
+            List<Entry> claimEntries = claims.get(lockKeys.get(i++));
+            if (null == claimEntries)
+                claimEntries = ImmutableList.of();
+            checkClaims(e.getKey(), e.getValue(), claimEntries, now, tx);
+            e.getValue().setChecked();
+        }
+    }
+
+    private void checkClaims(final KeyColumn kc, final ConsistentKeyLockStatus ls, final List<Entry> claimEntries,
+                             final Timepoint now, final StoreTransaction tx) throws StorageException {
         // Extract timestamp and rid from the column in each returned Entry...
         Iterable<TimestampRid> iter = Iterables.transform(claimEntries, new Function<Entry, TimestampRid>() {
             @Override
@@ -403,7 +588,6 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
         });
 
         checkSeniority(kc, ls, iter);
-        ls.setChecked();
     }
 
     private List<Entry> getSliceWithRetries(KeySliceQuery ksq, StoreTransaction tx) throws StorageException {
@@ -423,6 +607,31 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
         throw new TemporaryStorageException("Maximum retries (" + lockRetryCount + ") exceeded while checking locks");
     }
 
+    private Map<StaticBuffer, ? extends List<Entry>> getSlicesWithRetries(List<StaticBuffer> keys, StoreTransaction tx) throws StorageException {
+
+        if (1 == keys.size() || !manager.getFeatures().hasMultiQuery()) {
+            Map<StaticBuffer, List<Entry>> result = new HashMap<StaticBuffer, List<Entry>>(keys.size());
+            for (StaticBuffer key : keys) {
+                result.put(key, getSliceWithRetries(new KeySliceQuery(key, LOCK_COL_START, LOCK_COL_END), tx));
+            }
+            return result;
+        }
+
+        final SliceQuery sq = new SliceQuery(LOCK_COL_START, LOCK_COL_END);
+        for (int i = 0; i < lockRetryCount; i++) {
+            try {
+                return store.getSlice(keys, sq, tx);
+            } catch (PermanentStorageException e) {
+                log.error("Failed to check locks", e);
+                throw new PermanentLockingException(e);
+            } catch (TemporaryStorageException e) {
+                log.warn("Temporary storage failure while checking locks", e);
+            }
+        }
+
+        throw new TemporaryStorageException("Maximum retries (" + lockRetryCount + ") exceeded while checking locks");
+    }
+
     private void checkSeniority(KeyColumn target, ConsistentKeyLockStatus ls, Iterable<TimestampRid> claimTRs) throws StorageException {
 
         int trCount = 0;
@@ -481,6 +690,8 @@ public class ConsistentKeyLocker extends AbstractLocker<ConsistentKeyLockStatus>
 
     @Override
     protected void deleteSingleLock(KeyColumn kc, ConsistentKeyLockStatus ls, StoreTransaction tx) {
+        if (!ls.isWritten())
+            return; // Batched claim that was never written to the store
         List<StaticBuffer> dels = ImmutableList.of(serializer.toLockCol(ls.getWriteTimestamp(timeUnit), rid));
         for (int i = 0; i < lockRetryCount; i++) {
             try {
@@ -12,6 +12,7 @@ import com.thinkaurelius.titan.diskstorage.util.StandardTransactionHandleConfig;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * @author Matthias Broecheler (me@matthiasb.com)
@@ -23,16 +24,27 @@ public class ExpectedValueCheckingStoreManager implements KeyColumnValueStoreMan
     private final LockerProvider lockerProvider;
     private final Duration maxReadTime;
     private final StoreFeatures storeFeatures;
+    private final Executor executor;
 
     private final Map<String,ExpectedValueCheckingStore> stores;
 
     public ExpectedValueCheckingStoreManager(KeyColumnValueStoreManager storeManager, String lockStoreSuffix,
                                              LockerProvider lockerProvider, Duration maxReadTime) {
+        this(storeManager, lockStoreSuffix, lockerProvider, maxReadTime, null);
+    }
+
+    /**
+     * @param executor executor on which the expected values of different stores are
+     *                 checked concurrently, or null to check them sequentially
+     */
+    public ExpectedValueCheckingStoreManager(KeyColumnValueStoreManager storeManager, String lockStoreSuffix,
+                                             LockerProvider lockerProvider, Duration maxReadTime, Executor executor) {
         this.storeManager = storeManager;
         this.lockStoreSuffix = lockStoreSuffix;
         this.lockerProvider = lockerProvider;
         this.maxReadTime = maxReadTime;
         this.storeFeatures = storeManager.getFeatures();
+        this.executor = executor;
         this.stores = new HashMap<String,ExpectedValueCheckingStore>(6);
     }
 
@@ -64,7 +76,8 @@ public class ExpectedValueCheckingStoreManager implements KeyColumnValueStoreMan
                 .customOptions(customOptions)
                 .build();
         StoreTransaction consistentTx = storeManager.beginTransaction(consistentTxCfg);
-        StoreTransaction wrappedTx = new ExpectedValueCheckingTransaction(tx, consistentTx, maxReadTime);
+        StoreTransaction wrappedTx = new ExpectedValueCheckingTransaction(tx, consistentTx, maxReadTime,
+                storeFeatures.hasMultiQuery(), storeManager, executor);
         return wrappedTx;
     }
 
@@ -15,16 +15,30 @@ import com.thinkaurelius.titan.diskstorage.util.KeyColumn;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
 /**
  * A {@link StoreTransaction} that supports locking via
  * {@link LocalLockMediator} and writing and reading lock records in a
  * {@link ExpectedValueCheckingStore}.
  * <p/>
+ * Expected values are verified per store: the locked columns of a store are
+ * read back with one multi-key slice per distinct column when the backend
+ * supports multi-queries. If an {@link Executor} is provided, the stores are
+ * verified concurrently and the first mismatch aborts the remaining checks.
+ * Each concurrent check reads through its own transaction on the data store
+ * manager, so that the base transaction is never shared between threads.
+ * <p/>
  * <p/>
  * <b>This class is not safe for concurrent use by multiple threads.
  * Multithreaded access must be prevented or externally synchronized.</b>
@@ -44,15 +58,36 @@ public class ExpectedValueCheckingTransaction implements StoreTransaction {
     private final StoreTransaction baseTx;
     private final StoreTransaction consistentTx;
     private final Duration maxReadTime;
+    private final boolean multiQuery;
+    private final KeyColumnValueStoreManager dataManager;
+    private final Executor executor;
 
     private final Map<ExpectedValueCheckingStore, Map<KeyColumn, StaticBuffer>> expectedValuesByStore =
             new HashMap<ExpectedValueCheckingStore, Map<KeyColumn, StaticBuffer>>();
 
     public ExpectedValueCheckingTransaction(StoreTransaction baseTx, StoreTransaction consistentTx, Duration maxReadTime) {
+        this(baseTx, consistentTx, maxReadTime, false, null, null);
+    }
+
+    /**
+     * @param baseTx       transaction on the data stores
+     * @param consistentTx key-consistent transaction used for locking
+     * @param maxReadTime  maximum time to retry each store's verification
+     * @param multiQuery   whether the data stores support multi-key slices
+     * @param dataManager  manager of the data stores, used to open a read transaction for each concurrent check
+     * @param executor     executor on which stores are verified concurrently, or null to verify them sequentially
+     */
+    public ExpectedValueCheckingTransaction(StoreTransaction baseTx, StoreTransaction consistentTx, Duration maxReadTime,
+                                            boolean multiQuery, KeyColumnValueStoreManager dataManager, Executor executor) {
         //Preconditions.checkArgument(consistentTx.getConfiguration().getConsistency() == ConsistencyLevel.KEY_CONSISTENT);
+        Preconditions.checkArgument(null == executor || null != dataManager,
+                "Concurrent checks require the data store manager");
         this.baseTx = baseTx;
         this.consistentTx = consistentTx;
         this.maxReadTime = maxReadTime;
+        this.multiQuery = multiQuery;
+        this.dataManager = dataManager;
+        this.executor = executor;
     }
 
     StoreTransaction getBaseTransaction() {
@@ -89,21 +124,63 @@ public class ExpectedValueCheckingTransaction implements StoreTransaction {
     }
 
     void checkExpectedValues() throws StorageException {
+        if (expectedValuesByStore.isEmpty())
+            return;
+
+        if (null == executor || 1 == expectedValuesByStore.size()) {
+            for (final ExpectedValueCheckingStore store : expectedValuesByStore.keySet()) {
+                checkExpectedValues(store, expectedValuesByStore.get(store), baseTx);
+            }
+            return;
+        }
+
+        final CompletionService<Boolean> checks = new ExecutorCompletionService<Boolean>(executor);
+        final List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(expectedValuesByStore.size());
         for (final ExpectedValueCheckingStore store : expectedValuesByStore.keySet()) {
             final Map<KeyColumn, StaticBuffer> m = expectedValuesByStore.get(store);
-            for (final KeyColumn kc : m.keySet()) {
-                checkSingleExpectedValue(kc, m.get(kc), store);
+            futures.add(checks.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    StoreTransaction readTx = dataManager.beginTransaction(baseTx.getConfiguration());
+                    try {
+                        checkExpectedValues(store, m, readTx);
+                    } catch (StorageException e) {
+                        readTx.rollback();
+                        throw e;
+                    }
+                    readTx.commit();
+                    return true;
+                }
+            }));
+        }
+
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                checks.take().get();
+            }
+        } catch (InterruptedException e) {
+            throw new PermanentLockingException("Interrupted while checking expected values", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof StorageException)
+                throw (StorageException) cause;
+            throw new PermanentLockingException("Unexpected exception while checking expected values", cause);
+        } finally {
+            // Skip any checks not yet started after the first failure. Running checks are left to
+            // finish rather than interrupted, since the executor's threads are shared with other operations.
+            for (Future<Boolean> f : futures) {
+                f.cancel(false);
             }
         }
     }
 
-    private void checkSingleExpectedValue(final KeyColumn kc,
-                                          final StaticBuffer ev, final ExpectedValueCheckingStore store)
-            throws StorageException {
+    private void checkExpectedValues(final ExpectedValueCheckingStore store,
+                                     final Map<KeyColumn, StaticBuffer> m,
+                                     final StoreTransaction readTx) throws StorageException {
         BackendOperation.executeDirect(new Callable<Boolean>() {
             @Override
             public Boolean call() throws Exception {
-                checkSingleExpectedValueUnsafe(kc, ev, store);
+                checkExpectedValuesUnsafe(store, m, readTx);
                 return true;
             }
             @Override
@@ -113,11 +190,56 @@ public class ExpectedValueCheckingTransaction implements StoreTransaction {
         },maxReadTime);
     }
 
+    private void checkExpectedValuesUnsafe(final ExpectedValueCheckingStore store,
+                                           final Map<KeyColumn, StaticBuffer> m,
+                                           final StoreTransaction readTx) throws StorageException {
+        if (!multiQuery) {
+            for (final KeyColumn kc : m.keySet()) {
+                checkSingleExpectedValueUnsafe(kc, m.get(kc), store, readTx);
+            }
+            return;
+        }
+
+        // Group the locked keys by column so that each distinct column costs a single multi-key slice
+        final Map<StaticBuffer, List<KeyColumn>> byColumn = new LinkedHashMap<StaticBuffer, List<KeyColumn>>();
+        for (final KeyColumn kc : m.keySet()) {
+            List<KeyColumn> kcs = byColumn.get(kc.getColumn());
+            if (null == kcs) {
+                kcs = new ArrayList<KeyColumn>();
+                byColumn.put(kc.getColumn(), kcs);
+            }
+            kcs.add(kc);
+        }
+
+        for (Map.Entry<StaticBuffer, List<KeyColumn>> group : byColumn.entrySet()) {
+            final List<KeyColumn> kcs = group.getValue();
+            if (1 == kcs.size()) {
+                checkSingleExpectedValueUnsafe(kcs.get(0), m.get(kcs.get(0)), store, readTx);
+                continue;
+            }
+            final StaticBuffer column = group.getKey();
+            final List<StaticBuffer> keys = new ArrayList<StaticBuffer>(kcs.size());
+            for (KeyColumn kc : kcs) {
+                keys.add(kc.getKey());
+            }
+            final SliceQuery sq = new SliceQuery(column, BufferUtil.nextBiggerBuffer(column));
+            final Map<StaticBuffer, EntryList> actual = store.getDataStore().getSlice(keys, sq, readTx);
+            for (KeyColumn kc : kcs) {
+                compareExpectedValue(kc, m.get(kc), actual.get(kc.getKey()), store);
+            }
+        }
+    }
+
     private void checkSingleExpectedValueUnsafe(final KeyColumn kc,
-                                                final StaticBuffer ev, final ExpectedValueCheckingStore store) throws StorageException {
+                                                final StaticBuffer ev, final ExpectedValueCheckingStore store,
+                                                final StoreTransaction readTx) throws StorageException {
         KeySliceQuery ksq = new KeySliceQuery(kc.getKey(), kc.getColumn(), BufferUtil.nextBiggerBuffer(kc.getColumn()));
-        List<Entry> actualEntries = store.getSlice(ksq, this); // TODO make this consistent/QUORUM?
+        List<Entry> actualEntries = store.getDataStore().getSlice(ksq, readTx); // TODO make this consistent/QUORUM?
+        compareExpectedValue(kc, ev, actualEntries, store);
+    }
 
+    private void compareExpectedValue(final KeyColumn kc, final StaticBuffer ev, List<Entry> actualEntries,
+                                      final ExpectedValueCheckingStore store) throws StorageException {
         if (null == actualEntries)
             actualEntries = ImmutableList.<Entry>of();
 
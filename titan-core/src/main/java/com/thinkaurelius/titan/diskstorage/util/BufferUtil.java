@@ -104,6 +104,21 @@ public class BufferUtil {
      */
 
 
+    /**
+     * Returns the smallest buffer that is strictly bigger than the given one, i.e. the given buffer followed by a
+     * single zero byte. Unlike {@link #nextBiggerBuffer(StaticBuffer)} no buffer which has the given one as a prefix
+     * lies between the two.
+     *
+     * @param buffer
+     * @return
+     */
+    public static final StaticBuffer immediateSuccessor(StaticBuffer buffer) {
+        int len = buffer.length();
+        byte[] next = new byte[len + 1];
+        for (int i = 0; i < len; i++) next[i] = buffer.getByte(i);
+        return StaticArrayBuffer.of(next);
+    }
+
     public static final StaticBuffer nextBiggerBufferAllowOverflow(StaticBuffer buffer) {
         return nextBiggerBuffer(buffer, true);
     }
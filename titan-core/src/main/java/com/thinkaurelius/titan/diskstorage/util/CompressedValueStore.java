@@ -0,0 +1,263 @@
+package com.thinkaurelius.titan.diskstorage.util;
+
+import com.google.common.base.Preconditions;
+import com.thinkaurelius.titan.diskstorage.Entry;
+import com.thinkaurelius.titan.diskstorage.EntryList;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
+import com.thinkaurelius.titan.diskstorage.StorageException;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Wraps a {@link KeyColumnValueStore} and compresses the values of all entries written to the wrapped store
+ * with the configured {@link BackendCompression} if they are at least as long as the given threshold.
+ * <p/>
+ * Each value is stored with a trailing format byte which records whether the value was compressed or not. Values
+ * which are below the threshold or do not become any smaller are stored uncompressed, in which case reading them
+ * only requires to strip off the format byte. Keys and columns are never compressed so that the sort order of the
+ * wrapped store is preserved.
+ * <p/>
+ * Expected values passed to {@link #acquireLock(StaticBuffer, StaticBuffer, StaticBuffer, StoreTransaction)} are
+ * encoded the same way as written values, which requires that the {@link BackendCompression} is deterministic.
+ * <p/>
+ * Mutations which are persisted through {@link KeyColumnValueStoreManager#mutateMany(java.util.Map, StoreTransaction)}
+ * rather than this store are encoded by {@link CompressedValueStoreManager}.
+ *
+ * @see com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration#STORAGE_VALUE_COMPRESSION
+ */
+public class CompressedValueStore implements KeyColumnValueStore {
+
+    private static final byte RAW_VALUE = 0;
+    private static final byte COMPRESSED_VALUE = 1;
+
+    private final KeyColumnValueStore store;
+    private final BackendCompression compression;
+    private final int threshold;
+
+    public CompressedValueStore(KeyColumnValueStore store, BackendCompression compression, int threshold) {
+        Preconditions.checkArgument(store != null && compression != null);
+        Preconditions.checkArgument(threshold >= 0, "Invalid compression threshold: %s", threshold);
+        this.store = store;
+        this.compression = compression;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public boolean containsKey(StaticBuffer key, StoreTransaction txh) throws StorageException {
+        return store.containsKey(key, txh);
+    }
+
+    @Override
+    public EntryList getSlice(KeySliceQuery query, StoreTransaction txh) throws StorageException {
+        return decode(store.getSlice(query, txh));
+    }
+
+    @Override
+    public Map<StaticBuffer, EntryList> getSlice(List<StaticBuffer> keys, SliceQuery query, StoreTransaction txh) throws StorageException {
+        Map<StaticBuffer, EntryList> results = store.getSlice(keys, query, txh);
+        Map<StaticBuffer, EntryList> decoded = new HashMap<StaticBuffer, EntryList>(results.size());
+        for (Map.Entry<StaticBuffer, EntryList> result : results.entrySet()) {
+            decoded.put(result.getKey(), decode(result.getValue()));
+        }
+        return decoded;
+    }
+
+    @Override
+    public void mutate(StaticBuffer key, List<Entry> additions, List<StaticBuffer> deletions, StoreTransaction txh) throws StorageException {
+        store.mutate(key, encode(additions), deletions, txh);
+    }
+
+    @Override
+    public void acquireLock(StaticBuffer key, StaticBuffer column, StaticBuffer expectedValue, StoreTransaction txh) throws StorageException {
+        store.acquireLock(key, column, expectedValue == null ? null : encode(column, expectedValue).getValue(), txh);
+    }
+
+    @Override
+    public KeyIterator getKeys(KeyRangeQuery query, StoreTransaction txh) throws StorageException {
+        return new DecodingKeyIterator(store.getKeys(query, txh));
+    }
+
+    @Override
+    public KeyIterator getKeys(SliceQuery query, StoreTransaction txh) throws StorageException {
+        return new DecodingKeyIterator(store.getKeys(query, txh));
+    }
+
+    @Override
+    public List<KeyRange> getLocalKeyPartition() throws StorageException {
+        return store.getLocalKeyPartition();
+    }
+
+    @Override
+    public String getName() {
+        return store.getName();
+    }
+
+    @Override
+    public void close() throws StorageException {
+        store.close();
+    }
+
+    //########### ENCODING ###########
+
+    /**
+     * Encodes the given additions in the format of the wrapped store.
+     *
+     * @param additions
+     * @return
+     */
+    List<Entry> encode(List<Entry> additions) {
+        if (additions.isEmpty()) return additions;
+        List<Entry> encoded = new ArrayList<Entry>(additions.size());
+        for (Entry addition : additions) encoded.add(encode(addition.getColumn(), addition.getValue()));
+        return encoded;
+    }
+
+    private Entry encode(StaticBuffer column, StaticBuffer value) {
+        StaticBuffer payload = value;
+        byte format = RAW_VALUE;
+        if (value.length() >= threshold && value.length() > 0) {
+            StaticBuffer compressed = compression.compress(value);
+            if (compressed.length() < value.length()) {
+                payload = compressed;
+                format = COMPRESSED_VALUE;
+            }
+        }
+        int valuePos = column.length();
+        byte[] data = new byte[valuePos + payload.length() + 1];
+        column.as(new CopyFactory(data, 0));
+        payload.as(new CopyFactory(data, valuePos));
+        data[data.length - 1] = format;
+        return new StaticArrayEntry(data, valuePos);
+    }
+
+    private static StaticBuffer decodeValue(Entry entry, BackendCompression compression) {
+        StaticBuffer value = entry.getValue();
+        Preconditions.checkArgument(value.length() > 0, "Value is missing its compression format");
+        byte format = value.getByte(value.length() - 1);
+        StaticBuffer payload = value.subrange(0, value.length() - 1);
+        switch (format) {
+            case RAW_VALUE:
+                return payload;
+            case COMPRESSED_VALUE:
+                return compression.decompress(payload);
+            default:
+                throw new IllegalArgumentException("Unknown compression format: " + format);
+        }
+    }
+
+    /**
+     * Decodes an entry which has been read from the wrapped store directly rather than through this store, e.g. by
+     * bulk input formats.
+     *
+     * @param entry
+     * @param compression
+     * @return
+     */
+    public static Entry decode(final Entry entry, BackendCompression compression) {
+        if (entry.getValuePosition() < entry.length() && entry.getByte(entry.length() - 1) == RAW_VALUE) {
+            //Strip off format byte without copying
+            return entry.as(new StaticBuffer.Factory<Entry>() {
+                @Override
+                public Entry get(byte[] array, int offset, int limit) {
+                    return new StaticArrayEntry(array, offset, limit - 1, entry.getValuePosition());
+                }
+            });
+        }
+        return StaticArrayEntry.of(entry.getColumn(), decodeValue(entry, compression));
+    }
+
+    private EntryList decode(EntryList entries) {
+        if (entries.isEmpty()) return entries;
+        return StaticArrayEntryList.ofStaticBuffer(entries.iterator(), decodingGetter);
+    }
+
+    private final StaticArrayEntry.GetColVal<Entry, StaticBuffer> decodingGetter = new StaticArrayEntry.GetColVal<Entry, StaticBuffer>() {
+        @Override
+        public StaticBuffer getColumn(Entry entry) {
+            return entry.getColumn();
+        }
+
+        @Override
+        public StaticBuffer getValue(Entry entry) {
+            return decodeValue(entry, compression);
+        }
+    };
+
+    private static class CopyFactory implements StaticBuffer.Factory<Boolean> {
+
+        private final byte[] data;
+        private final int dataOffset;
+
+        private CopyFactory(byte[] data, int dataOffset) {
+            this.data = data;
+            this.dataOffset = dataOffset;
+        }
+
+        @Override
+        public Boolean get(byte[] array, int offset, int limit) {
+            System.arraycopy(array, offset, data, dataOffset, limit - offset);
+            return Boolean.TRUE;
+        }
+    }
+
+    private class DecodingKeyIterator implements KeyIterator {
+
+        private final KeyIterator iterator;
+
+        private DecodingKeyIterator(KeyIterator iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public RecordIterator<Entry> getEntries() {
+            final RecordIterator<Entry> entries = iterator.getEntries();
+            return new RecordIterator<Entry>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public Entry next() {
+                    return decode(entries.next(), compression);
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    entries.close();
+                }
+            };
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public StaticBuffer next() {
+            return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+
+        @Override
+        public void close() throws IOException {
+            iterator.close();
+        }
+    }
+
+}
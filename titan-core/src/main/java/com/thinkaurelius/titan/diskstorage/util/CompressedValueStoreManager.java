@@ -0,0 +1,99 @@
+package com.thinkaurelius.titan.diskstorage.util;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
+import com.thinkaurelius.titan.diskstorage.StorageException;
+import com.thinkaurelius.titan.diskstorage.TransactionHandleConfig;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wraps a {@link KeyColumnValueStoreManager} so that the values of the configured stores are compressed
+ * by a {@link CompressedValueStore}. All other stores are returned and mutated unchanged.
+ */
+public class CompressedValueStoreManager implements KeyColumnValueStoreManager {
+
+    private final KeyColumnValueStoreManager storeManager;
+    private final BackendCompression compression;
+    private final Map<String, Integer> thresholds;
+
+    private final Map<String, CompressedValueStore> stores;
+
+    /**
+     * @param storeManager
+     * @param compression
+     * @param thresholds   the minimum length of values to be compressed for each store whose values are compressed
+     */
+    public CompressedValueStoreManager(KeyColumnValueStoreManager storeManager, BackendCompression compression,
+                                       Map<String, Integer> thresholds) {
+        Preconditions.checkArgument(storeManager != null && compression != null && thresholds != null);
+        this.storeManager = storeManager;
+        this.compression = compression;
+        this.thresholds = ImmutableMap.copyOf(thresholds);
+        this.stores = new HashMap<String, CompressedValueStore>(thresholds.size());
+    }
+
+    @Override
+    public synchronized KeyColumnValueStore openDatabase(String name) throws StorageException {
+        if (!thresholds.containsKey(name)) return storeManager.openDatabase(name);
+        CompressedValueStore store = stores.get(name);
+        if (store == null) {
+            store = new CompressedValueStore(storeManager.openDatabase(name), compression, thresholds.get(name));
+            stores.put(name, store);
+        }
+        return store;
+    }
+
+    @Override
+    public void mutateMany(Map<String, Map<StaticBuffer, KCVMutation>> mutations, StoreTransaction txh) throws StorageException {
+        Map<String, Map<StaticBuffer, KCVMutation>> encoded = new HashMap<String, Map<StaticBuffer, KCVMutation>>(mutations.size());
+        for (Map.Entry<String, Map<StaticBuffer, KCVMutation>> storeMuts : mutations.entrySet()) {
+            CompressedValueStore store = getStore(storeMuts.getKey());
+            if (store == null) {
+                encoded.put(storeMuts.getKey(), storeMuts.getValue());
+                continue;
+            }
+            //Mutations may be retried, hence the given mutations must remain unchanged
+            Map<StaticBuffer, KCVMutation> sub = new HashMap<StaticBuffer, KCVMutation>(storeMuts.getValue().size());
+            for (Map.Entry<StaticBuffer, KCVMutation> keyMut : storeMuts.getValue().entrySet()) {
+                KCVMutation mut = keyMut.getValue();
+                sub.put(keyMut.getKey(), new KCVMutation(store.encode(mut.getAdditions()), mut.getDeletions()));
+            }
+            encoded.put(storeMuts.getKey(), sub);
+        }
+        storeManager.mutateMany(encoded, txh);
+    }
+
+    private CompressedValueStore getStore(String name) throws StorageException {
+        if (!thresholds.containsKey(name)) return null;
+        return (CompressedValueStore) openDatabase(name);
+    }
+
+    @Override
+    public StoreTransaction beginTransaction(TransactionHandleConfig config) throws StorageException {
+        return storeManager.beginTransaction(config);
+    }
+
+    @Override
+    public void close() throws StorageException {
+        storeManager.close();
+    }
+
+    @Override
+    public void clearStorage() throws StorageException {
+        storeManager.clearStorage();
+    }
+
+    @Override
+    public StoreFeatures getFeatures() {
+        return storeManager.getFeatures();
+    }
+
+    @Override
+    public String getName() {
+        return storeManager.getName();
+    }
+}
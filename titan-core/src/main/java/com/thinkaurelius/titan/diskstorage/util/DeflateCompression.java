@@ -0,0 +1,113 @@
+package com.thinkaurelius.titan.diskstorage.util;
+
+import com.google.common.base.Preconditions;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
+import com.thinkaurelius.titan.diskstorage.configuration.Configuration;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link BackendCompression} based on the DEFLATE algorithm as implemented by {@link java.util.zip}, which requires
+ * no additional dependencies.
+ * <p/>
+ * A compressed buffer consists of the length of the uncompressed data as a 4 byte integer followed by the
+ * zlib compressed data. Compression is deterministic, i.e. the same input always yields the same output.
+ * {@link Deflater} and {@link Inflater} instances are reused per thread to avoid repeatedly allocating their
+ * native resources.
+ */
+public class DeflateCompression implements BackendCompression {
+
+    private static final int LENGTH_LEN = StaticArrayBuffer.INT_LEN;
+
+    private final ThreadLocal<Deflater> deflaters;
+    private final ThreadLocal<Inflater> inflaters = new ThreadLocal<Inflater>() {
+        @Override
+        protected Inflater initialValue() {
+            return new Inflater();
+        }
+    };
+
+    public DeflateCompression(final int level) {
+        Preconditions.checkArgument(level==Deflater.DEFAULT_COMPRESSION || (level>=Deflater.NO_COMPRESSION && level<=Deflater.BEST_COMPRESSION),
+                "Invalid compression level: %s",level);
+        deflaters = new ThreadLocal<Deflater>() {
+            @Override
+            protected Deflater initialValue() {
+                return new Deflater(level);
+            }
+        };
+    }
+
+    public DeflateCompression(Configuration config) {
+        this(config.get(GraphDatabaseConfiguration.STORAGE_VALUE_COMPRESSION_LEVEL));
+    }
+
+    @Override
+    public StaticBuffer compress(StaticBuffer value) {
+        final int length = value.length();
+        return value.as(new StaticBuffer.Factory<StaticBuffer>() {
+            @Override
+            public StaticBuffer get(byte[] array, int offset, int limit) {
+                Deflater deflater = deflaters.get();
+                try {
+                    deflater.setInput(array, offset, length);
+                    deflater.finish();
+                    byte[] out = new byte[LENGTH_LEN + length + length / 8 + 16];
+                    writeLength(out, length);
+                    int pos = LENGTH_LEN;
+                    while (!deflater.finished()) {
+                        if (pos == out.length) {
+                            byte[] newout = new byte[out.length * 2];
+                            System.arraycopy(out, 0, newout, 0, pos);
+                            out = newout;
+                        }
+                        pos += deflater.deflate(out, pos, out.length - pos);
+                    }
+                    return new StaticArrayBuffer(out, 0, pos);
+                } finally {
+                    deflater.reset();
+                }
+            }
+        });
+    }
+
+    @Override
+    public StaticBuffer decompress(StaticBuffer value) {
+        Preconditions.checkArgument(value.length() >= LENGTH_LEN, "Invalid compressed value");
+        final int length = value.getInt(0);
+        Preconditions.checkArgument(length >= 0, "Invalid compressed value length: %s", length);
+        return value.as(new StaticBuffer.Factory<StaticBuffer>() {
+            @Override
+            public StaticBuffer get(byte[] array, int offset, int limit) {
+                Inflater inflater = inflaters.get();
+                try {
+                    inflater.setInput(array, offset + LENGTH_LEN, limit - offset - LENGTH_LEN);
+                    byte[] out = new byte[length];
+                    int pos = 0;
+                    while (pos < length) {
+                        int read = inflater.inflate(out, pos, length - pos);
+                        if (read == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                            throw new IllegalArgumentException("Compressed value is truncated");
+                        pos += read;
+                    }
+                    return new StaticArrayBuffer(out);
+                } catch (DataFormatException e) {
+                    throw new IllegalArgumentException("Invalid compressed value", e);
+                } finally {
+                    inflater.reset();
+                }
+            }
+        });
+    }
+
+    private static void writeLength(byte[] out, int length) {
+        out[0] = (byte) (length >>> 24);
+        out[1] = (byte) (length >>> 16);
+        out[2] = (byte) (length >>> 8);
+        out[3] = (byte) length;
+    }
+
+}
@@ -20,12 +20,30 @@ public class StaticArrayEntryList extends AbstractList<Entry> implements EntryLi
 
     private final RelationCache[] caches;
 
+    /**
+     * Index of the first entry of this list in {@link #limitAndValuePos} and its number of entries. A list
+     * returned by {@link #subList(int, int)} is a view which shares all arrays with its parent list.
+     */
+    private final int startIndex;
+    private final int size;
+
     private StaticArrayEntryList(final byte[] data, final long[] limitAndValuePos) {
         Preconditions.checkArgument(data != null && data.length > 0);
         Preconditions.checkArgument(limitAndValuePos!=null && limitAndValuePos.length>0);
         this.data=data;
         this.limitAndValuePos=limitAndValuePos;
         this.caches = new RelationCache[limitAndValuePos.length];
+        this.startIndex = 0;
+        this.size = limitAndValuePos.length;
+    }
+
+    private StaticArrayEntryList(final StaticArrayEntryList parent, final int fromIndex, final int toIndex) {
+        assert fromIndex>=0 && fromIndex<toIndex && toIndex<=parent.size;
+        this.data=parent.data;
+        this.limitAndValuePos=parent.limitAndValuePos;
+        this.caches=parent.caches;
+        this.startIndex=parent.startIndex+fromIndex;
+        this.size=toIndex-fromIndex;
     }
 
     private static int getLimit(long limitAndValuePos) {
@@ -43,15 +61,35 @@ public class StaticArrayEntryList extends AbstractList<Entry> implements EntryLi
 
     @Override
     public Entry get(int index) {
-        Preconditions.checkPositionIndex(index,limitAndValuePos.length);
-        return new StaticEntry(index);
+        Preconditions.checkElementIndex(index,size);
+        return new StaticEntry(startIndex+index);
     }
 
     @Override
     public int size() {
-        return limitAndValuePos.length;
+        return size;
+    }
+
+    /**
+     * Returns a view of the given range of this list without copying any data. The view shares the
+     * {@link RelationCache}s of its entries with this list.
+     *
+     * @param fromIndex
+     * @param toIndex
+     * @return
+     */
+    @Override
+    public EntryList subList(int fromIndex, int toIndex) {
+        Preconditions.checkPositionIndexes(fromIndex,toIndex,size);
+        if (fromIndex==toIndex) return EMPTY_LIST;
+        else if (fromIndex==0 && toIndex==size) return this;
+        return new StaticArrayEntryList(this,fromIndex,toIndex);
     }
 
+    /**
+     * Views returned by {@link #subList(int, int)} report the size of the entire data of their parent list
+     * since they retain all of it.
+     */
     @Override
     public int getByteSize() {
         return  16 + 3*8 // object
@@ -90,7 +128,7 @@ public class StaticArrayEntryList extends AbstractList<Entry> implements EntryLi
 
     private class SwappingEntry extends ReadArrayBuffer implements Entry, Iterator<Entry> {
 
-        private int currentIndex=-1;
+        private int currentIndex=startIndex-1;
         private int currentValuePos=-1;
 
         public SwappingEntry() {
@@ -98,7 +136,7 @@ public class StaticArrayEntryList extends AbstractList<Entry> implements EntryLi
         }
 
         private void verifyAccess() {
-            Preconditions.checkArgument(currentIndex>=0,"Illegal iterator access");
+            Preconditions.checkArgument(currentIndex>=startIndex,"Illegal iterator access");
         }
 
         @Override
@@ -184,7 +222,7 @@ public class StaticArrayEntryList extends AbstractList<Entry> implements EntryLi
 
         @Override
         public boolean hasNext() {
-            return (currentIndex+1)<size();
+            return (currentIndex+1)<startIndex+size;
         }
 
         @Override
@@ -0,0 +1,111 @@
+package com.thinkaurelius.titan.diskstorage.util;
+
+import com.google.common.base.Preconditions;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates the buffers of {@link WriteByteBuffer}s as consecutive regions of large, shared chunks instead of
+ * individual arrays. The {@link com.thinkaurelius.titan.diskstorage.StaticBuffer}s produced by those write buffers
+ * are slices of the chunk, hence serializing many small entries (e.g. during commit) results in few allocations.
+ * <p/>
+ * When a write buffer produces its static buffer, the unused remainder of its region is returned to the arena if it is
+ * the most recently allocated region. Similarly, the most recently allocated region is grown in place. The initial
+ * capacity of regions adapts to the size of recently written buffers so that buffers rarely need to grow.
+ * <p/>
+ * Chunks are never reused; a chunk is garbage collected once no static buffer references it anymore. Hence, arenas
+ * should only be used for buffers that are short lived, like those written to the storage backend.
+ * <p/>
+ * This class is not thread-safe and should be confined to a single thread, e.g. by keeping it in a {@link ThreadLocal}.
+ */
+public class WriteBufferArena {
+
+    public static final int DEFAULT_CHUNK_SIZE = 32 * 1024; //32 KB
+
+    private final int chunkSize;
+    private final int maxRegionSize;
+
+    private byte[] chunk;
+    private int top;
+    private int sizeEstimate;
+
+    public WriteBufferArena() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    public WriteBufferArena(int chunkSize) {
+        Preconditions.checkArgument(chunkSize>=64,"Invalid chunk size: %s",chunkSize);
+        this.chunkSize = chunkSize;
+        this.maxRegionSize = chunkSize/8;
+        this.chunk = null;
+        this.top = 0;
+        this.sizeEstimate = 0;
+    }
+
+    /**
+     * Allocates the initial buffer for a write buffer which is at least of the given capacity
+     *
+     * @param capacity
+     * @return
+     */
+    ByteBuffer allocate(int capacity) {
+        return allocateRegion(Math.max(capacity,sizeEstimate));
+    }
+
+    private ByteBuffer allocateRegion(int capacity) {
+        //Large buffers would waste too much of a chunk
+        if (capacity>maxRegionSize) return ByteBuffer.allocate(capacity);
+        if (chunk==null || chunk.length-top<capacity) {
+            chunk = new byte[chunkSize];
+            top = 0;
+        }
+        ByteBuffer region = ByteBuffer.wrap(chunk,top,capacity).slice();
+        top += capacity;
+        return region;
+    }
+
+    private boolean isLastRegion(ByteBuffer buffer) {
+        return buffer.array()==chunk && buffer.arrayOffset()+buffer.capacity()==top;
+    }
+
+    /**
+     * Returns a buffer of the given capacity which contains the content of the given buffer and has the same position.
+     *
+     * @param buffer
+     * @param capacity
+     * @return
+     */
+    ByteBuffer grow(ByteBuffer buffer, int capacity) {
+        Preconditions.checkArgument(capacity>=buffer.position());
+        int offset = buffer.arrayOffset();
+        if (isLastRegion(buffer) && offset+capacity<=chunk.length) {
+            //Extend in place
+            ByteBuffer region = ByteBuffer.wrap(chunk,offset,capacity).slice();
+            region.position(buffer.position());
+            top = offset+capacity;
+            return region;
+        }
+        ByteBuffer region = allocateRegion(capacity);
+        buffer.flip();
+        region.put(buffer);
+        return region;
+    }
+
+    /**
+     * Releases the unused remainder of the given buffer. Since the released space may be handed out to other buffers,
+     * the returned buffer must be used instead of the given one. Its capacity equals its position.
+     *
+     * @param buffer
+     * @return
+     */
+    ByteBuffer release(ByteBuffer buffer) {
+        int length = buffer.position();
+        sizeEstimate = Math.min(maxRegionSize,Math.max(length,sizeEstimate-(sizeEstimate>>4)));
+        if (buffer.array()!=chunk || length==buffer.capacity()) return buffer;
+        if (isLastRegion(buffer)) top = buffer.arrayOffset()+length;
+        ByteBuffer trimmed = ByteBuffer.wrap(chunk,buffer.arrayOffset(),length).slice();
+        trimmed.position(length);
+        return trimmed;
+    }
+
+}
@@ -17,6 +17,7 @@ public class WriteByteBuffer implements WriteBuffer {
     public static final int DEFAULT_CAPACITY = 64;
     public static final int MAX_BUFFER_CAPACITY = 128 * 1024 * 1024; //128 MB
 
+    private final WriteBufferArena arena;
     private ByteBuffer buffer;
 
     public WriteByteBuffer() {
@@ -24,8 +25,21 @@ public class WriteByteBuffer implements WriteBuffer {
     }
 
     public WriteByteBuffer(int capacity) {
+        this(capacity,null);
+    }
+
+    /**
+     * Constructs a write buffer whose content is allocated from the given arena, or on the heap if the arena is null.
+     *
+     * @param capacity
+     * @param arena
+     * @see WriteBufferArena
+     */
+    public WriteByteBuffer(int capacity, WriteBufferArena arena) {
         Preconditions.checkArgument(capacity<=MAX_BUFFER_CAPACITY,"Capacity exceeds max buffer capacity: %s",MAX_BUFFER_CAPACITY);
-        buffer = ByteBuffer.allocate(capacity);
+        this.arena = arena;
+        if (arena==null) buffer = ByteBuffer.allocate(capacity);
+        else buffer = arena.allocate(capacity);
     }
 
     private void require(int size) {
@@ -33,6 +47,10 @@ public class WriteByteBuffer implements WriteBuffer {
             //Need to resize
             int newcapacity = buffer.position() + size + buffer.capacity(); //extra capacity as buffer
             Preconditions.checkArgument(newcapacity<=MAX_BUFFER_CAPACITY,"Capacity exceeds max buffer capacity: %s",MAX_BUFFER_CAPACITY);
+            if (arena!=null) {
+                buffer = arena.grow(buffer,newcapacity);
+                return;
+            }
             ByteBuffer newBuffer = ByteBuffer.allocate(newcapacity);
             buffer.flip();
             newBuffer.put(buffer);
@@ -131,6 +149,7 @@ public class WriteByteBuffer implements WriteBuffer {
         Preconditions.checkArgument(from>=0 && from<=to);
         Preconditions.checkArgument(to<=b.limit());
         for (int i=from;i<to;i++) b.put(i,(byte)~b.get(i));
+        if (arena!=null) buffer = arena.release(buffer);
         return StaticArrayBuffer.of(b);
     }
 }
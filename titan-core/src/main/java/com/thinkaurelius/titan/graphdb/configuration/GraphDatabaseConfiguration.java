@@ -1,5 +1,6 @@
 package com.thinkaurelius.titan.graphdb.configuration;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.thinkaurelius.titan.core.*;
 import com.thinkaurelius.titan.core.time.Duration;
@@ -46,6 +47,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.thinkaurelius.titan.diskstorage.Backend;
+import com.thinkaurelius.titan.diskstorage.util.BackendCompression;
 import com.thinkaurelius.titan.graphdb.blueprints.BlueprintsDefaultTypeMaker;
 import com.thinkaurelius.titan.graphdb.database.idassigner.VertexIDAssigner;
 import com.thinkaurelius.titan.graphdb.database.serialize.Serializer;
@@ -107,6 +109,16 @@ public class GraphDatabaseConfiguration {
             ConfigOption.Type.MASKABLE, Boolean.class);
 //    public static final String PROPERTY_PREFETCHING_KEY = "fast-property";
 
+    /**
+     * When a graph query has conditions or a sort order which are not answered by the index, Titan has to retrieve the
+     * properties of each candidate vertex returned by the index. This option configures how many candidate vertices are
+     * grouped together to retrieve those properties with a single backend multi-query instead of one query per vertex.
+     * Setting this option to 0 disables batching.
+     */
+    public static final ConfigOption<Integer> QUERY_PREFETCH_BATCH = new ConfigOption<Integer>(TITAN_NS,"query-prefetch-batch",
+            "Number of candidate vertices of a graph query whose properties are retrieved in one batch when the query is not fully answered by an index",
+            ConfigOption.Type.MASKABLE, 100, ConfigOption.nonnegativeInt());
+
     /**
      * When enabled, Titan will accept user provided vertex ids as long as they are valid Titan vertex ids - see
      * {@link com.thinkaurelius.titan.core.util.TitanId#toVertexId(long)}. When enabled, Titan will now longer allocate and assign
@@ -210,6 +222,41 @@ public class GraphDatabaseConfiguration {
             "Default expiration time for cached elements. Set to 0 to cache until change.",
             ConfigOption.Type.GLOBAL_OFFLINE, 10000l);
 
+    /**
+     * Whether the entire schema is loaded into the schema cache when the graph is opened. The schema elements are
+     * retrieved in bulk so that the first transactions after startup don't have to retrieve them one by one.
+     */
+    public static final ConfigOption<Boolean> SCHEMA_PRELOAD = new ConfigOption<Boolean>(CACHE_NS,"schema-preload",
+            "Whether Titan should load the entire schema into its caches when the graph is opened",
+            ConfigOption.Type.MASKABLE, false);
+
+    /**
+     * Whether this Titan instance should cache the results of index queries across transactions. Cached results are
+     * invalidated when a transaction commits mutations against the respective index, both on this instance and - via the
+     * management log - on all other instances which have this cache enabled. Hence, this option should be enabled on all
+     * instances writing to the graph if any instance relies on the cache.
+     */
+    public static final ConfigOption<Boolean> DB_INDEX_CACHE = new ConfigOption<Boolean>(CACHE_NS,"db-index-cache",
+            "Whether Titan should use a database level cache for index query results",
+            ConfigOption.Type.MASKABLE, false);
+
+    /**
+     * The maximum size of the database level index query result cache. Each cached result counts as 2 plus the number of
+     * elements it contains.
+     */
+    public static final ConfigOption<Long> DB_INDEX_CACHE_SIZE = new ConfigOption<Long>(CACHE_NS,"db-index-cache-size",
+            "Maximum size of Titan's database level index query result cache, counted in result elements",
+            ConfigOption.Type.MASKABLE, 100000l, ConfigOption.positiveLong());
+
+    /**
+     * The expiration time for results held in the database level index query result cache. Invalidations issued by
+     * other instances are delivered asynchronously through the management log, so this bounds how long a result may
+     * be stale in the presence of remote writes. Setting this value to 0 will cache results until invalidated.
+     */
+    public static final ConfigOption<Long> DB_INDEX_CACHE_TIME = new ConfigOption<Long>(CACHE_NS,"db-index-cache-time",
+            "Expiration time in ms for cached index query results. Set to 0 to cache until invalidated.",
+            ConfigOption.Type.MASKABLE, 10000l);
+
     /**
      * Configures the maximum number of recently-used vertices cached by a transaction. The smaller the cache size, the
      * less memory a transaction can consume at maximum. For many concurrent, long running transactions in memory constraint
@@ -252,6 +299,26 @@ public class GraphDatabaseConfiguration {
      */
     private static final int TX_DIRTY_SIZE_DEFAULT_WITH_BATCH = 4096;
 
+    /**
+     * Configures the implementation of the transaction-level vertex cache. 'guava' uses a Guava cache for
+     * recently-used vertices plus a separate concurrent map for dirty vertices. 'clock' uses a single
+     * open-addressing table keyed on primitive vertex ids with clock eviction, which does not allocate on cache hits
+     * and pins dirty vertices in place. See {@link com.thinkaurelius.titan.graphdb.transaction.vertexcache.ClockVertexCache}.
+     */
+    public static final ConfigOption<String> TX_CACHE_TYPE = new ConfigOption<String>(CACHE_NS,"tx-cache-type",
+            "Implementation of the transaction-level vertex cache: 'guava' or 'clock'",
+            ConfigOption.Type.MASKABLE, "guava", new Predicate<String>() {
+        @Override
+        public boolean apply(@Nullable String s) {
+            return s!=null && TX_CACHE_TYPES.contains(s);
+        }
+    });
+
+    public static final String TX_CACHE_TYPE_GUAVA = "guava";
+    public static final String TX_CACHE_TYPE_CLOCK = "clock";
+
+    private static final Set<String> TX_CACHE_TYPES = ImmutableSet.of(TX_CACHE_TYPE_GUAVA, TX_CACHE_TYPE_CLOCK);
+
 
     // ################ STORAGE #######################
     // ################################################
@@ -433,6 +500,18 @@ public class GraphDatabaseConfiguration {
             "Whether to delete expired locks from the storage backend",
             ConfigOption.Type.MASKABLE, false);
 
+    /**
+     * Whether to defer lock claims until the locks are checked at commit time. When enabled, all pending lock
+     * claims against a lock store are written in a single batch mutation, the lock wait time is waited out once
+     * for the entire batch, and all claims are then read back with a single multi-key slice (if the storage
+     * backend supports it). This option is only meaningful for the default lock backend.
+     *
+     * @see #LOCK_BACKEND
+     */
+    public static final ConfigOption<Boolean> LOCK_BATCH = new ConfigOption<Boolean>(STORAGE_NS, "lock-batch",
+            "Whether to write and check lock claims in batches at commit time instead of one at a time",
+            ConfigOption.Type.MASKABLE, false);
+
     /**
      * Locker type to use.  The supported types are in {@link com.thinkaurelius.titan.diskstorage.Backend}.
      */
@@ -582,6 +661,42 @@ public class GraphDatabaseConfiguration {
             "The size of the compression blocks in kilobyte",
             ConfigOption.Type.FIXED, 64);
 
+    /**
+     * Compression codec which Titan applies to the values of the edge store and the graph index store independently
+     * of the storage backend. This is useful for storage backends which do not compress data (e.g. BerkeleyDB or
+     * the in-memory store) and for vertices with large (e.g. text) property values.
+     * Either "none", "deflate", or the full class name of a {@link com.thinkaurelius.titan.diskstorage.util.BackendCompression}
+     * implementation with a constructor accepting the configuration. Since values are stored with a format flag that
+     * depends on this setting, it can only be chosen when the graph is created.
+     */
+    public static final ConfigOption<String> STORAGE_VALUE_COMPRESSION = new ConfigOption<String>(STORAGE_NS,"value-compression",
+            "Compression codec which Titan applies to edge store and graph index values, either 'none', 'deflate' or the " +
+            "full class name of a BackendCompression implementation",
+            ConfigOption.Type.FIXED, "none");
+
+    /**
+     * The compression level passed to the value compression codec, e.g. 0 (no compression) to 9 (best compression)
+     * or -1 (default level) for the "deflate" codec. Since the expected values of locks are encoded like written
+     * values, all instances must use the same level.
+     */
+    public static final ConfigOption<Integer> STORAGE_VALUE_COMPRESSION_LEVEL = new ConfigOption<Integer>(STORAGE_NS,"value-compression-level",
+            "The compression level of the value compression codec, e.g. 0 (none) to 9 (best compression) or -1 (default) for 'deflate'",
+            ConfigOption.Type.GLOBAL_OFFLINE, 1);
+
+    /**
+     * The minimum length in bytes of an edge store value to be compressed when {@link #STORAGE_VALUE_COMPRESSION} is enabled.
+     */
+    public static final ConfigOption<Integer> EDGESTORE_COMPRESSION_THRESHOLD = new ConfigOption<Integer>(STORAGE_NS,"edgestore-compression-threshold",
+            "The minimum length in bytes of edge store values which are compressed",
+            ConfigOption.Type.GLOBAL_OFFLINE, 256, ConfigOption.nonnegativeInt());
+
+    /**
+     * The minimum length in bytes of a graph index value to be compressed when {@link #STORAGE_VALUE_COMPRESSION} is enabled.
+     */
+    public static final ConfigOption<Integer> INDEXSTORE_COMPRESSION_THRESHOLD = new ConfigOption<Integer>(STORAGE_NS,"graphindex-compression-threshold",
+            "The minimum length in bytes of graph index values which are compressed",
+            ConfigOption.Type.GLOBAL_OFFLINE, 256, ConfigOption.nonnegativeInt());
+
 
 
     public static final ConfigOption<Integer> REPLICATION_FACTOR = new ConfigOption<Integer>(STORAGE_NS,"replication-factor",
@@ -709,6 +824,17 @@ public class GraphDatabaseConfiguration {
 //    public static final String IDS_RENEW_BUFFER_PERCENTAGE_KEY = "renew-percentage";
 //    public static final double IDS_RENEW_BUFFER_PERCENTAGE_DEFAULT = 0.3; // 30 %
 
+    /**
+     * The number of rows the adjacency list of a partitioned vertex is split into. The edges of a partitioned vertex
+     * are assigned to one of these rows by the id of the adjacent vertex and the rows are placed in different id partitions
+     * so that the edges of high-degree vertices are spread across the storage cluster.
+     *
+     * @see com.thinkaurelius.titan.core.TitanTransaction#addPartitionedVertex()
+     */
+    public static final ConfigOption<Integer> IDS_PARTITIONED_VERTEX_CUTS = new ConfigOption<Integer>(IDS_NS,"partitioned-vertex-cuts",
+            "The number of rows the adjacency list of a partitioned vertex is split into",
+            ConfigOption.Type.GLOBAL_OFFLINE, 16, ConfigOption.positiveInt());
+
     // ############## External Index ######################
     // ################################################
 
@@ -797,6 +923,17 @@ public class GraphDatabaseConfiguration {
 //    public static final String ATTRIBUTE_ALLOW_ALL_SERIALIZABLE_KEY = "allow-all";
 //    public static final boolean ATTRIBUTE_ALLOW_ALL_SERIALIZABLE_DEFAULT = true;
 
+    /**
+     * Whether string values in sort keys are written in the compact order preserving encoding which uses one byte
+     * per ASCII character rather than two bytes per character. This is enabled automatically when a graph is created
+     * unless configured otherwise. Graphs created with earlier versions of Titan keep using the legacy encoding since
+     * both encodings must not be mixed in the same graph.
+     */
+    public static final ConfigOption<Boolean> ATTRIBUTE_COMPACT_STRING_ORDER = new ConfigOption<Boolean>(ATTRIBUTE_NS,"compact-string-order",
+            "Whether strings in sort keys are written in the compact order preserving encoding, which is enabled for newly created graphs",
+            ConfigOption.Type.FIXED, false);
+
+
     public static final ConfigNamespace CUSTOM_ATTRIBUTE_NS = new ConfigNamespace(ATTRIBUTE_NS,"custom","Custom attribute serialization and handling",true);
 
     public static final String ATTRIBUTE_PREFIX = "attribute";
@@ -875,6 +1012,18 @@ public class GraphDatabaseConfiguration {
 //    public static final String MERGE_BASIC_METRICS_KEY = "merge-basic-metrics";
 //    public static final boolean MERGE_BASIC_METRICS_DEFAULT = true;
 
+    /**
+     * Backend read, commit and flush operations which take at least this long are logged to the
+     * {@link com.thinkaurelius.titan.diskstorage.BackendTransaction#SLOW_OPERATION_LOGGER} logger together with
+     * the queried key, the slice bounds, the number of retries and the transaction group.
+     * If {@link #BASIC_METRICS} is enabled, slow operations are also counted per operation.
+     * <p/>
+     * A threshold of 0 disables the slow operation log.
+     */
+    public static final ConfigOption<Duration> METRICS_SLOW_OPERATION_THRESHOLD = new ConfigOption<Duration>(METRICS_NS,"slow-operation-threshold",
+            "Minimum time (in ms) a backend operation must take to be logged as a slow operation. 0 disables the slow operation log.",
+            ConfigOption.Type.MASKABLE, new SimpleDuration(0L, TimeUnit.MILLISECONDS));
+
 
 
     public static final ConfigNamespace METRICS_CONSOLE_NS = new ConfigNamespace(METRICS_NS,"console","Configuration options for metrics reporting to console");
@@ -1154,8 +1303,15 @@ public class GraphDatabaseConfiguration {
     private boolean batchLoading;
     private int txVertexCacheSize;
     private int txDirtyVertexSize;
+    private String txVertexCacheType;
     private DefaultTypeMaker defaultTypeMaker;
     private Boolean propertyPrefetching;
+    private int queryPrefetchBatch;
+    private boolean schemaPreload;
+    private int partitionedVertexCuts;
+    private boolean indexQueryCache;
+    private long indexQueryCacheSize;
+    private long indexQueryCacheTime;
     private boolean allowVertexIdSetting;
     private boolean logTransactions;
     private String metricsPrefix;
@@ -1208,6 +1364,11 @@ public class GraphDatabaseConfiguration {
                     log.info("Disabled ID partitioning");
                 }
 
+                // Newly created graphs use the compact string encoding unless configured otherwise
+                if (!localbc.has(ATTRIBUTE_COMPACT_STRING_ORDER)) {
+                    globalWrite.set(ATTRIBUTE_COMPACT_STRING_ORDER, true);
+                }
+
                 globalWrite.freezeConfiguration();
             } else {
                 String version = globalWrite.get(INITIAL_TITAN_VERSION);
@@ -1311,6 +1472,7 @@ public class GraphDatabaseConfiguration {
         if (batchLoading) defaultTypeMaker = DisableDefaultTypeMaker.INSTANCE;
 
         txVertexCacheSize = configuration.get(TX_CACHE_SIZE);
+        txVertexCacheType = configuration.get(TX_CACHE_TYPE);
         //Check for explicit dirty vertex cache size first, then fall back on batch-loading-dependent default
         if (configuration.has(TX_DIRTY_SIZE)) {
             txDirtyVertexSize = configuration.get(TX_DIRTY_SIZE);
@@ -1323,6 +1485,13 @@ public class GraphDatabaseConfiguration {
         if (configuration.has(PROPERTY_PREFETCHING))
             propertyPrefetching = configuration.get(PROPERTY_PREFETCHING);
         else propertyPrefetching = null;
+        queryPrefetchBatch = configuration.get(QUERY_PREFETCH_BATCH);
+        schemaPreload = configuration.get(SCHEMA_PRELOAD);
+        partitionedVertexCuts = configuration.get(IDS_PARTITIONED_VERTEX_CUTS);
+        indexQueryCache = configuration.get(DB_INDEX_CACHE);
+        indexQueryCacheSize = configuration.get(DB_INDEX_CACHE_SIZE);
+        indexQueryCacheTime = configuration.get(DB_INDEX_CACHE_TIME);
+        Preconditions.checkArgument(indexQueryCacheTime >= 0, "Invalid index cache expiration time: %s", indexQueryCacheTime);
         allowVertexIdSetting = configuration.get(ALLOW_SETTING_VERTEX_ID);
         logTransactions = configuration.get(SYSTEM_LOG_TRANSACTIONS);
 
@@ -1432,6 +1601,10 @@ public class GraphDatabaseConfiguration {
         return txDirtyVertexSize;
     }
 
+    public String getTxVertexCacheType() {
+        return txVertexCacheType;
+    }
+
     public boolean isBatchLoading() {
         return batchLoading;
     }
@@ -1460,6 +1633,30 @@ public class GraphDatabaseConfiguration {
         }
     }
 
+    public int getQueryPrefetchBatch() {
+        return queryPrefetchBatch;
+    }
+
+    public boolean preloadSchema() {
+        return schemaPreload;
+    }
+
+    public int getPartitionedVertexCuts() {
+        return partitionedVertexCuts;
+    }
+
+    public boolean hasIndexQueryCache() {
+        return indexQueryCache;
+    }
+
+    public long getIndexQueryCacheSize() {
+        return indexQueryCacheSize;
+    }
+
+    public long getIndexQueryCacheTime() {
+        return indexQueryCacheTime;
+    }
+
     public String getUnknownIndexKeydName() {
         return unknownIndexKeydName;
     }
@@ -1546,9 +1743,14 @@ public class GraphDatabaseConfiguration {
         return getSerializer(configuration);
     }
 
+    public BackendCompression getValueCompression() {
+        return Backend.getValueCompression(configuration);
+    }
+
 
     public static Serializer getSerializer(Configuration configuration) {
-        Serializer serializer = new StandardSerializer(configuration.get(ATTRIBUTE_ALLOW_ALL_SERIALIZABLE));
+        Serializer serializer = new StandardSerializer(configuration.get(ATTRIBUTE_ALLOW_ALL_SERIALIZABLE),
+                configuration.get(ATTRIBUTE_COMPACT_STRING_ORDER));
         for (RegisteredAttributeClass<?> clazz : getRegisteredAttributeClasses(configuration)) {
             clazz.registerWith(serializer);
         }
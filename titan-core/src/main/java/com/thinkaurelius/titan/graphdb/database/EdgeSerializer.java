@@ -149,6 +149,40 @@ public class EdgeSerializer implements RelationReader {
         return new RelationCache(dir, typeId, relationId, other, properties);
     }
 
+    /**
+     * Reads only the id of the adjacent vertex from the given edge entry. Unlike {@link #parseRelation}, this does not
+     * construct a {@link RelationCache} or read any properties of the edge.
+     *
+     * @param vertexid id of the vertex the entry was retrieved for
+     * @param data edge entry
+     * @param excludeHidden whether edges of hidden types should be skipped
+     * @param tx
+     * @return id of the adjacent vertex or 0 if the edge is of a hidden type and those are excluded
+     */
+    public long parseOtherVertexId(long vertexid, Entry data, boolean excludeHidden, TypeInspector tx) {
+        RelationCache map = data.getCache();
+        if (map != null) {
+            if (excludeHidden && ((InternalType) tx.getExistingType(map.typeId)).isHiddenType()) return 0;
+            return map.getOtherVertexId();
+        }
+
+        ReadBuffer in = data.asReadBuffer();
+        EdgeTypeParse typeAndDir = IDHandler.readEdgeType(in);
+        Preconditions.checkArgument(typeAndDir.dirID.getRelationCategory()==RelationCategory.EDGE,"Entry does not represent an edge");
+        InternalType def = (InternalType) tx.getExistingType(typeAndDir.typeId);
+        if (excludeHidden && def.isHiddenType()) return 0;
+
+        long vertexIdDiff;
+        if (def.getMultiplicity().isConstrained()) {
+            vertexIdDiff = VariableLong.read(in);
+        } else {
+            in.movePositionTo(data.getValuePosition());
+            VariableLong.readBackward(in); //relation id
+            vertexIdDiff = VariableLong.readBackward(in);
+        }
+        return vertexid + vertexIdDiff;
+    }
+
     private void readInlineTypes(long[] typeids, LongObjectOpenHashMap properties, ReadBuffer in, TypeInspector tx, InlineType inlineType) {
         for (long typeid : typeids) {
             TitanType keyType = tx.getExistingType(typeid);
@@ -221,7 +255,7 @@ public class EdgeSerializer implements RelationReader {
         long typeid = type.getID();
         DirectionID dirID = getDirID(dir, relation.isProperty() ? RelationCategory.PROPERTY : RelationCategory.EDGE);
 
-        DataOutput out = serializer.getDataOutput(DEFAULT_CAPACITY);
+        DataOutput out = serializer.getPooledDataOutput(DEFAULT_CAPACITY);
         int valuePosition;
         IDHandler.writeEdgeType(out, typeid, dirID, type.isHiddenType());
         Multiplicity multiplicity = type.getMultiplicity();
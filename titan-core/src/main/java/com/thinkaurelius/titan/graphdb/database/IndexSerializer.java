@@ -573,11 +573,15 @@ public class IndexSerializer {
 
 
     private final StaticBuffer getIndexKey(InternalIndexType index, RecordEntry[] record) {
-        return getIndexKey(index,IndexRecords.getValues(record));
+        //Only used for index updates, hence the key can be allocated from the pool
+        return getIndexKey(index,IndexRecords.getValues(record),serializer.getPooledDataOutput(8*DEFAULT_OBJECT_BYTELEN + 8));
     }
 
     private final StaticBuffer getIndexKey(InternalIndexType index, Object[] values) {
-        DataOutput out = serializer.getDataOutput(8*DEFAULT_OBJECT_BYTELEN + 8);
+        return getIndexKey(index,values,serializer.getDataOutput(8*DEFAULT_OBJECT_BYTELEN + 8));
+    }
+
+    private final StaticBuffer getIndexKey(InternalIndexType index, Object[] values, DataOutput out) {
         IndexField[] fields = index.getFieldKeys();
         Preconditions.checkArgument(fields.length>0 && fields.length==values.length);
         for (int i = 0; i < fields.length; i++) {
@@ -598,7 +602,7 @@ public class IndexSerializer {
     }
 
     private final Entry getIndexEntry(InternalIndexType index, RecordEntry[] record, TitanElement element) {
-        DataOutput out = serializer.getDataOutput(1+8+8*record.length+4*8);
+        DataOutput out = serializer.getPooledDataOutput(1+8+8*record.length+4*8);
         out.putByte(FIRST_INDEX_COLUMN_BYTE);
         if (index.getCardinality()!=Cardinality.SINGLE) {
             VariableLong.writePositive(out,element.getID());
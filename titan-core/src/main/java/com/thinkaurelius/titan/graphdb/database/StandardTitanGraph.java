@@ -16,10 +16,14 @@ import com.thinkaurelius.titan.diskstorage.keycolumnvalue.cache.KCVSCache;
 import com.thinkaurelius.titan.diskstorage.log.Log;
 import com.thinkaurelius.titan.diskstorage.util.BufferUtil;
 import com.thinkaurelius.titan.diskstorage.util.RecordIterator;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntryList;
 import com.thinkaurelius.titan.graphdb.blueprints.TitanBlueprintsGraph;
 import com.thinkaurelius.titan.graphdb.blueprints.TitanFeatures;
 import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import com.thinkaurelius.titan.graphdb.database.cache.IndexQueryCache;
+import com.thinkaurelius.titan.graphdb.database.cache.MetricInstrumentedSchemaCache;
 import com.thinkaurelius.titan.graphdb.database.cache.SchemaCache;
+import com.thinkaurelius.titan.graphdb.database.cache.SchemaSnapshot;
 import com.thinkaurelius.titan.graphdb.database.idassigner.VertexIDAssigner;
 import com.thinkaurelius.titan.graphdb.database.idhandling.IDHandler;
 import com.thinkaurelius.titan.graphdb.database.idhandling.VariableLong;
@@ -35,6 +39,7 @@ import com.thinkaurelius.titan.graphdb.internal.InternalElement;
 import com.thinkaurelius.titan.graphdb.internal.InternalRelation;
 import com.thinkaurelius.titan.graphdb.internal.InternalType;
 import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
+import com.thinkaurelius.titan.graphdb.internal.TitanSchemaCategory;
 import com.thinkaurelius.titan.graphdb.relations.EdgeDirection;
 import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
 import com.thinkaurelius.titan.graphdb.transaction.StandardTransactionBuilder;
@@ -43,10 +48,12 @@ import com.thinkaurelius.titan.graphdb.types.ExternalIndexType;
 import com.thinkaurelius.titan.graphdb.types.InternalIndexType;
 import com.thinkaurelius.titan.graphdb.types.SchemaStatus;
 import com.thinkaurelius.titan.graphdb.types.system.BaseKey;
+import com.thinkaurelius.titan.graphdb.types.system.BaseLabel;
 import com.thinkaurelius.titan.graphdb.types.system.BaseType;
 import com.thinkaurelius.titan.graphdb.types.system.SystemType;
 import com.thinkaurelius.titan.graphdb.types.vertices.TitanSchemaVertex;
 import com.thinkaurelius.titan.graphdb.util.ExceptionFactory;
+import com.thinkaurelius.titan.util.stats.MetricManager;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Features;
 
@@ -59,6 +66,7 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration.REGISTRATION_TIME;
@@ -74,6 +82,7 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
     private final IDManager idManager;
     private final VertexIDAssigner idAssigner;
     private final TimestampProvider times;
+    private final int partitionedVertexCuts;
 
     //Serializers
     protected final IndexSerializer indexSerializer;
@@ -84,6 +93,8 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
     public final SliceQuery vertexExistenceQuery;
     private final RelationQueryCache queryCache;
     private final SchemaCache schemaCache;
+    private volatile SchemaSnapshot schemaSnapshot;
+    private final IndexQueryCache indexQueryCache;
 
     //Log
     private final ManagementLogger mgmtLogger;
@@ -102,6 +113,7 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
 
         this.idAssigner = config.getIDAssigner(backend);
         this.idManager = idAssigner.getIDManager();
+        this.partitionedVertexCuts = configuration.getPartitionedVertexCuts();
 
         this.serializer = config.getSerializer();
         StoreFeatures storeFeatures = backend.getStoreFeatures();
@@ -110,6 +122,11 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
         this.vertexExistenceQuery = edgeSerializer.getQuery(BaseKey.VertexExists, Direction.OUT, new EdgeSerializer.TypedInterval[0], null).setLimit(1);
         this.queryCache = new RelationQueryCache(this.edgeSerializer);
         this.schemaCache = configuration.getTypeCache(typeCacheRetrieval);
+        this.schemaSnapshot = new SchemaSnapshot();
+        this.indexQueryCache = configuration.hasIndexQueryCache()
+                ? new IndexQueryCache(configuration.getIndexQueryCacheSize(), configuration.getIndexQueryCacheTime(),
+                                      Runtime.getRuntime().availableProcessors())
+                : null;
         this.times = configuration.getTimestampProvider();
 
         isOpen = true;
@@ -130,6 +147,8 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
 
         shutdownHook = new ShutdownThread(this);
         Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        if (configuration.preloadSchema()) preloadSchema();
     }
 
     @Override
@@ -191,6 +210,34 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
         return schemaCache;
     }
 
+    /**
+     * Returns the current version of the compiled schema. Transactions should retrieve it once when they start.
+     *
+     * @return
+     */
+    public SchemaSnapshot getSchemaSnapshot() {
+        return schemaSnapshot;
+    }
+
+    /**
+     * Replaces the current schema snapshot by one that no longer contains the given schema vertices.
+     * Must be invoked after the corresponding entries in the {@link SchemaCache} have been expired.
+     *
+     * @param schemaIds
+     */
+    public synchronized void expireSchemaSnapshot(long... schemaIds) {
+        schemaSnapshot = schemaSnapshot.expire(schemaIds);
+    }
+
+    /**
+     * Returns the graph-wide cache of index query results or null if it is not enabled.
+     *
+     * @return
+     */
+    public IndexQueryCache getIndexQueryCache() {
+        return indexQueryCache;
+    }
+
     public GraphDatabaseConfiguration getConfiguration() {
         return config;
     }
@@ -244,6 +291,8 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
 
         @Override
         public Long retrieveTypeByName(String typeName, StandardTitanTx tx) {
+            PreloadedSchema preloaded = preloadedSchema;
+            if (preloaded!=null && preloaded.typeIds.containsKey(typeName)) return preloaded.typeIds.get(typeName);
             TitanVertex v = Iterables.getOnlyElement(tx.getVertices(BaseKey.TypeName, typeName),null);
             return v!=null?v.getID():null;
         }
@@ -251,11 +300,91 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
         @Override
         public EntryList retrieveTypeRelations(final long schemaId, final SystemType type, final Direction dir, final StandardTitanTx tx) {
             SliceQuery query = queryCache.getQuery(type,dir);
+            PreloadedSchema preloaded = preloadedSchema;
+            if (preloaded!=null) {
+                Map<Long,EntryList> relations = preloaded.typeRelations.get(query);
+                if (relations!=null && relations.containsKey(schemaId)) return relations.get(schemaId);
+            }
             return edgeQuery(schemaId, query, tx.getTxHandle());
         }
 
     };
 
+    // ################### SCHEMA PRELOADING #########################
+
+    private static final Object[][] PRELOADED_SCHEMA_RELATIONS = {
+            {BaseKey.TypeName, Direction.OUT},
+            {BaseKey.TypeDefinitionProperty, Direction.OUT},
+            {BaseLabel.TypeDefinitionEdge, Direction.OUT},
+            {BaseLabel.TypeDefinitionEdge, Direction.IN}};
+
+    /**
+     * Schema relations which have been retrieved in bulk by {@link #preloadSchema()} and are handed to the
+     * {@link SchemaCache} by {@link #typeCacheRetrieval} while the schema is being preloaded.
+     */
+    private volatile PreloadedSchema preloadedSchema = null;
+
+    private static class PreloadedSchema {
+
+        private final Map<String,Long> typeIds = new HashMap<String,Long>();
+        private final Map<SliceQuery,Map<Long,EntryList>> typeRelations = new HashMap<SliceQuery,Map<Long,EntryList>>();
+
+    }
+
+    /**
+     * Loads all schema vertices into the {@link SchemaCache} and compiles them into the {@link SchemaSnapshot} so that
+     * the first transactions after startup don't have to retrieve them one by one. The schema vertices are found
+     * through the index on their category and their relations are retrieved with one multi-query per system type,
+     * which the storage backend executes in parallel.
+     */
+    public void preloadSchema() {
+        long start = System.currentTimeMillis();
+        StandardTitanTx tx = (StandardTitanTx) newTransaction();
+        int numSchemaVertices = 0;
+        try {
+            LongArrayList schemaIds = new LongArrayList();
+            List<TitanSchemaCategory> categories = new ArrayList<TitanSchemaCategory>();
+            for (TitanSchemaCategory category : TitanSchemaCategory.values()) {
+                for (TitanVertex v : tx.getVertices(BaseKey.TypeCategory, category)) {
+                    schemaIds.add(v.getID());
+                    categories.add(category);
+                }
+            }
+            numSchemaVertices = schemaIds.size();
+            if (numSchemaVertices==0) return;
+
+            PreloadedSchema preloaded = new PreloadedSchema();
+            for (Object[] relation : PRELOADED_SCHEMA_RELATIONS) {
+                SliceQuery query = queryCache.getQuery((SystemType)relation[0],(Direction)relation[1]);
+                List<EntryList> results = edgeMultiQuery(schemaIds, query, tx.getTxHandle());
+                Map<Long,EntryList> relations = new HashMap<Long,EntryList>(numSchemaVertices);
+                for (int i = 0; i < numSchemaVertices; i++) relations.put(schemaIds.get(i),results.get(i));
+                preloaded.typeRelations.put(query,relations);
+            }
+            preloadedSchema = preloaded;
+
+            for (int i = 0; i < numSchemaVertices; i++) {
+                TitanSchemaVertex schemaVertex = (TitanSchemaVertex) tx.getExistingVertex(schemaIds.get(i));
+                //Compiles the schema vertex which fills the schema cache with its relations
+                schemaVertex.getDefinition();
+                if (categories.get(i).hasName()) {
+                    String name = schemaVertex.getName();
+                    preloaded.typeIds.put(name,schemaIds.get(i));
+                    schemaCache.getTypeId(name,tx);
+                }
+            }
+        } finally {
+            preloadedSchema = null;
+            tx.rollback();
+        }
+        long time = System.currentTimeMillis()-start;
+        log.info("Preloaded {} schema vertices in {} ms",numSchemaVertices,time);
+        if (config.getMetricsPrefix()!=null) {
+            MetricManager.INSTANCE.getTimer(config.getMetricsPrefix(), MetricInstrumentedSchemaCache.METRICS_NAME,
+                    MetricInstrumentedSchemaCache.METRICS_PRELOAD, "time").update(time, TimeUnit.MILLISECONDS);
+        }
+    }
+
     public RecordIterator<Long> getVertexIDs(final BackendTransaction tx) {
         Preconditions.checkArgument(backend.getStoreFeatures().hasOrderedScan() ||
                 backend.getStoreFeatures().hasUnorderedScan(),
@@ -270,14 +399,28 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
 
         return new RecordIterator<Long>() {
 
+            private StaticBuffer nextKey = nextKey();
+
+            private StaticBuffer nextKey() {
+                while (keyiter.hasNext()) {
+                    StaticBuffer key = keyiter.next();
+                    //Skip the rows that hold the adjacency lists of partitioned vertices
+                    if (!IDHandler.isCutKey(key)) return key;
+                }
+                return null;
+            }
+
             @Override
             public boolean hasNext() {
-                return keyiter.hasNext();
+                return nextKey != null;
             }
 
             @Override
             public Long next() {
-                return IDHandler.getKeyID(keyiter.next());
+                if (!hasNext()) throw new NoSuchElementException();
+                long id = IDHandler.getKeyID(nextKey);
+                nextKey = nextKey();
+                return id;
             }
 
             @Override
@@ -294,22 +437,105 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
 
     public EntryList edgeQuery(long vid, SliceQuery query, BackendTransaction tx) {
         Preconditions.checkArgument(vid > 0);
+        if (hasCuts(vid, query)) return edgeMultiQuery(LongArrayList.from(vid), query, tx).get(0);
         return tx.edgeStoreQuery(new KeySliceQuery(IDHandler.getKey(vid), query));
     }
 
     public List<EntryList> edgeMultiQuery(LongArrayList vids, SliceQuery query, BackendTransaction tx) {
         Preconditions.checkArgument(vids != null && !vids.isEmpty());
         List<StaticBuffer> vertexIds = new ArrayList<StaticBuffer>(vids.size());
+        boolean hasCuts = false;
         for (int i = 0; i < vids.size(); i++) {
             Preconditions.checkArgument(vids.get(i) > 0);
             vertexIds.add(IDHandler.getKey(vids.get(i)));
+            if (hasCuts(vids.get(i), query)) hasCuts = true;
+        }
+        if (!hasCuts) {
+            Map<StaticBuffer,EntryList> result = tx.edgeStoreMultiQuery(vertexIds, query);
+            List<EntryList> resultList = new ArrayList<EntryList>(result.size());
+            for (StaticBuffer v : vertexIds) resultList.add(result.get(v));
+            return resultList;
+        }
+
+        //Read the cuts of all partitioned vertices together with the vertex rows so that they are retrieved in parallel
+        List<StaticBuffer> keys = new ArrayList<StaticBuffer>(vertexIds);
+        for (int i = 0; i < vids.size(); i++) {
+            if (hasCuts(vids.get(i), query)) keys.addAll(getCutKeys(vids.get(i)));
+        }
+        Map<StaticBuffer,EntryList> result = tx.edgeStoreMultiQuery(keys, query);
+        List<EntryList> resultList = new ArrayList<EntryList>(vids.size());
+        for (int i = 0; i < vids.size(); i++) {
+            EntryList vertexRow = result.get(vertexIds.get(i));
+            if (hasCuts(vids.get(i), query)) {
+                List<EntryList> rows = new ArrayList<EntryList>(partitionedVertexCuts + 1);
+                rows.add(vertexRow);
+                for (StaticBuffer cutKey : getCutKeys(vids.get(i))) rows.add(result.get(cutKey));
+                resultList.add(mergeCuts(rows, query));
+            } else resultList.add(vertexRow);
         }
-        Map<StaticBuffer,EntryList> result = tx.edgeStoreMultiQuery(vertexIds, query);
-        List<EntryList> resultList = new ArrayList<EntryList>(result.size());
-        for (StaticBuffer v : vertexIds) resultList.add(result.get(v));
         return resultList;
     }
 
+    // ################### PARTITIONED VERTICES #########################
+
+    /*
+    The adjacency list of a partitioned vertex is split into the vertex row, which holds the properties and all edges
+    whose label is unique in the direction of the vertex, and partitionedVertexCuts cut rows, which hold all other edges.
+    An edge is assigned to a cut by the id of the adjacent vertex, hence all entries of one relation end up in the
+    same row and locks are acquired on the row that is written to.
+     */
+
+    private boolean hasCuts(long vid, SliceQuery query) {
+        //Vertex existence is recorded in the vertex row
+        return idManager.getIdInspector().isPartitionedVertexId(vid) && !query.equals(vertexExistenceQuery);
+    }
+
+    private List<StaticBuffer> getCutKeys(long vid) {
+        List<StaticBuffer> keys = new ArrayList<StaticBuffer>(partitionedVertexCuts);
+        for (int cut = 0; cut < partitionedVertexCuts; cut++) {
+            keys.add(IDHandler.getCutKey(idManager.getPartitionedVertexCutID(vid, cut, partitionedVertexCuts), cut));
+        }
+        return keys;
+    }
+
+    private StaticBuffer getCutKey(long vid, long adjacentVertexId) {
+        //Scramble the id since the lower bits of vertex ids are padding and the upper bits are the partition
+        int cut = (int) (((adjacentVertexId * 0x9E3779B97F4A7C15L) >>> 33) % partitionedVertexCuts);
+        return IDHandler.getCutKey(idManager.getPartitionedVertexCutID(vid, cut, partitionedVertexCuts), cut);
+    }
+
+    /**
+     * Returns the key of the row in which the given relation is stored for the vertex at the given position.
+     *
+     * @param relation
+     * @param pos
+     * @return
+     */
+    private StaticBuffer getRelationKey(InternalRelation relation, int pos) {
+        long vid = relation.getVertex(pos).getID();
+        if (!relation.isEdge() || !idManager.getIdInspector().isPartitionedVertexId(vid)
+                || ((InternalType) relation.getType()).getMultiplicity().isUnique(EdgeDirection.fromPosition(pos)))
+            return IDHandler.getKey(vid);
+        return getCutKey(vid, relation.getVertex((pos + 1) % 2).getID());
+    }
+
+    /**
+     * Merges the slices retrieved from the rows of a partitioned vertex into the slice the query would have returned
+     * if the adjacency list was stored in a single row.
+     *
+     * @param rows
+     * @param query
+     * @return
+     */
+    private static EntryList mergeCuts(List<EntryList> rows, SliceQuery query) {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (EntryList row : rows) entries.addAll(row);
+        //Entries are compared by their column
+        Collections.sort(entries);
+        if (query.hasLimit() && entries.size() > query.getLimit()) entries = entries.subList(0, query.getLimit());
+        return StaticArrayEntryList.of(entries);
+    }
+
 
     // ################### WRITE #########################
 
@@ -317,6 +543,14 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
         idAssigner.assignID(vertex);
     }
 
+    public void assignID(InternalVertex vertex, int partitionID) {
+        idAssigner.assignID(vertex, partitionID);
+    }
+
+    public boolean isLocalPartition(int partitionID) {
+        return idAssigner.isLocalPartition(partitionID);
+    }
+
     public static boolean acquireLock(InternalRelation relation, int pos, boolean acquireLocksConfig) {
         InternalType type = (InternalType)relation.getType();
         return acquireLocksConfig && type.getConsistencyModifier()==ConsistencyModifier.LOCK &&
@@ -333,7 +567,7 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
                                      final Collection<InternalRelation> deletedRelations,
                                      final Predicate<InternalRelation> filter,
                                      final BackendTransaction mutator, final StandardTitanTx tx,
-                                     final boolean acquireLocks) throws StorageException {
+                                     final boolean acquireLocks, final Set<String> updatedIndexes) throws StorageException {
 
 
         ListMultimap<InternalVertex, InternalRelation> mutations = ArrayListMultimap.create();
@@ -346,7 +580,7 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
                 if (pos == 0 || !del.isLoop()) mutations.put(vertex, del);
                 if (acquireLock(del,pos,acquireLocks)) {
                     Entry entry = edgeSerializer.writeRelation(del, pos, tx);
-                    mutator.acquireEdgeLock(IDHandler.getKey(vertex.getID()), entry);
+                    mutator.acquireEdgeLock(getRelationKey(del, pos), entry);
                 }
             }
             indexUpdates.addAll(indexSerializer.getIndexUpdates(del));
@@ -361,7 +595,7 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
                 if (pos == 0 || !add.isLoop()) mutations.put(vertex, add);
                 if (!vertex.isNew() && acquireLock(add,pos,acquireLocks)) {
                     Entry entry = edgeSerializer.writeRelation(add, pos, tx);
-                    mutator.acquireEdgeLock(IDHandler.getKey(vertex.getID()), entry.getColumn());
+                    mutator.acquireEdgeLock(getRelationKey(add, pos), entry.getColumn());
                 }
             }
             indexUpdates.addAll(indexSerializer.getIndexUpdates(add));
@@ -391,8 +625,10 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
         for (InternalVertex vertex : mutations.keySet()) {
             Preconditions.checkArgument(vertex.getID() > 0, "Vertex has no id: %s", vertex.getID());
             List<InternalRelation> edges = mutations.get(vertex);
-            List<Entry> additions = new ArrayList<Entry>(edges.size());
-            List<Entry> deletions = new ArrayList<Entry>(Math.max(10, edges.size() / 10));
+            StaticBuffer vertexKey = IDHandler.getKey(vertex.getID());
+            boolean partitioned = idManager.getIdInspector().isPartitionedVertexId(vertex.getID());
+            ListMultimap<StaticBuffer,Entry> additions = ArrayListMultimap.create(1, edges.size());
+            ListMultimap<StaticBuffer,Entry> deletions = ArrayListMultimap.create(1, Math.max(10, edges.size() / 10));
             for (InternalRelation edge : edges) {
                 InternalType baseType = (InternalType) edge.getType();
                 assert baseType.getBaseType()==null;
@@ -403,24 +639,27 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
                             continue; //Directionality is not covered
                         if (edge.getVertex(pos).equals(vertex)) {
                             Entry entry = edgeSerializer.writeRelation(edge, pos, tx);
+                            StaticBuffer key = partitioned ? getRelationKey(edge, pos) : vertexKey;
                             if (edge.isRemoved()) {
-                                deletions.add(entry);
+                                deletions.put(key, entry);
                             } else {
                                 Preconditions.checkArgument(edge.isNew());
-                                additions.add(entry);
+                                additions.put(key, entry);
                             }
                         }
                     }
                 }
             }
 
-            StaticBuffer vertexKey = IDHandler.getKey(vertex.getID());
-            mutator.mutateEdges(vertexKey, additions, deletions);
+            for (StaticBuffer key : Sets.union(additions.keySet(), deletions.keySet())) {
+                mutator.mutateEdges(key, additions.get(key), deletions.get(key));
+            }
         }
 
         //6) Add index updates
         for (IndexSerializer.IndexUpdate indexUpdate : indexUpdates) {
             assert indexUpdate.isAddition() || indexUpdate.isDeletion();
+            updatedIndexes.add(indexUpdate.getIndex().getName());
             if (indexUpdate.isInternalIndex()) {
                 IndexSerializer.IndexUpdate<StaticBuffer,Entry> update = indexUpdate;
                 if (update.isAddition())
@@ -473,11 +712,12 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
         final boolean logTransaction = config.hasLogTransactions() && !tx.getConfiguration().hasEnabledBatchLoading();
         final Log txLog = logTransaction?backend.getSystemTxLog():null;
         final TransactionLogHeader txLogHeader = new TransactionLogHeader(transactionId,txTimestamp, times.getUnit());
+        final Set<String> updatedIndexes = new HashSet<String>();
 
         //3.1 Commit schema elements and their associated relations
         try {
             //[FAILURE] If the preparation throws an exception abort directly - nothing persisted since batch-loading cannot be enabled for schema elements
-            boolean hasSchemaElements = prepareCommit(addedRelations,deletedRelations, SCHEMA_FILTER, mutator, tx, acquireLocks);
+            boolean hasSchemaElements = prepareCommit(addedRelations,deletedRelations, SCHEMA_FILTER, mutator, tx, acquireLocks, updatedIndexes);
             if (hasSchemaElements) {
                 Preconditions.checkArgument(!tx.getConfiguration().hasEnabledBatchLoading() && acquireLocks,"Attempting to create schema elements in inconsistent state");
 
@@ -506,7 +746,7 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
 
             //[FAILURE] Exceptions during preparation here cause the entire transaction to fail on transactional systems
             //or just the non-system part on others. Nothing has been persisted unless batch-loading
-            boolean hasModifications = prepareCommit(addedRelations,deletedRelations, NO_SCHEMA_FILTER, mutator, tx, acquireLocks);
+            boolean hasModifications = prepareCommit(addedRelations,deletedRelations, NO_SCHEMA_FILTER, mutator, tx, acquireLocks, updatedIndexes);
             if (hasModifications) {
 
                 if (logTransaction) {
@@ -585,6 +825,16 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
             }
             if (e instanceof RuntimeException) throw (RuntimeException)e;
             else throw new TitanException("Unexpected exception",e);
+        } finally {
+            //Mutations might have been persisted partially, hence invalidate regardless of the outcome
+            if (indexQueryCache!=null && !updatedIndexes.isEmpty()) {
+                indexQueryCache.invalidate(updatedIndexes);
+                try {
+                    mgmtLogger.sendIndexCacheEviction(updatedIndexes);
+                } catch (Throwable e) {
+                    log.error("Could not notify other instances of index cache eviction for transaction ["+transactionId+"]",e);
+                }
+            }
         }
     }
 
@@ -600,6 +850,7 @@ public class StandardTitanGraph extends TitanBlueprintsGraph {
     private void logRelations(DataOutput out, final Collection<InternalRelation> relations, StandardTitanTx tx) {
         VariableLong.writePositive(out,relations.size());
         for (InternalRelation rel : relations) {
+            //The entry is backed by a pooled buffer and copied into the log message right away
             Entry entry = edgeSerializer.writeRelation(rel, 0, tx);
             BufferUtil.writeEntry(out,entry);
         }
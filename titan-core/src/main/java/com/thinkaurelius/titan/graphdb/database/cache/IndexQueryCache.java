@@ -0,0 +1,139 @@
+package com.thinkaurelius.titan.graphdb.database.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.thinkaurelius.titan.graphdb.query.BackendQuery;
+import com.thinkaurelius.titan.graphdb.query.graph.JointIndexQuery;
+import com.thinkaurelius.titan.graphdb.types.IndexType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Graph-wide cache of index query results which is shared by all transactions of a graph instance.
+ * <p/>
+ * Cached results are invalidated per index whenever a transaction commits mutations against that index, either locally
+ * (see {@link #invalidate(java.util.Collection)}) or on a remote instance which announces the invalidation through the
+ * management log. Since remote invalidations are delivered asynchronously, results can additionally expire after a
+ * configurable amount of time.
+ * <p/>
+ * A retrieval which races with an invalidation is never cached: each retrieval records the invalidation counter before
+ * querying the index and discards its result if the counter has changed by the time the result was added.
+ */
+public class IndexQueryCache {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(IndexQueryCache.class);
+
+    private final Cache<IndexQueryKey, List<Object>> cache;
+    private final AtomicLong invalidations = new AtomicLong(0);
+
+    /**
+     * @param maxWeight maximum weight of all cached results where each result weighs 2 plus the number of its elements
+     * @param expirationTimeMS time after which a cached result expires, 0 to keep results until invalidated
+     * @param concurrencyLevel
+     */
+    public IndexQueryCache(final long maxWeight, final long expirationTimeMS, final int concurrencyLevel) {
+        Preconditions.checkArgument(maxWeight > 0, "Cache size must be positive: %s", maxWeight);
+        Preconditions.checkArgument(expirationTimeMS >= 0, "Invalid expiration time: %s", expirationTimeMS);
+        CacheBuilder<IndexQueryKey, List<Object>> builder = CacheBuilder.newBuilder().weigher(new Weigher<IndexQueryKey, List<Object>>() {
+            @Override
+            public int weigh(IndexQueryKey q, List<Object> r) {
+                return 2 + r.size();
+            }
+        }).concurrencyLevel(concurrencyLevel).maximumWeight(maxWeight);
+        if (expirationTimeMS > 0) builder.expireAfterWrite(expirationTimeMS, TimeUnit.MILLISECONDS);
+        cache = builder.build();
+    }
+
+    /**
+     * Returns the cached result for the given index query or retrieves it through the given retriever on a cache miss.
+     *
+     * @param query
+     * @param retriever
+     * @return
+     * @throws Exception if the retriever fails
+     */
+    public List<Object> get(final JointIndexQuery.Subquery query, final Callable<List<Object>> retriever) throws Exception {
+        IndexQueryKey key = new IndexQueryKey(query);
+        List<Object> result = cache.getIfPresent(key);
+        if (result != null) return result;
+
+        long counter = invalidations.get();
+        result = retriever.call();
+        Preconditions.checkNotNull(result);
+        cache.put(key, result);
+        //An invalidation might have missed the result if it happened after the retrieval started
+        if (counter != invalidations.get()) cache.invalidate(key);
+        return result;
+    }
+
+    /**
+     * Removes all cached results of queries against any of the given indexes.
+     *
+     * @param indexNames names of the indexes which have been mutated
+     */
+    public void invalidate(Collection<String> indexNames) {
+        if (indexNames.isEmpty()) return;
+        invalidations.incrementAndGet();
+        int removed = 0;
+        for (Iterator<IndexQueryKey> iter = cache.asMap().keySet().iterator(); iter.hasNext(); ) {
+            if (indexNames.contains(iter.next().indexName)) {
+                iter.remove();
+                removed++;
+            }
+        }
+        log.debug("Invalidated {} cached index results for indexes {}", removed, indexNames);
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Identifies an index query independently of the transaction it was issued in, so that cached entries do not
+     * retain any transactional state such as schema vertices.
+     */
+    private static final class IndexQueryKey {
+
+        private final String indexName;
+        private final BackendQuery query;
+
+        private IndexQueryKey(JointIndexQuery.Subquery subquery) {
+            IndexType index = subquery.getIndex();
+            this.indexName = index.getName();
+            this.query = index.isInternalIndex() ? subquery.getInternalQuery() : subquery.getExternalQuery();
+        }
+
+        @Override
+        public int hashCode() {
+            return indexName.hashCode() * 31 + query.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            else if (other == null || !getClass().isInstance(other)) return false;
+            IndexQueryKey oth = (IndexQueryKey) other;
+            return indexName.equals(oth.indexName) && query.equals(oth.query);
+        }
+    }
+
+}
@@ -16,6 +16,7 @@ public class MetricInstrumentedSchemaCache implements SchemaCache {
 
     public static final String METRICS_TYPENAME = "name";
     public static final String METRICS_RELATIONS = "relations";
+    public static final String METRICS_PRELOAD = "preload";
 
     private final SchemaCache cache;
 
@@ -0,0 +1,150 @@
+package com.thinkaurelius.titan.graphdb.database.cache;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableListMultimap;
+import com.thinkaurelius.titan.graphdb.types.TypeDefinitionCategory;
+import com.thinkaurelius.titan.graphdb.types.TypeDefinitionMap;
+import com.tinkerpop.blueprints.Direction;
+import org.cliffc.high_scale_lib.NonBlockingHashMapLong;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * A versioned snapshot of the compiled definitions of all schema vertices of a graph. The compiled definition of a
+ * schema vertex contains its name, its {@link TypeDefinitionMap} and the ids of its related schema vertices so that
+ * transactions can materialize schema vertices without deserializing their definitions again.
+ * <p/>
+ * Definitions are compiled lazily by the first transaction that accesses the schema vertex and are immutable once
+ * added. When the schema changes, the snapshot is replaced by a new version which no longer contains the definitions
+ * of the changed schema vertices (see {@link #expire(long...)}). Transactions hold on to the version that was
+ * current when they started.
+ */
+public class SchemaSnapshot {
+
+    private static final int INITIAL_CAPACITY = 128;
+
+    private final long version;
+    private final NonBlockingHashMapLong<Definition> definitions;
+
+    public SchemaSnapshot() {
+        this(0, new NonBlockingHashMapLong<Definition>(INITIAL_CAPACITY));
+    }
+
+    private SchemaSnapshot(long version, NonBlockingHashMapLong<Definition> definitions) {
+        this.version = version;
+        this.definitions = definitions;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the compiled definition of the schema vertex with the given id or null if it has not yet been compiled.
+     *
+     * @param schemaId
+     * @return
+     */
+    public Definition get(long schemaId) {
+        return definitions.get(schemaId);
+    }
+
+    /**
+     * Adds the compiled definition of the schema vertex with the given id unless another thread has added one
+     * concurrently. Returns the definition which is contained in this snapshot.
+     *
+     * @param schemaId
+     * @param definition
+     * @return
+     */
+    public Definition add(long schemaId, Definition definition) {
+        Preconditions.checkNotNull(definition);
+        Definition existing = definitions.putIfAbsent(schemaId, definition);
+        return existing == null ? definition : existing;
+    }
+
+    /**
+     * Returns the next version of this snapshot which does not contain the definitions of the given schema vertices.
+     *
+     * @param schemaIds
+     * @return
+     */
+    public SchemaSnapshot expire(long... schemaIds) {
+        NonBlockingHashMapLong<Definition> next = new NonBlockingHashMapLong<Definition>(
+                Math.max(INITIAL_CAPACITY, definitions.size()));
+        for (Map.Entry<Long, Definition> entry : definitions.entrySet()) next.put(entry.getKey(), entry.getValue());
+        for (long schemaId : schemaIds) next.remove(schemaId);
+        return new SchemaSnapshot(version + 1, next);
+    }
+
+    @Override
+    public String toString() {
+        return "SchemaSnapshot[version=" + version + ",size=" + definitions.size() + "]";
+    }
+
+    /**
+     * The compiled definition of a schema vertex. The contained {@link TypeDefinitionMap} is shared by all
+     * transactions and must not be modified.
+     */
+    public static class Definition {
+
+        private final String name;
+        private final TypeDefinitionMap definition;
+        private final ImmutableListMultimap<TypeDefinitionCategory, Related> outRelated;
+        private final ImmutableListMultimap<TypeDefinitionCategory, Related> inRelated;
+
+        public Definition(@Nullable String name, TypeDefinitionMap definition,
+                          ImmutableListMultimap<TypeDefinitionCategory, Related> outRelated,
+                          ImmutableListMultimap<TypeDefinitionCategory, Related> inRelated) {
+            Preconditions.checkNotNull(definition);
+            Preconditions.checkNotNull(outRelated);
+            Preconditions.checkNotNull(inRelated);
+            this.name = name;
+            this.definition = definition;
+            this.outRelated = outRelated;
+            this.inRelated = inRelated;
+        }
+
+        /**
+         * Returns the name of the schema vertex or null if it is not named
+         */
+        public String getName() {
+            return name;
+        }
+
+        public TypeDefinitionMap getDefinition() {
+            return definition;
+        }
+
+        public ImmutableListMultimap<TypeDefinitionCategory, Related> getRelated(Direction dir) {
+            assert dir == Direction.OUT || dir == Direction.IN;
+            return dir == Direction.OUT ? outRelated : inRelated;
+        }
+
+    }
+
+    /**
+     * A schema vertex related to a compiled schema vertex, identified by its id.
+     */
+    public static class Related {
+
+        private final long schemaId;
+        private final Object modifier;
+
+        public Related(long schemaId, Object modifier) {
+            this.schemaId = schemaId;
+            this.modifier = modifier;
+        }
+
+        public long getSchemaId() {
+            return schemaId;
+        }
+
+        public Object getModifier() {
+            return modifier;
+        }
+
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.thinkaurelius.titan.graphdb.database.idassigner;
 
 
+import cern.colt.list.IntArrayList;
 import cern.colt.list.ObjectArrayList;
 import cern.colt.map.AbstractIntObjectMap;
 import cern.colt.map.OpenIntObjectHashMap;
@@ -54,8 +55,14 @@ public class VertexIDAssigner {
     public static final ConfigOption<String> PLACEMENT_STRATEGY = new ConfigOption<String>(IDS_NS,"placement",
             "Name of the vertex placement strategy or full class name", ConfigOption.Type.MASKABLE, "simplebulk");
 
+    public static final ConfigOption<Integer> MAX_OPEN_POOLS = new ConfigOption<Integer>(IDS_NS,"max-open-pools",
+            "Maximum number of partitions for which id blocks are held at any time. When a new partition is used, " +
+            "the id pool of the least recently used partition is closed if this limit has been reached",
+            ConfigOption.Type.MASKABLE, 100, ConfigOption.positiveInt());
+
     private static final Map<String,String> REGISTERED_PLACEMENT_STRATEGIES = ImmutableMap.of(
-            "simplebulk", SimpleBulkPlacementStrategy.class.getName()
+            "simplebulk", SimpleBulkPlacementStrategy.class.getName(),
+            "locality", LocalityPlacementStrategy.class.getName()
     );
 
     final AbstractIntObjectMap idPools;
@@ -71,6 +78,8 @@ public class VertexIDAssigner {
 
     private final int partitionIdBound;
     private final boolean hasLocalPartitions;
+    private final int maxOpenPools;
+    private volatile List<PartitionIDRange> localPartitionIdRanges;
 
     public VertexIDAssigner(Configuration config, IDAuthority idAuthority, StoreFeatures idAuthFeatures) {
         Preconditions.checkNotNull(idAuthority);
@@ -98,12 +107,14 @@ public class VertexIDAssigner {
         idManager = new IDManager(partitionBits);
         Preconditions.checkArgument(idManager.getPartitionBound() <= Integer.MAX_VALUE);
         this.partitionIdBound = (int)idManager.getPartitionBound();
+        if (placementStrategy instanceof IDManagerAware) ((IDManagerAware) placementStrategy).injectIDManager(idManager);
 
         long baseBlockSize = config.get(IDS_BLOCK_SIZE);
         idAuthority.setIDBlockSizer(new SimpleVertexIDBlockSizer(baseBlockSize));
 
         renewTimeoutMS = config.get(IDS_RENEW_TIMEOUT);
         renewBufferPercentage = config.get(IDS_RENEW_BUFFER_PERCENTAGE);
+        maxOpenPools = config.get(MAX_OPEN_POOLS);
 
         idPools = new OpenIntObjectHashMap();
         idPoolsLock = new ReentrantReadWriteLock();
@@ -112,7 +123,12 @@ public class VertexIDAssigner {
     }
 
     private void setLocalPartitionsToGlobal() {
-        placementStrategy.setLocalPartitionBounds(ImmutableList.of(new PartitionIDRange(0, partitionIdBound, partitionIdBound)));
+        setLocalPartitionBounds(ImmutableList.of(new PartitionIDRange(0, partitionIdBound, partitionIdBound)));
+    }
+
+    private void setLocalPartitionBounds(List<PartitionIDRange> partitionRanges) {
+        localPartitionIdRanges = ImmutableList.copyOf(partitionRanges);
+        placementStrategy.setLocalPartitionBounds(partitionRanges);
     }
 
     private void setLocalPartitions(long partitionBits) {
@@ -151,7 +167,7 @@ public class VertexIDAssigner {
             }
 
             if (!partitionRanges.isEmpty()) {
-                placementStrategy.setLocalPartitionBounds(partitionRanges);
+                setLocalPartitionBounds(partitionRanges);
             } else {
                 setLocalPartitionsToGlobal();
             }
@@ -162,6 +178,19 @@ public class VertexIDAssigner {
         return idManager;
     }
 
+    /**
+     * Whether the given partition lies within the local partition id ranges
+     *
+     * @param partitionID
+     * @return
+     */
+    public boolean isLocalPartition(int partitionID) {
+        for (PartitionIDRange range : localPartitionIdRanges) {
+            if (range.contains(partitionID)) return true;
+        }
+        return false;
+    }
+
     public synchronized void close() {
         idPoolsLock.writeLock().lock();
         try {
@@ -186,7 +215,7 @@ public class VertexIDAssigner {
                 partitionID = placementStrategy.getPartition(vertex);
             }
             try {
-                assignID(vertex, partitionID);
+                assignIDInPartition(vertex, partitionID);
                 return;
             } catch (IDPoolExhaustedException e) {
             }
@@ -213,7 +242,7 @@ public class VertexIDAssigner {
                     InternalVertex vertex = relation.getVertex(i);
                     if (!vertex.hasId()) {
                         if (vertex instanceof TitanType) {
-                            assignID(vertex, DEFAULT_PARTITION);
+                            assignIDInPartition(vertex, DEFAULT_PARTITION);
                         } else {
                             assignments.put(vertex, PartitionAssignment.EMPTY);
                         }
@@ -228,7 +257,7 @@ public class VertexIDAssigner {
                 while (iter.hasNext()) {
                     Map.Entry<InternalVertex, PartitionAssignment> entry = iter.next();
                     try {
-                        assignID(entry.getKey(), entry.getValue().getPartitionID());
+                        assignIDInPartition(entry.getKey(), entry.getValue().getPartitionID());
                         Preconditions.checkArgument(entry.getKey().hasId());
                     } catch (IDPoolExhaustedException e) {
                         if (leftOvers == null) leftOvers = new HashMap<InternalVertex, PartitionAssignment>();
@@ -249,7 +278,7 @@ public class VertexIDAssigner {
                 for (int pos = 0; pos < relation.getArity(); pos++) {
                     try {
                         Preconditions.checkArgument(relation.getVertex(pos).hasId());
-                        assignID(relation, getPartitionID(relation.getVertex(pos)));
+                        assignIDInPartition(relation, getPartitionID(relation.getVertex(pos)));
                         break;
                     } catch (IDPoolExhaustedException e) {
                     }
@@ -265,70 +294,131 @@ public class VertexIDAssigner {
         else return idManager.getPartitionId(vid);
     }
 
-    private void assignID(final InternalElement vertex, final long partitionIDl) {
+    /**
+     * Assigns an id in the given partition to the vertex, bypassing the placement strategy. Only partitions within
+     * the local partition id ranges are accepted.
+     *
+     * @param vertex
+     * @param partitionID
+     * @throws IDPoolExhaustedException if the partition has been exhausted
+     */
+    public void assignID(InternalVertex vertex, int partitionID) {
+        Preconditions.checkArgument(!(vertex instanceof TitanSchemaVertex), "Cannot place schema vertices: %s", vertex);
+        Preconditions.checkArgument(isLocalPartition(partitionID), "Partition %s lies outside the local partition id ranges", partitionID);
+        assignIDInPartition(vertex, partitionID);
+    }
+
+    private void assignIDInPartition(final InternalElement vertex, final long partitionIDl) {
         Preconditions.checkNotNull(vertex);
         Preconditions.checkArgument(!vertex.hasId());
         Preconditions.checkArgument(partitionIDl >= 0 && partitionIDl < partitionIdBound, partitionIDl);
         final int partitionID = (int) partitionIDl;
         long id = -1;
 
-        Object poolObj = null;
-        idPoolsLock.readLock().lock();
-        try {
-            poolObj = idPools.get(partitionID);
-        } finally {
-            idPoolsLock.readLock().unlock();
-        }
-        if (poolObj == null) {
-            idPoolsLock.writeLock().lock();
+        while (id < 0) {
+            Object poolObj = null;
+            idPoolsLock.readLock().lock();
             try {
-                if (idPools.containsKey(partitionID)) {
-                    poolObj = idPools.get(partitionID);
-                } else {
-                    poolObj = new PartitionPool(partitionID, idAuthority, idManager, partitionID == DEFAULT_PARTITION, renewTimeoutMS, renewBufferPercentage);
-                    idPools.put(partitionID, poolObj);
-                }
+                poolObj = idPools.get(partitionID);
             } finally {
-                idPoolsLock.writeLock().unlock();
+                idPoolsLock.readLock().unlock();
+            }
+            if (poolObj == null) {
+                idPoolsLock.writeLock().lock();
+                try {
+                    if (idPools.containsKey(partitionID)) {
+                        poolObj = idPools.get(partitionID);
+                    } else {
+                        closeLeastRecentlyUsedPool();
+                        poolObj = new PartitionPool(partitionID, idAuthority, idManager, partitionID == DEFAULT_PARTITION, renewTimeoutMS, renewBufferPercentage);
+                        idPools.put(partitionID, poolObj);
+                    }
+                } finally {
+                    idPoolsLock.writeLock().unlock();
+                }
+            }
+            Preconditions.checkNotNull(poolObj);
+            if (poolObj == EXHAUSTED_ID_POOL) {
+                placementStrategy.exhaustedPartition(partitionID);
+                throw new IDPoolExhaustedException("Exhausted id pool for partition: " + partitionID);
             }
-        }
-        Preconditions.checkNotNull(poolObj);
-        if (poolObj == EXHAUSTED_ID_POOL) {
-            placementStrategy.exhaustedPartition(partitionID);
-            throw new IDPoolExhaustedException("Exhausted id pool for partition: " + partitionID);
-        } else {
             PartitionPool pool = (PartitionPool) poolObj;
+            //Ids are drawn under the read lock so that the pool cannot be closed concurrently
+            IDPoolExhaustedException exhausted = null;
+            idPoolsLock.readLock().lock();
             try {
-                if (vertex instanceof InternalRelation) {
-                    id = idManager.getRelationID(pool.relation.nextID(), partitionID);
-                } else if (vertex instanceof TitanKey) {
-                    id = idManager.getSchemaId(IDManager.VertexIDType.UserPropertyKey,pool.relationType.nextID());
-                } else if (vertex instanceof TitanLabel) {
-                    id = idManager.getSchemaId(IDManager.VertexIDType.UserEdgeLabel, pool.relationType.nextID());
-                } else if (vertex instanceof TitanSchemaVertex) {
-                    id = idManager.getSchemaId(IDManager.VertexIDType.GenericSchemaType,pool.genericType.nextID()<<1);
-                } else {
-                    id = idManager.getVertexID(pool.vertex.nextID(), partitionID);
-                }
-                pool.accessed();
+                //Otherwise, the pool has been closed in the meantime and we retry with a new one
+                if (idPools.get(partitionID) == pool) id = getNextID(vertex, pool, partitionID);
             } catch (IDPoolExhaustedException e) {
+                exhausted = e;
+            } finally {
+                idPoolsLock.readLock().unlock();
+            }
+            if (exhausted != null) {
                 log.debug("Pool exhausted for partition id {}", partitionID);
                 placementStrategy.exhaustedPartition(partitionID);
                 //Close and remove pool
                 idPoolsLock.writeLock().lock();
                 try {
-                    idPools.put(partitionID, EXHAUSTED_ID_POOL);
-                    pool.close();
+                    if (idPools.get(partitionID) == pool) {
+                        idPools.put(partitionID, EXHAUSTED_ID_POOL);
+                        pool.close();
+                    }
                 } finally {
                     idPoolsLock.writeLock().unlock();
                 }
-                throw e;
+                throw exhausted;
             }
         }
-        Preconditions.checkArgument(id >= 0);
         vertex.setID(id);
     }
 
+    private long getNextID(InternalElement vertex, PartitionPool pool, int partitionID) {
+        long id;
+        if (vertex instanceof InternalRelation) {
+            id = idManager.getRelationID(pool.relation.nextID(), partitionID);
+        } else if (vertex instanceof TitanKey) {
+            id = idManager.getSchemaId(IDManager.VertexIDType.UserPropertyKey,pool.relationType.nextID());
+        } else if (vertex instanceof TitanLabel) {
+            id = idManager.getSchemaId(IDManager.VertexIDType.UserEdgeLabel, pool.relationType.nextID());
+        } else if (vertex instanceof TitanSchemaVertex) {
+            id = idManager.getSchemaId(IDManager.VertexIDType.GenericSchemaType,pool.genericType.nextID()<<1);
+        } else if (IDManager.VertexIDType.PartitionedVertex.is(vertex.getID())) {
+            //The temporary id determines whether the vertex is partitioned
+            id = idManager.getPartitionedVertexID(pool.vertex.nextID(), partitionID);
+        } else {
+            id = idManager.getVertexID(pool.vertex.nextID(), partitionID);
+        }
+        Preconditions.checkArgument(id >= 0);
+        pool.accessed();
+        return id;
+    }
+
+    /**
+     * Closes the id pool of the partition that has not been accessed for the longest time if the maximum number
+     * of open pools has been reached. The pool of the default partition, which holds the schema ids, is kept open.
+     * Must be called while holding the write lock.
+     */
+    private void closeLeastRecentlyUsedPool() {
+        int numOpen = 0, leastRecentlyUsed = -1;
+        PartitionPool lruPool = null;
+        IntArrayList partitions = idPools.keys();
+        for (int i = 0; i < partitions.size(); i++) {
+            Object poolObj = idPools.get(partitions.get(i));
+            if (poolObj == EXHAUSTED_ID_POOL) continue;
+            numOpen++;
+            PartitionPool pool = (PartitionPool) poolObj;
+            if (partitions.get(i) != DEFAULT_PARTITION && (lruPool == null || pool.lastAccess < lruPool.lastAccess)) {
+                lruPool = pool;
+                leastRecentlyUsed = partitions.get(i);
+            }
+        }
+        if (numOpen < maxOpenPools || lruPool == null) return;
+        log.debug("Closing id pool for least recently used partition {}", leastRecentlyUsed);
+        idPools.removeKey(leastRecentlyUsed);
+        lruPool.close();
+    }
+
     private class SimpleVertexIDBlockSizer implements IDBlockSizer {
 
         private static final int AVG_EDGES_PER_VERTEX = 10;
@@ -381,7 +471,7 @@ public class VertexIDAssigner {
         final IDPool relationType;
         final IDPool genericType;
 
-        long lastAccess;
+        volatile long lastAccess;
 
         PartitionPool(int partitionID, IDAuthority idAuthority, IDManager idManager, boolean includeType, Duration renewTimeoutMS, double renewBufferPercentage) {
             vertex = new StandardIDPool(idAuthority, PoolType.VERTEX.getFullPartitionID(partitionID), idManager.getVertexCountBound(), renewTimeoutMS, renewBufferPercentage);
@@ -393,6 +483,7 @@ public class VertexIDAssigner {
                 relationType = null;
                 genericType = null;
             }
+            accessed();
         }
 
         public void close() {
@@ -0,0 +1,19 @@
+package com.thinkaurelius.titan.graphdb.database.idassigner.placement;
+
+import com.thinkaurelius.titan.graphdb.idmanagement.IDManager;
+
+/**
+ * Optional interface for {@link IDPlacementStrategy} implementations that need to know the id layout, e.g. to
+ * determine the partition of vertices which already have an id.
+ */
+public interface IDManagerAware {
+
+    /**
+     * Injects the {@link IDManager} which determines the id layout and hence the partition of already assigned ids.
+     * This method is called once right after construction and before any other method is invoked.
+     *
+     * @param idManager
+     */
+    public void injectIDManager(IDManager idManager);
+
+}
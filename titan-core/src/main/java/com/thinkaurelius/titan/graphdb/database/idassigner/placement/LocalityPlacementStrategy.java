@@ -0,0 +1,279 @@
+package com.thinkaurelius.titan.graphdb.database.idassigner.placement;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.thinkaurelius.titan.core.TitanProperty;
+import com.thinkaurelius.titan.core.TitanType;
+import com.thinkaurelius.titan.diskstorage.configuration.ConfigOption;
+import com.thinkaurelius.titan.diskstorage.configuration.Configuration;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import com.thinkaurelius.titan.graphdb.idmanagement.IDManager;
+import com.thinkaurelius.titan.graphdb.internal.InternalElement;
+import com.thinkaurelius.titan.graphdb.internal.InternalRelation;
+import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
+
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * An id placement strategy that places new vertices in the partition of the vertices they are connected to so that
+ * traversals touch as few partitions as possible.
+ * <p/>
+ * A vertex which has a value for the configured locality key is placed in the partition determined by the hash of
+ * that value over the local partition ranges, so that all vertices with the same value are co-located independent of
+ * which Titan instance creates them. Otherwise, a vertex is placed in the partition that most of its neighbors are
+ * placed in, provided that partition lies within the local partition ranges.
+ * Vertices that are not connected to any such vertex start a new cluster in the least loaded of the current partitions
+ * chosen like in {@link SimpleBulkPlacementStrategy}.
+ * To keep partition sizes balanced, a neighbor's partition is not used if this strategy has placed more than the
+ * configured imbalance factor times the number of vertices placed into the least loaded partition (plus one id block).
+ * <p/>
+ * Since vertices may be placed in any local partition, the number of id pools that are held open at any time is
+ * bounded by {@link com.thinkaurelius.titan.graphdb.database.idassigner.VertexIDAssigner#MAX_OPEN_POOLS}.
+ * <p/>
+ * The edges of a vertex are only known if ids are assigned when the transaction is committed, hence
+ * {@link GraphDatabaseConfiguration#IDS_FLUSH} should be disabled for this strategy to be effective.
+ */
+public class LocalityPlacementStrategy extends SimpleBulkPlacementStrategy implements IDManagerAware {
+
+    public static final ConfigOption<String> LOCALITY_KEY = new ConfigOption<String>(GraphDatabaseConfiguration.IDS_NS,
+            "locality-key","Name of the property key whose values determine the partition of new vertices under the locality placement strategy",
+            ConfigOption.Type.MASKABLE, String.class);
+
+    public static final ConfigOption<Double> MAX_IMBALANCE = new ConfigOption<Double>(GraphDatabaseConfiguration.IDS_NS,
+            "locality-imbalance","Maximum ratio between the number of vertices placed into a partition because of their neighbors " +
+            "and the number of vertices in the least loaded partition under the locality placement strategy",
+            ConfigOption.Type.MASKABLE, 2.0);
+
+    private static final Predicate<InternalRelation> ALL_RELATIONS = new Predicate<InternalRelation>() {
+        @Override
+        public boolean apply(@Nullable InternalRelation relation) {
+            return true;
+        }
+    };
+
+    /**
+     * Maximum number of partitions for which placement counts and exhaustion are remembered
+     */
+    private static final int MAX_TRACKED_PARTITIONS = 10000;
+
+    private final String localityKey;
+    private final double maxImbalance;
+    private final long balanceSlack;
+
+    private final Map<Integer,Long> placedVertices = newBoundedMap(MAX_TRACKED_PARTITIONS);
+    private final Set<Integer> exhaustedPartitions = Collections.newSetFromMap(LocalityPlacementStrategy.<Boolean>newBoundedMap(MAX_TRACKED_PARTITIONS));
+    private List<PartitionIDRange> localPartitionIdRanges;
+    private long localPartitionWidth;
+    private IDManager idManager;
+
+    public LocalityPlacementStrategy(int concurrentPartitions, String localityKey, double maxImbalance, long balanceSlack) {
+        super(concurrentPartitions);
+        Preconditions.checkArgument(maxImbalance >= 1.0, "Invalid imbalance: %s", maxImbalance);
+        Preconditions.checkArgument(balanceSlack >= 0);
+        this.localityKey = localityKey;
+        this.maxImbalance = maxImbalance;
+        this.balanceSlack = balanceSlack;
+    }
+
+    public LocalityPlacementStrategy(Configuration config) {
+        this(config.get(CONCURRENT_PARTITIONS), config.has(LOCALITY_KEY) ? config.get(LOCALITY_KEY) : null,
+                config.get(MAX_IMBALANCE), config.get(GraphDatabaseConfiguration.IDS_BLOCK_SIZE));
+    }
+
+    @Override
+    public void injectIDManager(IDManager idManager) {
+        Preconditions.checkNotNull(idManager);
+        this.idManager = idManager;
+    }
+
+    @Override
+    public synchronized int getPartition(InternalElement element) {
+        if (!(element instanceof InternalVertex)) return super.getPartition(element);
+        InternalVertex vertex = (InternalVertex) element;
+        int partition = getKeyPartition(vertex);
+        if (partition < 0) partition = getNeighborPartition(vertex, Collections.<InternalVertex, Integer>emptyMap());
+        if (partition < 0) partition = getLeastLoadedPartition();
+        placed(partition);
+        return partition;
+    }
+
+    @Override
+    public synchronized void getPartitions(Map<InternalVertex, PartitionAssignment> vertices) {
+        Map<InternalVertex, Integer> assignments = new HashMap<InternalVertex, Integer>(vertices.size());
+        //Placed vertices whose new neighbors have not been placed yet
+        Deque<InternalVertex> frontier = new ArrayDeque<InternalVertex>();
+
+        //1) Vertices with a locality key and vertices connected to vertices that already have an id
+        for (InternalVertex vertex : vertices.keySet()) {
+            int partition = getKeyPartition(vertex);
+            if (partition < 0) partition = getNeighborPartition(vertex, assignments);
+            if (partition >= 0) {
+                assign(vertex, partition, assignments);
+                frontier.add(vertex);
+            }
+        }
+        //2) Grow the placed clusters along the edges and start a new cluster for each remaining component
+        Iterator<InternalVertex> remaining = vertices.keySet().iterator();
+        while (true) {
+            while (!frontier.isEmpty()) {
+                for (InternalVertex neighbor : getNeighbors(frontier.poll())) {
+                    if (!vertices.containsKey(neighbor) || assignments.containsKey(neighbor)) continue;
+                    int partition = getNeighborPartition(neighbor, assignments);
+                    assert partition >= 0;
+                    assign(neighbor, partition, assignments);
+                    frontier.add(neighbor);
+                }
+            }
+            InternalVertex next = null;
+            while (next == null && remaining.hasNext()) {
+                InternalVertex vertex = remaining.next();
+                if (!assignments.containsKey(vertex)) next = vertex;
+            }
+            if (next == null) break;
+            assign(next, getLeastLoadedPartition(), assignments);
+            frontier.add(next);
+        }
+
+        for (Map.Entry<InternalVertex, PartitionAssignment> entry : vertices.entrySet()) {
+            entry.setValue(new SimplePartitionAssignment(assignments.get(entry.getKey())));
+        }
+    }
+
+    @Override
+    public synchronized void setLocalPartitionBounds(List<PartitionIDRange> localPartitionIdRanges) {
+        super.setLocalPartitionBounds(localPartitionIdRanges);
+        this.localPartitionIdRanges = new ArrayList<PartitionIDRange>(localPartitionIdRanges); //copy
+        localPartitionWidth = 0;
+        for (PartitionIDRange range : localPartitionIdRanges) localPartitionWidth += range.getWidth();
+    }
+
+    @Override
+    public synchronized void exhaustedPartition(int partitionID) {
+        exhaustedPartitions.add(partitionID);
+        placedVertices.remove(partitionID);
+        super.exhaustedPartition(partitionID);
+    }
+
+    private void assign(InternalVertex vertex, int partition, Map<InternalVertex, Integer> assignments) {
+        assignments.put(vertex, partition);
+        placed(partition);
+    }
+
+    private void placed(int partition) {
+        placedVertices.put(partition, getPlaced(partition) + 1);
+    }
+
+    private long getPlaced(int partition) {
+        Long count = placedVertices.get(partition);
+        return count == null ? 0 : count;
+    }
+
+    private int getLeastLoadedPartition() {
+        int partition = -1;
+        for (int candidate : currentPartitions) {
+            if (partition < 0 || getPlaced(candidate) < getPlaced(partition)) partition = candidate;
+        }
+        return partition;
+    }
+
+    private boolean isBalanced(int partition) {
+        return getPlaced(partition) < maxImbalance * getPlaced(getLeastLoadedPartition()) + balanceSlack;
+    }
+
+    /**
+     * Returns the partition determined by the value of the locality key or -1 if the vertex has no such value
+     *
+     * @param vertex
+     * @return
+     */
+    private int getKeyPartition(InternalVertex vertex) {
+        if (localityKey == null) return -1;
+        for (InternalRelation relation : vertex.getAddedRelations(ALL_RELATIONS)) {
+            if (!relation.isProperty() || !relation.getType().getName().equals(localityKey)) continue;
+            Object value = ((TitanProperty) relation).getValue();
+            long position = (value.hashCode() & Integer.MAX_VALUE) % localPartitionWidth;
+            //Probe the subsequent partitions if the hashed one has been exhausted
+            for (int attempt = 0; attempt <= exhaustedPartitions.size(); attempt++) {
+                int partition = getLocalPartition((position + attempt) % localPartitionWidth);
+                if (!exhaustedPartitions.contains(partition)) return partition;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the partition id at the given position within the concatenation of the local partition ranges
+     *
+     * @param position
+     * @return
+     */
+    private int getLocalPartition(long position) {
+        for (PartitionIDRange range : localPartitionIdRanges) {
+            if (position < range.getWidth()) return range.getID((int) position);
+            position -= range.getWidth();
+        }
+        throw new IllegalArgumentException("Position exceeds local partition ranges: " + position);
+    }
+
+    /**
+     * Returns the local partition most neighbors of the given vertex are placed in or -1 if none of its neighbors
+     * has been placed in a local partition. If that partition is overloaded or exhausted, the least loaded partition
+     * is returned instead.
+     *
+     * @param vertex
+     * @param assignments partitions of the vertices placed in the current bulk placement
+     * @return
+     */
+    private int getNeighborPartition(InternalVertex vertex, Map<InternalVertex, Integer> assignments) {
+        Map<Integer, Integer> votes = new HashMap<Integer, Integer>();
+        int partition = -1, maxVotes = 0;
+        for (InternalVertex neighbor : getNeighbors(vertex)) {
+            int neighborPartition;
+            if (assignments.containsKey(neighbor)) neighborPartition = assignments.get(neighbor);
+            else if (neighbor.hasId() && !IDManager.VertexIDType.Schema.is(neighbor.getID()))
+                neighborPartition = (int) idManager.getPartitionId(neighbor.getID());
+            else continue;
+            if (!isLocalPartition(neighborPartition)) continue;
+            Integer count = votes.get(neighborPartition);
+            count = count == null ? 1 : count + 1;
+            votes.put(neighborPartition, count);
+            if (count > maxVotes) {
+                partition = neighborPartition;
+                maxVotes = count;
+            }
+        }
+        if (partition < 0) return -1;
+        if (exhaustedPartitions.contains(partition) || !isBalanced(partition)) return getLeastLoadedPartition();
+        return partition;
+    }
+
+    private boolean isLocalPartition(int partition) {
+        for (PartitionIDRange range : localPartitionIdRanges) {
+            if (range.contains(partition)) return true;
+        }
+        return false;
+    }
+
+    private static <V> Map<Integer, V> newBoundedMap(final int capacity) {
+        return new LinkedHashMap<Integer, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    private static List<InternalVertex> getNeighbors(InternalVertex vertex) {
+        List<InternalVertex> neighbors = new ArrayList<InternalVertex>();
+        for (InternalRelation relation : vertex.getAddedRelations(ALL_RELATIONS)) {
+            if (!relation.isEdge()) continue;
+            for (int pos = 0; pos < relation.getArity(); pos++) {
+                InternalVertex neighbor = relation.getVertex(pos);
+                if (!neighbor.equals(vertex) && !(neighbor instanceof TitanType)) neighbors.add(neighbor);
+            }
+        }
+        return neighbors;
+    }
+
+}
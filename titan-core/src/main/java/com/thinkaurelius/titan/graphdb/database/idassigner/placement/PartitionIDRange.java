@@ -63,17 +63,36 @@ public class PartitionIDRange {
     }
 
     /**
-     * Returns a random partition id that lies within this partition id range.
+     * Returns the number of partition ids in this partition id range.
      *
      * @return
      */
-    public int getRandomID() {
-        //Compute the width of the partition...
+    public int getWidth() {
         int partitionWidth;
-        if (lowerID < upperID) partitionWidth = upperID - lowerID; //... for "proper" ranges
-        else partitionWidth = (idUpperBound - lowerID) + upperID; //... and those that "wrap around"
+        if (lowerID < upperID) partitionWidth = upperID - lowerID; //"Proper" id range
+        else partitionWidth = (idUpperBound - lowerID) + upperID; //Id range "wraps around"
         Preconditions.checkArgument(partitionWidth > 0, partitionWidth);
-        return (random.nextInt(partitionWidth) + lowerID) % idUpperBound;
+        return partitionWidth;
+    }
+
+    /**
+     * Returns the partition id at the given position within this partition id range, counting from the lower bound.
+     *
+     * @param position must be non-negative and smaller than {@link #getWidth()}
+     * @return
+     */
+    public int getID(int position) {
+        Preconditions.checkArgument(position >= 0 && position < getWidth(), position);
+        return (int) (((long) lowerID + position) % idUpperBound);
+    }
+
+    /**
+     * Returns a random partition id that lies within this partition id range.
+     *
+     * @return
+     */
+    public int getRandomID() {
+        return getID(random.nextInt(getWidth()));
     }
 
 
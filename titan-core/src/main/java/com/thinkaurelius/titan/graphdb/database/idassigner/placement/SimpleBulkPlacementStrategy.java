@@ -37,7 +37,7 @@ public class SimpleBulkPlacementStrategy implements IDPlacementStrategy {
 
     private final Random random = new Random();
 
-    private final int[] currentPartitions;
+    protected final int[] currentPartitions;
     private List<PartitionIDRange> localPartitionIdRanges;
 
     public SimpleBulkPlacementStrategy(int concurrentPartitions) {
@@ -32,6 +32,27 @@ public class IDHandler {
         return value >>> 1;
     }
 
+    /**
+     * Returns the key of the row which stores the given cut of the adjacency list of a partitioned vertex.
+     * The least significant bit of the id part is set so that these keys never collide with vertex keys
+     * (see {@link #getKey(long)}) and the cut is appended to keep the keys unique when ids are not partitioned.
+     *
+     * @param cutId id of the cut as returned by {@link IDManager#getPartitionedVertexCutID(long, int, int)}
+     * @param cut
+     * @return
+     */
+    public static StaticBuffer getCutKey(long cutId, int cut) {
+        assert cutId >= 0 && cut >= 0;
+        WriteBuffer out = new WriteByteBuffer(12);
+        out.putLong((cutId << 1) | 1);
+        out.putInt(cut);
+        return out.getStaticBuffer();
+    }
+
+    public static boolean isCutKey(StaticBuffer b) {
+        return (b.getLong(0) & 1) == 1;
+    }
+
 
     public static enum DirectionID {
 
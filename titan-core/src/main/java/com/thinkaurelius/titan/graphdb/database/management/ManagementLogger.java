@@ -21,6 +21,7 @@ import com.thinkaurelius.titan.graphdb.types.vertices.TitanSchemaVertex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -67,10 +68,15 @@ public class ManagementLogger implements MessageReader {
         if (logType==MgmtLogType.CACHED_TYPE_EVICTION) {
                 long evictionId = VariableLong.readPositive(in);
                 long numEvictions = VariableLong.readPositive(in);
+                long[] typeIds = new long[(int)numEvictions];
                 for (int i = 0; i < numEvictions; i++) {
                     long typeId = VariableLong.readPositive(in);
                     schemaCache.expireTypeRelations(typeId);
+                    typeIds[i] = typeId;
                 }
+                graph.expireSchemaSnapshot(typeIds);
+                //Index definitions might have changed
+                if (graph.getIndexQueryCache()!=null) graph.getIndexQueryCache().invalidateAll();
                 Thread ack = new Thread(new SendAckOnTxClose(evictionId,senderId,graph.getOpenTransactions()));
                 ack.setDaemon(true);
                 ack.start();
@@ -85,6 +91,16 @@ public class ManagementLogger implements MessageReader {
                     } else log.info("Could not find eviction trigger for {} from {}",evictionId,senderId);
                 }
 
+        } else if (logType == MgmtLogType.INDEX_CACHE_EVICTION) {
+                long numIndexes = VariableLong.readPositive(in);
+                Set<String> indexNames = new HashSet<String>();
+                for (int i = 0; i < numIndexes; i++) {
+                    indexNames.add(serializer.readObjectNotNull(in,String.class));
+                }
+                //Evictions sent by this instance have already been applied locally
+                if (graph.getIndexQueryCache()!=null && !senderId.equals(graph.getConfiguration().getUniqueGraphId())) {
+                    graph.getIndexQueryCache().invalidate(indexNames);
+                }
         } else assert logType == MgmtLogType.CONFIG_MUTATION;
 
     }
@@ -106,6 +122,17 @@ public class ManagementLogger implements MessageReader {
         sysLog.add(out.getStaticBuffer());
     }
 
+    public void sendIndexCacheEviction(Set<String> indexNames) {
+        Preconditions.checkArgument(!indexNames.isEmpty());
+        DataOutput out = graph.getDataSerializer().getDataOutput(64);
+        out.writeObjectNotNull(MgmtLogType.INDEX_CACHE_EVICTION);
+        VariableLong.writePositive(out,indexNames.size());
+        for (String indexName : indexNames) {
+            out.writeObjectNotNull(indexName);
+        }
+        sysLog.add(out.getStaticBuffer());
+    }
+
     private class EvictionTrigger {
 
         final long evictionId;
@@ -5,6 +5,6 @@ package com.thinkaurelius.titan.graphdb.database.management;
  */
 public enum MgmtLogType {
 
-    CACHED_TYPE_EVICTION, CACHED_TYPE_EVICTION_ACK, CONFIG_MUTATION;
+    CACHED_TYPE_EVICTION, CACHED_TYPE_EVICTION_ACK, CONFIG_MUTATION, INDEX_CACHE_EVICTION;
 
 }
@@ -16,4 +16,16 @@ public interface Serializer extends AttributeHandling {
 
     public DataOutput getDataOutput(int initialCapacity);
 
+    /**
+     * Like {@link #getDataOutput(int)} but the returned output is allocated from a thread-local
+     * {@link com.thinkaurelius.titan.diskstorage.util.WriteBufferArena}. Use this for the many small buffers
+     * that are written to the storage backend on commit, but not for buffers that are retained long-term
+     * (e.g. as cache keys) since those would keep the arena's chunks from being garbage collected.
+     * Consumers that hold on to the resulting buffers (e.g. the in-memory store) must copy them.
+     *
+     * @param initialCapacity
+     * @return
+     */
+    public DataOutput getPooledDataOutput(int initialCapacity);
+
 }
@@ -36,6 +36,10 @@ public class StandardAttributeHandling implements AttributeHandling {
     private final Map<Class,AttributeHandler> handlers;
 
     public StandardAttributeHandling() {
+        this(false);
+    }
+
+    public StandardAttributeHandling(boolean compactStringOrder) {
         handlers = new HashMap<Class, AttributeHandler>(60);
 
         //Sort key data types
@@ -50,7 +54,7 @@ public class StandardAttributeHandling implements AttributeHandling {
         registerClass(Date.class, new DateSerializer());
 
         registerClass(Geoshape.class, new Geoshape.GeoshapeSerializer());
-        registerClass(String.class, new StringSerializer()); //supports null serialization
+        registerClass(String.class, new StringSerializer(compactStringOrder)); //supports null serialization
         registerClass(Float.class, new FloatSerializer());
         registerClass(Double.class, new DoubleSerializer());
 
@@ -5,6 +5,7 @@ import com.thinkaurelius.titan.core.AttributeSerializer;
 import com.thinkaurelius.titan.diskstorage.ReadBuffer;
 import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.WriteBuffer;
+import com.thinkaurelius.titan.diskstorage.util.WriteBufferArena;
 import com.thinkaurelius.titan.diskstorage.util.WriteByteBuffer;
 import com.thinkaurelius.titan.graphdb.database.serialize.kryo.KryoSerializer;
 
@@ -15,11 +16,28 @@ public class StandardSerializer extends StandardAttributeHandling implements Ser
 
     private final KryoSerializer backupSerializer;
 
-    public StandardSerializer(boolean allowCustomSerialization) {
+    private final ThreadLocal<WriteBufferArena> arenas = new ThreadLocal<WriteBufferArena>() {
+        @Override
+        protected WriteBufferArena initialValue() {
+            return new WriteBufferArena();
+        }
+    };
+
+    /**
+     * @param allowCustomSerialization whether objects of unregistered classes are serialized with Kryo
+     * @param compactStringOrder whether strings are written in the compact byte order encoding,
+     *                           see {@link com.thinkaurelius.titan.graphdb.database.serialize.attribute.StringSerializer}
+     */
+    public StandardSerializer(boolean allowCustomSerialization, boolean compactStringOrder) {
+        super(compactStringOrder);
         if (allowCustomSerialization) backupSerializer = new KryoSerializer(DEFAULT_REGISTRATIONS);
         else backupSerializer = null;
     }
 
+    public StandardSerializer(boolean allowCustomSerialization) {
+        this(allowCustomSerialization, false);
+    }
+
     public StandardSerializer() {
         this(true);
     }
@@ -84,13 +102,18 @@ public class StandardSerializer extends StandardAttributeHandling implements Ser
 
     @Override
     public DataOutput getDataOutput(int initialCapacity) {
-        return new StandardDataOutput(initialCapacity);
+        return new StandardDataOutput(initialCapacity, null);
+    }
+
+    @Override
+    public DataOutput getPooledDataOutput(int initialCapacity) {
+        return new StandardDataOutput(initialCapacity, arenas.get());
     }
 
     private class StandardDataOutput extends WriteByteBuffer implements DataOutput {
 
-        private StandardDataOutput(int initialCapacity) {
-            super(initialCapacity);
+        private StandardDataOutput(int initialCapacity, WriteBufferArena arena) {
+            super(initialCapacity, arena);
         }
 
         @Override
@@ -33,19 +33,52 @@ public class StringSerializer implements OrderPreservingSerializer<String>, Supp
     private static final long COMPRESSOR_BIT_MASK = MAX_NUM_COMPRESSORS-1;
     private static final long NO_COMPRESSION_OFFSET = COMPRESSOR_BIT_LEN+1;
 
+    /**
+     * Byte order encodings of non-null strings, identified by the first byte. A null string is encoded as -1.
+     * The legacy encoding writes each character as 2 bytes. The compact encoding writes each character as 1 to 3
+     * bytes using the UTF-8 byte patterns, which preserves the order of characters, and is terminated by 0 which
+     * is smaller than the first byte of any encoded character since null characters are not allowed.
+     */
+    private static final byte LEGACY_ORDER_PREFIX = 0;
+    private static final byte COMPACT_ORDER_PREFIX = 1;
+    private static final byte NULL_ORDER_PREFIX = -1;
 
     private final CharacterSerializer cs = new CharacterSerializer();
+    private final boolean compactByteOrder;
+
+    /**
+     * @param compactByteOrder whether to use the compact byte order encoding when writing strings. Strings in either
+     *                         encoding can always be read, however, the encodings do not sort consistently with
+     *                         respect to each other and hence only one of them must be used for the same data.
+     */
+    public StringSerializer(boolean compactByteOrder) {
+        this.compactByteOrder = compactByteOrder;
+    }
+
+    public StringSerializer() {
+        this(false);
+    }
 
     @Override
     public String readByteOrder(ScanBuffer buffer) {
         byte prefix = buffer.getByte();
-        if (prefix==-1) return null;
-        assert prefix==0;
+        if (prefix==NULL_ORDER_PREFIX) return null;
         StringBuilder s = new StringBuilder();
-        while (true) {
-            char c = cs.readByteOrder(buffer);
-            if (((int) c) > 0) s.append(c);
-            else break;
+        if (prefix==COMPACT_ORDER_PREFIX) {
+            while (true) {
+                int b = buffer.getByte() & 0xFF;
+                if (b==0) break;
+                else if (b < 0x80) s.append((char)b);
+                else if (b < 0xE0) s.append((char)((b & 0x1F) << 6 | buffer.getByte() & 0x3F));
+                else s.append((char)((b & 0x0F) << 12 | (buffer.getByte() & 0x3F) << 6 | buffer.getByte() & 0x3F));
+            }
+        } else {
+            assert prefix==LEGACY_ORDER_PREFIX;
+            while (true) {
+                char c = cs.readByteOrder(buffer);
+                if (((int) c) > 0) s.append(c);
+                else break;
+            }
         }
         return s.toString();
     }
@@ -53,17 +86,34 @@ public class StringSerializer implements OrderPreservingSerializer<String>, Supp
     @Override
     public void writeByteOrder(WriteBuffer buffer, String attribute) {
         if (attribute==null) {
-            buffer.putByte((byte)-1);
+            buffer.putByte(NULL_ORDER_PREFIX);
             return;
-        } else {
+        } else if (compactByteOrder) {
+            buffer.putByte(COMPACT_ORDER_PREFIX);
+            for (int i = 0; i < attribute.length(); i++) {
+                int c = attribute.charAt(i);
+                Preconditions.checkArgument(c > 0, "No null characters allowed in string @ position %s: %s", i, attribute);
+                if (c <= 0x007F) {
+                    buffer.putByte((byte)c);
+                } else if (c > 0x07FF) {
+                    buffer.putByte((byte)(0xE0 | c >> 12 & 0x0F));
+                    buffer.putByte((byte)(0x80 | c >> 6 & 0x3F));
+                    buffer.putByte((byte)(0x80 | c & 0x3F));
+                } else {
+                    buffer.putByte((byte)(0xC0 | c >> 6 & 0x1F));
+                    buffer.putByte((byte)(0x80 | c & 0x3F));
+                }
+            }
             buffer.putByte((byte)0);
+        } else {
+            buffer.putByte(LEGACY_ORDER_PREFIX);
+            for (int i = 0; i < attribute.length(); i++) {
+                char c = attribute.charAt(i);
+                Preconditions.checkArgument(((int) c) > 0, "No null characters allowed in string @ position %s: %s", i, attribute);
+                cs.writeByteOrder(buffer, c);
+            }
+            cs.writeByteOrder(buffer, (char) 0);
         }
-        for (int i = 0; i < attribute.length(); i++) {
-            char c = attribute.charAt(i);
-            Preconditions.checkArgument(((int) c) > 0, "No null characters allowed in string @ position %s: %s", i, attribute);
-            cs.writeByteOrder(buffer, c);
-        }
-        cs.writeByteOrder(buffer, (char) 0);
     }
 
     @Override
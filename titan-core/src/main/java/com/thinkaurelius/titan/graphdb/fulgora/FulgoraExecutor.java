@@ -22,6 +22,7 @@ import com.thinkaurelius.titan.graphdb.database.idhandling.IDHandler;
 import com.thinkaurelius.titan.graphdb.idmanagement.IDManager;
 import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
 import com.thinkaurelius.titan.graphdb.query.QueryExecutor;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
 import com.thinkaurelius.titan.graphdb.query.vertex.VertexCentricQuery;
 import com.thinkaurelius.titan.graphdb.relations.RelationCache;
 import com.thinkaurelius.titan.graphdb.transaction.RelationConstructor;
@@ -196,7 +197,7 @@ class FulgoraExecutor<S> extends AbstractFuture<Map<Long,S>> implements Runnable
         }
 
         @Override
-        public Iterator<TitanRelation> execute(VertexCentricQuery query, SliceQuery sq, Object exeInfo) {
+        public Iterator<TitanRelation> execute(VertexCentricQuery query, SliceQuery sq, Object exeInfo, QueryProfiler profiler) {
             assert exeInfo==null;
 
             final InternalVertex vertex = query.getVertex();
@@ -215,6 +216,12 @@ class FulgoraExecutor<S> extends AbstractFuture<Map<Long,S>> implements Runnable
                 }
             }).iterator();
         }
+
+        @Override
+        public SliceQuery continueAfter(VertexCentricQuery query, SliceQuery sq, TitanRelation lastResult, int limit) {
+            //All relations of the vertex are already loaded
+            return null;
+        }
     };
 
     private final VertexFactory neighborVertices = new VertexFactory() {
@@ -264,8 +271,10 @@ class FulgoraExecutor<S> extends AbstractFuture<Map<Long,S>> implements Runnable
                 while (keyIter.hasNext()) {
                     StaticBuffer key = keyIter.next();
                     RecordIterator<Entry> entries = keyIter.getEntries();
+                    //Rows holding the adjacency lists of partitioned vertices are skipped
+                    if (IDHandler.isCutKey(key)) continue;
                     long vertexId = IDHandler.getKeyID(key);
-                    if (IDManager.VertexIDType.Hidden.is(vertexId)) continue;
+                    if (IDManager.isHidden(vertexId)) continue;
                     EntryList entryList = StaticArrayEntryList.ofStaticBuffer(entries, StaticArrayEntry.ENTRY_GETTER);
                     try {
                         queue.put(new QueryResult(vertexId,entryList));
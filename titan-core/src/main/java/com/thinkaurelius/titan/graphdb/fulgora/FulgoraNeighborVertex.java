@@ -157,6 +157,11 @@ public class FulgoraNeighborVertex implements InternalVertex {
         throw getAccessException();
     }
 
+    @Override
+    public List<InternalRelation> getAddedRelations(long[] typeIds, Predicate<InternalRelation> query) {
+        throw getAccessException();
+    }
+
     @Override
     public EntryList loadRelations(SliceQuery query, Retriever<SliceQuery, EntryList> lookup) {
         throw getAccessException();
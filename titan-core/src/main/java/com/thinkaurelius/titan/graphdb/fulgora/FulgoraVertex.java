@@ -77,6 +77,11 @@ public class FulgoraVertex<S> extends CacheVertex {
         return Collections.EMPTY_LIST;
     }
 
+    @Override
+    public List<InternalRelation> getAddedRelations(long[] typeIds, Predicate<InternalRelation> query) {
+        return Collections.EMPTY_LIST;
+    }
+
     @Override
     public boolean hasLoadedRelations(SliceQuery query) {
         return true;
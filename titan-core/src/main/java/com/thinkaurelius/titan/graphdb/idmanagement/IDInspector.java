@@ -21,6 +21,8 @@ public interface IDInspector {
 
     public boolean isVertexId(long id);
 
+    public boolean isPartitionedVertexId(long id);
+
     public long getPartitionId(long id);
 
 }
@@ -16,7 +16,9 @@ public class IDManager {
      *
      *      0 - * Normal (user created) Vertex
      *      1 - + Hidden
-     *     11 -     * Hidden (user created/triggered) Vertex [for later]
+     *     11 -     + Vertices outside the schema
+     *    011 -         * Hidden (user created/triggered) Vertex [for later]
+     *    111 -         * Partitioned (user created) Vertex, not hidden (see {@link #isHidden(long)})
      *     01 -     + Schema related vertices
      *    101 -         + Schema Type vertices
      *   0101 -             + Relation Type vertices
@@ -71,13 +73,29 @@ public class IDManager {
         HiddenVertex {
             @Override
             final long offset() {
-                return 2l;
+                return 3l;
             }
 
             @Override
             final long suffix() {
                 return 3l;
-            } // 11b
+            } // 011b
+
+            @Override
+            final boolean isProper() {
+                return true;
+            }
+        },
+        PartitionedVertex {
+            @Override
+            final long offset() {
+                return 3l;
+            }
+
+            @Override
+            final long suffix() {
+                return 7l;
+            } // 111b
 
             @Override
             final boolean isProper() {
@@ -271,6 +289,17 @@ public class IDManager {
         }
     }
 
+    /**
+     * Whether the given id belongs to an element that is hidden from the user. Partitioned vertices are created by
+     * the user and are therefore not hidden, even though their id type is nested under {@link VertexIDType#Hidden}.
+     *
+     * @param id
+     * @return
+     */
+    public static boolean isHidden(long id) {
+        return VertexIDType.Hidden.is(id) && !VertexIDType.PartitionedVertex.is(id);
+    }
+
     /**
      * Number of bits that need to be reserved from the type ids for storing additional information during serialization
      */
@@ -300,6 +329,7 @@ public class IDManager {
 
     private final long relationCountBound;
     private final long vertexCountBound;
+    private final long partitionedVertexCountBound;
 
 
     public IDManager(long partitionBits) {
@@ -313,6 +343,7 @@ public class IDManager {
         relationCountBound = partitionBits==0?Long.MAX_VALUE:(1l << (TOTAL_BITS - partitionBits));
         assert VertexIDType.Vertex.offset()>0;
         vertexCountBound = (1l << (TOTAL_BITS - partitionBits - VertexIDType.Vertex.offset()));
+        partitionedVertexCountBound = (1l << (TOTAL_BITS - partitionBits - VertexIDType.PartitionedVertex.offset()));
 
         partitionOffset = TOTAL_BITS - partitionBits;
     }
@@ -354,6 +385,27 @@ public class IDManager {
         return addPartition(VertexIDType.Vertex.addPadding(count), partition);
     }
 
+    public long getPartitionedVertexID(long count, long partition) {
+        Preconditions.checkArgument(count>0 && count<partitionedVertexCountBound,"Invalid count for bound: %s", partitionedVertexCountBound);
+        return addPartition(VertexIDType.PartitionedVertex.addPadding(count), partition);
+    }
+
+    /**
+     * Returns the id under which the given cut of the adjacency list of a partitioned vertex is stored. The cuts are
+     * spread evenly across the partitions starting from the partition of the vertex itself.
+     *
+     * @param vertexId id of a partitioned vertex
+     * @param cut the cut, must be in [0,numCuts)
+     * @param numCuts total number of cuts per partitioned vertex
+     * @return
+     */
+    public long getPartitionedVertexCutID(long vertexId, int cut, int numCuts) {
+        Preconditions.checkArgument(VertexIDType.PartitionedVertex.is(vertexId),"Not a partitioned vertex id: %s",vertexId);
+        Preconditions.checkArgument(cut>=0 && cut<numCuts,"Invalid cut: %s",cut);
+        long partition = (getPartitionId(vertexId) + cut*Math.max(1,partitionIDBound/numCuts)) % partitionIDBound;
+        return (partition << partitionOffset) | (vertexId & ((1l << partitionOffset) - 1));
+    }
+
     /*
 
     Temporary ids are negative and don't have partitions
@@ -483,7 +535,12 @@ public class IDManager {
 
         @Override
         public final boolean isVertexId(long id) {
-            return VertexIDType.Vertex.is(id);
+            return VertexIDType.Vertex.is(id) || VertexIDType.PartitionedVertex.is(id);
+        }
+
+        @Override
+        public final boolean isPartitionedVertexId(long id) {
+            return VertexIDType.PartitionedVertex.is(id);
         }
 
         @Override
@@ -85,7 +85,7 @@ public abstract class AbstractElement implements InternalElement {
 
     @Override
     public boolean isHidden() {
-        return IDManager.VertexIDType.Hidden.is(id);
+        return IDManager.isHidden(id);
     }
 
     @Override
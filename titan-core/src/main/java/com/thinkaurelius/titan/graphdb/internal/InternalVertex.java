@@ -50,6 +50,15 @@ public interface InternalVertex extends TitanVertex, InternalElement {
      */
     public List<InternalRelation> getAddedRelations(Predicate<InternalRelation> query);
 
+    /**
+     * Returns all newly added relations incident on this vertex whose type has one of the given ids and which
+     * match the given predicate
+     * @param typeIds
+     * @param query
+     * @return
+     */
+    public List<InternalRelation> getAddedRelations(long[] typeIds, Predicate<InternalRelation> query);
+
     /**
      * Returns all relations that match the given query. If these matching relations are not currently
      * held in memory, it uses the given {@link Retriever} to retrieve the edges from backend storage.
@@ -6,6 +6,11 @@ import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
+ * Iterates over the results of a query whose limit is increased whenever all results within the current limit have
+ * been consumed. If the query can be resumed after the last result retrieved (see
+ * {@link #getContinuationIterator(Object, int)}), only the next page of results is retrieved. Otherwise, the query is
+ * re-executed with the larger limit and the results already returned are skipped.
+ *
  * @author Matthias Broecheler (me@matthiasb.com)
  */
 public abstract class LimitAdjustingIterator<R> implements Iterator<R> {
@@ -15,6 +20,7 @@ public abstract class LimitAdjustingIterator<R> implements Iterator<R> {
     private int count;
 
     private Iterator<R> iter;
+    private R last;
 
 
     public LimitAdjustingIterator(final int maxLimit, final int currentLimit) {
@@ -23,10 +29,24 @@ public abstract class LimitAdjustingIterator<R> implements Iterator<R> {
         this.maxLimit = maxLimit;
         this.count = 0;
         this.iter = null;
+        this.last = null;
     }
 
     public abstract Iterator<R> getNewIterator(int newLimit);
 
+    /**
+     * Returns an iterator over at most <code>limit</code> results that immediately follow the given result, which is
+     * the last result returned by the current iterator.
+     * Returns null if the query cannot be resumed, in which case it is re-executed via {@link #getNewIterator(int)}.
+     *
+     * @param last last result returned
+     * @param limit maximum number of results to retrieve after <code>last</code>
+     * @return
+     */
+    public Iterator<R> getContinuationIterator(R last, int limit) {
+        return null;
+    }
+
     @Override
     public boolean hasNext() {
         if (iter==null) iter = getNewIterator(currentLimit);
@@ -36,11 +56,16 @@ public abstract class LimitAdjustingIterator<R> implements Iterator<R> {
 
         //Update query and iterate through
         currentLimit = (int) Math.min(maxLimit, Math.round(currentLimit * 2.0));
-        iter = getNewIterator(currentLimit);
+        Iterator<R> continuation = last==null?null:getContinuationIterator(last, currentLimit - count);
+        if (continuation!=null) {
+            iter = continuation;
+        } else {
+            iter = getNewIterator(currentLimit);
 
-        // TODO: this is very-very bad, we at least should try to do that in parallel
-        for (int i = 0; i < count; i++)
-            iter.next();
+            // TODO: this is very-very bad, we at least should try to do that in parallel
+            for (int i = 0; i < count; i++)
+                iter.next();
+        }
 
         assert count < currentLimit : count + " vs " + currentLimit + " | " + maxLimit;
         return hasNext();
@@ -52,7 +77,8 @@ public abstract class LimitAdjustingIterator<R> implements Iterator<R> {
             throw new NoSuchElementException();
 
         count++;
-        return iter.next();
+        last = iter.next();
+        return last;
     }
 
     @Override
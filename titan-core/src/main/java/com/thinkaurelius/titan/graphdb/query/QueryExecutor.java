@@ -1,6 +1,7 @@
 package com.thinkaurelius.titan.graphdb.query;
 
 import com.thinkaurelius.titan.core.TitanElement;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
 
 import java.util.Iterator;
 
@@ -16,6 +17,30 @@ public interface QueryExecutor<Q extends ElementQuery,R extends TitanElement,B e
 
     public boolean isDeleted(Q query, R result);
 
-    public Iterator<R> execute(Q query, B subquery, Object executionInfo);
+    /**
+     * Executes the given subquery. Executors record the stages of the execution that are not visible to the caller,
+     * such as individual index calls, with the given profiler.
+     *
+     * @param query
+     * @param subquery
+     * @param executionInfo
+     * @param profiler
+     * @return
+     */
+    public Iterator<R> execute(Q query, B subquery, Object executionInfo, QueryProfiler profiler);
+
+    /**
+     * Returns a subquery which retrieves at most <code>limit</code> results following the given result, which is the
+     * last result returned by {@link #execute(ElementQuery, BackendQuery, Object, QueryProfiler)} for the given subquery. This allows
+     * paging through the results of a subquery without retrieving those already returned again.
+     * Returns null if the subquery cannot be resumed.
+     *
+     * @param query
+     * @param subquery
+     * @param lastResult
+     * @param limit
+     * @return
+     */
+    public B continueAfter(Q query, B subquery, R lastResult, int limit);
 
 }
@@ -8,6 +8,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.thinkaurelius.titan.core.QueryException;
 import com.thinkaurelius.titan.core.TitanElement;
+import com.thinkaurelius.titan.graphdb.query.profile.ProfiledIterator;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,12 +32,28 @@ public class QueryProcessor<Q extends ElementQuery<R, B>, R extends TitanElement
 
     private final Q query;
     private final QueryExecutor<Q, R, B> executor;
+    private final QueryProfiler profiler;
 
     public QueryProcessor(Q query, QueryExecutor<Q, R, B> executor) {
+        this(query, executor, QueryProfiler.NO_OP);
+    }
+
+    /**
+     * Records the execution of the query with the given profiler: the total time and number of results as well as
+     * the number of results retrieved, filtered and re-fetched for each subquery. Each iteration over this
+     * processor adds to the recorded trace.
+     *
+     * @param query
+     * @param executor
+     * @param profiler
+     */
+    public QueryProcessor(Q query, QueryExecutor<Q, R, B> executor, QueryProfiler profiler) {
         Preconditions.checkNotNull(query);
         Preconditions.checkNotNull(executor);
+        Preconditions.checkNotNull(profiler);
         this.query = query;
         this.executor = executor;
+        this.profiler = profiler;
     }
 
     @Override
@@ -43,7 +61,12 @@ public class QueryProcessor<Q extends ElementQuery<R, B>, R extends TitanElement
         if (query.isEmpty())
             return Iterators.emptyIterator();
 
-        return new OuterIterator();
+        profiler.startTimer();
+        try {
+            return ProfiledIterator.of(profiler, new OuterIterator());
+        } finally {
+            profiler.stopTimer();
+        }
     }
 
     private final class OuterIterator implements Iterator<R> {
@@ -106,11 +129,13 @@ public class QueryProcessor<Q extends ElementQuery<R, B>, R extends TitanElement
         if (query.isSorted()) {
             for (int i = query.numSubQueries() - 1; i >= 0; i--) {
                 BackendQueryHolder<B> subq = query.getSubQuery(i);
+                QueryProfiler subProfiler = addSubQueryProfiler(subq);
                 Iterator<R> subqiter = getFilterIterator((subq.isSorted())
-                                                            ? new LimitAdjustingIterator(subq)
-                                                            : new PreSortingIterator(subq),
+                                                            ? new LimitAdjustingIterator(subq, subProfiler)
+                                                            : new PreSortingIterator(subq, subProfiler),
                                                          hasDeletions,
-                                                         !subq.isFitted());
+                                                         !subq.isFitted(),
+                                                         subProfiler);
 
                 iter = (iter == null)
                         ? subqiter
@@ -135,8 +160,9 @@ public class QueryProcessor<Q extends ElementQuery<R, B>, R extends TitanElement
             List<Iterator<R>> iters = new ArrayList<Iterator<R>>(query.numSubQueries());
             for (int i = 0; i < query.numSubQueries(); i++) {
                 BackendQueryHolder<B> subq = query.getSubQuery(i);
-                Iterator<R> subiter = new LimitAdjustingIterator(subq);
-                subiter = getFilterIterator(subiter, hasDeletions, !subq.isFitted());
+                QueryProfiler subProfiler = addSubQueryProfiler(subq);
+                Iterator<R> subiter = new LimitAdjustingIterator(subq, subProfiler);
+                subiter = getFilterIterator(subiter, hasDeletions, !subq.isFitted(), subProfiler);
                 if (!allNew.isEmpty()) {
                     subiter = Iterators.filter(subiter, new Predicate<R>() {
                         @Override
@@ -169,12 +195,25 @@ public class QueryProcessor<Q extends ElementQuery<R, B>, R extends TitanElement
         return iter;
     }
 
-    private Iterator<R> getFilterIterator(final Iterator<R> iter, final boolean filterDeletions, final boolean filterMatches) {
+    private QueryProfiler addSubQueryProfiler(BackendQueryHolder<B> subq) {
+        QueryProfiler subProfiler = profiler.addNested(QueryProfiler.BACKEND_QUERY);
+        if (subProfiler != QueryProfiler.NO_OP) {
+            subProfiler.setAnnotation(QueryProfiler.QUERY_ANNOTATION, subq.getBackendQuery().toString());
+            subProfiler.setAnnotation(QueryProfiler.FITTED_ANNOTATION, subq.isFitted());
+            subProfiler.setAnnotation(QueryProfiler.SORTED_ANNOTATION, subq.isSorted());
+        }
+        return subProfiler;
+    }
+
+    private Iterator<R> getFilterIterator(final Iterator<R> iter, final boolean filterDeletions, final boolean filterMatches,
+                                          final QueryProfiler subProfiler) {
         if (filterDeletions || filterMatches) {
             return Iterators.filter(iter, new Predicate<R>() {
                 @Override
                 public boolean apply(@Nullable R r) {
-                    return (!filterDeletions || !executor.isDeleted(query, r)) && (!filterMatches || query.matches(r));
+                    boolean keep = (!filterDeletions || !executor.isDeleted(query, r)) && (!filterMatches || query.matches(r));
+                    if (!keep) subProfiler.incrementAnnotation(QueryProfiler.FILTERED_ANNOTATION, 1);
+                    return keep;
                 }
             });
         } else {
@@ -182,14 +221,24 @@ public class QueryProcessor<Q extends ElementQuery<R, B>, R extends TitanElement
         }
     }
 
+    private Iterator<R> execute(B subquery, Object executionInfo, QueryProfiler subProfiler) {
+        subProfiler.incrementAnnotation(QueryProfiler.CALLS_ANNOTATION, 1);
+        subProfiler.startTimer();
+        try {
+            return ProfiledIterator.of(subProfiler, executor.execute(query, subquery, executionInfo, subProfiler));
+        } finally {
+            subProfiler.stopTimer();
+        }
+    }
+
     private final class PreSortingIterator implements Iterator<R> {
 
         private final Iterator<R> iter;
 
-        private PreSortingIterator(BackendQueryHolder<B> backendQueryHolder) {
-            List<R> all = Lists.newArrayList(executor.execute(query,
+        private PreSortingIterator(BackendQueryHolder<B> backendQueryHolder, QueryProfiler subProfiler) {
+            List<R> all = Lists.newArrayList(execute(
                     backendQueryHolder.getBackendQuery().updateLimit(MAX_SORT_ITERATION),
-                    backendQueryHolder.getExecutionInfo()));
+                    backendQueryHolder.getExecutionInfo(), subProfiler));
             if (all.size() >= MAX_SORT_ITERATION)
                 throw new QueryException("Could not execute query since pre-sorting requires fetching more than " +
                         MAX_SORT_ITERATION + " elements. Consider rewriting the query to exploit sort orders");
@@ -216,19 +265,33 @@ public class QueryProcessor<Q extends ElementQuery<R, B>, R extends TitanElement
     private final class LimitAdjustingIterator extends com.thinkaurelius.titan.graphdb.query.LimitAdjustingIterator<R> {
 
         private B backendQuery;
+        private B pageQuery;
         private final Object executionInfo;
+        private final QueryProfiler subProfiler;
 
-        private LimitAdjustingIterator(BackendQueryHolder<B> backendQueryHolder) {
+        private LimitAdjustingIterator(BackendQueryHolder<B> backendQueryHolder, QueryProfiler subProfiler) {
             super(Integer.MAX_VALUE-1,backendQueryHolder.getBackendQuery().getLimit());
             this.backendQuery = backendQueryHolder.getBackendQuery();
             this.executionInfo = backendQueryHolder.getExecutionInfo();
+            this.subProfiler = subProfiler;
         }
 
         @Override
         public Iterator<R> getNewIterator(int newLimit) {
+            if (pageQuery != null) subProfiler.incrementAnnotation(QueryProfiler.REFETCHES_ANNOTATION, 1);
             if (!backendQuery.hasLimit() || newLimit>backendQuery.getLimit())
                 backendQuery = backendQuery.updateLimit(newLimit);
-            return executor.execute(query, backendQuery, executionInfo);
+            pageQuery = backendQuery;
+            return execute(pageQuery, executionInfo, subProfiler);
+        }
+
+        @Override
+        public Iterator<R> getContinuationIterator(R last, int limit) {
+            B continuation = executor.continueAfter(query, pageQuery, last, limit);
+            if (continuation == null) return null;
+            subProfiler.incrementAnnotation(QueryProfiler.CONTINUATIONS_ANNOTATION, 1);
+            pageQuery = continuation;
+            return execute(pageQuery, executionInfo, subProfiler);
         }
 
     }
@@ -1,5 +1,6 @@
 package com.thinkaurelius.titan.graphdb.query;
 
+import com.carrotsearch.hppc.LongOpenHashSet;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.*;
@@ -12,6 +13,7 @@ import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class QueryUtil {
 
@@ -185,47 +187,207 @@ public class QueryUtil {
 
 
 
+    /**
+     * Intersects the results of the given index retrievals and returns at least <code>limit</code> results or all
+     * results of the intersection if there are fewer.
+     * <p/>
+     * Each retrieval is invoked with a limit that is grown geometrically until the intersection is large enough
+     * or all retrievals are exhausted. Retrievals which returned fewer results than requested are complete and are
+     * therefore not invoked again. Within each round, retrievals are invoked in order of increasing size of their
+     * previous result so that the most selective retrieval comes first, and the round is aborted as soon as the
+     * intersection of exhausted retrievals is known to be empty. Vertex id results are intersected as primitive longs.
+     * The returned results are in the order of the first retrieval regardless of the order of evaluation, so that
+     * the order of a sorted index retrieval is preserved.
+     *
+     * @param retrievals
+     * @param limit
+     * @param <R>
+     * @return
+     */
     public static <R> List<R> processIntersectingRetrievals(List<IndexCall<R>> retrievals, final int limit) {
+        return processIntersectingRetrievals(retrievals, limit, null);
+    }
+
+    /**
+     * Like {@link #processIntersectingRetrievals(java.util.List, int)} but the retrievals of each round are invoked
+     * concurrently on the given executor, so that the latency of a round is bounded by the slowest retrieval
+     * rather than the sum of all retrievals.
+     * Outstanding retrievals are cancelled as soon as the intersection of the completed exhausted retrievals is empty.
+     * Retrievals are invoked sequentially if the executor is null.
+     *
+     * @param retrievals
+     * @param limit
+     * @param executor
+     * @param <R>
+     * @return
+     */
+    public static <R> List<R> processIntersectingRetrievals(List<IndexCall<R>> retrievals, final int limit,
+                                                            @Nullable Executor executor) {
         Preconditions.checkArgument(!retrievals.isEmpty());
         Preconditions.checkArgument(limit >= 0, "Invalid limit: %s", limit);
-        List<R> results;
-        /*
-         * Iterate over the clauses in the and collection
-         * query.getCondition().getChildren(), taking the intersection
-         * of current results with cumulative results on each iteration.
-         */
         //TODO: smarter limit estimation
         int multiplier = Math.min(16, (int) Math.pow(2, retrievals.size() - 1));
         int sublimit = Integer.MAX_VALUE;
         if (Integer.MAX_VALUE / multiplier >= limit) sublimit = limit * multiplier;
-        boolean exhaustedResults;
-        do {
-            exhaustedResults = true;
-            results = null;
-            for (IndexCall<R> call : retrievals) {
-                Collection<R> subresult;
-                try {
-                    subresult = call.call(sublimit);
-                } catch (Exception e) {
-                    throw new TitanException("Could not process individual retrieval call ", e);
-                }
 
-                if (subresult.size() >= sublimit) exhaustedResults = false;
-                if (results == null) {
-                    results = Lists.newArrayList(subresult);
-                } else {
-                    Set<R> subresultset = ImmutableSet.copyOf(subresult);
-                    Iterator riter = results.iterator();
-                    while (riter.hasNext()) {
-                        if (!subresultset.contains(riter.next())) riter.remove();
+        List<Retrieval<R>> calls = new ArrayList<Retrieval<R>>(retrievals.size());
+        for (IndexCall<R> call : retrievals) calls.add(new Retrieval<R>(call));
+        //The first retrieval determines the order of the results
+        final Retrieval<R> first = calls.get(0);
+        while (true) {
+            if (executor != null && !retrieveConcurrently(calls, sublimit, executor)) return new ArrayList<R>(0);
+            boolean exhaustedResults = true;
+            List<R> results = null;
+            for (Retrieval<R> call : calls) {
+                call.retrieve(sublimit);
+                results = results == null ? new ArrayList<R>(call.results) : call.retain(results);
+                if (!call.exhausted) exhaustedResults = false;
+                //The intersection is final if it is empty and all contributing results are complete
+                if (results.isEmpty() && exhaustedResults) return results;
+            }
+            if (results.size() >= limit || exhaustedResults) return calls.get(0) == first ? results : first.order(results);
+            Collections.sort(calls);
+            sublimit = (int) Math.min(Integer.MAX_VALUE - 1, Math.max(Math.pow(sublimit, 1.5),(sublimit+1)*2));
+        }
+    }
+
+    /**
+     * Invokes all retrievals which need to be retrieved for the given limit concurrently.
+     * Returns false if the intersection is known to be empty, in which case some retrievals may not have completed.
+     */
+    private static <R> boolean retrieveConcurrently(List<Retrieval<R>> calls, final int limit, Executor executor) {
+        List<Retrieval<R>> pending = new ArrayList<Retrieval<R>>(calls.size());
+        List<R> exhaustedResults = null;
+        for (Retrieval<R> call : calls) {
+            if (call.needsRetrieval(limit)) pending.add(call);
+            else if (call.exhausted) exhaustedResults = call.intersect(exhaustedResults);
+        }
+        if (exhaustedResults != null && exhaustedResults.isEmpty()) return false;
+        if (pending.size() < 2) return true;
+
+        CompletionService<Retrieval<R>> completion = new ExecutorCompletionService<Retrieval<R>>(executor);
+        List<Future<Retrieval<R>>> futures = new ArrayList<Future<Retrieval<R>>>(pending.size());
+        try {
+            for (final Retrieval<R> call : pending) {
+                futures.add(completion.submit(new Callable<Retrieval<R>>() {
+                    @Override
+                    public Retrieval<R> call() {
+                        call.retrieve(limit);
+                        return call;
                     }
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Retrieval<R> call = completion.take().get();
+                if (call.exhausted) {
+                    exhaustedResults = call.intersect(exhaustedResults);
+                    if (exhaustedResults.isEmpty()) return false;
                 }
             }
-            sublimit = (int) Math.min(Integer.MAX_VALUE - 1, Math.max(Math.pow(sublimit, 1.5),(sublimit+1)*2));
-        } while (results.size() < limit && !exhaustedResults);
-        return results;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TitanException("Interrupted while waiting for index retrievals to complete", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TitanException) throw (TitanException) e.getCause();
+            throw new TitanException("Could not process individual retrieval call ", e.getCause());
+        } finally {
+            //Retrievals which are already running are not interrupted since that could leave backend connections
+            //in an undefined state. Their results are discarded.
+            for (Future<Retrieval<R>> future : futures) future.cancel(false);
+        }
     }
 
+    /**
+     * Keeps track of the result of an {@link IndexCall} across the rounds of {@link #processIntersectingRetrievals(java.util.List, int)}.
+     * Ordered by result size so that the most selective retrievals are intersected first.
+     */
+    private static class Retrieval<R> implements Comparable<Retrieval<R>> {
+
+        private final IndexCall<R> call;
+        private Collection<R> results;
+        private boolean exhausted;
+        private int retrievedLimit;
+        private LongOpenHashSet longMembers;
+        private Set<R> members;
+
+        private Retrieval(IndexCall<R> call) {
+            this.call = call;
+        }
+
+        private boolean needsRetrieval(int limit) {
+            return results == null || (!exhausted && retrievedLimit != limit);
+        }
+
+        private void retrieve(int limit) {
+            if (!needsRetrieval(limit)) return;
+            try {
+                results = call.call(limit);
+            } catch (Exception e) {
+                throw new TitanException("Could not process individual retrieval call ", e);
+            }
+            retrievedLimit = limit;
+            exhausted = results.size() < limit;
+            longMembers = null;
+            members = null;
+        }
+
+        /**
+         * Returns the intersection of the given list with this retrieval's results, or a copy of the results if the
+         * given list is null
+         */
+        private List<R> intersect(@Nullable List<R> candidates) {
+            if (candidates == null) return new ArrayList<R>(results);
+            return retain(candidates);
+        }
+
+        /**
+         * Removes all elements from the given list which are not contained in this retrieval's results
+         */
+        private List<R> retain(List<R> candidates) {
+            if (longMembers == null && members == null) {
+                boolean allLongs = true;
+                for (R r : results) {
+                    if (!(r instanceof Long)) {
+                        allLongs = false;
+                        break;
+                    }
+                }
+                if (allLongs) {
+                    longMembers = new LongOpenHashSet(results.size());
+                    for (R r : results) longMembers.add((Long) r);
+                } else {
+                    members = ImmutableSet.copyOf(results);
+                }
+            }
+            List<R> retained = new ArrayList<R>(Math.min(candidates.size(), results.size()));
+            for (R r : candidates) {
+                boolean contained;
+                if (longMembers != null) contained = (r instanceof Long) && longMembers.contains((Long) r);
+                else contained = members.contains(r);
+                if (contained) retained.add(r);
+            }
+            return retained;
+        }
+
+        /**
+         * Returns the given subset of this retrieval's results in the order in which they were retrieved
+         */
+        private List<R> order(List<R> subset) {
+            if (subset.size() < 2) return subset;
+            Set<R> contained = new HashSet<R>(subset);
+            List<R> ordered = new ArrayList<R>(subset.size());
+            for (R r : results) {
+                if (contained.contains(r)) ordered.add(r);
+            }
+            return ordered;
+        }
+
+        @Override
+        public int compareTo(Retrieval<R> other) {
+            return results.size() - other.results.size();
+        }
+    }
 
     public interface IndexCall<R> {
 
@@ -19,6 +19,10 @@ public class RelationTypeCondition<E extends TitanElement> extends Literal<E> {
         this.relationType = relationType;
     }
 
+    public TitanType getRelationType() {
+        return relationType;
+    }
+
     @Override
     public boolean evaluate(E element) {
         Preconditions.checkArgument(element instanceof TitanRelation);
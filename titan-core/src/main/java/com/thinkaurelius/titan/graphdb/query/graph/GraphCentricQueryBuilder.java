@@ -11,6 +11,8 @@ import com.thinkaurelius.titan.graphdb.internal.InternalType;
 import com.thinkaurelius.titan.graphdb.internal.OrderList;
 import com.thinkaurelius.titan.graphdb.query.*;
 import com.thinkaurelius.titan.graphdb.query.condition.*;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
+import com.thinkaurelius.titan.graphdb.query.profile.SimpleQueryProfiler;
 import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
 import com.thinkaurelius.titan.graphdb.types.*;
 import com.tinkerpop.blueprints.Edge;
@@ -34,6 +36,7 @@ public class GraphCentricQueryBuilder implements TitanGraphQuery {
     private List<PredicateCondition<String, TitanElement>> constraints;
     private OrderList orders = new OrderList();
     private int limit = Query.NO_LIMIT;
+    private QueryProfiler profiler = QueryProfiler.NO_OP;
 
     public GraphCentricQueryBuilder(StandardTitanTx tx, IndexSerializer serializer) {
         Preconditions.checkNotNull(tx);
@@ -124,6 +127,13 @@ public class GraphCentricQueryBuilder implements TitanGraphQuery {
         return this;
     }
 
+    @Override
+    public TitanGraphQuery profiler(QueryProfiler profiler) {
+        Preconditions.checkNotNull(profiler);
+        this.profiler = profiler;
+        return this;
+    }
+
     /* ---------------------------------------------------------------
      * Query Execution
 	 * ---------------------------------------------------------------
@@ -131,20 +141,41 @@ public class GraphCentricQueryBuilder implements TitanGraphQuery {
 
     @Override
     public Iterable<Vertex> vertices() {
-        GraphCentricQuery query = constructQuery(ElementCategory.VERTEX);
-        return Iterables.filter(new QueryProcessor<GraphCentricQuery, TitanElement, JointIndexQuery>(query, tx.elementProcessor), Vertex.class);
+        GraphCentricQuery query = constructQuery(ElementCategory.VERTEX, profiler);
+        return Iterables.filter(new QueryProcessor<GraphCentricQuery, TitanElement, JointIndexQuery>(query, tx.elementProcessor, profiler), Vertex.class);
     }
 
     @Override
     public Iterable<Edge> edges() {
-        GraphCentricQuery query = constructQuery(ElementCategory.EDGE);
-        return Iterables.filter(new QueryProcessor<GraphCentricQuery, TitanElement, JointIndexQuery>(query, tx.elementProcessor), Edge.class);
+        GraphCentricQuery query = constructQuery(ElementCategory.EDGE, profiler);
+        return Iterables.filter(new QueryProcessor<GraphCentricQuery, TitanElement, JointIndexQuery>(query, tx.elementProcessor, profiler), Edge.class);
     }
 
     @Override
     public Iterable<TitanProperty> properties() {
-        GraphCentricQuery query = constructQuery(ElementCategory.PROPERTY);
-        return Iterables.filter(new QueryProcessor<GraphCentricQuery, TitanElement, JointIndexQuery>(query, tx.elementProcessor), TitanProperty.class);
+        GraphCentricQuery query = constructQuery(ElementCategory.PROPERTY, profiler);
+        return Iterables.filter(new QueryProcessor<GraphCentricQuery, TitanElement, JointIndexQuery>(query, tx.elementProcessor, profiler), TitanProperty.class);
+    }
+
+    @Override
+    public SimpleQueryProfiler explainVertices() {
+        return explain(ElementCategory.VERTEX);
+    }
+
+    @Override
+    public SimpleQueryProfiler explainEdges() {
+        return explain(ElementCategory.EDGE);
+    }
+
+    @Override
+    public SimpleQueryProfiler explainProperties() {
+        return explain(ElementCategory.PROPERTY);
+    }
+
+    private SimpleQueryProfiler explain(ElementCategory resultType) {
+        SimpleQueryProfiler explain = new SimpleQueryProfiler("explain");
+        constructQuery(resultType, explain);
+        return explain;
     }
 
     /* ---------------------------------------------------------------
@@ -163,7 +194,19 @@ public class GraphCentricQueryBuilder implements TitanGraphQuery {
     private static final double CARDINALITY_SINGE_SCORE = 1000;
     private static final double CARDINALITY_OTHER_SCORE = 1000;
 
-    private GraphCentricQuery constructQuery(final ElementCategory resultType) {
+    private GraphCentricQuery constructQuery(final ElementCategory resultType, QueryProfiler profiler) {
+        QueryProfiler optProfiler = profiler.addNested(QueryProfiler.CONSTRUCT_GRAPH_CENTRIC_QUERY);
+        optProfiler.startTimer();
+        try {
+            GraphCentricQuery query = constructOptimizedQuery(resultType, optProfiler);
+            if (query.isEmpty()) optProfiler.setAnnotation(QueryProfiler.EMPTY_ANNOTATION, true);
+            return query;
+        } finally {
+            optProfiler.stopTimer();
+        }
+    }
+
+    private GraphCentricQuery constructOptimizedQuery(final ElementCategory resultType, final QueryProfiler optProfiler) {
         Preconditions.checkNotNull(resultType);
         if (limit == 0) return GraphCentricQuery.emptyQuery(resultType);
 
@@ -175,6 +218,7 @@ public class GraphCentricQueryBuilder implements TitanGraphQuery {
         orders.makeImmutable();
         if (orders.isEmpty()) orders = OrderList.NO_ORDER;
 
+
         //Compile all indexes that cover at least one of the query conditions
         final Set<IndexType> indexCandidates = new HashSet<IndexType>();
         ConditionUtil.traversal(conditions,new Predicate<Condition<TitanElement>>() {
@@ -200,6 +244,15 @@ public class GraphCentricQueryBuilder implements TitanGraphQuery {
         this index covers. The index with the highest score (as long as it covers at least one additional clause)
         is picked and added to the joint query for as long as such exist.
          */
+        if (optProfiler != QueryProfiler.NO_OP) {
+            optProfiler.setAnnotation(QueryProfiler.CONDITION_ANNOTATION, conditions.toString());
+            if (!orders.isEmpty()) optProfiler.setAnnotation(QueryProfiler.ORDERS_ANNOTATION, orders.toString());
+            if (limit != Query.NO_LIMIT) optProfiler.setAnnotation(QueryProfiler.LIMIT_ANNOTATION, limit);
+            List<String> candidateNames = new ArrayList<String>(indexCandidates.size());
+            for (IndexType index : indexCandidates) candidateNames.add(index.getName());
+            optProfiler.setAnnotation(QueryProfiler.CANDIDATES_ANNOTATION, candidateNames);
+        }
+
         JointIndexQuery jointQuery = new JointIndexQuery();
         boolean isSorted=false;
         Set<Condition> coveredClauses = Sets.newHashSet();
@@ -246,6 +299,13 @@ public class GraphCentricQueryBuilder implements TitanGraphQuery {
             }
             if (bestCandidate!=null) {
                 if (coveredClauses.isEmpty()) isSorted=candidateSupportsSort;
+                if (optProfiler != QueryProfiler.NO_OP) {
+                    QueryProfiler indexProfiler = optProfiler.addNested(QueryProfiler.INDEX_CANDIDATE);
+                    indexProfiler.setAnnotation(QueryProfiler.INDEX_ANNOTATION, bestCandidate.getName());
+                    indexProfiler.setAnnotation(QueryProfiler.SCORE_ANNOTATION, candidateScore);
+                    indexProfiler.setAnnotation(QueryProfiler.COVERED_ANNOTATION, candidateSubcover.toString());
+                    if (candidateSupportsSort) indexProfiler.setAnnotation(QueryProfiler.SORTED_ANNOTATION, true);
+                }
                 coveredClauses.addAll(candidateSubcover);
                 if (bestCandidate.isInternalIndex()) {
                     jointQuery.add((InternalIndexType)bestCandidate,
@@ -272,6 +332,12 @@ public class GraphCentricQueryBuilder implements TitanGraphQuery {
             query = new BackendQueryHolder<JointIndexQuery>(jointQuery, coveredClauses.size()==conditions.numChildren(), isSorted, null);
         } else {
             query = new BackendQueryHolder<JointIndexQuery>(new JointIndexQuery(), false, false, null);
+            optProfiler.setAnnotation(QueryProfiler.FULLSCAN_ANNOTATION, true);
+        }
+        if (optProfiler != QueryProfiler.NO_OP) {
+            optProfiler.setAnnotation(QueryProfiler.QUERY_ANNOTATION, query.getBackendQuery().toString());
+            optProfiler.setAnnotation(QueryProfiler.FITTED_ANNOTATION, query.isFitted());
+            optProfiler.setAnnotation(QueryProfiler.SORTED_ANNOTATION, query.isSorted());
         }
 
         return new GraphCentricQuery(resultType, conditions, orders, query, limit);
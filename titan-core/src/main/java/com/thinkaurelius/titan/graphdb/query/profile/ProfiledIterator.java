@@ -0,0 +1,63 @@
+package com.thinkaurelius.titan.graphdb.query.profile;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Iterator;
+
+/**
+ * Wraps an iterator to record the time spent retrieving results and the number of results retrieved
+ * with the given {@link QueryProfiler}.
+ */
+public class ProfiledIterator<R> implements Iterator<R> {
+
+    private final QueryProfiler profiler;
+    private final Iterator<R> iter;
+
+    public ProfiledIterator(QueryProfiler profiler, Iterator<R> iter) {
+        Preconditions.checkNotNull(profiler);
+        Preconditions.checkNotNull(iter);
+        this.profiler = profiler;
+        this.iter = iter;
+    }
+
+    @Override
+    public boolean hasNext() {
+        profiler.startTimer();
+        try {
+            return iter.hasNext();
+        } finally {
+            profiler.stopTimer();
+        }
+    }
+
+    @Override
+    public R next() {
+        profiler.startTimer();
+        try {
+            R result = iter.next();
+            profiler.incrementAnnotation(QueryProfiler.RESULTS_ANNOTATION, 1);
+            return result;
+        } finally {
+            profiler.stopTimer();
+        }
+    }
+
+    @Override
+    public void remove() {
+        iter.remove();
+    }
+
+    /**
+     * Wraps the given iterator unless profiling is disabled
+     *
+     * @param profiler
+     * @param iter
+     * @param <R>
+     * @return
+     */
+    public static <R> Iterator<R> of(QueryProfiler profiler, Iterator<R> iter) {
+        if (profiler == QueryProfiler.NO_OP) return iter;
+        return new ProfiledIterator<R>(profiler, iter);
+    }
+
+}
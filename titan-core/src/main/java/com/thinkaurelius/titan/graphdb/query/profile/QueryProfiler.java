@@ -0,0 +1,117 @@
+package com.thinkaurelius.titan.graphdb.query.profile;
+
+/**
+ * Collects a structured trace of the execution of a query: the timings and cardinalities of each stage of query
+ * optimization and execution are recorded as nested profilers with annotations.
+ * <p/>
+ * Query execution is instrumented against this interface. When profiling is disabled, {@link #NO_OP} is used which
+ * ignores all calls.
+ */
+public interface QueryProfiler {
+
+    public static final String CONSTRUCT_GRAPH_CENTRIC_QUERY = "constructGraphCentricQuery";
+    public static final String CONSTRUCT_VERTEX_CENTRIC_QUERY = "constructVertexCentricQuery";
+    public static final String BACKEND_QUERY = "backendQuery";
+    public static final String INDEX_QUERY = "indexQuery";
+    public static final String INDEX_CANDIDATE = "indexCandidate";
+
+    public static final String CONDITION_ANNOTATION = "condition";
+    public static final String ORDERS_ANNOTATION = "orders";
+    public static final String LIMIT_ANNOTATION = "limit";
+    public static final String DIRECTION_ANNOTATION = "direction";
+    public static final String QUERY_ANNOTATION = "query";
+    public static final String INDEX_ANNOTATION = "index";
+    public static final String SCORE_ANNOTATION = "score";
+    public static final String COVERED_ANNOTATION = "covered";
+    public static final String CANDIDATES_ANNOTATION = "candidates";
+    public static final String FITTED_ANNOTATION = "fitted";
+    public static final String SORTED_ANNOTATION = "sorted";
+    public static final String FULLSCAN_ANNOTATION = "fullscan";
+    public static final String SIMPLE_ANNOTATION = "simple";
+    public static final String EMPTY_ANNOTATION = "empty";
+
+    /**
+     * Number of results returned by the profiled stage
+     */
+    public static final String RESULTS_ANNOTATION = "results";
+    /**
+     * Number of results discarded by in-memory filtering
+     */
+    public static final String FILTERED_ANNOTATION = "filtered";
+    /**
+     * Number of times a backend query was executed
+     */
+    public static final String CALLS_ANNOTATION = "calls";
+    /**
+     * Number of times a backend query was re-executed with a larger limit
+     */
+    public static final String REFETCHES_ANNOTATION = "refetches";
+    /**
+     * Number of times a backend query was resumed after the last result retrieved
+     */
+    public static final String CONTINUATIONS_ANNOTATION = "continuations";
+    /**
+     * Number of times the storage backend had to be called because the result was not cached
+     */
+    public static final String BACKEND_CALLS_ANNOTATION = "backendCalls";
+
+    public static final QueryProfiler NO_OP = new QueryProfiler() {
+        @Override
+        public QueryProfiler addNested(String groupName) {
+            return this;
+        }
+
+        @Override
+        public QueryProfiler setAnnotation(String key, Object value) {
+            return this;
+        }
+
+        @Override
+        public QueryProfiler incrementAnnotation(String key, long delta) {
+            return this;
+        }
+
+        @Override
+        public void startTimer() {
+        }
+
+        @Override
+        public void stopTimer() {
+        }
+    };
+
+    /**
+     * Adds and returns a profiler for a nested stage of the profiled stage
+     *
+     * @param groupName name of the nested stage
+     * @return
+     */
+    public QueryProfiler addNested(String groupName);
+
+    /**
+     * Sets the annotation with the given key to the given value
+     *
+     * @param key
+     * @param value
+     * @return this profiler
+     */
+    public QueryProfiler setAnnotation(String key, Object value);
+
+    /**
+     * Increments the numeric annotation with the given key by the given delta. Missing annotations count as 0.
+     *
+     * @param key
+     * @param delta
+     * @return this profiler
+     */
+    public QueryProfiler incrementAnnotation(String key, long delta);
+
+    /**
+     * Starts timing the profiled stage. The times between subsequent pairs of {@link #startTimer()} and
+     * {@link #stopTimer()} add up.
+     */
+    public void startTimer();
+
+    public void stopTimer();
+
+}
@@ -0,0 +1,140 @@
+package com.thinkaurelius.titan.graphdb.query.profile;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link QueryProfiler} which records the trace in memory so that it can be inspected once the query has been
+ * executed (or only constructed when explaining a query).
+ * <p/>
+ * Index calls may be executed concurrently, hence this profiler is thread-safe.
+ */
+public class SimpleQueryProfiler implements QueryProfiler {
+
+    private final String name;
+    private final Map<String, Object> annotations = new LinkedHashMap<String, Object>();
+    private final List<SimpleQueryProfiler> nested = new ArrayList<SimpleQueryProfiler>();
+
+    private long time = 0;
+    private long start = 0;
+    private int running = 0;
+
+    public SimpleQueryProfiler(String name) {
+        Preconditions.checkArgument(name != null && !name.isEmpty());
+        this.name = name;
+    }
+
+    public SimpleQueryProfiler() {
+        this("query");
+    }
+
+    @Override
+    public synchronized SimpleQueryProfiler addNested(String groupName) {
+        SimpleQueryProfiler child = new SimpleQueryProfiler(groupName);
+        nested.add(child);
+        return child;
+    }
+
+    @Override
+    public synchronized SimpleQueryProfiler setAnnotation(String key, Object value) {
+        Preconditions.checkNotNull(key);
+        Preconditions.checkNotNull(value);
+        annotations.put(key, value);
+        return this;
+    }
+
+    @Override
+    public synchronized SimpleQueryProfiler incrementAnnotation(String key, long delta) {
+        Preconditions.checkNotNull(key);
+        Object current = annotations.get(key);
+        Preconditions.checkArgument(current == null || current instanceof Long, "Annotation [%s] is not a count: %s", key, current);
+        annotations.put(key, (current == null ? 0 : (Long) current) + delta);
+        return this;
+    }
+
+    @Override
+    public synchronized void startTimer() {
+        if (running++ == 0) start = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void stopTimer() {
+        Preconditions.checkState(running > 0, "Timer has not been started");
+        if (--running == 0) time += System.nanoTime() - start;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized Object getAnnotation(String key) {
+        return annotations.get(key);
+    }
+
+    /**
+     * Returns the value of the numeric annotation with the given key or 0 if it has not been set
+     *
+     * @param key
+     * @return
+     */
+    public synchronized long getCount(String key) {
+        Object value = annotations.get(key);
+        return value == null ? 0 : (Long) value;
+    }
+
+    public synchronized Map<String, Object> getAnnotations() {
+        return ImmutableMap.copyOf(annotations);
+    }
+
+    public synchronized List<SimpleQueryProfiler> getNested() {
+        return ImmutableList.copyOf(nested);
+    }
+
+    /**
+     * Returns all nested profilers with the given name
+     *
+     * @param groupName
+     * @return
+     */
+    public synchronized List<SimpleQueryProfiler> getNested(String groupName) {
+        List<SimpleQueryProfiler> result = new ArrayList<SimpleQueryProfiler>();
+        for (SimpleQueryProfiler child : nested) {
+            if (child.getName().equals(groupName)) result.add(child);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total time spent in the profiled stage
+     *
+     * @param unit
+     * @return
+     */
+    public synchronized long getTime(TimeUnit unit) {
+        return unit.convert(time, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder b = new StringBuilder();
+        toString(b, 0);
+        return b.toString();
+    }
+
+    private synchronized void toString(StringBuilder b, int depth) {
+        for (int i = 0; i < depth; i++) b.append("  ");
+        b.append(name);
+        if (time > 0) b.append(" (").append(String.format("%.3f", time / 1000000.0)).append(" ms)");
+        if (!annotations.isEmpty()) b.append(" ").append(annotations);
+        b.append("\n");
+        for (SimpleQueryProfiler child : nested) child.toString(b, depth + 1);
+    }
+
+}
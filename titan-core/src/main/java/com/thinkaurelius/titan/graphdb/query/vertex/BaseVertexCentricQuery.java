@@ -8,6 +8,7 @@ import com.thinkaurelius.titan.graphdb.query.BaseQuery;
 import com.thinkaurelius.titan.graphdb.query.QueryUtil;
 import com.thinkaurelius.titan.graphdb.query.condition.Condition;
 import com.thinkaurelius.titan.graphdb.query.condition.FixedCondition;
+import com.thinkaurelius.titan.graphdb.query.condition.RelationTypeCondition;
 import com.tinkerpop.blueprints.Direction;
 
 import java.util.ArrayList;
@@ -75,6 +76,36 @@ public class BaseVertexCentricQuery extends BaseQuery {
         return condition.evaluate(relation);
     }
 
+    /**
+     * Returns the ids of the relation types that this query is constrained to, or null if the query
+     * may match relations of any type.
+     *
+     * @return
+     */
+    public long[] getRelationTypeIds() {
+        if (condition.getType()==Condition.Type.AND) {
+            for (Condition<TitanRelation> child : condition.getChildren()) {
+                long[] typeIds = getRelationTypeIds(child);
+                if (typeIds!=null) return typeIds;
+            }
+            return null;
+        } else return getRelationTypeIds(condition);
+    }
+
+    private static long[] getRelationTypeIds(Condition<TitanRelation> condition) {
+        if (condition instanceof RelationTypeCondition) {
+            return new long[]{((RelationTypeCondition)condition).getRelationType().getID()};
+        } else if (condition.getType()==Condition.Type.OR) {
+            long[] typeIds = new long[condition.numChildren()];
+            int pos = 0;
+            for (Condition<TitanRelation> child : condition.getChildren()) {
+                if (!(child instanceof RelationTypeCondition)) return null;
+                typeIds[pos++]=((RelationTypeCondition)child).getRelationType().getID();
+            }
+            return typeIds;
+        } else return null;
+    }
+
     @Override
     public String toString() {
         String s = "["+condition.toString()+"]";
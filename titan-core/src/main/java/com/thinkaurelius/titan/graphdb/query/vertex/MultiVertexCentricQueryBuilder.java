@@ -1,18 +1,25 @@
 package com.thinkaurelius.titan.graphdb.query.vertex;
 
+import com.carrotsearch.hppc.LongArrayList;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Sets;
 import com.thinkaurelius.titan.core.*;
+import com.thinkaurelius.titan.diskstorage.Entry;
+import com.thinkaurelius.titan.diskstorage.EntryList;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.SliceQuery;
 import com.thinkaurelius.titan.graphdb.database.EdgeSerializer;
+import com.thinkaurelius.titan.graphdb.internal.InternalType;
 import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
 import com.thinkaurelius.titan.graphdb.internal.RelationCategory;
 import com.thinkaurelius.titan.graphdb.query.BackendQueryHolder;
 import com.thinkaurelius.titan.graphdb.query.QueryProcessor;
+import com.thinkaurelius.titan.graphdb.query.QueryUtil;
 import com.thinkaurelius.titan.graphdb.query.condition.And;
 import com.thinkaurelius.titan.graphdb.query.condition.Condition;
 import com.thinkaurelius.titan.graphdb.query.condition.DirectionCondition;
+import com.thinkaurelius.titan.graphdb.relations.RelationCache;
 import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
+import com.thinkaurelius.titan.util.datastructures.Retriever;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Predicate;
 import org.slf4j.Logger;
@@ -189,6 +196,21 @@ public class MultiVertexCentricQueryBuilder extends AbstractVertexCentricQueryBu
     }
 
 
+    /**
+     * Loads the relations matching this query into the relation caches of all vertices with one multi-query per
+     * backend slice but does not construct the relations. Subsequent queries against individual vertices that are
+     * covered by those slices are answered from the cache.
+     *
+     * @param returnType
+     */
+    public void prefetch(RelationCategory returnType) {
+        Preconditions.checkArgument(!vertices.isEmpty(), "Need to add at least one vertex to query");
+        BaseVertexCentricQuery vq = super.constructQuery(returnType);
+        for (BackendQueryHolder<SliceQuery> sq : vq.getQueries()) {
+            tx.executeMultiQuery(vertices, sq.getBackendQuery());
+        }
+    }
+
     @Override
     public Map<TitanVertex, Iterable<TitanEdge>> titanEdges() {
         return (Map) relations(RelationCategory.EDGE);
@@ -214,6 +236,100 @@ public class MultiVertexCentricQueryBuilder extends AbstractVertexCentricQueryBu
         return result;
     }
 
+    /**
+     * Executes this query for edges and decodes the adjacent vertex ids (and the values of the given properties)
+     * directly from the retrieved entries into a {@link StandardAdjacencyBlock} without constructing any edge objects.
+     * <p/>
+     * This requires that all backend queries are fitted, i.e. they exactly answer the query without
+     * additional in-memory filtering, and that the anchor vertices have not been modified in this transaction.
+     * Otherwise, the block is assembled from the results of {@link #titanEdges()}.
+     */
+    @Override
+    public AdjacencyBlock adjacency(String... keys) {
+        Preconditions.checkArgument(!vertices.isEmpty(), "Need to add at least one vertex to query");
+        Preconditions.checkNotNull(keys);
+        BaseVertexCentricQuery vq = super.constructQuery(RelationCategory.EDGE);
+        int numVertices = vertices.size();
+        long[] vertexIds = new long[numVertices];
+        int[] offsets = new int[numVertices + 1];
+        LongArrayList neighborIds = new LongArrayList(numVertices * 4);
+        List<List<Object>> columns = new ArrayList<List<Object>>(keys.length);
+        for (int k = 0; k < keys.length; k++) columns.add(new ArrayList<Object>(numVertices * 4));
+
+        if (vq.isEmpty()) {
+            int pos = 0;
+            for (InternalVertex v : vertices) vertexIds[pos++] = v.getID();
+        } else if (isDirectlyDecodable(vq)) {
+            EdgeSerializer serializer = tx.getEdgeSerializer();
+            long[] keyIds = getKeyIds(keys);
+            for (BackendQueryHolder<SliceQuery> sq : vq.getQueries()) {
+                tx.executeMultiQuery(vertices, sq.getBackendQuery());
+            }
+            int pos = 0;
+            for (final InternalVertex v : vertices) {
+                vertexIds[pos] = v.getID();
+                int count = 0;
+                for (BackendQueryHolder<SliceQuery> sq : vq.getQueries()) {
+                    EntryList entries = v.loadRelations(sq.getBackendQuery(), new Retriever<SliceQuery, EntryList>() {
+                        @Override
+                        public EntryList get(SliceQuery query) {
+                            return tx.getGraph().edgeQuery(v.getID(), query, tx.getTxHandle());
+                        }
+                    });
+                    for (Entry entry : entries) {
+                        if (count >= vq.getLimit()) break;
+                        //Untyped edge queries span hidden edges which are otherwise filtered in memory
+                        long neighborId = serializer.parseOtherVertexId(v.getID(), entry, !hasTypes(), tx);
+                        if (neighborId == 0) continue;
+                        neighborIds.add(neighborId);
+                        if (keys.length > 0) {
+                            RelationCache relation = serializer.readRelation(v.getID(), entry, false, tx);
+                            for (int k = 0; k < keys.length; k++)
+                                columns.get(k).add(keyIds[k] == 0 ? null : relation.get(keyIds[k]));
+                        }
+                        count++;
+                    }
+                }
+                offsets[++pos] = neighborIds.size();
+            }
+        } else {
+            Map<TitanVertex, Iterable<TitanEdge>> edges = titanEdges();
+            int pos = 0;
+            for (InternalVertex v : vertices) {
+                vertexIds[pos] = v.getID();
+                for (TitanEdge edge : edges.get(v)) {
+                    neighborIds.add(edge.getOtherVertex(v).getID());
+                    for (int k = 0; k < keys.length; k++)
+                        columns.get(k).add(edge.getProperty(keys[k]));
+                }
+                offsets[++pos] = neighborIds.size();
+            }
+        }
+
+        Object[][] columnArrays = new Object[keys.length][];
+        for (int k = 0; k < keys.length; k++) columnArrays[k] = columns.get(k).toArray();
+        return new StandardAdjacencyBlock(vertexIds, offsets, neighborIds.toArray(), keys, columnArrays);
+    }
+
+    private boolean isDirectlyDecodable(BaseVertexCentricQuery vq) {
+        for (BackendQueryHolder<SliceQuery> sq : vq.getQueries()) {
+            if (!sq.isFitted()) return false;
+        }
+        for (InternalVertex v : vertices) {
+            if (v.isNew() || v.isRemoved() || v.hasAddedRelations() || v.hasRemovedRelations()) return false;
+        }
+        return true;
+    }
+
+    private long[] getKeyIds(String[] keys) {
+        long[] keyIds = new long[keys.length];
+        for (int k = 0; k < keys.length; k++) {
+            InternalType type = QueryUtil.getType(tx, keys[k]);
+            if (type != null && type.isPropertyKey()) keyIds[k] = type.getID();
+        }
+        return keyIds;
+    }
+
     @Override
     public Map<TitanVertex, VertexList> vertexIds() {
         Map<TitanVertex, Iterable<TitanEdge>> base = titanEdges();
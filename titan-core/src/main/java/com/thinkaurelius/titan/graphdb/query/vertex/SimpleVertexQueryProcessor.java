@@ -8,9 +8,12 @@ import com.google.common.collect.*;
 import com.thinkaurelius.titan.core.*;
 import com.thinkaurelius.titan.diskstorage.Entry;
 import com.thinkaurelius.titan.diskstorage.EntryList;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.SliceQuery;
 import com.thinkaurelius.titan.graphdb.database.EdgeSerializer;
 import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
+import com.thinkaurelius.titan.graphdb.query.profile.ProfiledIterator;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
 import com.thinkaurelius.titan.graphdb.transaction.RelationConstructor;
 import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
 import com.thinkaurelius.titan.util.datastructures.Retriever;
@@ -37,27 +40,44 @@ public class SimpleVertexQueryProcessor implements Iterable<Entry> {
     private final StandardTitanTx tx;
     private final EdgeSerializer edgeSerializer;
     private final InternalVertex vertex;
+    private final QueryProfiler profiler;
 
     private SliceQuery sliceQuery;
 
     public SimpleVertexQueryProcessor(VertexCentricQuery query, StandardTitanTx tx) {
+        this(query, tx, QueryProfiler.NO_OP);
+    }
+
+    public SimpleVertexQueryProcessor(VertexCentricQuery query, StandardTitanTx tx, QueryProfiler profiler) {
         Preconditions.checkArgument(query.isSimple());
+        Preconditions.checkNotNull(profiler);
         this.query=query;
         this.tx=tx;
         this.sliceQuery=query.getSubQuery(0).getBackendQuery();
         this.vertex=query.getVertex();
         this.edgeSerializer=tx.getEdgeSerializer();
+        this.profiler=profiler;
     }
 
     @Override
     public Iterator<Entry> iterator() {
+        QueryProfiler subProfiler = profiler.addNested(QueryProfiler.BACKEND_QUERY);
+        if (subProfiler != QueryProfiler.NO_OP) {
+            subProfiler.setAnnotation(QueryProfiler.QUERY_ANNOTATION, sliceQuery.toString());
+            subProfiler.setAnnotation(QueryProfiler.SIMPLE_ANNOTATION, true);
+        }
         Iterator<Entry> iter;
-        if (sliceQuery.hasLimit() && sliceQuery.getLimit()!=query.getLimit()) {
-            iter = new LimitAdjustingIterator();
-        } else {
-            iter = getBasicIterator();
+        subProfiler.startTimer();
+        try {
+            if (sliceQuery.hasLimit() && sliceQuery.getLimit()!=query.getLimit()) {
+                iter = new LimitAdjustingIterator(subProfiler);
+            } else {
+                iter = getBasicIterator(sliceQuery, subProfiler);
+            }
+        } finally {
+            subProfiler.stopTimer();
         }
-        return iter;
+        return ProfiledIterator.of(subProfiler, iter);
     }
 
     public Iterable<TitanRelation> relations() {
@@ -78,10 +98,12 @@ public class SimpleVertexQueryProcessor implements Iterable<Entry> {
         return new VertexLongList(tx,list);
     }
 
-    private Iterator<Entry> getBasicIterator() {
+    private Iterator<Entry> getBasicIterator(SliceQuery sliceQuery, final QueryProfiler subProfiler) {
+        subProfiler.incrementAnnotation(QueryProfiler.CALLS_ANNOTATION, 1);
         return vertex.loadRelations(sliceQuery, new Retriever<SliceQuery, EntryList>() {
             @Override
             public EntryList get(SliceQuery query) {
+                subProfiler.incrementAnnotation(QueryProfiler.BACKEND_CALLS_ANNOTATION, 1);
                 return tx.getGraph().edgeQuery(vertex.getID(), query, tx.getTxHandle());
             }
         }).iterator();
@@ -90,15 +112,31 @@ public class SimpleVertexQueryProcessor implements Iterable<Entry> {
 
     private final class LimitAdjustingIterator extends com.thinkaurelius.titan.graphdb.query.LimitAdjustingIterator<Entry> {
 
-        private LimitAdjustingIterator() {
+        private final QueryProfiler subProfiler;
+        private SliceQuery pageQuery;
+
+        private LimitAdjustingIterator(QueryProfiler subProfiler) {
             super(query.getLimit(),sliceQuery.getLimit());
+            this.subProfiler = subProfiler;
         }
 
         @Override
         public Iterator<Entry> getNewIterator(int newLimit) {
+            if (pageQuery!=null) subProfiler.incrementAnnotation(QueryProfiler.REFETCHES_ANNOTATION, 1);
             if (newLimit>sliceQuery.getLimit())
                 sliceQuery = sliceQuery.updateLimit(newLimit);
-            return getBasicIterator();
+            pageQuery = sliceQuery;
+            return getBasicIterator(pageQuery, subProfiler);
+        }
+
+        @Override
+        public Iterator<Entry> getContinuationIterator(Entry last, int limit) {
+            //Resume right after the last column instead of re-reading all entries returned so far
+            SliceQuery continuation = pageQuery.continueAfter(last.getColumnAs(StaticBuffer.STATIC_FACTORY), limit);
+            if (continuation==null) return Iterators.emptyIterator();
+            subProfiler.incrementAnnotation(QueryProfiler.CONTINUATIONS_ANNOTATION, 1);
+            pageQuery = continuation;
+            return getBasicIterator(pageQuery, subProfiler);
         }
     }
 
@@ -0,0 +1,65 @@
+package com.thinkaurelius.titan.graphdb.query.vertex;
+
+import com.google.common.base.Preconditions;
+import com.thinkaurelius.titan.core.AdjacencyBlock;
+
+/**
+ * Array backed implementation of {@link AdjacencyBlock}.
+ */
+public class StandardAdjacencyBlock implements AdjacencyBlock {
+
+    private final long[] vertexIds;
+    private final int[] offsets;
+    private final long[] neighborIds;
+    private final String[] keys;
+    private final Object[][] columns;
+
+    public StandardAdjacencyBlock(long[] vertexIds, int[] offsets, long[] neighborIds, String[] keys, Object[][] columns) {
+        Preconditions.checkArgument(offsets.length == vertexIds.length + 1);
+        Preconditions.checkArgument(neighborIds.length == offsets[vertexIds.length]);
+        Preconditions.checkArgument(keys.length == columns.length);
+        this.vertexIds = vertexIds;
+        this.offsets = offsets;
+        this.neighborIds = neighborIds;
+        this.keys = keys;
+        this.columns = columns;
+    }
+
+    @Override
+    public int size() {
+        return vertexIds.length;
+    }
+
+    @Override
+    public long[] getVertexIds() {
+        return vertexIds;
+    }
+
+    @Override
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    @Override
+    public long[] getNeighborIds() {
+        return neighborIds;
+    }
+
+    @Override
+    public int numEdges() {
+        return neighborIds.length;
+    }
+
+    @Override
+    public int getDegree(int pos) {
+        return offsets[pos + 1] - offsets[pos];
+    }
+
+    @Override
+    public Object[] getPropertyColumn(String key) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i].equals(key)) return columns[i];
+        }
+        throw new IllegalArgumentException("Property was not requested: " + key);
+    }
+}
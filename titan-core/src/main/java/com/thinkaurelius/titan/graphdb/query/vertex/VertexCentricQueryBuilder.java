@@ -7,11 +7,15 @@ import com.thinkaurelius.titan.diskstorage.keycolumnvalue.SliceQuery;
 import com.thinkaurelius.titan.graphdb.database.EdgeSerializer;
 import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
 import com.thinkaurelius.titan.graphdb.internal.RelationCategory;
+import com.thinkaurelius.titan.graphdb.query.BackendQueryHolder;
 import com.thinkaurelius.titan.graphdb.query.QueryProcessor;
 import com.thinkaurelius.titan.graphdb.query.condition.And;
 import com.thinkaurelius.titan.graphdb.query.condition.Condition;
 import com.thinkaurelius.titan.graphdb.query.condition.DirectionCondition;
 import com.thinkaurelius.titan.graphdb.query.condition.IncidenceCondition;
+import com.thinkaurelius.titan.graphdb.query.profile.ProfiledIterator;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
+import com.thinkaurelius.titan.graphdb.query.profile.SimpleQueryProfiler;
 import com.tinkerpop.blueprints.Direction;
 import com.tinkerpop.blueprints.Edge;
 import com.tinkerpop.blueprints.Predicate;
@@ -19,6 +23,8 @@ import com.tinkerpop.blueprints.Vertex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Iterator;
+
 public class VertexCentricQueryBuilder extends AbstractVertexCentricQueryBuilder implements TitanVertexQuery {
 
     private static final Logger log = LoggerFactory.getLogger(VertexCentricQueryBuilder.class);
@@ -28,6 +34,7 @@ public class VertexCentricQueryBuilder extends AbstractVertexCentricQueryBuilder
     //Additional constraints
     private TitanVertex adjacentVertex = null;
     private boolean queryOnlyLoaded = false;
+    private QueryProfiler profiler = QueryProfiler.NO_OP;
 
     public VertexCentricQueryBuilder(InternalVertex v) {
         super(v.tx());
@@ -53,6 +60,13 @@ public class VertexCentricQueryBuilder extends AbstractVertexCentricQueryBuilder
         return this;
     }
 
+    @Override
+    public VertexCentricQueryBuilder profiler(QueryProfiler profiler) {
+        Preconditions.checkNotNull(profiler);
+        this.profiler = profiler;
+        return this;
+    }
+
     /*
     ########### SIMPLE OVERWRITES ##########
 	 */
@@ -187,15 +201,81 @@ public class VertexCentricQueryBuilder extends AbstractVertexCentricQueryBuilder
         return query;
     }
 
+    private VertexCentricQuery constructQuery(RelationCategory returnType, QueryProfiler profiler) {
+        QueryProfiler optProfiler = profiler.addNested(QueryProfiler.CONSTRUCT_VERTEX_CENTRIC_QUERY);
+        optProfiler.startTimer();
+        try {
+            VertexCentricQuery query = constructQuery(returnType);
+            if (optProfiler != QueryProfiler.NO_OP) {
+                if (query.isEmpty()) {
+                    optProfiler.setAnnotation(QueryProfiler.EMPTY_ANNOTATION, true);
+                    return query;
+                }
+                optProfiler.setAnnotation(QueryProfiler.CONDITION_ANNOTATION, query.getCondition().toString());
+                optProfiler.setAnnotation(QueryProfiler.DIRECTION_ANNOTATION, query.getDirection().toString());
+                if (query.hasLimit())
+                    optProfiler.setAnnotation(QueryProfiler.LIMIT_ANNOTATION, query.getLimit());
+                optProfiler.setAnnotation(QueryProfiler.SIMPLE_ANNOTATION, useSimpleQueryProcessor(query));
+                for (int i = 0; i < query.numSubQueries(); i++) {
+                    BackendQueryHolder<SliceQuery> subq = query.getSubQuery(i);
+                    QueryProfiler subProfiler = optProfiler.addNested(QueryProfiler.BACKEND_QUERY);
+                    subProfiler.setAnnotation(QueryProfiler.QUERY_ANNOTATION, subq.getBackendQuery().toString());
+                    subProfiler.setAnnotation(QueryProfiler.FITTED_ANNOTATION, subq.isFitted());
+                    subProfiler.setAnnotation(QueryProfiler.SORTED_ANNOTATION, subq.isSorted());
+                }
+            }
+            return query;
+        } finally {
+            optProfiler.stopTimer();
+        }
+    }
+
+    private SimpleQueryProfiler explain(RelationCategory returnType) {
+        SimpleQueryProfiler explain = new SimpleQueryProfiler("explain");
+        constructQuery(returnType, explain);
+        return explain;
+    }
+
+    @Override
+    public SimpleQueryProfiler explainEdges() {
+        return explain(RelationCategory.EDGE);
+    }
+
+    @Override
+    public SimpleQueryProfiler explainProperties() {
+        return explain(RelationCategory.PROPERTY);
+    }
+
     //#### RELATIONS
 
     private Iterable<TitanRelation> relations(RelationCategory returnType) {
-        return relations(constructQuery(returnType));
+        return relations(constructQuery(returnType, profiler));
     }
 
     private Iterable<TitanRelation> relations(VertexCentricQuery query) {
-        if (useSimpleQueryProcessor(query)) return new SimpleVertexQueryProcessor(query,tx).relations();
-        else return new QueryProcessor<VertexCentricQuery,TitanRelation,SliceQuery>(query, tx.edgeProcessor);
+        if (useSimpleQueryProcessor(query)) return profile(new SimpleVertexQueryProcessor(query,tx,profiler).relations());
+        else return new QueryProcessor<VertexCentricQuery,TitanRelation,SliceQuery>(query, tx.edgeProcessor, profiler);
+    }
+
+    private <R> Iterable<R> profile(final Iterable<R> iterable) {
+        if (profiler == QueryProfiler.NO_OP) return iterable;
+        return new Iterable<R>() {
+            @Override
+            public Iterator<R> iterator() {
+                return new ProfiledIterator<R>(profiler, iterable.iterator());
+            }
+        };
+    }
+
+    private VertexList profile(SimpleVertexQueryProcessor processor) {
+        profiler.startTimer();
+        try {
+            VertexList result = processor.vertexIds();
+            profiler.incrementAnnotation(QueryProfiler.RESULTS_ANNOTATION, result.size());
+            return result;
+        } finally {
+            profiler.stopTimer();
+        }
     }
 
     private boolean useSimpleQueryProcessor(VertexCentricQuery query) {
@@ -226,15 +306,15 @@ public class VertexCentricQueryBuilder extends AbstractVertexCentricQueryBuilder
 
     @Override
     public Iterable<Vertex> vertices() {
-        VertexCentricQuery query = constructQuery(RelationCategory.EDGE);
-        if (useSimpleQueryProcessor(query)) return (Iterable)new SimpleVertexQueryProcessor(query,tx).vertexIds();
+        VertexCentricQuery query = constructQuery(RelationCategory.EDGE, profiler);
+        if (useSimpleQueryProcessor(query)) return (Iterable)profile(new SimpleVertexQueryProcessor(query,tx,profiler));
         else return (Iterable) edges2Vertices((Iterable)relations(query), vertex);
     }
 
     @Override
     public VertexList vertexIds() {
-        VertexCentricQuery query = constructQuery(RelationCategory.EDGE);
-        if (useSimpleQueryProcessor(query)) return new SimpleVertexQueryProcessor(query,tx).vertexIds();
+        VertexCentricQuery query = constructQuery(RelationCategory.EDGE, profiler);
+        if (useSimpleQueryProcessor(query)) return profile(new SimpleVertexQueryProcessor(query,tx,profiler));
         return edges2VertexIds((Iterable)relations(query), vertex);
     }
 
@@ -242,8 +322,8 @@ public class VertexCentricQueryBuilder extends AbstractVertexCentricQueryBuilder
 
     @Override
     public long count() {
-        VertexCentricQuery query = constructQuery(RelationCategory.EDGE);
-        if (useSimpleQueryProcessor(query)) return new SimpleVertexQueryProcessor(query,tx).vertexIds().size();
+        VertexCentricQuery query = constructQuery(RelationCategory.EDGE, profiler);
+        if (useSimpleQueryProcessor(query)) return profile(new SimpleVertexQueryProcessor(query,tx,profiler)).size();
         else return Iterables.size(relations(query));
     }
 
@@ -42,6 +42,15 @@ public class CacheEdge extends AbstractEdge {
 
     private final Entry data;
 
+    /**
+     * Returns the entry this relation was read from
+     *
+     * @return
+     */
+    public Entry getData() {
+        return data;
+    }
+
     @Override
     public InternalRelation it() {
         InternalRelation it = null;
@@ -30,6 +30,15 @@ public class CacheProperty extends AbstractProperty {
 
     private final Entry data;
 
+    /**
+     * Returns the entry this relation was read from
+     *
+     * @return
+     */
+    public Entry getData() {
+        return data;
+    }
+
     @Override
     public InternalRelation it() {
         InternalRelation it = null;
@@ -4,6 +4,7 @@ import com.carrotsearch.hppc.LongArrayList;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.Weigher;
@@ -17,11 +18,15 @@ import com.thinkaurelius.titan.diskstorage.BackendTransaction;
 import com.thinkaurelius.titan.diskstorage.EntryList;
 import com.thinkaurelius.titan.diskstorage.StorageException;
 import com.thinkaurelius.titan.diskstorage.Entry;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.SliceQuery;
 import com.thinkaurelius.titan.graphdb.blueprints.TitanBlueprintsTransaction;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
 import com.thinkaurelius.titan.graphdb.database.EdgeSerializer;
 import com.thinkaurelius.titan.graphdb.database.IndexSerializer;
 import com.thinkaurelius.titan.graphdb.database.StandardTitanGraph;
+import com.thinkaurelius.titan.graphdb.database.cache.IndexQueryCache;
+import com.thinkaurelius.titan.graphdb.database.cache.SchemaSnapshot;
 import com.thinkaurelius.titan.graphdb.database.idassigner.IDPool;
 import com.thinkaurelius.titan.graphdb.database.serialize.AttributeHandling;
 import com.thinkaurelius.titan.graphdb.idmanagement.IDInspector;
@@ -33,9 +38,12 @@ import com.thinkaurelius.titan.graphdb.query.graph.GraphCentricQuery;
 import com.thinkaurelius.titan.graphdb.query.graph.GraphCentricQueryBuilder;
 import com.thinkaurelius.titan.graphdb.query.graph.IndexQueryBuilder;
 import com.thinkaurelius.titan.graphdb.query.graph.JointIndexQuery;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
 import com.thinkaurelius.titan.graphdb.query.vertex.MultiVertexCentricQueryBuilder;
 import com.thinkaurelius.titan.graphdb.query.vertex.VertexCentricQuery;
 import com.thinkaurelius.titan.graphdb.query.vertex.VertexCentricQueryBuilder;
+import com.thinkaurelius.titan.graphdb.relations.CacheEdge;
+import com.thinkaurelius.titan.graphdb.relations.CacheProperty;
 import com.thinkaurelius.titan.graphdb.relations.RelationIdentifier;
 import com.thinkaurelius.titan.graphdb.relations.StandardEdge;
 import com.thinkaurelius.titan.graphdb.relations.StandardProperty;
@@ -46,6 +54,7 @@ import com.thinkaurelius.titan.graphdb.transaction.indexcache.ConcurrentIndexCac
 import com.thinkaurelius.titan.graphdb.transaction.indexcache.IndexCache;
 import com.thinkaurelius.titan.graphdb.transaction.indexcache.SimpleIndexCache;
 import com.thinkaurelius.titan.graphdb.transaction.lock.*;
+import com.thinkaurelius.titan.graphdb.transaction.vertexcache.ClockVertexCache;
 import com.thinkaurelius.titan.graphdb.transaction.vertexcache.GuavaVertexCache;
 import com.thinkaurelius.titan.graphdb.transaction.vertexcache.VertexCache;
 import com.thinkaurelius.titan.graphdb.types.*;
@@ -96,6 +105,7 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
     private final BackendTransaction txHandle;
     private final EdgeSerializer edgeSerializer;
     private final IndexSerializer indexSerializer;
+    private final SchemaSnapshot schemaSnapshot;
 
     /* ###############################################
             Internal Data Structures
@@ -179,6 +189,7 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
         this.txHandle = txHandle;
         this.edgeSerializer = graph.getEdgeSerializer();
         this.indexSerializer = graph.getIndexSerializer();
+        this.schemaSnapshot = graph.getSchemaSnapshot();
 
         temporaryIds = new IDPool() {
 
@@ -211,7 +222,13 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
         externalVertexRetriever = new VertexConstructor(config.hasVerifyExternalVertexExistence());
         internalVertexRetriever = new VertexConstructor(config.hasVerifyInternalVertexExistence());
 
-        vertexCache = new GuavaVertexCache(config.getVertexCacheSize(),concurrencyLevel,config.getDirtyVertexSize());
+        if (GraphDatabaseConfiguration.TX_CACHE_TYPE_CLOCK.equals(config.getVertexCacheType())) {
+            //The clock cache is striped, so multi-threaded transactions get a segment per processor
+            int clockConcurrency = config.isSingleThreaded() ? 1 : Runtime.getRuntime().availableProcessors();
+            vertexCache = new ClockVertexCache(config.getVertexCacheSize(),clockConcurrency,config.getDirtyVertexSize());
+        } else {
+            vertexCache = new GuavaVertexCache(config.getVertexCacheSize(),concurrencyLevel,config.getDirtyVertexSize());
+        }
         indexCache = CacheBuilder.newBuilder().weigher(new Weigher<JointIndexQuery.Subquery, List<Object>>() {
             @Override
             public int weigh(JointIndexQuery.Subquery q, List<Object> r) {
@@ -282,6 +299,15 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
         return txHandle;
     }
 
+    /**
+     * Returns the version of the compiled schema that was current when this transaction started
+     *
+     * @return
+     */
+    public SchemaSnapshot getSchemaSnapshot() {
+        return schemaSnapshot;
+    }
+
     public EdgeSerializer getEdgeSerializer() {
         return edgeSerializer;
     }
@@ -362,6 +388,33 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
 
     @Override
     public TitanVertex addVertex(Long vertexId) {
+        return addVertex(vertexId, IDManager.VertexIDType.Vertex, -1);
+    }
+
+    @Override
+    public TitanVertex addPartitionedVertex() {
+        Preconditions.checkArgument(!graph.getConfiguration().allowVertexIdSetting(), "Partitioned vertices cannot be created when vertex id setting is enabled");
+        return addVertex(null, IDManager.VertexIDType.PartitionedVertex, -1);
+    }
+
+    /**
+     * Creates a new vertex of the given id type whose id is assigned immediately in the given partition instead of the
+     * one chosen by the configured placement strategy. This is used to migrate vertices between partitions.
+     * The partition must lie within the local partition id ranges (see {@link StandardTitanGraph#isLocalPartition(int)}).
+     *
+     * @param idType {@link IDManager.VertexIDType#Vertex} or {@link IDManager.VertexIDType#PartitionedVertex}
+     * @param partitionID
+     * @return
+     */
+    public TitanVertex addVertex(IDManager.VertexIDType idType, int partitionID) {
+        Preconditions.checkArgument(idType == IDManager.VertexIDType.Vertex || idType == IDManager.VertexIDType.PartitionedVertex,
+                "Invalid vertex id type: %s", idType);
+        Preconditions.checkArgument(partitionID >= 0, "Invalid partition: %s", partitionID);
+        Preconditions.checkArgument(!graph.getConfiguration().allowVertexIdSetting(), "Cannot place vertices when vertex id setting is enabled");
+        return addVertex(null, idType, partitionID);
+    }
+
+    private TitanVertex addVertex(Long vertexId, IDManager.VertexIDType idType, int partitionID) {
         verifyWriteAccess();
         if (vertexId != null && !graph.getConfiguration().allowVertexIdSetting()) {
             log.info("Provided vertex id [{}] is ignored because vertex id setting is not enabled", vertexId);
@@ -370,9 +423,11 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
         Preconditions.checkArgument(vertexId != null || !graph.getConfiguration().allowVertexIdSetting(), "Must provide vertex id");
         Preconditions.checkArgument(vertexId == null || IDManager.VertexIDType.Vertex.is(vertexId), "Not a valid vertex id: %s", vertexId);
         Preconditions.checkArgument(vertexId == null || !config.hasVerifyExternalVertexExistence() || !containsVertex(vertexId), "Vertex with given id already exists: %s", vertexId);
-        StandardVertex vertex = new StandardVertex(this, IDManager.getTemporaryVertexID(IDManager.VertexIDType.Vertex, temporaryIds.nextID()), ElementLifeCycle.New);
+        StandardVertex vertex = new StandardVertex(this, IDManager.getTemporaryVertexID(idType, temporaryIds.nextID()), ElementLifeCycle.New);
         if (vertexId != null) {
             vertex.setID(vertexId);
+        } else if (partitionID >= 0) {
+            graph.assignID(vertex, partitionID);
         } else if (config.hasAssignIDsImmediately()) {
             graph.assignID(vertex);
         }
@@ -617,12 +672,7 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
             } else {
                 //Only delete in-memory
                 InternalVertex v = (InternalVertex) vertex;
-                for (InternalRelation r : v.it().getAddedRelations(new Predicate<InternalRelation>() {
-                    @Override
-                    public boolean apply(@Nullable InternalRelation p) {
-                        return p.getType().equals(key);
-                    }
-                })) {
+                for (InternalRelation r : v.it().getAddedRelations(new long[]{key.getID()}, Predicates.<InternalRelation>alwaysTrue())) {
                     r.remove();
                 }
             }
@@ -807,7 +857,7 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
         public Iterator<TitanRelation> getNew(final VertexCentricQuery query) {
             InternalVertex vertex = query.getVertex();
             if (vertex.isNew() || vertex.hasAddedRelations()) {
-                return (Iterator) vertex.getAddedRelations(new Predicate<InternalRelation>() {
+                Predicate<InternalRelation> filter = new Predicate<InternalRelation>() {
                     //Need to filter out self-loops if query only asks for one direction
 
                     private TitanRelation previous = null;
@@ -824,7 +874,9 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
 
                         return query.matches(relation);
                     }
-                }).iterator();
+                };
+                long[] typeIds = query.getRelationTypeIds();
+                return (Iterator) (typeIds==null?vertex.getAddedRelations(filter):vertex.getAddedRelations(typeIds,filter)).iterator();
             } else {
                 return Iterators.emptyIterator();
             }
@@ -841,7 +893,7 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
         }
 
         @Override
-        public Iterator<TitanRelation> execute(final VertexCentricQuery query, final SliceQuery sq, final Object exeInfo) {
+        public Iterator<TitanRelation> execute(final VertexCentricQuery query, final SliceQuery sq, final Object exeInfo, final QueryProfiler profiler) {
             assert exeInfo==null;
             if (query.getVertex().isNew())
                 return Iterators.emptyIterator();
@@ -851,12 +903,23 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
             Iterable<Entry> iter = v.loadRelations(sq, new Retriever<SliceQuery, EntryList>() {
                 @Override
                 public EntryList get(SliceQuery query) {
+                    profiler.incrementAnnotation(QueryProfiler.BACKEND_CALLS_ANNOTATION, 1);
                     return graph.edgeQuery(v.getID(), query, txHandle);
                 }
             });
 
             return RelationConstructor.readRelation(v, iter, StandardTitanTx.this).iterator();
         }
+
+        @Override
+        public SliceQuery continueAfter(VertexCentricQuery query, SliceQuery sq, TitanRelation lastResult, int limit) {
+            //Resume right after the column of the last relation read from the backend
+            Entry data;
+            if (lastResult instanceof CacheEdge) data = ((CacheEdge) lastResult).getData();
+            else if (lastResult instanceof CacheProperty) data = ((CacheProperty) lastResult).getData();
+            else return null;
+            return sq.continueAfter(data.getColumnAs(StaticBuffer.STATIC_FACTORY), limit);
+        }
     };
 
     public final QueryExecutor<GraphCentricQuery, TitanElement, JointIndexQuery> elementProcessor;
@@ -966,35 +1029,58 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
         }
 
         @Override
-        public Iterator<TitanElement> execute(final GraphCentricQuery query, final JointIndexQuery indexQuery, final Object exeInfo) {
+        public Iterator<TitanElement> execute(final GraphCentricQuery query, final JointIndexQuery indexQuery, final Object exeInfo, final QueryProfiler profiler) {
             Iterator<TitanElement> iter;
             if (!indexQuery.isEmpty()) {
+                final IndexQueryCache sharedIndexCache = graph.getIndexQueryCache();
                 List<QueryUtil.IndexCall<Object>> retrievals = new ArrayList<QueryUtil.IndexCall<Object>>();
                 for (int i = 0; i < indexQuery.size(); i++) {
                     final JointIndexQuery.Subquery subquery = indexQuery.getQuery(i);
+                    final QueryProfiler subProfiler = profiler.addNested(QueryProfiler.INDEX_QUERY);
+                    if (subProfiler != QueryProfiler.NO_OP) {
+                        subProfiler.setAnnotation(QueryProfiler.INDEX_ANNOTATION, subquery.getIndex().getName());
+                        subProfiler.setAnnotation(QueryProfiler.QUERY_ANNOTATION, subquery.toString());
+                    }
                     retrievals.add(new QueryUtil.IndexCall<Object>() {
                         @Override
                         public Collection<Object> call(int limit) {
                             final JointIndexQuery.Subquery adjustedQuery = subquery.updateLimit(limit);
+                            subProfiler.incrementAnnotation(QueryProfiler.CALLS_ANNOTATION, 1);
+                            subProfiler.startTimer();
                             try {
-                                return indexCache.get(adjustedQuery, new Callable<List<Object>>() {
+                                final Callable<List<Object>> retriever = new Callable<List<Object>>() {
                                     @Override
                                     public List<Object> call() throws Exception {
+                                        subProfiler.incrementAnnotation(QueryProfiler.BACKEND_CALLS_ANNOTATION, 1);
                                         return indexSerializer.query(adjustedQuery, txHandle);
                                     }
+                                };
+                                List<Object> result;
+                                if (sharedIndexCache == null) result = indexCache.get(adjustedQuery, retriever);
+                                else result = indexCache.get(adjustedQuery, new Callable<List<Object>>() {
+                                    @Override
+                                    public List<Object> call() throws Exception {
+                                        return sharedIndexCache.get(adjustedQuery, retriever);
+                                    }
                                 });
+                                subProfiler.incrementAnnotation(QueryProfiler.RESULTS_ANNOTATION, result.size());
+                                return result;
                             } catch (Exception e) {
                                 throw new TitanException("Could not call index", e.getCause());
+                            } finally {
+                                subProfiler.stopTimer();
                             }
                         }
                     });
                 }
 
 
-                List<Object> resultSet = QueryUtil.processIntersectingRetrievals(retrievals, indexQuery.getLimit());
+                List<Object> resultSet = QueryUtil.processIntersectingRetrievals(retrievals, indexQuery.getLimit(), txHandle.getThreadPool());
                 iter = Iterators.transform(resultSet.iterator(), getConversionFunction(query.getResultType()));
+                if (query.getResultType() == ElementCategory.VERTEX) iter = prefetchProperties(query, iter);
             } else {
                 log.warn("Query requires iterating over all vertices [{}]. For better performance, use indexes", query.getCondition());
+                profiler.setAnnotation(QueryProfiler.FULLSCAN_ANNOTATION, true);
 
                 switch (query.getResultType()) {
                     case VERTEX:
@@ -1014,6 +1100,62 @@ public class StandardTitanTx extends TitanBlueprintsTransaction implements TypeI
             return iter;
         }
 
+        @Override
+        public JointIndexQuery continueAfter(GraphCentricQuery query, JointIndexQuery indexQuery, TitanElement lastResult, int limit) {
+            return null;
+        }
+
+        /**
+         * Groups the candidate vertices returned by the index into batches and retrieves the properties needed to
+         * evaluate the conditions and sort order not covered by the index with one multi-query per batch.
+         */
+        private Iterator<TitanElement> prefetchProperties(GraphCentricQuery query, Iterator<TitanElement> vertices) {
+            final int batchSize = graph.getConfiguration().getQueryPrefetchBatch();
+            if (batchSize <= 0) return vertices;
+
+            BackendQueryHolder<JointIndexQuery> subquery = query.getSubQuery(0);
+            final Set<TitanKey> keys = Sets.newHashSet();
+            if (!subquery.isFitted()) {
+                ConditionUtil.traversal(query.getCondition(), new Predicate<Condition<TitanElement>>() {
+                    @Override
+                    public boolean apply(@Nullable Condition<TitanElement> cond) {
+                        if (cond instanceof PredicateCondition) {
+                            Object key = ((PredicateCondition) cond).getKey();
+                            if (key instanceof TitanKey) keys.add((TitanKey) key);
+                        }
+                        return true;
+                    }
+                });
+            }
+            if (!subquery.isSorted()) {
+                OrderList orders = query.getOrder();
+                for (int i = 0; i < orders.size(); i++) keys.add(orders.getKey(i));
+            }
+            for (Iterator<TitanKey> iter = keys.iterator(); iter.hasNext(); ) {
+                TitanKey key = iter.next();
+                if (key instanceof ImplicitKey || ((InternalType) key).isHiddenType()) iter.remove();
+            }
+            if (keys.isEmpty()) return vertices;
+
+            return Iterators.concat(Iterators.transform(Iterators.partition(vertices, batchSize), new Function<List<TitanElement>, Iterator<TitanElement>>() {
+                @Override
+                public Iterator<TitanElement> apply(@Nullable List<TitanElement> batch) {
+                    List<TitanVertex> candidates = new ArrayList<TitanVertex>(batch.size());
+                    for (TitanElement element : batch) {
+                        if (!element.isNew() && !element.isRemoved()) candidates.add((TitanVertex) element);
+                    }
+                    if (candidates.size() > 1) {
+                        MultiVertexCentricQueryBuilder prefetch = new MultiVertexCentricQueryBuilder(StandardTitanTx.this);
+                        prefetch.addAllVertices(candidates);
+                        //With fast-property enabled, the first property access loads all properties anyways
+                        if (!config.hasPropertyPrefetching()) prefetch.types(keys.toArray(new TitanType[keys.size()]));
+                        prefetch.prefetch(RelationCategory.PROPERTY);
+                    }
+                    return batch.iterator();
+                }
+            }));
+        }
+
     };
 
     public Function<Object, ? extends TitanElement> getConversionFunction(final ElementCategory elementCategory) {
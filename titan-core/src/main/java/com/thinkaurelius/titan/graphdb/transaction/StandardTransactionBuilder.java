@@ -53,6 +53,8 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
 
     private int dirtyVertexSize;
 
+    private String vertexCacheType;
+
     private long indexCacheWeight;
 
     private String logIdentifier;
@@ -82,6 +84,7 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         this.storageConfiguration = new UserModifiableConfiguration(GraphDatabaseConfiguration.buildConfiguration());
         setVertexCacheSize(graphConfig.getTxVertexCacheSize());
         setDirtyVertexSize(graphConfig.getTxDirtyVertexSize());
+        setVertexCacheType(graphConfig.getTxVertexCacheType());
     }
 
     public StandardTransactionBuilder threadBound() {
@@ -119,6 +122,13 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         return this;
     }
 
+    @Override
+    public StandardTransactionBuilder setVertexCacheType(String type) {
+        GraphDatabaseConfiguration.TX_CACHE_TYPE.verify(type);
+        this.vertexCacheType = type;
+        return this;
+    }
+
     @Override
     public StandardTransactionBuilder checkInternalVertexExistence() {
         this.verifyInternalVertexExistence = true;
@@ -156,7 +166,7 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
                 verifyInternalVertexExistence, acquireLocks, verifyUniqueness,
                 propertyPrefetching, singleThreaded, threadBound, userTimestamp,
                 indexCacheWeight, getVertexCacheSize(), getDirtyVertexSize(),
-                logIdentifier, groupName,
+                getVertexCacheType(), logIdentifier, groupName,
                 defaultTypeMaker, new BasicConfiguration(TITAN_NS,
                         storageConfiguration.getConfiguration(),
                         Restriction.NONE));
@@ -232,6 +242,11 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         return dirtyVertexSize;
     }
 
+    @Override
+    public final String getVertexCacheType() {
+        return vertexCacheType;
+    }
+
     @Override
     public final long getIndexCacheWeight() {
         return indexCacheWeight;
@@ -288,6 +303,7 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
         private final long indexCacheWeight;
         private final int vertexCacheSize;
         private final int dirtyVertexSize;
+        private final String vertexCacheType;
         private final String logIdentifier;
         private final DefaultTypeMaker defaultTypeMaker;
 
@@ -301,7 +317,8 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
                 boolean hasAcquireLocks, boolean hasVerifyUniqueness,
                 boolean hasPropertyPrefetching, boolean isSingleThreaded,
                 boolean isThreadBound, Timepoint userTimestamp,
-                long indexCacheWeight, int vertexCacheSize, int dirtyVertexSize, String logIdentifier,
+                long indexCacheWeight, int vertexCacheSize, int dirtyVertexSize,
+                String vertexCacheType, String logIdentifier,
                 String groupName, DefaultTypeMaker defaultTypeMaker,
                 Configuration storageConfiguration) {
             this.isReadOnly = isReadOnly;
@@ -317,6 +334,7 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
             this.indexCacheWeight = indexCacheWeight;
             this.vertexCacheSize = vertexCacheSize;
             this.dirtyVertexSize = dirtyVertexSize;
+            this.vertexCacheType = vertexCacheType;
             this.logIdentifier = logIdentifier;
             this.defaultTypeMaker = defaultTypeMaker;
             this.handleConfig = new StandardTransactionHandleConfig.Builder()
@@ -390,6 +408,11 @@ public class StandardTransactionBuilder implements TransactionConfiguration, Tra
             return dirtyVertexSize;
         }
 
+        @Override
+        public String getVertexCacheType() {
+            return vertexCacheType;
+        }
+
         @Override
         public long getIndexCacheWeight() {
             return indexCacheWeight;
@@ -115,6 +115,14 @@ public interface TransactionConfiguration extends TransactionHandleConfig {
      */
     public int getDirtyVertexSize();
 
+    /**
+     * The implementation of the vertex cache used by this transaction, as configured by
+     * {@link com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration#TX_CACHE_TYPE}.
+     *
+     * @return
+     */
+    public String getVertexCacheType();
+
     /**
      * The maximum weight for the index cache store used in this particular transaction
      *
@@ -2,7 +2,6 @@ package com.thinkaurelius.titan.graphdb.transaction;
 
 import com.thinkaurelius.titan.diskstorage.util.RecordIterator;
 import com.thinkaurelius.titan.graphdb.database.StandardTitanGraph;
-import com.thinkaurelius.titan.graphdb.idmanagement.IDManager;
 import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
 
 import java.util.Iterator;
@@ -34,7 +33,7 @@ public class VertexIterable implements Iterable<InternalVertex> {
                 while (v == null && iterator.hasNext()) {
                     long nextId = iterator.next().longValue();
                     //Filter out hidden vertices
-                    if (IDManager.VertexIDType.Hidden.is(nextId)) continue;
+                    if (!graph.getIDInspector().isVertexId(nextId)) continue;
 
                     v = tx.getExistingVertex(nextId);
                     //Filter out deleted vertices and types
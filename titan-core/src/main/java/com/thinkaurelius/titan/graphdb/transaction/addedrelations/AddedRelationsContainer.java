@@ -19,6 +19,16 @@ public interface AddedRelationsContainer {
 
     public List<InternalRelation> getView(Predicate<InternalRelation> filter);
 
+    /**
+     * Like {@link #getView(com.google.common.base.Predicate)} but only returns relations whose type id is one of the
+     * given ids. Implementations that index relations by type only need to consider those relations.
+     *
+     * @param typeIds
+     * @param filter
+     * @return
+     */
+    public List<InternalRelation> getView(long[] typeIds, Predicate<InternalRelation> filter);
+
     public boolean isEmpty();
 
     /**
@@ -45,6 +55,11 @@ public interface AddedRelationsContainer {
             return ImmutableList.of();
         }
 
+        @Override
+        public List<InternalRelation> getView(long[] typeIds, Predicate<InternalRelation> filter) {
+            return ImmutableList.of();
+        }
+
         @Override
         public boolean isEmpty() {
             return true;
@@ -31,4 +31,9 @@ public class ConcurrentBufferAddedRelations extends SimpleBufferAddedRelations {
         return super.getView(filter);
     }
 
+    @Override
+    public synchronized List<InternalRelation> getView(long[] typeIds, Predicate<InternalRelation> filter) {
+        return super.getView(typeIds, filter);
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.thinkaurelius.titan.graphdb.transaction.addedrelations;
+
+import com.google.common.base.Predicate;
+import com.thinkaurelius.titan.graphdb.internal.InternalRelation;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Thread-safe variant of {@link TypeIndexedAddedRelations}.
+ */
+
+public class ConcurrentTypeIndexedAddedRelations extends TypeIndexedAddedRelations {
+
+    @Override
+    public synchronized boolean add(InternalRelation relation) {
+        return super.add(relation);
+    }
+
+    @Override
+    public synchronized boolean remove(InternalRelation relation) {
+        return super.remove(relation);
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return super.isEmpty();
+    }
+
+    @Override
+    public synchronized List<InternalRelation> getView(Predicate<InternalRelation> filter) {
+        return super.getView(filter);
+    }
+
+    @Override
+    public synchronized List<InternalRelation> getView(long[] types, Predicate<InternalRelation> filter) {
+        return super.getView(types, filter);
+    }
+
+    @Override
+    public synchronized Collection<InternalRelation> getAll() {
+        return super.getAll();
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.thinkaurelius.titan.graphdb.transaction.addedrelations;
+
+import com.google.common.base.Predicate;
+import com.thinkaurelius.titan.graphdb.internal.InternalRelation;
+
+import javax.annotation.Nullable;
+
+/**
+ * Predicate which accepts relations whose type is one of the given relation type ids and which match
+ * a delegate predicate. Used by containers that do not index their relations by type.
+ */
+
+class RelationTypeFilter implements Predicate<InternalRelation> {
+
+    private final long[] typeIds;
+    private final Predicate<InternalRelation> filter;
+
+    RelationTypeFilter(long[] typeIds, Predicate<InternalRelation> filter) {
+        this.typeIds = typeIds;
+        this.filter = filter;
+    }
+
+    @Override
+    public boolean apply(@Nullable InternalRelation relation) {
+        long typeId = relation.getType().getID();
+        for (long id : typeIds) {
+            if (id == typeId) return filter.apply(relation);
+        }
+        return false;
+    }
+}
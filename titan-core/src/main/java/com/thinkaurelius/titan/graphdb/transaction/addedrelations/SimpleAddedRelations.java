@@ -38,6 +38,11 @@ public class SimpleAddedRelations extends ArrayList<InternalRelation> implements
         return result;
     }
 
+    @Override
+    public List<InternalRelation> getView(long[] typeIds, Predicate<InternalRelation> filter) {
+        return getView(new RelationTypeFilter(typeIds, filter));
+    }
+
     @Override
     public Collection<InternalRelation> getAll() {
         return this;
@@ -64,6 +64,11 @@ public class SimpleBufferAddedRelations implements AddedRelationsContainer {
         return result;
     }
 
+    @Override
+    public List<InternalRelation> getView(long[] typeIds, Predicate<InternalRelation> filter) {
+        return getView(new RelationTypeFilter(typeIds, filter));
+    }
+
     @Override
     public Collection<InternalRelation> getAll() {
         cleanup();
@@ -0,0 +1,185 @@
+package com.thinkaurelius.titan.graphdb.transaction.addedrelations;
+
+import com.google.common.base.Predicate;
+import com.thinkaurelius.titan.graphdb.internal.InternalRelation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link AddedRelationsContainer} for the relations added to a single vertex which indexes those relations by
+ * relation type id.
+ * <p/>
+ * Relations are kept in insertion order in a single array. For each relation type, the positions of its relations in
+ * that array are stored in an <code>int[]</code>, and the type ids themselves are kept in a sorted <code>long[]</code>.
+ * Hence, a vertex-centric query against a vertex with many added relations in a write-heavy transaction only
+ * touches the relations of the queried types instead of filtering all added relations. Removed relations are nulled
+ * out and the arrays are compacted once half of them have been removed.
+ */
+
+public class TypeIndexedAddedRelations implements AddedRelationsContainer {
+
+    private static final int INITIAL_ADDED_SIZE = 10;
+    private static final int INITIAL_TYPE_SIZE = 4;
+    private static final int INITIAL_POSITION_SIZE = 4;
+    private static final int MIN_COMPACTION_SIZE = 16;
+
+    private InternalRelation[] relations;
+    private int size;
+    private int removed;
+
+    private long[] typeIds;
+    private int[][] positions;
+    private int[] counts;
+    private int numTypes;
+
+    public TypeIndexedAddedRelations() {
+        relations = new InternalRelation[INITIAL_ADDED_SIZE];
+        typeIds = new long[INITIAL_TYPE_SIZE];
+        positions = new int[INITIAL_TYPE_SIZE][];
+        counts = new int[INITIAL_TYPE_SIZE];
+        size = 0;
+        removed = 0;
+        numTypes = 0;
+    }
+
+    @Override
+    public boolean add(InternalRelation relation) {
+        if (size == relations.length) relations = Arrays.copyOf(relations, relations.length * 2);
+        int pos = size++;
+        relations[pos] = relation;
+        addPosition(getOrCreateType(relation.getType().getID()), pos);
+        return true;
+    }
+
+    @Override
+    public boolean remove(InternalRelation relation) {
+        int type = getType(relation.getType().getID());
+        if (type < 0) return false;
+        int[] typePositions = positions[type];
+        for (int i = counts[type] - 1; i >= 0; i--) {
+            int pos = typePositions[i];
+            if (relation.equals(relations[pos])) {
+                System.arraycopy(typePositions, i + 1, typePositions, i, counts[type] - i - 1);
+                counts[type]--;
+                relations[pos] = null;
+                removed++;
+                if (removed >= MIN_COMPACTION_SIZE && removed * 2 > size) compact();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<InternalRelation> getView(Predicate<InternalRelation> filter) {
+        List<InternalRelation> result = new ArrayList<InternalRelation>();
+        for (int i = 0; i < size; i++) {
+            InternalRelation r = relations[i];
+            if (r != null && filter.apply(r)) result.add(r);
+        }
+        return result;
+    }
+
+    @Override
+    public List<InternalRelation> getView(long[] types, Predicate<InternalRelation> filter) {
+        List<InternalRelation> result = new ArrayList<InternalRelation>();
+        if (types.length == 1) {
+            int type = getType(types[0]);
+            if (type < 0) return result;
+            int[] typePositions = positions[type];
+            for (int i = 0; i < counts[type]; i++) {
+                InternalRelation r = relations[typePositions[i]];
+                if (filter.apply(r)) result.add(r);
+            }
+        } else {
+            //Merge the positions of all requested types to retain insertion order
+            int total = 0;
+            int[] selected = new int[types.length];
+            int numSelected = 0;
+            for (long typeId : types) {
+                int type = getType(typeId);
+                if (type < 0) continue;
+                selected[numSelected++] = type;
+                total += counts[type];
+            }
+            int[] merged = new int[total];
+            int offset = 0;
+            for (int i = 0; i < numSelected; i++) {
+                int type = selected[i];
+                System.arraycopy(positions[type], 0, merged, offset, counts[type]);
+                offset += counts[type];
+            }
+            if (numSelected > 1) Arrays.sort(merged);
+            for (int pos : merged) {
+                InternalRelation r = relations[pos];
+                if (filter.apply(r)) result.add(r);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == removed;
+    }
+
+    @Override
+    public Collection<InternalRelation> getAll() {
+        List<InternalRelation> result = new ArrayList<InternalRelation>(size - removed);
+        for (int i = 0; i < size; i++) {
+            if (relations[i] != null) result.add(relations[i]);
+        }
+        return result;
+    }
+
+    private int getType(long typeId) {
+        return Arrays.binarySearch(typeIds, 0, numTypes, typeId);
+    }
+
+    private int getOrCreateType(long typeId) {
+        int type = getType(typeId);
+        if (type >= 0) return type;
+        type = -type - 1;
+        if (numTypes == typeIds.length) {
+            typeIds = Arrays.copyOf(typeIds, numTypes * 2);
+            positions = Arrays.copyOf(positions, numTypes * 2);
+            counts = Arrays.copyOf(counts, numTypes * 2);
+        }
+        System.arraycopy(typeIds, type, typeIds, type + 1, numTypes - type);
+        System.arraycopy(positions, type, positions, type + 1, numTypes - type);
+        System.arraycopy(counts, type, counts, type + 1, numTypes - type);
+        typeIds[type] = typeId;
+        positions[type] = new int[INITIAL_POSITION_SIZE];
+        counts[type] = 0;
+        numTypes++;
+        return type;
+    }
+
+    private void addPosition(int type, int pos) {
+        int[] typePositions = positions[type];
+        if (counts[type] == typePositions.length) {
+            typePositions = Arrays.copyOf(typePositions, typePositions.length * 2);
+            positions[type] = typePositions;
+        }
+        typePositions[counts[type]++] = pos;
+    }
+
+    private void compact() {
+        InternalRelation[] old = relations;
+        int oldSize = size;
+        relations = new InternalRelation[Math.max(INITIAL_ADDED_SIZE, (oldSize - removed) * 2)];
+        size = 0;
+        removed = 0;
+        Arrays.fill(counts, 0, numTypes, 0);
+        for (int i = 0; i < oldSize; i++) {
+            InternalRelation r = old[i];
+            if (r == null) continue;
+            int pos = size++;
+            relations[pos] = r;
+            addPosition(getType(r.getType().getID()), pos);
+        }
+    }
+}
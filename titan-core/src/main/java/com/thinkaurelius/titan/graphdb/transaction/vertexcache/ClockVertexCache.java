@@ -0,0 +1,314 @@
+package com.thinkaurelius.titan.graphdb.transaction.vertexcache;
+
+import com.google.common.base.Preconditions;
+import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
+import com.thinkaurelius.titan.util.datastructures.Retriever;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link VertexCache} backed by open-addressing hash tables keyed on primitive <code>long</code> vertex ids.
+ * <p/>
+ * Unlike {@link GuavaVertexCache}, cache hits neither box the vertex id nor allocate any bookkeeping objects, and
+ * new or modified vertices are kept in the same table as clean ones instead of being shuffled into a separate map
+ * upon eviction. Eviction uses the clock (second chance) approximation of LRU: every hit sets a reference bit which
+ * the clock hand clears on its next pass, and only unreferenced clean vertices are evicted. Vertices that are new or
+ * have added relations are pinned and skipped by the clock hand; if the cache fills up with pinned vertices it grows
+ * beyond its maximum size rather than losing uncommitted state.
+ * <p/>
+ * The vertex ids are split across a number of segments derived from the concurrency level. Each segment has its
+ * own table, clock hand and lock and holds its share of the maximum cache size, so that threads accessing
+ * different vertices rarely contend. The retriever is invoked outside the lock on a cache miss.
+ */
+public class ClockVertexCache implements VertexCache {
+
+    private static final Logger log =
+            LoggerFactory.getLogger(ClockVertexCache.class);
+
+    private static final int MIN_TABLE_SIZE = 16;
+
+    private static final int MAX_SEGMENTS = 1 << 16;
+
+    private static final int MIN_SEGMENT_SIZE = 16;
+
+    private static final long EMPTY = 0;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+
+    public ClockVertexCache(final int maxCacheSize, final int initialDirtySize) {
+        this(maxCacheSize, 1, initialDirtySize);
+    }
+
+    public ClockVertexCache(final int maxCacheSize, final int concurrencyLevel, final int initialDirtySize) {
+        Preconditions.checkArgument(maxCacheSize >= 0 && concurrencyLevel > 0 && initialDirtySize >= 0);
+        int numSegments = 1, bits = 0;
+        //Segments must remain large enough for the clock to approximate LRU
+        while (numSegments < Math.min(concurrencyLevel, MAX_SEGMENTS)
+                && 2 * numSegments * MIN_SEGMENT_SIZE <= maxCacheSize) {
+            numSegments <<= 1;
+            bits++;
+        }
+        segmentShift = 32 - bits;
+        segmentMask = numSegments - 1;
+        segments = new Segment[numSegments];
+        for (int i = 0; i < numSegments; i++) {
+            //Distribute the maximum size such that the segments add up to it exactly
+            int segmentSize = maxCacheSize / numSegments + (i < maxCacheSize % numSegments ? 1 : 0);
+            int segmentDirty = (initialDirtySize + numSegments - 1) / numSegments;
+            segments[i] = new Segment(segmentSize, segmentDirty);
+        }
+        log.debug("Created clock vertex cache with max size {} and {} segments", maxCacheSize, numSegments);
+    }
+
+    private Segment segmentFor(int hash) {
+        //The high order bits select the segment, the low order bits the slot within its table
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    @Override
+    public boolean contains(long id) {
+        int h = hash(id);
+        return segmentFor(h).contains(id, h);
+    }
+
+    @Override
+    public InternalVertex get(final long id, final Retriever<Long, InternalVertex> retriever) {
+        int h = hash(id);
+        Segment segment = segmentFor(h);
+        InternalVertex vertex = segment.get(id, h);
+        if (vertex != null) return vertex;
+        InternalVertex newVertex = retriever.get(id);
+        assert newVertex != null;
+        return segment.putIfAbsent(id, h, newVertex);
+    }
+
+    @Override
+    public void add(InternalVertex vertex, long id) {
+        Preconditions.checkNotNull(vertex);
+        Preconditions.checkArgument(id != 0);
+        int h = hash(id);
+        segmentFor(h).put(id, h, vertex);
+    }
+
+    @Override
+    public List<InternalVertex> getAllNew() {
+        List<InternalVertex> vertices = new ArrayList<InternalVertex>(10);
+        for (Segment segment : segments) segment.addAllNew(vertices);
+        return vertices;
+    }
+
+    @Override
+    public void close() {
+        for (Segment segment : segments) segment.clear();
+    }
+
+    /**
+     * Returns the number of vertices currently held by this cache, including pinned ones.
+     *
+     * @return
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) size += segment.size();
+        return size;
+    }
+
+    private static int hash(long id) {
+        //Finalization step of MurmurHash3 - vertex ids share their low order bits, so they need to be mixed
+        id ^= id >>> 33;
+        id *= 0xff51afd7ed558ccdL;
+        id ^= id >>> 33;
+        return (int) id;
+    }
+
+    private static boolean isPinned(InternalVertex vertex) {
+        return vertex.isNew() || vertex.hasAddedRelations();
+    }
+
+    private static int tableSizeFor(int capacity) {
+        //Keep the load factor at or below 1/2 to bound probe sequences
+        int length = MIN_TABLE_SIZE;
+        while (length < Integer.MAX_VALUE / 4 && length < 2 * capacity) length <<= 1;
+        return length;
+    }
+
+    /**
+     * A hash table with its own clock hand. All methods are synchronized on the segment.
+     */
+    private static final class Segment {
+
+        private final int maxSize;
+
+        private long[] keys;
+        private InternalVertex[] values;
+        private boolean[] referenced;
+        private int mask;
+        private int size;
+        private int hand;
+
+        private Segment(int maxSize, int initialDirtySize) {
+            this.maxSize = maxSize;
+            allocate(tableSizeFor(Math.max(maxSize, initialDirtySize)));
+        }
+
+        synchronized boolean contains(long id, int h) {
+            return indexOf(id, h) >= 0;
+        }
+
+        synchronized InternalVertex get(long id, int h) {
+            int pos = indexOf(id, h);
+            if (pos < 0) return null;
+            referenced[pos] = true;
+            return values[pos];
+        }
+
+        synchronized InternalVertex putIfAbsent(long id, int h, InternalVertex vertex) {
+            int pos = indexOf(id, h);
+            if (pos >= 0) {
+                //Another thread beat us to it
+                referenced[pos] = true;
+                return values[pos];
+            }
+            insert(id, h, vertex);
+            return vertex;
+        }
+
+        synchronized void put(long id, int h, InternalVertex vertex) {
+            int pos = indexOf(id, h);
+            if (pos >= 0) {
+                values[pos] = vertex;
+                referenced[pos] = true;
+            } else {
+                insert(id, h, vertex);
+            }
+        }
+
+        synchronized void addAllNew(List<InternalVertex> vertices) {
+            for (int i = 0; i < values.length; i++) {
+                InternalVertex v = values[i];
+                if (v != null && v.isNew()) vertices.add(v);
+            }
+        }
+
+        synchronized void clear() {
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(values, null);
+            Arrays.fill(referenced, false);
+            size = 0;
+            hand = 0;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        /* ---------------------------------------------------------------
+         * Hash table internals - callers must hold the lock
+         * ---------------------------------------------------------------
+         */
+
+        private int indexOf(long id, int h) {
+            if (id == EMPTY) return -1;
+            int pos = h & mask;
+            while (true) {
+                long key = keys[pos];
+                if (key == id) return pos;
+                if (key == EMPTY) return -1;
+                pos = (pos + 1) & mask;
+            }
+        }
+
+        private void insert(long id, int h, InternalVertex vertex) {
+            assert id != EMPTY && vertex != null;
+            if (size >= maxSize) evict();
+            if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+            int pos = h & mask;
+            while (keys[pos] != EMPTY) {
+                assert keys[pos] != id;
+                pos = (pos + 1) & mask;
+            }
+            keys[pos] = id;
+            values[pos] = vertex;
+            //New entries have to earn their reference bit through a subsequent hit
+            referenced[pos] = false;
+            size++;
+        }
+
+        /**
+         * Advances the clock hand until an unreferenced, unpinned vertex is found and removes it. Gives up after two
+         * full revolutions, which means that all vertices in the segment are pinned.
+         */
+        private void evict() {
+            for (int steps = 2 * keys.length; steps > 0 && size > 0; steps--) {
+                int pos = hand;
+                hand = (hand + 1) & mask;
+                if (keys[pos] == EMPTY) continue;
+                if (referenced[pos]) {
+                    referenced[pos] = false;
+                } else if (!isPinned(values[pos])) {
+                    remove(pos);
+                    //The backward shift may have moved an entry into this slot, so it needs to be inspected next
+                    hand = pos;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Removes the entry at the given position using backward shift deletion so that no tombstones are needed
+         * for linear probing.
+         */
+        private void remove(int pos) {
+            int gap = pos;
+            int cur = (pos + 1) & mask;
+            while (keys[cur] != EMPTY) {
+                int home = hash(keys[cur]) & mask;
+                //Move the entry into the gap if its home slot does not lie cyclically in (gap, cur]
+                if (((cur - home) & mask) >= ((cur - gap) & mask)) {
+                    keys[gap] = keys[cur];
+                    values[gap] = values[cur];
+                    referenced[gap] = referenced[cur];
+                    gap = cur;
+                }
+                cur = (cur + 1) & mask;
+            }
+            keys[gap] = EMPTY;
+            values[gap] = null;
+            referenced[gap] = false;
+            size--;
+        }
+
+        private void resize(int newLength) {
+            long[] oldKeys = keys;
+            InternalVertex[] oldValues = values;
+            boolean[] oldReferenced = referenced;
+            allocate(newLength);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == EMPTY) continue;
+                int pos = hash(oldKeys[i]) & mask;
+                while (keys[pos] != EMPTY) pos = (pos + 1) & mask;
+                keys[pos] = oldKeys[i];
+                values[pos] = oldValues[i];
+                referenced[pos] = oldReferenced[i];
+            }
+            hand = 0;
+            log.debug("Resized clock vertex cache segment to table size {} holding {} vertices", newLength, size);
+        }
+
+        private void allocate(int length) {
+            assert Integer.bitCount(length) == 1;
+            keys = new long[length];
+            values = new InternalVertex[length];
+            referenced = new boolean[length];
+            mask = length - 1;
+        }
+    }
+
+}
@@ -39,6 +39,11 @@ public class EmptyVertex implements InternalVertex {
         throw new UnsupportedOperationException(errorName + " do not support incident edges");
     }
 
+    @Override
+    public List<InternalRelation> getAddedRelations(long[] typeIds, Predicate<InternalRelation> query) {
+        throw new UnsupportedOperationException(errorName + " do not support incident edges");
+    }
+
     @Override
     public EntryList loadRelations(SliceQuery query, Retriever<SliceQuery, EntryList> lookup) {
         throw new UnsupportedOperationException(errorName + " do not support incident edges");
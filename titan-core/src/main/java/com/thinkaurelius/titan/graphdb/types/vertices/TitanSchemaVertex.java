@@ -6,6 +6,9 @@ import com.google.common.collect.*;
 import com.thinkaurelius.titan.core.TitanEdge;
 import com.thinkaurelius.titan.core.TitanProperty;
 import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.graphdb.database.cache.SchemaCache;
+import com.thinkaurelius.titan.graphdb.database.cache.SchemaSnapshot;
+import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
 import com.thinkaurelius.titan.graphdb.query.vertex.VertexCentricQueryBuilder;
 import com.thinkaurelius.titan.graphdb.transaction.RelationConstructor;
 import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
@@ -18,6 +21,7 @@ import com.thinkaurelius.titan.graphdb.vertices.CacheVertex;
 import com.tinkerpop.blueprints.Direction;
 
 import javax.annotation.Nullable;
+import java.util.Map;
 
 public class TitanSchemaVertex extends CacheVertex implements SchemaSource {
 
@@ -30,17 +34,13 @@ public class TitanSchemaVertex extends CacheVertex implements SchemaSource {
     @Override
     public String getName() {
         if (name == null) {
-            TitanProperty p;
             if (isLoaded()) {
-                StandardTitanTx tx = tx();
-                p = (TitanProperty) Iterables.getOnlyElement(RelationConstructor.readRelation(this,
-                                            tx.getGraph().getSchemaCache().getTypeRelations(getID(), BaseKey.TypeName, Direction.OUT, tx()),
-                                            tx), null);
+                name = getCompiledDefinition().getName();
             } else {
-                p = Iterables.getOnlyElement(query().type(BaseKey.TypeName).properties(), null);
+                TitanProperty p = Iterables.getOnlyElement(query().type(BaseKey.TypeName).properties(), null);
+                if (p!=null) name = p.getValue(String.class);
             }
-            Preconditions.checkState(p!=null,"Could not find type for id: %s",getID());
-            name = p.getValue(String.class);
+            Preconditions.checkState(name!=null,"Could not find type for id: %s",getID());
         }
         assert name != null;
         return name;
@@ -52,20 +52,10 @@ public class TitanSchemaVertex extends CacheVertex implements SchemaSource {
     public TypeDefinitionMap getDefinition() {
         TypeDefinitionMap def = definition;
         if (def == null) {
-            def = new TypeDefinitionMap();
-            Iterable<TitanProperty> ps;
             if (isLoaded()) {
-                StandardTitanTx tx = tx();
-                ps = (Iterable)RelationConstructor.readRelation(this,
-                        tx.getGraph().getSchemaCache().getTypeRelations(getID(), BaseKey.TypeDefinitionProperty, Direction.OUT, tx()),
-                        tx);
+                def = getCompiledDefinition().getDefinition();
             } else {
-                ps = query().type(BaseKey.TypeDefinitionProperty).properties();
-            }
-            for (TitanProperty property : ps) {
-                TypeDefinitionDescription desc = property.getProperty(BaseKey.TypeDefinitionDesc);
-                Preconditions.checkArgument(desc!=null && desc.getCategory().isProperty());
-                def.setValue(desc.getCategory(), property.getValue());
+                def = readDefinition(query().type(BaseKey.TypeDefinitionProperty).properties());
             }
             assert def.size()>0;
             definition = def;
@@ -84,25 +74,22 @@ public class TitanSchemaVertex extends CacheVertex implements SchemaSource {
         ListMultimap<TypeDefinitionCategory,Entry> rels = dir==Direction.OUT?outRelations:inRelations;
         if (rels==null) {
             ImmutableListMultimap.Builder<TypeDefinitionCategory,Entry> b = ImmutableListMultimap.builder();
-            Iterable<TitanEdge> edges;
             if (isLoaded()) {
+                //Resolve the related schema vertices of the compiled definition in this transaction
                 StandardTitanTx tx = tx();
-                edges = (Iterable)RelationConstructor.readRelation(this,
-                        tx.getGraph().getSchemaCache().getTypeRelations(getID(), BaseLabel.TypeDefinitionEdge, dir, tx()),
-                        tx);
+                for (Map.Entry<TypeDefinitionCategory,SchemaSnapshot.Related> related :
+                        getCompiledDefinition().getRelated(dir).entries()) {
+                    InternalVertex oth = tx.getExistingVertex(related.getValue().getSchemaId());
+                    assert oth instanceof TitanSchemaVertex;
+                    b.put(related.getKey(), new Entry((TitanSchemaVertex) oth, related.getValue().getModifier()));
+                }
             } else {
-                edges = query().type(BaseLabel.TypeDefinitionEdge).direction(dir).titanEdges();
-            }
-            for (TitanEdge edge: edges) {
-                TitanVertex oth = edge.getVertex(dir.opposite());
-                assert oth instanceof TitanSchemaVertex;
-                TypeDefinitionDescription desc = edge.getProperty(BaseKey.TypeDefinitionDesc);
-                Object modifier = null;
-                if (desc.getCategory().hasDataType()) {
-                    assert desc.getModifier()!=null && desc.getModifier().getClass().equals(desc.getCategory().getDataType());
-                    modifier = desc.getModifier();
+                for (TitanEdge edge: query().type(BaseLabel.TypeDefinitionEdge).direction(dir).titanEdges()) {
+                    TitanVertex oth = edge.getVertex(dir.opposite());
+                    assert oth instanceof TitanSchemaVertex;
+                    TypeDefinitionDescription desc = edge.getProperty(BaseKey.TypeDefinitionDesc);
+                    b.put(desc.getCategory(), new Entry((TitanSchemaVertex) oth, getModifier(desc)));
                 }
-                b.put(desc.getCategory(), new Entry((TitanSchemaVertex) oth, modifier));
             }
             rels = b.build();
             if (dir==Direction.OUT) outRelations=rels;
@@ -112,6 +99,61 @@ public class TitanSchemaVertex extends CacheVertex implements SchemaSource {
         return rels.get(def);
     }
 
+    /**
+     * Returns the compiled definition of this schema vertex from the {@link SchemaSnapshot} of the transaction.
+     * If it has not yet been compiled, the definition is read from the
+     * {@link com.thinkaurelius.titan.graphdb.database.cache.SchemaCache} and added to the snapshot so that subsequent
+     * transactions don't have to deserialize it again.
+     * Must only be invoked if this schema vertex is loaded, i.e. has not been modified in the transaction.
+     */
+    private SchemaSnapshot.Definition getCompiledDefinition() {
+        assert isLoaded();
+        StandardTitanTx tx = tx();
+        SchemaSnapshot snapshot = tx.getSchemaSnapshot();
+        SchemaSnapshot.Definition compiled = snapshot.get(getID());
+        if (compiled != null) return compiled;
+
+        SchemaCache schemaCache = tx.getGraph().getSchemaCache();
+        //Schema vertices that aren't named, like consistency modifiers, have no name property
+        TitanProperty p = (TitanProperty) Iterables.getOnlyElement(RelationConstructor.readRelation(this,
+                schemaCache.getTypeRelations(getID(), BaseKey.TypeName, Direction.OUT, tx), tx), null);
+        TypeDefinitionMap def = readDefinition((Iterable)RelationConstructor.readRelation(this,
+                schemaCache.getTypeRelations(getID(), BaseKey.TypeDefinitionProperty, Direction.OUT, tx), tx));
+        compiled = new SchemaSnapshot.Definition(p==null?null:p.getValue(String.class), def,
+                compileRelated(Direction.OUT), compileRelated(Direction.IN));
+        return snapshot.add(getID(), compiled);
+    }
+
+    private ImmutableListMultimap<TypeDefinitionCategory,SchemaSnapshot.Related> compileRelated(Direction dir) {
+        StandardTitanTx tx = tx();
+        ImmutableListMultimap.Builder<TypeDefinitionCategory,SchemaSnapshot.Related> b = ImmutableListMultimap.builder();
+        Iterable<TitanEdge> edges = (Iterable)RelationConstructor.readRelation(this,
+                tx.getGraph().getSchemaCache().getTypeRelations(getID(), BaseLabel.TypeDefinitionEdge, dir, tx), tx);
+        for (TitanEdge edge: edges) {
+            TitanVertex oth = edge.getVertex(dir.opposite());
+            assert oth instanceof TitanSchemaVertex;
+            TypeDefinitionDescription desc = edge.getProperty(BaseKey.TypeDefinitionDesc);
+            b.put(desc.getCategory(), new SchemaSnapshot.Related(oth.getID(), getModifier(desc)));
+        }
+        return b.build();
+    }
+
+    private static TypeDefinitionMap readDefinition(Iterable<TitanProperty> properties) {
+        TypeDefinitionMap def = new TypeDefinitionMap();
+        for (TitanProperty property : properties) {
+            TypeDefinitionDescription desc = property.getProperty(BaseKey.TypeDefinitionDesc);
+            Preconditions.checkArgument(desc!=null && desc.getCategory().isProperty());
+            def.setValue(desc.getCategory(), property.getValue());
+        }
+        return def;
+    }
+
+    private static Object getModifier(TypeDefinitionDescription desc) {
+        if (!desc.getCategory().hasDataType()) return null;
+        assert desc.getModifier()!=null && desc.getModifier().getClass().equals(desc.getCategory().getDataType());
+        return desc.getModifier();
+    }
+
     /**
      * Resets the internal caches used to speed up lookups on this index type.
      * This is needed when the type gets modified in the {@link com.thinkaurelius.titan.graphdb.database.management.ManagementSystem}.
@@ -9,8 +9,8 @@ import com.thinkaurelius.titan.graphdb.internal.ElementLifeCycle;
 import com.thinkaurelius.titan.graphdb.internal.InternalRelation;
 import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
 import com.thinkaurelius.titan.graphdb.transaction.addedrelations.AddedRelationsContainer;
-import com.thinkaurelius.titan.graphdb.transaction.addedrelations.ConcurrentAddedRelations;
-import com.thinkaurelius.titan.graphdb.transaction.addedrelations.SimpleAddedRelations;
+import com.thinkaurelius.titan.graphdb.transaction.addedrelations.ConcurrentTypeIndexedAddedRelations;
+import com.thinkaurelius.titan.graphdb.transaction.addedrelations.TypeIndexedAddedRelations;
 import com.thinkaurelius.titan.util.datastructures.Retriever;
 
 import java.util.Collection;
@@ -47,11 +47,11 @@ public class StandardVertex extends AbstractVertex {
         Preconditions.checkArgument(r.isNew());
         if (addedRelations==AddedRelationsContainer.EMPTY) {
             if (tx().getConfiguration().isSingleThreaded()) {
-                addedRelations=new SimpleAddedRelations();
+                addedRelations=new TypeIndexedAddedRelations();
             } else {
                 synchronized (this) {
                     if (addedRelations==AddedRelationsContainer.EMPTY)
-                        addedRelations=new ConcurrentAddedRelations();
+                        addedRelations=new ConcurrentTypeIndexedAddedRelations();
                 }
             }
         }
@@ -66,6 +66,11 @@ public class StandardVertex extends AbstractVertex {
         return addedRelations.getView(query);
     }
 
+    @Override
+    public List<InternalRelation> getAddedRelations(long[] typeIds, Predicate<InternalRelation> query) {
+        return addedRelations.getView(typeIds, query);
+    }
+
     @Override
     public EntryList loadRelations(SliceQuery query, Retriever<SliceQuery, EntryList> lookup) {
         return (isNew()) ? EntryList.EMPTY_LIST : lookup.get(query);
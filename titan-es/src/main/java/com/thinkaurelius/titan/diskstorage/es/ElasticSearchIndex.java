@@ -2,12 +2,19 @@ package com.thinkaurelius.titan.diskstorage.es;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Sets;
 import com.thinkaurelius.titan.core.Mapping;
 import com.thinkaurelius.titan.core.Order;
+import com.thinkaurelius.titan.core.Parameter;
 import com.thinkaurelius.titan.core.TitanException;
 import com.thinkaurelius.titan.core.attribute.*;
+import com.thinkaurelius.titan.core.time.Duration;
+import com.thinkaurelius.titan.core.time.SimpleDuration;
 import com.thinkaurelius.titan.diskstorage.PermanentStorageException;
 import com.thinkaurelius.titan.diskstorage.StorageException;
 import com.thinkaurelius.titan.diskstorage.TemporaryStorageException;
@@ -32,23 +39,31 @@ import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRespon
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.update.UpdateRequestBuilder;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.hppc.cursors.ObjectCursor;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.unit.DistanceUnit;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.index.query.*;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
 import org.elasticsearch.indices.IndexMissingException;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.node.NodeBuilder;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortOrder;
@@ -58,10 +73,9 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Matthias Broecheler (me@matthiasb.com)
@@ -75,8 +89,20 @@ public class ElasticSearchIndex implements IndexProvider {
     private static final String[] DATA_SUBDIRS = {"data", "work", "logs"};
 
     public static final ConfigOption<Integer> MAX_RESULT_SET_SIZE = new ConfigOption<Integer>(INDEX_NS,"max-result-set-size",
-            "Maxium number of results to return if no limit is specified",
+            "Maximum number of results fetched from the index in a single request. Larger result sets are retrieved " +
+            "in pages of this size through the scroll API",
             ConfigOption.Type.MASKABLE, 100000);
+    public static final ConfigOption<Duration> SCROLL_KEEP_ALIVE = new ConfigOption<Duration>(INDEX_NS,"scroll-keep-alive",
+            "Time (in ms) the indexing backend keeps the context of a paged query alive between two consecutive pages",
+            ConfigOption.Type.MASKABLE, new SimpleDuration(60000L, TimeUnit.MILLISECONDS));
+    public static final ConfigOption<Boolean> INDEX_PER_STORE = new ConfigOption<Boolean>(INDEX_NS,"index-per-store",
+            "Whether each store is kept in its own physical index named after the index name and the store " +
+            "instead of all stores sharing one index",
+            ConfigOption.Type.GLOBAL_OFFLINE, false);
+    public static final ConfigOption<String> ROUTING_KEY = new ConfigOption<String>(INDEX_NS,"routing-key",
+            "Name of the field whose value routes a document to a shard so that queries restricted to one value of that " +
+            "field only touch a single shard. Use the mapped-name parameter to give the field a stable name",
+            ConfigOption.Type.GLOBAL_OFFLINE, String.class);
     public static final ConfigOption<Boolean> CLIENT_ONLY = new ConfigOption<Boolean>(INDEX_NS,"client-only",
             "Whether Titan connects to the indexing backend as a client",
             ConfigOption.Type.GLOBAL_OFFLINE, true);
@@ -109,6 +135,15 @@ public class ElasticSearchIndex implements IndexProvider {
     //    public static final String HOST_NAMES_KEY = "hosts";
     public static final int HOST_PORT_DEFAULT = 9300;
 
+    /**
+     * Name of the parameter of a raw query that restricts it to the shard of the given routing value
+     */
+    public static final String ROUTING_PARAMETER = "routing";
+
+    private static final String ROUTING_FIELD = "_routing";
+    private static final String NO_ROUTING = "";
+    private static final int ROUTING_CACHE_SIZE = 100000;
+
 //    public static final String ES_YML_KEY = "config-file";
 
 
@@ -116,6 +151,11 @@ public class ElasticSearchIndex implements IndexProvider {
     private final Client client;
     private final String indexName;
     private final int maxResultsSize;
+    private final TimeValue scrollKeepAlive;
+    private final boolean indexPerStore;
+    private final String routingKey;
+    private final Set<String> existingIndices = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Cache<String, String> routings = CacheBuilder.newBuilder().maximumSize(ROUTING_CACHE_SIZE).build();
 
     public ElasticSearchIndex(Configuration config) {
         indexName = config.get(INDEX_NAME);
@@ -186,22 +226,72 @@ public class ElasticSearchIndex implements IndexProvider {
         }
 
         maxResultsSize = config.get(MAX_RESULT_SET_SIZE);
-        log.debug("Configured ES query result set max size to {}", maxResultsSize);
+        scrollKeepAlive = TimeValue.timeValueMillis(config.get(SCROLL_KEEP_ALIVE).getLength(TimeUnit.MILLISECONDS));
+        log.debug("Configured ES query result set page size to {}", maxResultsSize);
+        indexPerStore = config.get(INDEX_PER_STORE);
+        routingKey = config.has(ROUTING_KEY) ? config.get(ROUTING_KEY) : null;
+        log.debug("Configured ES with index per store [{}] and routing key [{}]", indexPerStore, routingKey);
 
         client.admin().cluster().prepareHealth()
                 .setWaitForYellowStatus().execute().actionGet();
 
-        //Create index if it does not already exist
-        IndicesExistsResponse response = client.admin().indices().exists(new IndicesExistsRequest(indexName)).actionGet();
+        if (!indexPerStore) createIndex(indexName);
+    }
+
+    /**
+     * Creates the index with the given name if it does not already exist
+     *
+     * @param name
+     */
+    private void createIndex(String name) {
+        if (existingIndices.contains(name)) return;
+        IndicesExistsResponse response = client.admin().indices().exists(new IndicesExistsRequest(name)).actionGet();
         if (!response.isExists()) {
-            CreateIndexResponse create = client.admin().indices().prepareCreate(indexName).execute().actionGet();
             try {
-                Thread.sleep(200);
-            } catch (InterruptedException e) {
-                throw new TitanException("Interrupted while waiting for index to settle in", e);
+                CreateIndexResponse create = client.admin().indices().prepareCreate(name).execute().actionGet();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new TitanException("Interrupted while waiting for index to settle in", e);
+                }
+                if (!create.isAcknowledged()) throw new IllegalArgumentException("Could not create index: " + name);
+            } catch (IndexAlreadyExistsException e) {
+                //Created concurrently by another instance... Fine
             }
-            if (!create.isAcknowledged()) throw new IllegalArgumentException("Could not create index: " + indexName);
         }
+        existingIndices.add(name);
+    }
+
+    /**
+     * Returns the name of the physical index which holds the documents of the given store and creates that index
+     * if it does not exist yet. Must only be used when writing to the store.
+     *
+     * @param store
+     * @return
+     */
+    private String getIndex(String store) {
+        String name = getIndexName(store);
+        createIndex(name);
+        return name;
+    }
+
+    private String getIndexName(String store) {
+        if (!indexPerStore) return indexName;
+        return indexName + "_" + store.toLowerCase();
+    }
+
+    /**
+     * Whether the index with the given name exists. Unlike {@link #getIndex(String)}, this does not create the index
+     * so that queries against stores which have not been written to do not create empty indices.
+     *
+     * @param name
+     * @return
+     */
+    private boolean indexExists(String name) {
+        if (existingIndices.contains(name)) return true;
+        boolean exists = client.admin().indices().exists(new IndicesExistsRequest(name)).actionGet().isExists();
+        if (exists) existingIndices.add(name);
+        return exists;
     }
 
     private StorageException convert(Exception esException) {
@@ -265,7 +355,7 @@ public class ElasticSearchIndex implements IndexProvider {
         }
 
         try {
-            PutMappingResponse response = client.admin().indices().preparePutMapping(indexName).
+            PutMappingResponse response = client.admin().indices().preparePutMapping(getIndex(store)).
                     setIgnoreConflicts(false).setType(store).setSource(mapping).execute().actionGet();
         } catch (Exception e) {
             throw convert(e);
@@ -321,42 +411,41 @@ public class ElasticSearchIndex implements IndexProvider {
     @Override
     public void mutate(Map<String, Map<String, IndexMutation>> mutations, KeyInformation.IndexRetriever informations, TransactionHandle tx) throws StorageException {
         BulkRequestBuilder brb = client.prepareBulk();
-        int bulkrequests = 0;
+        //Routing values of the mutated documents by routing cache key, null for deleted documents
+        Map<String, String> updatedRoutings = new HashMap<String, String>();
         try {
             for (Map.Entry<String, Map<String, IndexMutation>> stores : mutations.entrySet()) {
                 String storename = stores.getKey();
+                String index = getIndex(storename);
+                Map<String, String> docRoutings = getRoutings(index, storename, stores.getValue());
                 for (Map.Entry<String, IndexMutation> entry : stores.getValue().entrySet()) {
                     String docid = entry.getKey();
                     IndexMutation mutation = entry.getValue();
                     Preconditions.checkArgument(!(mutation.isNew() && mutation.isDeleted()));
                     Preconditions.checkArgument(!mutation.isNew() || !mutation.hasDeletions());
                     Preconditions.checkArgument(!mutation.isDeleted() || !mutation.hasAdditions());
+                    String routing = mutation.isNew() ? getRouting(mutation.getAdditions()) : docRoutings.get(docid);
+                    if (!mutation.isNew() && !mutation.isDeleted() && isRoutingChanged(routing, mutation)) {
+                        moveDocument(brb, index, storename, docid, routing, mutation);
+                        updatedRoutings.put(getRoutingCacheKey(storename, docid), getRouting(mutation.getAdditions()));
+                        continue;
+                    }
+                    if (routingKey != null) updatedRoutings.put(getRoutingCacheKey(storename, docid),
+                            mutation.isDeleted() ? null : (routing == null ? NO_ROUTING : routing));
                     //Deletions first
                     if (mutation.hasDeletions()) {
                         if (mutation.isDeleted()) {
                             log.trace("Deleting entire document {}", docid);
-                            brb.add(new DeleteRequest(indexName, storename, docid));
-                            bulkrequests++;
+                            brb.add(new DeleteRequest(index, storename, docid).routing(routing));
                         } else {
-                            Set<String> deletions = Sets.newHashSet(Iterables.transform(mutation.getDeletions(),new Function<IndexEntry, String>() {
-                                @Nullable
-                                @Override
-                                public String apply(@Nullable IndexEntry indexEntry) {
-                                    return indexEntry.field;
-                                }
-                            }));
-                            if (mutation.hasAdditions()) {
-                                for (IndexEntry ie : mutation.getAdditions()) {
-                                    deletions.remove(ie.field);
-                                }
-                            }
+                            Set<String> deletions = getDeletedFields(mutation);
                             if (!deletions.isEmpty()) {
                                 StringBuilder script = new StringBuilder();
                                 for (String key : deletions) {
                                     script.append("ctx._source.remove(\"" + key + "\"); ");
                                 }
                                 log.trace("Deleting individual fields [{}] for document {}", deletions, docid);
-                                brb.add(client.prepareUpdate(indexName, storename, docid).setScript(script.toString()));
+                                brb.add(client.prepareUpdate(index, storename, docid).setRouting(routing).setScript(script.toString()));
                             }
                         }
                     }
@@ -364,12 +453,11 @@ public class ElasticSearchIndex implements IndexProvider {
                     if (mutation.hasAdditions()) {
                         if (mutation.isNew()) { //Index
                             log.trace("Adding entire document {}", docid);
-                            brb.add(new IndexRequest(indexName, storename, docid).source(getContent(mutation.getAdditions())));
-                            bulkrequests++;
+                            brb.add(new IndexRequest(index, storename, docid).routing(routing).source(getContent(mutation.getAdditions())));
                         } else {
                             boolean needUpsert = !mutation.hasDeletions();
                             XContentBuilder builder = getContent(mutation.getAdditions());
-                            UpdateRequestBuilder update = client.prepareUpdate(indexName, storename, docid).setDoc(builder);
+                            UpdateRequestBuilder update = client.prepareUpdate(index, storename, docid).setRouting(routing).setDoc(builder);
                             if (needUpsert) update.setUpsert(builder);
                             log.trace("Updating document {} with upsert {}", docid, needUpsert);
                             brb.add(update);
@@ -378,12 +466,128 @@ public class ElasticSearchIndex implements IndexProvider {
 
                 }
             }
-            if (bulkrequests > 0) brb.execute().actionGet();
+            if (brb.numberOfActions() > 0) brb.execute().actionGet();
+            for (Map.Entry<String, String> routing : updatedRoutings.entrySet()) {
+                if (routing.getValue() == null) routings.invalidate(routing.getKey());
+                else routings.put(routing.getKey(), routing.getValue());
+            }
         } catch (Exception e) {
             throw convert(e);
         }
     }
 
+    private static Set<String> getDeletedFields(IndexMutation mutation) {
+        Set<String> deletions = Sets.newHashSet(Iterables.transform(mutation.getDeletions(),new Function<IndexEntry, String>() {
+            @Nullable
+            @Override
+            public String apply(@Nullable IndexEntry indexEntry) {
+                return indexEntry.field;
+            }
+        }));
+        if (mutation.hasAdditions()) {
+            for (IndexEntry ie : mutation.getAdditions()) {
+                deletions.remove(ie.field);
+            }
+        }
+        return deletions;
+    }
+
+    /**
+     * Returns the routing value contained in the given entries or null if they do not contain the routing key
+     *
+     * @param entries
+     * @return
+     */
+    private String getRouting(List<IndexEntry> entries) {
+        if (routingKey == null) return null;
+        for (IndexEntry entry : entries) {
+            if (entry.field.equals(routingKey)) return entry.value.toString();
+        }
+        return null;
+    }
+
+    private boolean isRoutingChanged(String routing, IndexMutation mutation) {
+        if (routingKey == null) return false;
+        String newRouting = mutation.hasAdditions() ? getRouting(mutation.getAdditions()) : null;
+        if (newRouting == null) {
+            //Removing the routing value does not move the document
+            return false;
+        }
+        return routing != null && !routing.equals(newRouting);
+    }
+
+    /**
+     * Retrieves the routing values of the existing documents which are updated or deleted by the given mutations.
+     * Since a document can only be modified on the shard it was routed to, its routing value has to be known
+     * even if the mutation does not change the routing key. The routing value is taken from the deleted value of the
+     * routing key if the mutation carries it, otherwise from the routing values of the documents this instance has
+     * written. Any remaining documents are looked up with a single search, hence updates to documents written by
+     * other instances which are not yet visible to searches must carry the routing key.
+     *
+     * @param index
+     * @param store
+     * @param mutations
+     * @return
+     */
+    private Map<String, String> getRoutings(String index, String store, Map<String, IndexMutation> mutations) {
+        if (routingKey == null) return Collections.emptyMap();
+        Map<String, String> docRoutings = new HashMap<String, String>();
+        Set<String> unknown = new HashSet<String>();
+        for (Map.Entry<String, IndexMutation> entry : mutations.entrySet()) {
+            String docid = entry.getKey();
+            IndexMutation mutation = entry.getValue();
+            if (mutation.isNew()) continue;
+            String routing = mutation.hasDeletions() ? getRouting(mutation.getDeletions()) : null;
+            if (routing == null) routing = routings.getIfPresent(getRoutingCacheKey(store, docid));
+            if (routing == null) unknown.add(docid);
+            else docRoutings.put(docid, routing.equals(NO_ROUTING) ? null : routing);
+        }
+        if (unknown.isEmpty()) return docRoutings;
+        findRoutings(index, store, unknown, docRoutings);
+        //Documents which do not exist yet are upserted with the routing value of the mutation
+        for (String docid : unknown) {
+            IndexMutation mutation = mutations.get(docid);
+            if (mutation.hasAdditions()) docRoutings.put(docid, getRouting(mutation.getAdditions()));
+        }
+        return docRoutings;
+    }
+
+    /**
+     * Looks up the routing values of the given documents with a single search across all shards of the index and
+     * removes the documents that are found from the given set.
+     */
+    private void findRoutings(String index, String store, Set<String> docids, Map<String, String> docRoutings) {
+        log.debug("Looking up routing of {} documents in store {}", docids.size(), store);
+        SearchResponse response = client.prepareSearch(index).setTypes(store)
+                .setQuery(QueryBuilders.idsQuery(store).addIds(docids.toArray(new String[docids.size()])))
+                .addField(ROUTING_FIELD).setSize(docids.size()).execute().actionGet();
+        for (SearchHit hit : response.getHits()) {
+            SearchHitField routing = hit.field(ROUTING_FIELD);
+            docRoutings.put(hit.id(), routing == null ? null : routing.getValue().toString());
+            docids.remove(hit.id());
+        }
+    }
+
+    private static String getRoutingCacheKey(String store, String docid) {
+        return store + "/" + docid;
+    }
+
+    /**
+     * Moves a document whose routing value is changed by the mutation to the shard of the new routing value
+     */
+    private void moveDocument(BulkRequestBuilder brb, String index, String store, String docid, String routing,
+                              IndexMutation mutation) throws StorageException {
+        GetResponse existing = client.prepareGet(index, store, docid).setRouting(routing).execute().actionGet();
+        Map<String, Object> source = existing.isExists() && existing.getSourceAsMap() != null ?
+                new HashMap<String, Object>(existing.getSourceAsMap()) : new HashMap<String, Object>();
+        if (mutation.hasDeletions()) source.keySet().removeAll(getDeletedFields(mutation));
+        source.putAll(XContentHelper.convertToMap(getContent(mutation.getAdditions()).bytes(), false).v2());
+        String newRouting = getRouting(mutation.getAdditions());
+        log.trace("Moving document {} from routing [{}] to [{}]", docid, routing, newRouting);
+        brb.add(new DeleteRequest(index, store, docid).routing(routing));
+        brb.add(new IndexRequest(index, store, docid).routing(newRouting).source(source));
+    }
+
     public FilterBuilder getFilter(Condition<?> condition, KeyInformation.StoreRetriever informations) {
         if (condition instanceof PredicateCondition) {
             PredicateCondition<String, ?> atom = (PredicateCondition) condition;
@@ -469,8 +673,12 @@ public class ElasticSearchIndex implements IndexProvider {
 
     @Override
     public List<String> query(IndexQuery query, KeyInformation.IndexRetriever informations, TransactionHandle tx) throws StorageException {
-        SearchRequestBuilder srb = client.prepareSearch(indexName);
+        String index = getIndexName(query.getStore());
+        if (!indexExists(index)) return new ArrayList<String>();
+        SearchRequestBuilder srb = client.prepareSearch(index);
         srb.setTypes(query.getStore());
+        String routing = getRouting(query.getCondition());
+        if (routing != null) srb.setRouting(routing);
         srb.setQuery(QueryBuilders.matchAllQuery());
         srb.setPostFilter(getFilter(query.getCondition(),informations.get(query.getStore())));
         if (!query.getOrder().isEmpty()) {
@@ -481,46 +689,164 @@ public class ElasticSearchIndex implements IndexProvider {
                         .ignoreUnmapped(true));
             }
         }
-        srb.setFrom(0);
-        if (query.hasLimit()) srb.setSize(query.getLimit());
-        else srb.setSize(maxResultsSize);
         srb.setNoFields();
         //srb.setExplain(true);
 
-        SearchResponse response = srb.execute().actionGet();
-        log.debug("Executed query [{}] in {} ms", query.getCondition(), response.getTookInMillis());
-        SearchHits hits = response.getHits();
-        if (!query.hasLimit() && hits.totalHits() >= maxResultsSize)
-            log.warn("Query result set truncated to first [{}] elements for query: {}", maxResultsSize, query);
-        List<String> result = new ArrayList<String>(hits.hits().length);
-        for (SearchHit hit : hits) {
-            result.add(hit.id());
-        }
+        List<String> result = new ArrayList<String>();
+        //The result has to be materialized since it is intersected with the results of other sub-queries
+        Iterator<SearchHit> hits = execute(srb, 0, query.hasLimit() ? query.getLimit() : -1,
+                query.getOrder().isEmpty(), query.getCondition());
+        while (hits.hasNext()) result.add(hits.next().id());
         return result;
     }
 
     @Override
     public Iterable<RawQuery.Result<String>> query(RawQuery query, KeyInformation.IndexRetriever informations, TransactionHandle tx) throws StorageException {
-        SearchRequestBuilder srb = client.prepareSearch(indexName);
+        String index = getIndexName(query.getStore());
+        if (!indexExists(index)) return Collections.emptyList();
+        final SearchRequestBuilder srb = client.prepareSearch(index);
         srb.setTypes(query.getStore());
+        for (Parameter parameter : query.getParameters()) {
+            if (parameter.getKey().equals(ROUTING_PARAMETER)) srb.setRouting(parameter.getValue().toString());
+        }
         srb.setQuery(QueryBuilders.queryString(query.getQuery()));
-
-        srb.setFrom(query.getOffset());
-        if (query.hasLimit()) srb.setSize(query.getLimit());
-        else srb.setSize(maxResultsSize);
         srb.setNoFields();
         //srb.setExplain(true);
 
+        final int offset = query.getOffset(), limit = query.hasLimit() ? query.getLimit() : -1;
+        final String queryString = query.getQuery();
+        //The first page is fetched right away so that failures surface here, iterating again re-executes the query
+        final Iterator<SearchHit> firstHits = execute(srb, offset, limit, false, queryString);
+        return new Iterable<RawQuery.Result<String>>() {
+
+            private boolean firstIteration = true;
+
+            @Override
+            public Iterator<RawQuery.Result<String>> iterator() {
+                Iterator<SearchHit> hits;
+                if (firstIteration) {
+                    hits = firstHits;
+                    firstIteration = false;
+                } else {
+                    hits = execute(srb, offset, limit, false, queryString);
+                }
+                return Iterators.transform(hits, new Function<SearchHit, RawQuery.Result<String>>() {
+                    @Override
+                    public RawQuery.Result<String> apply(SearchHit hit) {
+                        return new RawQuery.Result<String>(hit.id(), hit.getScore());
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Returns the routing value if the condition restricts the routing key to a single value, otherwise null
+     *
+     * @param condition
+     * @return
+     */
+    private String getRouting(Condition<?> condition) {
+        if (routingKey == null) return null;
+        if (condition instanceof PredicateCondition) {
+            PredicateCondition<String, ?> atom = (PredicateCondition) condition;
+            if (atom.getKey().equals(routingKey) && atom.getPredicate() == Cmp.EQUAL && atom.getValue() != null)
+                return atom.getValue().toString();
+        } else if (condition instanceof And) {
+            for (Condition<?> child : condition.getChildren()) {
+                String routing = getRouting(child);
+                if (routing != null) return routing;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Executes the search request and returns an iterator over the hits after the given offset. If the number of
+     * requested hits fits into a single page, the request is executed as is. Otherwise, the hits are fetched lazily
+     * in pages of {@link #MAX_RESULT_SET_SIZE} through the scroll API so that arbitrarily large result sets can be
+     * consumed with bounded memory.
+     *
+     * @param srb
+     * @param offset
+     * @param limit maximum number of hits to return or -1 if unlimited
+     * @param scan whether the hits can be returned in any order and without scores
+     * @param query used for logging
+     * @return
+     */
+    private Iterator<SearchHit> execute(SearchRequestBuilder srb, int offset, int limit, boolean scan, Object query) {
+        if (limit >= 0 && offset + limit <= maxResultsSize) {
+            srb.setFrom(offset);
+            srb.setSize(limit);
+            SearchResponse response = srb.execute().actionGet();
+            log.debug("Executed query [{}] in {} ms", query, response.getTookInMillis());
+            return response.getHits().iterator();
+        }
+        //When scanning, the page size applies to each shard
+        srb.setSize(maxResultsSize);
+        srb.setScroll(scrollKeepAlive);
+        if (scan) srb.setSearchType(SearchType.SCAN);
         SearchResponse response = srb.execute().actionGet();
-        log.debug("Executed query [{}] in {} ms", query.getQuery(), response.getTookInMillis());
-        SearchHits hits = response.getHits();
-        if (!query.hasLimit() && hits.totalHits() >= maxResultsSize)
-            log.warn("Query result set truncated to first [{}] elements for query: {}", maxResultsSize, query);
-        List<RawQuery.Result<String>> result = new ArrayList<RawQuery.Result<String>>(hits.hits().length);
-        for (SearchHit hit : hits) {
-            result.add(new RawQuery.Result<String>(hit.id(),hit.getScore()));
+        log.debug("Executed paged query [{}] in {} ms", query, response.getTookInMillis());
+        Iterator<SearchHit> hits = new ScrollIterator(response);
+        if (offset > 0) Iterators.advance(hits, offset);
+        if (limit >= 0) hits = Iterators.limit(hits, limit);
+        return hits;
+    }
+
+    /**
+     * Iterates over the hits of a scrolled search, fetching the next page when the current one is exhausted.
+     * The scroll context is cleared once all hits have been returned. If the iterator is abandoned early,
+     * the context expires after {@link #SCROLL_KEEP_ALIVE}.
+     */
+    private class ScrollIterator extends AbstractIterator<SearchHit> {
+
+        private String scrollId;
+        private final long totalHits;
+        private long returnedHits = 0;
+        private Iterator<SearchHit> page;
+
+        private ScrollIterator(SearchResponse response) {
+            this.scrollId = response.getScrollId();
+            this.totalHits = response.getHits().getTotalHits();
+            this.page = response.getHits().iterator();
         }
-        return result;
+
+        @Override
+        protected SearchHit computeNext() {
+            while (!page.hasNext()) {
+                if (scrollId == null) return endOfData();
+                if (returnedHits >= totalHits) {
+                    clearScroll();
+                    return endOfData();
+                }
+                SearchResponse response;
+                try {
+                    response = client.prepareSearchScroll(scrollId).setScroll(scrollKeepAlive).execute().actionGet();
+                } catch (RuntimeException e) {
+                    throw new TitanException("Could not retrieve the next page of a paged index query", e);
+                }
+                scrollId = response.getScrollId();
+                SearchHits hits = response.getHits();
+                if (hits.getHits().length == 0) {
+                    clearScroll();
+                    return endOfData();
+                }
+                page = hits.iterator();
+            }
+            returnedHits++;
+            return page.next();
+        }
+
+        private void clearScroll() {
+            try {
+                client.prepareClearScroll().addScrollId(scrollId).execute().actionGet();
+            } catch (RuntimeException e) {
+                log.warn("Could not clear scroll context, it will expire after the keep alive time", e);
+            }
+            scrollId = null;
+        }
+
     }
 
     @Override
@@ -574,11 +900,22 @@ public class ElasticSearchIndex implements IndexProvider {
     @Override
     public void clearStorage() throws StorageException {
         try {
+            List<String> indices = new ArrayList<String>();
+            if (indexPerStore) {
+                //Only delete the indices of the stores of this index, not those of other indices sharing the prefix
+                for (IndexMetaData metaData : client.admin().cluster().prepareState().execute().actionGet().getState().getMetaData()) {
+                    if (existingIndices.contains(metaData.getIndex()) || isStoreIndex(metaData)) indices.add(metaData.getIndex());
+                }
+            } else indices.add(indexName);
+            existingIndices.clear();
+            routings.invalidateAll();
             try {
-                client.admin().indices()
-                        .delete(new DeleteIndexRequest(indexName)).actionGet();
-                // We wait for one second to let ES delete the river
-                Thread.sleep(1000);
+                if (!indices.isEmpty()) {
+                    client.admin().indices()
+                            .delete(new DeleteIndexRequest(indices.toArray(new String[indices.size()]))).actionGet();
+                    // We wait for one second to let ES delete the river
+                    Thread.sleep(1000);
+                }
             } catch (IndexMissingException e) {
                 // Index does not exist... Fine
             }
@@ -589,6 +926,20 @@ public class ElasticSearchIndex implements IndexProvider {
         }
     }
 
+    /**
+     * Whether the given index holds the documents of one of the stores of this index, i.e. its name is exactly
+     * the name of a per-store index of this index for one of the stores mapped in it
+     *
+     * @param metaData
+     * @return
+     */
+    private boolean isStoreIndex(IndexMetaData metaData) {
+        for (ObjectCursor<String> store : metaData.getMappings().keys()) {
+            if (getIndexName(store.value).equals(metaData.getIndex())) return true;
+        }
+        return false;
+    }
+
     private void checkExpectedClientVersion() {
         if (!Version.CURRENT.equals(ElasticSearchConstants.ES_VERSION_EXPECTED)) {
             log.warn("ES client version {} does not match the version with which Titan was compiled {}.  This might cause problems.",
@@ -1,18 +1,27 @@
 package com.thinkaurelius.titan.diskstorage.es;
 
 import com.thinkaurelius.titan.StorageSetup;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.thinkaurelius.titan.core.Order;
 import com.thinkaurelius.titan.core.Parameter;
 import com.thinkaurelius.titan.core.attribute.*;
+import com.thinkaurelius.titan.core.time.SimpleDuration;
 import com.thinkaurelius.titan.diskstorage.StorageException;
 import com.thinkaurelius.titan.diskstorage.configuration.Configuration;
 import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
-import com.thinkaurelius.titan.diskstorage.indexing.IndexProvider;
-import com.thinkaurelius.titan.diskstorage.indexing.IndexProviderTest;
+import com.thinkaurelius.titan.diskstorage.indexing.*;
 import com.thinkaurelius.titan.core.Mapping;
 import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import com.thinkaurelius.titan.graphdb.query.condition.And;
+import com.thinkaurelius.titan.graphdb.query.condition.PredicateCondition;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import static com.thinkaurelius.titan.diskstorage.es.ElasticSearchIndex.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -115,4 +124,144 @@ public class ElasticSearchIndexTest extends IndexProviderTest {
         }
         assertNotNull(expectedException);
     }
+
+    @Test
+    public void testPagedQueries() throws StorageException {
+        int numDocs = 50;
+        String store = "vertex";
+        close();
+        openPaged(7);
+        index.register(store, TIME, allKeys.get(TIME), tx);
+        index.register(store, TEXT, allKeys.get(TEXT), tx);
+        for (int i = 0; i < numDocs; i++) {
+            tx.add(store, "doc" + i, TIME, (long) i, true);
+            tx.add(store, "doc" + i, TEXT, "Hello world", true);
+        }
+        close();
+        openPaged(7);
+
+        //Unlimited queries retrieve all results in pages
+        PredicateCondition time = PredicateCondition.of(TIME, Cmp.GREATER_THAN_EQUAL, 0L);
+        assertEquals(numDocs, tx.query(new IndexQuery(store, time)).size());
+        List<String> result = tx.query(new IndexQuery(store, time,
+                ImmutableList.of(new IndexQuery.OrderEntry(TIME, Order.DESC, Long.class))));
+        assertEquals(numDocs, result.size());
+        assertEquals("doc" + (numDocs - 1), result.get(0));
+        assertEquals("doc0", result.get(numDocs - 1));
+        //Limits within and beyond a single page
+        assertEquals(5, tx.query(new IndexQuery(store, time, 5)).size());
+        assertEquals(20, tx.query(new IndexQuery(store, time, 20)).size());
+
+        Iterable<RawQuery.Result<String>> raw = tx.query(new RawQuery(store, "text:world", new Parameter[0]));
+        assertEquals(numDocs, Iterables.size(raw));
+        //The result can be iterated again
+        assertEquals(numDocs, Iterables.size(raw));
+        assertEquals(numDocs - 10, Iterables.size(tx.query(new RawQuery(store, "text:world", new Parameter[0]).setOffset(10))));
+        assertEquals(15, Iterables.size(tx.query(new RawQuery(store, "text:world", new Parameter[0]).setOffset(10).setLimit(15))));
+        assertEquals(3, Iterables.size(tx.query(new RawQuery(store, "text:world", new Parameter[0]).setOffset(2).setLimit(3))));
+    }
+
+    @Test
+    public void testRoutingAndIndexPerStore() throws StorageException {
+        String vertex = "vertex", edge = "edge";
+        close();
+        openRouted();
+        index.clearStorage();
+        openRouted();
+        index.register(vertex, TIME, allKeys.get(TIME), tx);
+        index.register(vertex, NAME, allKeys.get(NAME), tx);
+        index.register(edge, TIME, allKeys.get(TIME), tx);
+        for (int i = 0; i < 20; i++) {
+            tx.add(vertex, "v" + i, NAME, i % 2 == 0 ? "a" : "b", true);
+            tx.add(vertex, "v" + i, TIME, (long) i, true);
+        }
+        for (int i = 0; i < 5; i++) tx.add(edge, "e" + i, TIME, (long) i, true);
+        close();
+        openRouted();
+
+        PredicateCondition all = PredicateCondition.of(TIME, Cmp.GREATER_THAN_EQUAL, 0L);
+        assertEquals(20, tx.query(new IndexQuery(vertex, all)).size());
+        assertEquals(10, tx.query(new IndexQuery(vertex, And.of(PredicateCondition.of(NAME, Cmp.EQUAL, "a"), all))).size());
+        assertEquals(5, tx.query(new IndexQuery(edge, all)).size());
+        //Querying a store that has not been written to does not create its index
+        assertEquals(0, tx.query(new IndexQuery("property", all)).size());
+        assertEquals(0, Iterables.size(tx.query(new RawQuery("property", "time:0", new Parameter[0]))));
+        assertEquals(10, Iterables.size(tx.query(new RawQuery(vertex, "name:a",
+                new Parameter[]{new Parameter(ROUTING_PARAMETER, "a")}))));
+
+        //Updates and deletions are routed to the shard of the existing document
+        tx.add(vertex, "v0", TIME, 100L, false);
+        tx.delete(vertex, "v2", TIME, 2L, true);
+        //Changing the routing value moves the document
+        tx.delete(vertex, "v4", NAME, "a", false);
+        tx.add(vertex, "v4", NAME, "b", false);
+        close();
+        openRouted();
+
+        assertEquals(19, tx.query(new IndexQuery(vertex, all)).size());
+        assertEquals(8, tx.query(new IndexQuery(vertex, And.of(PredicateCondition.of(NAME, Cmp.EQUAL, "a"), all))).size());
+        assertEquals(11, tx.query(new IndexQuery(vertex, And.of(PredicateCondition.of(NAME, Cmp.EQUAL, "b"), all))).size());
+        assertEquals(ImmutableList.of("v0"), tx.query(new IndexQuery(vertex, And.of(PredicateCondition.of(NAME, Cmp.EQUAL, "a"),
+                PredicateCondition.of(TIME, Cmp.EQUAL, 100L)))));
+        assertEquals(ImmutableList.of("v4"), tx.query(new IndexQuery(vertex, And.of(PredicateCondition.of(NAME, Cmp.EQUAL, "b"),
+                PredicateCondition.of(TIME, Cmp.EQUAL, 4L)))));
+        //Remove the per-store indices
+        index.clearStorage();
+        open();
+    }
+
+    @Test
+    public void testClearStorageKeepsOtherIndices() throws StorageException {
+        String vertex = "vertex";
+        PredicateCondition all = PredicateCondition.of(TIME, Cmp.GREATER_THAN_EQUAL, 0L);
+        //Another graph whose index name starts with the name of this index
+        close();
+        openRouted("titan_prod");
+        index.register(vertex, TIME, allKeys.get(TIME), tx);
+        tx.add(vertex, "v0", TIME, 0L, true);
+        close();
+        openRouted();
+        index.register(vertex, TIME, allKeys.get(TIME), tx);
+        tx.add(vertex, "v1", TIME, 1L, true);
+        close();
+        openRouted();
+        index.clearStorage();
+
+        openRouted("titan_prod");
+        assertEquals(ImmutableList.of("v0"), tx.query(new IndexQuery(vertex, all)));
+        index.clearStorage();
+        open();
+    }
+
+    private void openPaged(int pageSize) throws StorageException {
+        ModifiableConfiguration config = getLocalESTestConfiguration();
+        config.set(MAX_RESULT_SET_SIZE, pageSize, "es");
+        open(config);
+    }
+
+    private void openRouted() throws StorageException {
+        openRouted(GraphDatabaseConfiguration.INDEX_NAME.getDefaultValue());
+    }
+
+    private void openRouted(String indexName) throws StorageException {
+        ModifiableConfiguration config = getLocalESTestConfiguration();
+        config.set(GraphDatabaseConfiguration.INDEX_NAME, indexName, "es");
+        config.set(INDEX_PER_STORE, true, "es");
+        config.set(ROUTING_KEY, NAME, "es");
+        open(config);
+    }
+
+    private void open(ModifiableConfiguration config) throws StorageException {
+        index = new ElasticSearchIndex(config.restrictTo("es"));
+        tx = new IndexTransaction(index, indexRetriever, new SimpleDuration(2000L, TimeUnit.MILLISECONDS));
+    }
+
+    private static ModifiableConfiguration getLocalESTestConfiguration() {
+        final String indexName = "es";
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildConfiguration();
+        config.set(LOCAL_MODE, true, indexName);
+        config.set(CLIENT_ONLY, false, indexName);
+        config.set(GraphDatabaseConfiguration.INDEX_DIRECTORY, StorageSetup.getHomeDir("es"), indexName);
+        return config;
+    }
 }
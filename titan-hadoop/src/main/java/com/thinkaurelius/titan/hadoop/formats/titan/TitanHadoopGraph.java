@@ -42,13 +42,14 @@ public class TitanHadoopGraph {
     }
 
     protected HadoopVertex readHadoopVertex(final Configuration configuration, final StaticBuffer key, Iterable<Entry> entries) {
+        if (!this.vertexReader.isVertexRow(key)) return null;
         final long vertexId = this.vertexReader.getVertexId(key);
         Preconditions.checkArgument(vertexId > 0);
         HadoopVertex vertex = new HadoopVertex(configuration, vertexId);
         vertex.setState(ElementState.LOADED);
         boolean isSystemType = false;
         boolean foundVertexState = false;
-        for (final Entry data : entries) {
+        for (final Entry data : this.vertexReader.getRelations(vertexId, entries)) {
             try {
                 final RelationCache relation = this.relationReader.parseRelation(vertexId, data, false, typeManager);
                 if (this.systemTypes.isTypeSystemType(relation.typeId)) {
@@ -1,5 +1,6 @@
 package com.thinkaurelius.titan.hadoop.formats.titan.input;
 
+import com.thinkaurelius.titan.diskstorage.Entry;
 import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 
 /**
@@ -9,4 +10,23 @@ public interface VertexReader {
 
     public long getVertexId(StaticBuffer key);
 
+    /**
+     * Whether the row with the given key is the row of a vertex. Other rows (such as the cut rows which hold part of
+     * the adjacency list of a partitioned vertex) are skipped since their relations are returned by
+     * {@link #getRelations(long, Iterable)} for the row of the vertex they belong to.
+     *
+     * @param key
+     * @return
+     */
+    public boolean isVertexRow(StaticBuffer key);
+
+    /**
+     * Returns the relations of the given vertex from the entries of its row
+     *
+     * @param vertexId
+     * @param row
+     * @return
+     */
+    public Iterable<Entry> getRelations(long vertexId, Iterable<Entry> row);
+
 }
@@ -1,12 +1,18 @@
 package com.thinkaurelius.titan.hadoop.formats.titan.input.current;
 
+import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterables;
 import com.thinkaurelius.titan.core.*;
+import com.thinkaurelius.titan.diskstorage.Entry;
 import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.SliceQuery;
+import com.thinkaurelius.titan.diskstorage.util.BackendCompression;
+import com.thinkaurelius.titan.diskstorage.util.CompressedValueStore;
 import com.thinkaurelius.titan.graphdb.database.RelationReader;
 import com.thinkaurelius.titan.graphdb.database.StandardTitanGraph;
 import com.thinkaurelius.titan.graphdb.database.idhandling.IDHandler;
+import com.thinkaurelius.titan.graphdb.idmanagement.IDInspector;
 import com.thinkaurelius.titan.graphdb.idmanagement.IDManager;
 import com.thinkaurelius.titan.graphdb.internal.RelationCategory;
 import com.thinkaurelius.titan.graphdb.internal.TitanSchemaCategory;
@@ -33,6 +39,9 @@ import org.apache.hadoop.conf.Configuration;
  */
 public class TitanHadoopSetupImpl extends TitanHadoopSetupCommon {
 
+    private static final SliceQuery ALL_RELATIONS = new SliceQuery(IDHandler.getBounds(RelationCategory.RELATION)[0],
+            IDHandler.getBounds(RelationCategory.RELATION)[1]);
+
     private final StandardTitanGraph graph;
     private final StandardTitanTx tx;
 
@@ -86,11 +95,34 @@ public class TitanHadoopSetupImpl extends TitanHadoopSetupCommon {
 
     @Override
     public VertexReader getVertexReader() {
+        final IDInspector idInspector = graph.getIDInspector();
+        final BackendCompression compression = graph.getConfiguration().getValueCompression();
+        final Function<Entry, Entry> decoder = new Function<Entry, Entry>() {
+            @Override
+            public Entry apply(Entry entry) {
+                return CompressedValueStore.decode(entry, compression);
+            }
+        };
         return new VertexReader() {
             @Override
             public long getVertexId(StaticBuffer key) {
                 return IDHandler.getKeyID(key);
             }
+
+            @Override
+            public boolean isVertexRow(StaticBuffer key) {
+                return !IDHandler.isCutKey(key);
+            }
+
+            @Override
+            public Iterable<Entry> getRelations(long vertexId, Iterable<Entry> row) {
+                if (!idInspector.isPartitionedVertexId(vertexId)) {
+                    //Rows are read from the storage backend directly and hence still carry the value encoding
+                    return compression == null ? row : Iterables.transform(row, decoder);
+                }
+                //The cut rows of a partitioned vertex are in other splits, hence its adjacency list is read from the graph
+                return graph.edgeQuery(vertexId, ALL_RELATIONS, tx.getTxHandle());
+            }
         };
     }
 
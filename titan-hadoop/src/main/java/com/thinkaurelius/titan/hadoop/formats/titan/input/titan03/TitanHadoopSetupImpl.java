@@ -439,6 +439,16 @@ public class TitanHadoopSetupImpl extends TitanHadoopSetupCommon {
             public long getVertexId(StaticBuffer key) {
                 return IDHandler.getKeyID(key);
             }
+
+            @Override
+            public boolean isVertexRow(StaticBuffer key) {
+                return true;
+            }
+
+            @Override
+            public Iterable<Entry> getRelations(long vertexId, Iterable<Entry> row) {
+                return row;
+            }
         };
     }
 
@@ -1,11 +1,23 @@
 package com.thinkaurelius.titan.diskstorage.hbase;
 
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.hfile.Compression;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class HBaseCompat0_94 implements HBaseCompat {
 
     public void setCompression(HColumnDescriptor cd, String algo) {
         cd.setCompressionType(Compression.Algorithm.valueOf(algo));
     }
+
+    public List<KeyValue> getKeyValues(Result result) {
+        KeyValue[] raw = result.raw();
+        if (raw == null) return Collections.emptyList();
+        return Arrays.asList(raw);
+    }
 }
\ No newline at end of file
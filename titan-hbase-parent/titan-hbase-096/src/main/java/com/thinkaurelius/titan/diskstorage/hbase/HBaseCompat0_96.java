@@ -1,11 +1,28 @@
 package com.thinkaurelius.titan.diskstorage.hbase;
 
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.io.compress.Compression;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public class HBaseCompat0_96 implements HBaseCompat {
 
     public void setCompression(HColumnDescriptor cd, String algo) {
         cd.setCompressionType(Compression.Algorithm.valueOf(algo));
     }
+
+    public List<KeyValue> getKeyValues(Result result) {
+        Cell[] cells = result.rawCells();
+        if (cells == null) return Collections.emptyList();
+        List<KeyValue> kvs = new ArrayList<KeyValue>(cells.length);
+        //The cells of a client side result are KeyValues, hence this does not copy
+        for (Cell cell : cells) kvs.add(KeyValueUtil.ensureKeyValue(cell));
+        return kvs;
+    }
 }
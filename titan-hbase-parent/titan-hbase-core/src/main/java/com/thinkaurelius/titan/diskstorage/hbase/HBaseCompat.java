@@ -1,7 +1,16 @@
 package com.thinkaurelius.titan.diskstorage.hbase;
 
 import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+
+import java.util.List;
 
 public interface HBaseCompat {
     public void setCompression(HColumnDescriptor cd, String algo);
+
+    /**
+     * Returns the cells of the given result as {@link KeyValue}s without copying their backing buffers.
+     */
+    public List<KeyValue> getKeyValues(Result result);
 }
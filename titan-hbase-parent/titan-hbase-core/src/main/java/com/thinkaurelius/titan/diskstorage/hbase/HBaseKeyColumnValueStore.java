@@ -12,6 +12,7 @@ import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
 import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntryList;
 import com.thinkaurelius.titan.util.system.IOUtils;
 
+import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.filter.ColumnPaginationFilter;
 import org.apache.hadoop.hbase.filter.ColumnRangeFilter;
@@ -55,6 +56,8 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
 
     private final HConnection cnx;
 
+    private final HBaseCompat compat;
+
     HBaseKeyColumnValueStore(HBaseStoreManager storeManager, HConnection cnx, String tableName, String columnFamily, String storeName) {
         this.storeManager = storeManager;
         this.cnx = cnx;
@@ -62,6 +65,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
         //this.columnFamily = columnFamily;
         this.storeName = storeName;
         this.columnFamilyBytes = columnFamily.getBytes();
+        this.compat = HBaseCompatLoader.getCompat();
     }
 
     @Override
@@ -191,11 +195,10 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
             assert results.length==keys.size();
 
             for (int i=0; i<results.length; i++) {
-                Result result = results[i];
-                Map<byte[], byte[]> fmap = result.getFamilyMap(columnFamilyBytes);
+                Iterable<KeyValue> columns = getColumns(results[i]);
                 EntryList entries;
-                if (fmap == null) entries = EntryList.EMPTY_LIST;
-                else entries = StaticArrayEntryList.ofBytes(fmap.entrySet(),MapEntryGetter.INSTANCE);
+                if (Iterables.isEmpty(columns)) entries = EntryList.EMPTY_LIST;
+                else entries = StaticArrayEntryList.ofStaticBuffer(columns, KeyValueGetter.INSTANCE);
                 resultMap.put(keys.get(i), entries);
             }
 
@@ -278,7 +281,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
             ensureOpen();
 
             return new RecordIterator<Entry>() {
-                private final Iterator<Map.Entry<byte[], byte[]>> kv = currentRow.getFamilyMap(columnFamilyBytes).entrySet().iterator();
+                private final Iterator<KeyValue> kv = getColumns(currentRow).iterator();
 
                 @Override
                 public boolean hasNext() {
@@ -289,8 +292,7 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
                 @Override
                 public Entry next() {
                     ensureOpen();
-                    Map.Entry<byte[], byte[]> column = kv.next();
-                    return StaticArrayEntry.ofBytes(column, MapEntryGetter.INSTANCE);
+                    return StaticArrayEntry.ofStaticBuffer(kv.next(), KeyValueGetter.INSTANCE);
                 }
 
                 @Override
@@ -337,17 +339,34 @@ public class HBaseKeyColumnValueStore implements KeyColumnValueStore {
         }
     }
 
-    private static enum MapEntryGetter implements StaticArrayEntry.GetColVal<Map.Entry<byte[],byte[]>,byte[]> {
+    /**
+     * Returns the columns of this store's column family in the given result in column order.
+     * <p/>
+     * Unlike {@link Result#getFamilyMap(byte[])}, this does not copy the qualifiers and values out of the
+     * {@link KeyValue}s, which allows building Titan's entries directly from the buffers HBase returned.
+     */
+    private Iterable<KeyValue> getColumns(Result result) {
+        return Iterables.filter(compat.getKeyValues(result), new Predicate<KeyValue>() {
+            @Override
+            public boolean apply(@Nullable KeyValue kv) {
+                return kv.matchingFamily(columnFamilyBytes);
+            }
+        });
+    }
+
+    private static enum KeyValueGetter implements StaticArrayEntry.GetColVal<KeyValue,StaticBuffer> {
         INSTANCE;
 
         @Override
-        public byte[] getColumn(Map.Entry<byte[], byte[]> element) {
-            return element.getKey();
+        public StaticBuffer getColumn(KeyValue element) {
+            int offset = element.getQualifierOffset();
+            return new StaticArrayBuffer(element.getBuffer(), offset, offset + element.getQualifierLength());
         }
 
         @Override
-        public byte[] getValue(Map.Entry<byte[], byte[]> element) {
-            return element.getValue();
+        public StaticBuffer getValue(KeyValue element) {
+            int offset = element.getValueOffset();
+            return new StaticArrayBuffer(element.getBuffer(), offset, offset + element.getValueLength());
         }
     }
 }
@@ -37,6 +37,7 @@ import org.apache.lucene.spatial.query.SpatialOperation;
 import org.apache.lucene.spatial.vector.PointVectorStrategy;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +60,11 @@ public class LuceneIndex implements IndexProvider {
     private static final String DOCID = "_____elementid";
     private static final String GEOID = "_____geo";
     private static final int MAX_STRING_FIELD_LEN = 256;
+    /**
+     * Maximum number of sorted results that are retrieved at once. Larger sorted results are retrieved in pages
+     * to bound the size of the priority queue.
+     */
+    private static final int SORTED_RESULT_PAGE_SIZE = 10000;
 
     private static final Version LUCENE_VERSION = Version.LUCENE_41;
 
@@ -167,6 +173,7 @@ public class LuceneIndex implements IndexProvider {
                         doc = new Document();
                         Field docidField = new StringField(DOCID, docid, Field.Store.YES);
                         doc.add(docidField);
+                        doc.add(new BinaryDocValuesField(DOCID, new BytesRef(docid)));
                     } else if (hits.scoreDocs.length > 1) {
                         throw new IllegalArgumentException("More than one document found for document id: " + docid);
                     } else {
@@ -179,6 +186,8 @@ public class LuceneIndex implements IndexProvider {
                                 geofields.put(field.name(), ctx.readShape(field.stringValue().substring(GEOID.length())));
                             }
                         }
+                        //doc values are not stored and therefore need to be added again
+                        doc.add(new BinaryDocValuesField(DOCID, new BytesRef(docid)));
                     }
                     Preconditions.checkNotNull(doc);
                     for (IndexEntry del : mutation.getDeletions()) {
@@ -273,12 +282,29 @@ public class LuceneIndex implements IndexProvider {
             IndexSearcher searcher = ((Transaction) tx).getSearcher(query.getStore());
             if (searcher == null) return ImmutableList.of(); //Index does not yet exist
             long time = System.currentTimeMillis();
-            TopDocs docs = searcher.search(new MatchAllDocsQuery(), q, query.hasLimit() ? query.getLimit() : Integer.MAX_VALUE - 1, getSortOrder(query));
-            log.debug("Executed query [{}] in {} ms", q, System.currentTimeMillis() - time);
-            List<String> result = new ArrayList<String>(docs.scoreDocs.length);
-            for (int i = 0; i < docs.scoreDocs.length; i++) {
-                result.add(searcher.doc(docs.scoreDocs[i].doc).getField(DOCID).stringValue());
+            int limit = query.hasLimit() ? query.getLimit() : Integer.MAX_VALUE;
+            ElementIdReader ids = new ElementIdReader(searcher.getIndexReader());
+            List<String> result;
+            if (query.getOrder().isEmpty()) {
+                ElementIdCollector collector = new ElementIdCollector(ids, limit);
+                searcher.search(new MatchAllDocsQuery(), q, collector);
+                result = collector.result;
+            } else {
+                //Retrieve sorted results in pages
+                Sort sort = getSortOrder(query);
+                result = new ArrayList<String>();
+                ScoreDoc after = null;
+                while (result.size() < limit) {
+                    int pageSize = Math.min(limit - result.size(), SORTED_RESULT_PAGE_SIZE);
+                    TopDocs docs = searcher.searchAfter(after, new MatchAllDocsQuery(), q, pageSize, sort);
+                    for (int i = 0; i < docs.scoreDocs.length; i++) {
+                        result.add(ids.get(docs.scoreDocs[i].doc));
+                    }
+                    if (docs.scoreDocs.length < pageSize) break;
+                    after = docs.scoreDocs[docs.scoreDocs.length - 1];
+                }
             }
+            log.debug("Executed query [{}] in {} ms", q, System.currentTimeMillis() - time);
             return result;
         } catch (IOException e) {
             throw new TemporaryStorageException("Could not execute Lucene query", e);
@@ -404,9 +430,10 @@ public class LuceneIndex implements IndexProvider {
             else adjustedLimit = Integer.MAX_VALUE-1;
             TopDocs docs = searcher.search(q, adjustedLimit);
             log.debug("Executed query [{}] in {} ms",q, System.currentTimeMillis() - time);
+            ElementIdReader ids = new ElementIdReader(searcher.getIndexReader());
             List<RawQuery.Result<String>> result = new ArrayList<RawQuery.Result<String>>(docs.scoreDocs.length);
             for (int i = offset; i < docs.scoreDocs.length; i++) {
-                result.add(new RawQuery.Result<String>(searcher.doc(docs.scoreDocs[i].doc).getField(DOCID).stringValue(),docs.scoreDocs[i].score));
+                result.add(new RawQuery.Result<String>(ids.get(docs.scoreDocs[i].doc),docs.scoreDocs[i].score));
             }
             return result;
         } catch (IOException e) {
@@ -473,6 +500,84 @@ public class LuceneIndex implements IndexProvider {
         }
     }
 
+    /**
+     * Reads the element ids of documents from the doc values of the {@link #DOCID} field without loading the stored
+     * documents. Falls back to the stored field for documents that were written before element ids were added as doc values.
+     */
+    private static class ElementIdReader {
+
+        private final List<AtomicReaderContext> leaves;
+        private final BinaryDocValues[] values;
+        private final BytesRef bytes = new BytesRef();
+
+        private ElementIdReader(IndexReader reader) throws IOException {
+            leaves = reader.leaves();
+            values = new BinaryDocValues[leaves.size()];
+            for (int i = 0; i < leaves.size(); i++) {
+                values[i] = leaves.get(i).reader().getBinaryDocValues(DOCID);
+            }
+        }
+
+        /**
+         * @param doc document number in the top-level reader
+         */
+        private String get(int doc) throws IOException {
+            int leaf = ReaderUtil.subIndex(doc, leaves);
+            return get(leaf, doc - leaves.get(leaf).docBase);
+        }
+
+        /**
+         * @param leaf ordinal of the segment
+         * @param doc document number within the segment
+         */
+        private String get(int leaf, int doc) throws IOException {
+            if (values[leaf] != null) {
+                values[leaf].get(doc, bytes);
+                if (bytes.length > 0) return bytes.utf8ToString();
+            }
+            return leaves.get(leaf).reader().document(doc).get(DOCID);
+        }
+
+    }
+
+    /**
+     * Collects the element ids of matching documents in index order until the limit is reached
+     */
+    private static class ElementIdCollector extends Collector {
+
+        private final ElementIdReader ids;
+        private final int limit;
+        private final List<String> result = new ArrayList<String>();
+        private int leaf;
+
+        private ElementIdCollector(ElementIdReader ids, int limit) {
+            this.ids = ids;
+            this.limit = limit;
+        }
+
+        @Override
+        public void setScorer(Scorer scorer) {
+            //Scores are not needed
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            result.add(ids.get(leaf, doc));
+            if (result.size() >= limit) throw new CollectionTerminatedException();
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) {
+            if (result.size() >= limit) throw new CollectionTerminatedException();
+            leaf = context.ord;
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder() {
+            return false;
+        }
+    }
+
     private class Transaction implements TransactionHandle {
 
         private final Set<String> updatedStores = Sets.newHashSet();
@@ -10,8 +10,16 @@ import com.thinkaurelius.titan.diskstorage.indexing.IndexProvider;
 import com.thinkaurelius.titan.diskstorage.indexing.IndexProviderTest;
 import com.thinkaurelius.titan.core.Mapping;
 import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import com.google.common.collect.ImmutableList;
+import com.thinkaurelius.titan.core.Order;
+import com.thinkaurelius.titan.diskstorage.indexing.IndexQuery;
+import com.thinkaurelius.titan.graphdb.query.condition.PredicateCondition;
 import org.junit.Test;
 
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -77,4 +85,31 @@ public class LuceneIndexTest extends IndexProviderTest {
         assertFalse(index.supports(of(Geoshape.class), Geo.DISJOINT));
     }
 
+    @Test
+    public void testLargeSortedResults() throws Exception {
+        //Exceeds the page size of sorted results
+        int numDoc = 25000;
+        String store = "vertex";
+        index.register(store, TIME, allKeys.get(TIME), tx);
+        for (int i = 0; i < numDoc; i++) {
+            tx.add(store, "doc" + i, TIME, (long) i, true);
+        }
+        clopen();
+
+        ImmutableList<IndexQuery.OrderEntry> orderTimeDesc = ImmutableList.of(new IndexQuery.OrderEntry(TIME, Order.DESC, Long.class));
+        List<String> result = tx.query(new IndexQuery(store, PredicateCondition.of(TIME, Cmp.GREATER_THAN_EQUAL, 0), orderTimeDesc));
+        assertEquals(numDoc, result.size());
+        for (int i = 0; i < numDoc; i++) assertEquals("doc" + (numDoc - 1 - i), result.get(i));
+
+        result = tx.query(new IndexQuery(store, PredicateCondition.of(TIME, Cmp.GREATER_THAN_EQUAL, 100), orderTimeDesc, 12345));
+        assertEquals(12345, result.size());
+        assertEquals("doc" + (numDoc - 1), result.get(0));
+        assertEquals("doc" + (numDoc - 12345), result.get(12344));
+
+        result = tx.query(new IndexQuery(store, PredicateCondition.of(TIME, Cmp.GREATER_THAN_EQUAL, 0), 10));
+        assertEquals(10, result.size());
+        assertEquals(numDoc, tx.query(new IndexQuery(store, PredicateCondition.of(TIME, Cmp.GREATER_THAN_EQUAL, 0))).size());
+        assertEquals(numDoc - 100, new HashSet<String>(tx.query(new IndexQuery(store, PredicateCondition.of(TIME, Cmp.GREATER_THAN_EQUAL, 100)))).size());
+    }
+
 }
@@ -94,11 +94,7 @@ public abstract class LockKeyColumnValueStoreTest extends AbstractKCVSTest {
                 log.debug("Began transaction of class {}", tx[i][j].getClass().getCanonicalName());
             }
 
-            ModifiableConfiguration sc = GraphDatabaseConfiguration.buildConfiguration();
-            sc.set(ExpectedValueCheckingStore.LOCAL_LOCK_MEDIATOR_PREFIX,concreteClassName + i);
-            sc.set(GraphDatabaseConfiguration.UNIQUE_INSTANCE_ID,"inst"+i);
-            sc.set(GraphDatabaseConfiguration.LOCK_RETRY,10);
-            sc.set(GraphDatabaseConfiguration.LOCK_EXPIRE, new SimpleDuration(EXPIRE_MS, TimeUnit.MILLISECONDS));
+            ModifiableConfiguration sc = getLockerConfiguration(i);
 
             if (!storeFeatures.hasLocking()) {
                 Preconditions.checkArgument(storeFeatures.isKeyConsistent(),"Store needs to support some form of locking");
@@ -111,6 +107,20 @@ public abstract class LockKeyColumnValueStoreTest extends AbstractKCVSTest {
         }
     }
 
+    /**
+     * Returns the configuration of the {@link ConsistentKeyLocker} used with the
+     * {@code id}-th store manager. Subclasses may override this to exercise
+     * alternative locker settings.
+     */
+    protected ModifiableConfiguration getLockerConfiguration(int id) {
+        ModifiableConfiguration sc = GraphDatabaseConfiguration.buildConfiguration();
+        sc.set(ExpectedValueCheckingStore.LOCAL_LOCK_MEDIATOR_PREFIX,concreteClassName + id);
+        sc.set(GraphDatabaseConfiguration.UNIQUE_INSTANCE_ID,"inst"+id);
+        sc.set(GraphDatabaseConfiguration.LOCK_RETRY,10);
+        sc.set(GraphDatabaseConfiguration.LOCK_EXPIRE, new SimpleDuration(EXPIRE_MS, TimeUnit.MILLISECONDS));
+        return sc;
+    }
+
     public StoreTransaction newTransaction(KeyColumnValueStoreManager manager) throws StorageException {
         StoreTransaction transaction = manager.beginTransaction(getTxConfig());
         if (!manager.getFeatures().hasLocking() && manager.getFeatures().isKeyConsistent()) {
@@ -166,6 +176,20 @@ public abstract class LockKeyColumnValueStoreTest extends AbstractKCVSTest {
         store[0].mutate(k, Arrays.<Entry>asList(StaticArrayEntry.of(c1, v1)), NO_DELETIONS, tx[0][0]);
     }
 
+    @Test
+    public void expectedValueMismatchAmongManyLocksCausesMutateFailure() throws StorageException {
+        for (int i = 0; i < 10; i++) {
+            store[0].acquireLock(KeyColumnValueStoreUtil.longToByteBuffer(i), c1, null, tx[0][0]);
+        }
+        store[0].acquireLock(k, c1, v1, tx[0][0]);
+        try {
+            store[0].mutate(k, Arrays.<Entry>asList(StaticArrayEntry.of(c1, v1)), NO_DELETIONS, tx[0][0]);
+            Assert.fail("Expected value mismatch not detected");
+        } catch (StorageException e) {
+            Assert.assertTrue(e instanceof PermanentLockingException);
+        }
+    }
+
     @Test
     public void testLocalLockContention() throws StorageException {
         store[0].acquireLock(k, c1, null, tx[0][0]);
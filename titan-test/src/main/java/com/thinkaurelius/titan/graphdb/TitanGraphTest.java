@@ -5,6 +5,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.thinkaurelius.titan.core.*;
 import com.thinkaurelius.titan.core.attribute.Decimal;
@@ -766,6 +767,98 @@ public abstract class TitanGraphTest extends TitanGraphBaseTest {
         assertEquals(1, Iterables.size(v.getEdges(Direction.IN, "self")));
     }
 
+    @Test
+    public void testMultiQueryAdjacency() {
+        makeKey("time", Integer.class);
+        makeLabel("connect");
+        makeLabel("knows");
+        finishSchema();
+
+        int numV = 20;
+        TitanVertex[] vs = new TitanVertex[numV];
+        for (int i = 0; i < numV; i++) vs[i] = tx.addVertex();
+        for (int i = 0; i < numV; i++) {
+            for (int j = 1; j <= i % 4; j++) {
+                TitanEdge e = vs[i].addEdge("connect", vs[(i + j) % numV]);
+                e.setProperty("time", i * 10 + j);
+            }
+            vs[i].addEdge("knows", vs[(i + 1) % numV]);
+        }
+        clopen();
+
+        for (int i = 0; i < numV; i++) vs[i] = tx.getVertex(vs[i].getID());
+        verifyAdjacency(tx.multiQuery(vs).labels("connect").direction(OUT), "time");
+        verifyAdjacency(tx.multiQuery(vs).labels("connect").direction(IN), "time");
+        verifyAdjacency(tx.multiQuery(vs).labels("connect", "knows"), "time");
+        verifyAdjacency(tx.multiQuery(vs).labels("connect").direction(OUT).limit(2));
+        verifyAdjacency(tx.multiQuery(vs).labels("connect").direction(OUT).has("time", Compare.GREATER_THAN, 50), "time");
+        verifyAdjacency(tx.multiQuery(vs).direction(BOTH));
+        verifyAdjacency(tx.multiQuery(vs).direction(OUT));
+        verifyAdjacency(tx.multiQuery(vs).labels("undefined"));
+
+        AdjacencyBlock block = tx.multiQuery(vs).labels("connect").direction(OUT).adjacency("time");
+        assertEquals(numV, block.size());
+        assertEquals(numV / 4 * (0 + 1 + 2 + 3), block.numEdges());
+
+        //Modifications in the transaction need to be reflected
+        vs[0].addEdge("connect", vs[5]).setProperty("time", 1000);
+        vs[3].query().labels("connect").direction(OUT).titanEdges().iterator().next().remove();
+        verifyAdjacency(tx.multiQuery(vs).labels("connect").direction(OUT), "time");
+        verifyAdjacency(tx.multiQuery(vs).direction(BOTH));
+    }
+
+    @Test
+    public void testSelectiveVertexQueryPaging() {
+        makeKey("weight", Integer.class);
+        makeLabel("connect");
+        finishSchema();
+
+        int numE = 1000;
+        TitanVertex hub = tx.addVertex();
+        for (int i = 0; i < numE; i++) {
+            TitanEdge e = hub.addEdge("connect", tx.addVertex());
+            e.setProperty("weight", i % 100);
+        }
+        clopen();
+        hub = tx.getVertex(hub.getID());
+
+        List<TitanEdge> all = Lists.newArrayList(hub.query().labels("connect").direction(OUT).has("weight", 7).titanEdges());
+        assertEquals(numE / 100, all.size());
+        for (int limit : new int[]{1, 3, numE / 100, numE}) {
+            List<TitanEdge> limited = Lists.newArrayList(hub.query().labels("connect").direction(OUT).has("weight", 7).limit(limit).titanEdges());
+            assertEquals(all.subList(0, Math.min(limit, all.size())), limited);
+        }
+        assertEquals(numE, hub.query().labels("connect").direction(OUT).limit(numE + 1).count());
+        assertEquals(0, hub.query().labels("connect").direction(OUT).has("weight", 1000).limit(5).count());
+    }
+
+    private void verifyAdjacency(TitanMultiVertexQuery query, String... keys) {
+        AdjacencyBlock block = query.adjacency(keys);
+        Map<TitanVertex, Iterable<TitanEdge>> edges = query.titanEdges();
+        assertEquals(edges.size(), block.size());
+        assertEquals(block.size() + 1, block.getOffsets().length);
+        assertEquals(block.numEdges(), block.getOffsets()[block.size()]);
+        for (int pos = 0; pos < block.size(); pos++) {
+            TitanVertex anchor = tx.getVertex(block.getVertexIds()[pos]);
+            List<String> expected = new ArrayList<String>();
+            for (TitanEdge e : edges.get(anchor)) {
+                StringBuilder s = new StringBuilder().append(e.getOtherVertex(anchor).getID());
+                for (String key : keys) s.append(":").append((Object) e.getProperty(key));
+                expected.add(s.toString());
+            }
+            List<String> actual = new ArrayList<String>();
+            for (int i = block.getOffsets()[pos]; i < block.getOffsets()[pos + 1]; i++) {
+                StringBuilder s = new StringBuilder().append(block.getNeighborIds()[i]);
+                for (String key : keys) s.append(":").append(block.getPropertyColumn(key)[i]);
+                actual.add(s.toString());
+            }
+            assertEquals(expected.size(), block.getDegree(pos));
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+        }
+    }
+
     @Test
     public void testIteration() {
         int numV = 50;
@@ -1004,6 +1097,35 @@ public abstract class TitanGraphTest extends TitanGraphBaseTest {
 
     }
 
+    @Test
+    public void testGraphQueryPropertyPrefetch() {
+        TitanKey group = mgmt.makeKey("group").dataType(Integer.class).make();
+        mgmt.createInternalIndex("vgroup",Vertex.class,group);
+        mgmt.makeKey("age").dataType(Integer.class).make();
+        mgmt.makeKey("name").dataType(String.class).make();
+        finishSchema();
+
+        int numV = 250;
+        for (int i = 0; i < numV; i++) {
+            TitanVertex v = tx.addVertex();
+            v.setProperty("group", i % 2);
+            v.setProperty("age", (i * 37) % 101);
+            v.setProperty("name", "v" + i);
+        }
+
+        clopen();
+        int expected = 0;
+        for (int i = 0; i < numV; i += 2) if ((i * 37) % 101 >= 50) expected++;
+        Iterable<Vertex> result = tx.query().has("group", 0).has("age", Cmp.GREATER_THAN_EQUAL, 50).vertices();
+        assertEquals(expected, Iterables.size(result));
+        for (Vertex v : result) {
+            assertEquals(0, v.getProperty("group"));
+            assertTrue((Integer) v.getProperty("age") >= 50);
+        }
+        TestUtil.verifyElementOrder(tx.query().has("group", 1).orderBy("age", Order.DESC).limit(numV).vertices(), "age", Order.DESC, numV / 2);
+        TestUtil.verifyElementOrder(tx.query().has("group", 1).has("name").orderBy("age", Order.ASC).limit(10).vertices(), "age", Order.ASC, 10);
+    }
+
     @Test
     public void testThreadBoundTx() {
         TitanKey t = mgmt.makeKey("type").dataType(Integer.class).make();
@@ -0,0 +1,159 @@
+package com.thinkaurelius.titan.core.util;
+
+import com.google.common.collect.Iterables;
+import com.thinkaurelius.titan.core.TitanFactory;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.graphdb.database.StandardTitanGraph;
+import com.thinkaurelius.titan.graphdb.idmanagement.IDManager;
+import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration.*;
+import static org.junit.Assert.*;
+
+public class TitanPartitionRebalancerTest {
+
+    private StandardTitanGraph graph;
+
+    @Before
+    public void setUp() {
+        ModifiableConfiguration config = buildConfiguration();
+        config.set(STORAGE_BACKEND, "inmemory");
+        config.set(IDS_PARTITION, true);
+        graph = (StandardTitanGraph) TitanFactory.open(config);
+    }
+
+    @After
+    public void tearDown() {
+        graph.shutdown();
+    }
+
+    private long getPartition(long vertexId) {
+        return graph.getIDInspector().getPartitionId(vertexId);
+    }
+
+    @Test
+    public void testRebalance() {
+        StandardTitanTx tx = (StandardTitanTx) graph.newTransaction();
+        //A star in partition 1 whose center has been placed in partition 0
+        TitanVertex center = tx.addVertex(IDManager.VertexIDType.Vertex, 0);
+        center.setProperty("name", "center");
+        TitanVertex other = tx.addVertex(IDManager.VertexIDType.Vertex, 0);
+        center.addEdge("knows", other).setProperty("weight", 5);
+        for (int i = 0; i < 5; i++) {
+            TitanVertex leaf = tx.addVertex(IDManager.VertexIDType.Vertex, 1);
+            leaf.setProperty("name", "leaf" + i);
+            leaf.addEdge("knows", center);
+        }
+        center.addEdge("self", center);
+        tx.commit();
+        long centerId = center.getID(), otherId = other.getID();
+        assertEquals(0, getPartition(centerId));
+
+        //Partition 1 may grow to 1.9 * 7 / 2 = 6.65 vertices
+        TitanPartitionRebalancer rebalancer = new TitanPartitionRebalancer(graph).setMaxImbalance(1.9);
+        TitanPartitionRebalancer.Result analysis = rebalancer.analyze();
+        assertEquals(7, analysis.getNumVertices());
+        assertEquals(6, analysis.getNumEdges());
+        assertEquals(5, analysis.getNumCutEdges());
+        //The leaves could be moved to the partition of the center as well
+        assertEquals(6, analysis.getNumCandidates());
+        assertTrue(analysis.getMigratedVertices().isEmpty());
+
+        TitanPartitionRebalancer.Result result = rebalancer.rebalance();
+        Map<Long, Long> migrated = result.getMigratedVertices();
+        assertEquals(1, migrated.size());
+        long movedId = migrated.get(centerId);
+        assertEquals(1, getPartition(movedId));
+        assertEquals(1 + 7, result.getNumMigratedRelations());
+
+        TitanVertex moved = graph.getVertex(movedId);
+        assertNull(graph.getVertex(centerId));
+        assertEquals("center", moved.getProperty("name"));
+        assertEquals(5, Iterables.size(moved.getEdges(Direction.IN, "knows")));
+        Edge edge = Iterables.getOnlyElement(moved.getEdges(Direction.OUT, "knows"));
+        assertEquals(otherId, edge.getVertex(Direction.IN).getId());
+        assertEquals(5, edge.getProperty("weight"));
+        assertEquals(moved, Iterables.getOnlyElement(moved.getEdges(Direction.OUT, "self")).getVertex(Direction.IN));
+        graph.commit();
+
+        //The other vertex is left behind in partition 0 since moving it would exceed the capacity of partition 1
+        TitanPartitionRebalancer.Result remaining = rebalancer.rebalance();
+        assertEquals(1, remaining.getNumCutEdges());
+        assertEquals(1, remaining.getNumCandidates());
+        assertTrue(remaining.getMigratedVertices().isEmpty());
+        assertEquals(0, getPartition(otherId));
+        //Without the capacity bound, the component collapses into a single partition
+        assertTrue(new TitanPartitionRebalancer(graph).setMaxImbalance(2.0).rebalance().getMigratedVertices().containsKey(otherId));
+    }
+
+    @Test
+    public void testMaxMigrations() {
+        StandardTitanTx tx = (StandardTitanTx) graph.newTransaction();
+        for (int i = 0; i < 6; i++) tx.addVertex(IDManager.VertexIDType.Vertex, 0);
+        for (int i = 0; i < 3; i++) {
+            TitanVertex v = tx.addVertex(IDManager.VertexIDType.Vertex, 0);
+            v.addEdge("knows", tx.addVertex(IDManager.VertexIDType.Vertex, 1));
+            v.addEdge("knows", tx.addVertex(IDManager.VertexIDType.Vertex, 1));
+        }
+        tx.commit();
+
+        TitanPartitionRebalancer rebalancer = new TitanPartitionRebalancer(graph).setMaxMigrations(2).setMaxRelationsPerSecond(1000);
+        assertEquals(2, rebalancer.rebalance().getMigratedVertices().size());
+        assertEquals(1, rebalancer.rebalance().getMigratedVertices().size());
+        assertEquals(0, rebalancer.analyze().getNumCutEdges());
+    }
+
+    @Test
+    public void testCapacity() {
+        StandardTitanTx tx = (StandardTitanTx) graph.newTransaction();
+        //Two stars with one leaf in the other partition, four vertices per partition
+        for (int i = 0; i < 2; i++) {
+            TitanVertex v = tx.addVertex(IDManager.VertexIDType.Vertex, i);
+            for (int j = 0; j < 3; j++) {
+                v.addEdge("knows", tx.addVertex(IDManager.VertexIDType.Vertex, (i + j) % 2));
+            }
+        }
+        tx.commit();
+        assertEquals(2, new TitanPartitionRebalancer(graph).analyze().getNumCutEdges());
+
+        //Neither leaf can move while partition sizes may not exceed the average of 4 vertices
+        assertTrue(new TitanPartitionRebalancer(graph).setMaxImbalance(1.0).rebalance().getMigratedVertices().isEmpty());
+        //With room for one more vertex, the first leaf moves and makes room for the second one
+        assertEquals(2, new TitanPartitionRebalancer(graph).setMaxImbalance(1.25).rebalance().getMigratedVertices().size());
+        assertEquals(0, new TitanPartitionRebalancer(graph).analyze().getNumCutEdges());
+        Map<Long, Integer> sizes = new HashMap<Long, Integer>();
+        for (Vertex v : graph.getVertices()) {
+            long partition = getPartition((Long) v.getId());
+            sizes.put(partition, sizes.containsKey(partition) ? sizes.get(partition) + 1 : 1);
+        }
+        for (int size : sizes.values()) assertTrue(size <= 5);
+    }
+
+    @Test
+    public void testPartitionedVertex() {
+        StandardTitanTx tx = (StandardTitanTx) graph.newTransaction();
+        TitanVertex hub = tx.addPartitionedVertex();
+        for (int i = 0; i < 10; i++) tx.addVertex(IDManager.VertexIDType.Vertex, 0).addEdge("knows", hub);
+        tx.commit();
+        long hubId = hub.getID();
+
+        TitanPartitionRebalancer.Result analysis = new TitanPartitionRebalancer(graph).analyze();
+        assertEquals(11, analysis.getNumVertices());
+        //The edges of the hub are stored in its cut rows and counted from both end points
+        assertEquals(10, analysis.getNumEdges());
+        //The hub is never migrated
+        assertFalse(new TitanPartitionRebalancer(graph).rebalance().getMigratedVertices().containsKey(hubId));
+        assertEquals(10, Iterables.size(graph.getVertex(hubId).getEdges(Direction.IN, "knows")));
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.thinkaurelius.titan.diskstorage;
+
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.thinkaurelius.titan.core.TitanFactory;
+import com.thinkaurelius.titan.core.TitanGraph;
+import com.thinkaurelius.titan.core.TitanTransaction;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.core.time.SimpleDuration;
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.graphdb.database.idhandling.IDHandler;
+import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
+import com.thinkaurelius.titan.util.stats.MetricManager;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.thinkaurelius.titan.diskstorage.BackendTransaction.*;
+import static com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration.*;
+import static org.junit.Assert.*;
+
+public class BackendTransactionMetricsTest {
+
+    private TitanGraph graph;
+
+    @After
+    public void tearDown() {
+        if (graph != null) graph.shutdown();
+    }
+
+    private TitanGraph open(String prefix, SimpleDuration slowThreshold) {
+        ModifiableConfiguration config = buildConfiguration();
+        config.set(STORAGE_BACKEND, "inmemory");
+        config.set(BASIC_METRICS, true);
+        config.set(METRICS_PREFIX, prefix);
+        config.set(METRICS_SLOW_OPERATION_THRESHOLD, slowThreshold);
+        return TitanFactory.open(config);
+    }
+
+    private long writeAndRead() {
+        TitanTransaction tx = graph.newTransaction();
+        TitanVertex v = tx.addVertex();
+        v.addEdge("knows", tx.addVertex());
+        tx.commit();
+        tx = graph.newTransaction();
+        assertEquals(1, tx.getVertex(v.getID()).query().labels("knows").count());
+        tx.commit();
+        return v.getID();
+    }
+
+    @Test
+    public void testOperationLatencies() {
+        String prefix = "backendtx.latency";
+        graph = open(prefix, new SimpleDuration(0L, TimeUnit.MILLISECONDS));
+        writeAndRead();
+
+        MetricManager mgr = MetricManager.INSTANCE;
+        Timer edgeQuery = mgr.getTimer(prefix, M_BACKEND, M_EDGESTORE_QUERY, M_TIME);
+        assertTrue(edgeQuery.getCount() > 0);
+        Snapshot snapshot = edgeQuery.getSnapshot();
+        assertTrue(snapshot.get99thPercentile() >= snapshot.getMedian());
+        assertTrue(mgr.getTimer(prefix, M_BACKEND, M_COMMIT_STORAGE, M_TIME).getCount() > 0);
+        assertTrue(mgr.getTimer(prefix, M_BACKEND, M_COMMIT_INDEXES, M_TIME).getCount() > 0);
+        //Slow operation log is disabled
+        assertEquals(0, mgr.getCounter(prefix, M_BACKEND, M_EDGESTORE_QUERY, M_SLOW).getCount());
+        assertEquals(0, mgr.getCounter(prefix, M_BACKEND, M_EDGESTORE_QUERY, M_RETRIES).getCount());
+    }
+
+    @Test
+    public void testSlowOperations() {
+        String prefix = "backendtx.slow";
+        graph = open(prefix, new SimpleDuration(1L, TimeUnit.NANOSECONDS));
+        writeAndRead();
+
+        MetricManager mgr = MetricManager.INSTANCE;
+        //Every operation exceeds the threshold
+        assertEquals(mgr.getTimer(prefix, M_BACKEND, M_EDGESTORE_QUERY, M_TIME).getCount(),
+                mgr.getCounter(prefix, M_BACKEND, M_EDGESTORE_QUERY, M_SLOW).getCount());
+        assertTrue(mgr.getCounter(prefix, M_BACKEND, M_COMMIT_STORAGE, M_SLOW).getCount() > 0);
+    }
+
+    @Test
+    public void testContainsKeyIsRecordedSeparately() {
+        String prefix = "backendtx.contains";
+        graph = open(prefix, new SimpleDuration(0L, TimeUnit.MILLISECONDS));
+        long vid = writeAndRead();
+
+        MetricManager mgr = MetricManager.INSTANCE;
+        long queries = mgr.getTimer(prefix, M_BACKEND, M_EDGESTORE_QUERY, M_TIME).getCount();
+        StandardTitanTx tx = (StandardTitanTx) graph.newTransaction();
+        assertTrue(tx.getTxHandle().edgeStoreContainsKey(IDHandler.getKey(vid)));
+        tx.commit();
+        assertEquals(1, mgr.getTimer(prefix, M_BACKEND, M_EDGESTORE_CONTAINS_KEY, M_TIME).getCount());
+        assertEquals(queries, mgr.getTimer(prefix, M_BACKEND, M_EDGESTORE_QUERY, M_TIME).getCount());
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.thinkaurelius.titan.diskstorage.inmemory;
+
+import com.thinkaurelius.titan.diskstorage.*;
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.*;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.inmemory.InMemoryStoreManager;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the locking tests against the in-memory store with batched lock claims. The store manager
+ * reports batch mutation and multi-query support so that the batched write and read paths of the
+ * locker are used, and counts the calls made against the lock store.
+ */
+public class InMemoryBatchLockKeyColumnValueStoreTest extends InMemoryLockKeyColumnValueStoreTest {
+
+    private static final String LOCK_STORE = DB_NAME + "_lock_";
+
+    @Override
+    public KeyColumnValueStoreManager openStorageManager(int id) throws StorageException {
+        return new CountingStoreManager(new InMemoryStoreManager());
+    }
+
+    @Override
+    protected ModifiableConfiguration getLockerConfiguration(int id) {
+        ModifiableConfiguration sc = super.getLockerConfiguration(id);
+        sc.set(GraphDatabaseConfiguration.LOCK_BATCH, true);
+        return sc;
+    }
+
+    @Test
+    public void batchedLocksUseSingleRoundTrip() throws StorageException {
+        CountingStoreManager counter = (CountingStoreManager) manager[0];
+        StaticBuffer k = KeyValueStoreUtil.getBuffer("key"), c1 = KeyValueStoreUtil.getBuffer("col1"),
+                v1 = KeyValueStoreUtil.getBuffer("val1");
+        for (int i = 0; i < 10; i++) {
+            store[0].acquireLock(KeyColumnValueStoreUtil.longToByteBuffer(i), c1, null, tx[0][0]);
+        }
+        //Claims are deferred until the locks are checked
+        assertEquals(0, counter.lockMutations.get() + counter.lockBatchMutations.get());
+        store[0].mutate(k, Arrays.<Entry>asList(StaticArrayEntry.of(c1, v1)), KeyColumnValueStore.NO_DELETIONS, tx[0][0]);
+        assertEquals(1, counter.lockBatchMutations.get());
+        assertEquals(0, counter.lockMutations.get());
+        assertEquals(1, counter.lockMultiSlices.get());
+        assertEquals(0, counter.lockSlices.get());
+        tx[0][0].commit();
+    }
+
+    private static class CountingStoreManager implements KeyColumnValueStoreManager {
+
+        private final InMemoryStoreManager manager;
+        private final StoreFeatures features;
+        private final AtomicInteger lockMutations = new AtomicInteger();
+        private final AtomicInteger lockBatchMutations = new AtomicInteger();
+        private final AtomicInteger lockSlices = new AtomicInteger();
+        private final AtomicInteger lockMultiSlices = new AtomicInteger();
+
+        private CountingStoreManager(InMemoryStoreManager manager) {
+            this.manager = manager;
+            this.features = new StandardStoreFeatures.Builder(manager.getFeatures()).batchMutation(true).multiQuery(true).build();
+        }
+
+        @Override
+        public KeyColumnValueStore openDatabase(String name) throws StorageException {
+            return new CountingStore(manager.openDatabase(name));
+        }
+
+        @Override
+        public void mutateMany(Map<String, Map<StaticBuffer, KCVMutation>> mutations, StoreTransaction txh) throws StorageException {
+            if (mutations.containsKey(LOCK_STORE)) lockBatchMutations.incrementAndGet();
+            manager.mutateMany(mutations, txh);
+        }
+
+        @Override
+        public StoreTransaction beginTransaction(TransactionHandleConfig config) throws StorageException {
+            return manager.beginTransaction(config);
+        }
+
+        @Override
+        public void close() throws StorageException {
+            manager.close();
+        }
+
+        @Override
+        public void clearStorage() throws StorageException {
+            manager.clearStorage();
+        }
+
+        @Override
+        public StoreFeatures getFeatures() {
+            return features;
+        }
+
+        @Override
+        public String getName() {
+            return manager.getName();
+        }
+
+        private class CountingStore implements KeyColumnValueStore {
+
+            private final KeyColumnValueStore store;
+            private final boolean isLockStore;
+
+            private CountingStore(KeyColumnValueStore store) {
+                this.store = store;
+                this.isLockStore = store.getName().equals(LOCK_STORE);
+            }
+
+            @Override
+            public boolean containsKey(StaticBuffer key, StoreTransaction txh) throws StorageException {
+                return store.containsKey(key, txh);
+            }
+
+            @Override
+            public EntryList getSlice(KeySliceQuery query, StoreTransaction txh) throws StorageException {
+                if (isLockStore) lockSlices.incrementAndGet();
+                return store.getSlice(query, txh);
+            }
+
+            @Override
+            public Map<StaticBuffer, EntryList> getSlice(List<StaticBuffer> keys, SliceQuery query, StoreTransaction txh) throws StorageException {
+                if (isLockStore) lockMultiSlices.incrementAndGet();
+                Map<StaticBuffer, EntryList> result = new HashMap<StaticBuffer, EntryList>(keys.size());
+                for (StaticBuffer key : keys) result.put(key, store.getSlice(new KeySliceQuery(key, query), txh));
+                return result;
+            }
+
+            @Override
+            public void mutate(StaticBuffer key, List<Entry> additions, List<StaticBuffer> deletions, StoreTransaction txh) throws StorageException {
+                if (isLockStore && !additions.isEmpty()) lockMutations.incrementAndGet();
+                store.mutate(key, additions, deletions, txh);
+            }
+
+            @Override
+            public void acquireLock(StaticBuffer key, StaticBuffer column, StaticBuffer expectedValue, StoreTransaction txh) throws StorageException {
+                store.acquireLock(key, column, expectedValue, txh);
+            }
+
+            @Override
+            public KeyIterator getKeys(KeyRangeQuery query, StoreTransaction txh) throws StorageException {
+                return store.getKeys(query, txh);
+            }
+
+            @Override
+            public KeyIterator getKeys(SliceQuery query, StoreTransaction txh) throws StorageException {
+                return store.getKeys(query, txh);
+            }
+
+            @Override
+            public List<KeyRange> getLocalKeyPartition() throws StorageException {
+                return store.getLocalKeyPartition();
+            }
+
+            @Override
+            public String getName() {
+                return store.getName();
+            }
+
+            @Override
+            public void close() throws StorageException {
+                store.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.thinkaurelius.titan.diskstorage.inmemory;
+
+import com.google.common.base.Strings;
+import com.thinkaurelius.titan.diskstorage.Entry;
+import com.thinkaurelius.titan.diskstorage.KeyColumnValueStoreUtil;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
+import com.thinkaurelius.titan.diskstorage.StorageException;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KCVSUtil;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import com.thinkaurelius.titan.diskstorage.util.CompressedValueStore;
+import com.thinkaurelius.titan.diskstorage.util.DeflateCompression;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
+import org.junit.Test;
+
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the store tests against an in-memory store whose values are compressed by {@link CompressedValueStore}.
+ */
+public class InMemoryCompressedKeyColumnValueStoreTest extends InMemoryKeyColumnValueStoreTest {
+
+    private static final int THRESHOLD = 64;
+
+    private final DeflateCompression compression = new DeflateCompression(Deflater.BEST_SPEED);
+
+    @Override
+    public void open() throws StorageException {
+        super.open();
+        store = new CompressedValueStore(store, compression, THRESHOLD);
+    }
+
+    @Test
+    public void storeAndRetrieveCompressedValues() throws Exception {
+        String small = "small";
+        String large = Strings.repeat("compressible text ", 50);
+        String threshold = Strings.repeat("x", THRESHOLD);
+        KeyColumnValueStoreUtil.insert(store, tx, 0, "col0", small);
+        KeyColumnValueStoreUtil.insert(store, tx, 0, "col1", large);
+        KeyColumnValueStoreUtil.insert(store, tx, 0, "col2", threshold);
+        KeyColumnValueStoreUtil.insert(store, tx, 0, "col3", "");
+        tx.commit();
+
+        tx = startTx();
+        assertEquals(small, KeyColumnValueStoreUtil.get(store, tx, 0, "col0"));
+        assertEquals(large, KeyColumnValueStoreUtil.get(store, tx, 0, "col1"));
+        assertEquals(threshold, KeyColumnValueStoreUtil.get(store, tx, 0, "col2"));
+        assertEquals("", KeyColumnValueStoreUtil.get(store, tx, 0, "col3"));
+
+        //Small values are stored with a format byte, large values are compressed
+        KeyColumnValueStore rawStore = manager.openDatabase(storeName);
+        StaticBuffer key = KeyColumnValueStoreUtil.longToByteBuffer(0);
+        assertEquals(small.length() + 1, getRaw(rawStore, key, "col0").length());
+        assertTrue(getRaw(rawStore, key, "col1").length() < large.length() / 4);
+        assertTrue(getRaw(rawStore, key, "col2").length() < threshold.length());
+        assertEquals(1, getRaw(rawStore, key, "col3").length());
+
+        //Entries read from the wrapped store directly can be decoded
+        StaticBuffer column = KeyColumnValueStoreUtil.stringToByteBuffer("col1");
+        Entry raw = StaticArrayEntry.of(column, getRaw(rawStore, key, "col1"));
+        assertEquals(KeyColumnValueStoreUtil.stringToByteBuffer(large), CompressedValueStore.decode(raw, compression).getValue());
+        assertEquals(column, CompressedValueStore.decode(raw, compression).getColumn());
+    }
+
+    private StaticBuffer getRaw(KeyColumnValueStore rawStore, StaticBuffer key, String col) throws StorageException {
+        return KCVSUtil.get(rawStore, key, KeyColumnValueStoreUtil.stringToByteBuffer(col), tx);
+    }
+
+}
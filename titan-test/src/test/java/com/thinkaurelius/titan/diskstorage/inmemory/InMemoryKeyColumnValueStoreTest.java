@@ -1,9 +1,23 @@
 package com.thinkaurelius.titan.diskstorage.inmemory;
 
+import com.google.common.collect.ImmutableList;
+import com.thinkaurelius.titan.diskstorage.Entry;
+import com.thinkaurelius.titan.diskstorage.EntryList;
 import com.thinkaurelius.titan.diskstorage.KeyColumnValueStoreTest;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
 import com.thinkaurelius.titan.diskstorage.StorageException;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeyColumnValueStore;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeyColumnValueStoreManager;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeySliceQuery;
 import com.thinkaurelius.titan.diskstorage.keycolumnvalue.inmemory.InMemoryStoreManager;
+import com.thinkaurelius.titan.diskstorage.util.BufferUtil;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayBuffer;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
 
 /**
  * @author Matthias Broecheler (me@matthiasb.com)
@@ -21,4 +35,22 @@ public class InMemoryKeyColumnValueStoreTest extends KeyColumnValueStoreTest {
         //Do nothing
     }
 
+    @Test
+    public void testMutationBuffersAreCopied() throws Exception {
+        //Key, column and value are slices of one shared array as handed out by a WriteBufferArena
+        byte[] shared = new byte[24];
+        for (int i = 0; i < shared.length; i++) shared[i] = (byte) (i + 1);
+        StaticBuffer key = new StaticArrayBuffer(shared, 0, 8);
+        Entry entry = new StaticArrayEntry(new StaticArrayBuffer(shared, 8, 16), 4);
+        store.mutate(key, ImmutableList.of(entry), KeyColumnValueStore.NO_DELETIONS, tx);
+        StaticBuffer expectedKey = new StaticArrayBuffer(Arrays.copyOfRange(shared, 0, 8));
+        Entry expected = new StaticArrayEntry(Arrays.copyOfRange(shared, 8, 16), 4);
+        Arrays.fill(shared, (byte) 0);
+
+        EntryList result = store.getSlice(new KeySliceQuery(expectedKey, BufferUtil.zeroBuffer(1), BufferUtil.oneBuffer(4)), tx);
+        assertEquals(1, result.size());
+        assertEquals(expected, result.get(0));
+        assertEquals(expected.getValue(), result.get(0).getValue());
+    }
+
 }
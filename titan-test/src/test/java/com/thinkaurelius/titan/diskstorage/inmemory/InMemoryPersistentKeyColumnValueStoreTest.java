@@ -0,0 +1,168 @@
+package com.thinkaurelius.titan.diskstorage.inmemory;
+
+import com.thinkaurelius.titan.StorageSetup;
+import com.thinkaurelius.titan.core.time.SimpleDuration;
+import com.thinkaurelius.titan.diskstorage.Entry;
+import com.thinkaurelius.titan.diskstorage.KeyColumnValueStoreTest;
+import com.thinkaurelius.titan.diskstorage.KeyColumnValueStoreUtil;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
+import com.thinkaurelius.titan.diskstorage.StorageException;
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeyColumnValueStore;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeyColumnValueStoreManager;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeySliceQuery;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.StoreTransaction;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.inmemory.InMemoryStoreManager;
+import com.thinkaurelius.titan.diskstorage.util.BufferUtil;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the store tests against a persisted in-memory store, reopening the store manager on every {@link #clopen()}.
+ */
+public class InMemoryPersistentKeyColumnValueStoreTest extends KeyColumnValueStoreTest {
+
+    private static final String HOME_DIR = "inmemory";
+
+    private long snapshotIntervalMs = 0;
+
+    @Override
+    public void setUp() throws Exception {
+        StorageSetup.deleteHomeDir(HOME_DIR);
+        open();
+    }
+
+    @Override
+    public KeyColumnValueStoreManager openStorageManager() throws StorageException {
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildConfiguration();
+        config.set(GraphDatabaseConfiguration.STORAGE_DIRECTORY, StorageSetup.getHomeDir(HOME_DIR));
+        config.set(InMemoryStoreManager.PERSISTENCE, true);
+        config.set(InMemoryStoreManager.SNAPSHOT_INTERVAL, new SimpleDuration(snapshotIntervalMs, TimeUnit.MILLISECONDS));
+        return new InMemoryStoreManager(config);
+    }
+
+    @Test
+    public void testRecoverFromLog() throws Exception {
+        KeyColumnValueStoreUtil.insert(store, tx, 0, "col0", "val0");
+        KeyColumnValueStoreUtil.insert(store, tx, 0, "col1", "val1");
+        KeyColumnValueStoreUtil.insert(store, tx, 1, "col0", "val2");
+        KeyColumnValueStoreUtil.delete(store, tx, 0, "col1");
+        tx.commit();
+
+        //Open a second store manager without closing the first one, as if the jvm had crashed
+        KeyColumnValueStoreManager recovered = openStorageManager();
+        KeyColumnValueStore recoveredStore = recovered.openDatabase(storeName);
+        StoreTransaction recoveredTx = recovered.beginTransaction(getTxConfig());
+        assertEquals("val0", KeyColumnValueStoreUtil.get(recoveredStore, recoveredTx, 0, "col0"));
+        assertNull(KeyColumnValueStoreUtil.get(recoveredStore, recoveredTx, 0, "col1"));
+        assertEquals("val2", KeyColumnValueStoreUtil.get(recoveredStore, recoveredTx, 1, "col0"));
+        recoveredTx.commit();
+        recovered.close();
+        tx = startTx();
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentMutationsAndSnapshots() throws Exception {
+        snapshotIntervalMs = 1;
+        clopen();
+        final int numThreads = 4, numColumns = 500;
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[numThreads];
+        for (int t = 0; t < numThreads; t++) {
+            final long key = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        StoreTransaction threadTx = startTx();
+                        for (int i = 0; i < numColumns; i++) {
+                            KeyColumnValueStoreUtil.insert(store, threadTx, key, "col" + i, "val" + i);
+                        }
+                        threadTx.commit();
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertNull(failure.get());
+
+        verifyColumns(numThreads, numColumns);
+        //The final snapshot restores all mutations
+        snapshotIntervalMs = 0;
+        clopen();
+        verifyColumns(numThreads, numColumns);
+    }
+
+    private void verifyColumns(int numKeys, int numColumns) throws StorageException {
+        for (long key = 0; key < numKeys; key++) {
+            for (int i = 0; i < numColumns; i++) {
+                assertEquals("val" + i, KeyColumnValueStoreUtil.get(store, tx, key, "col" + i));
+            }
+        }
+    }
+
+    @Test
+    public void testLargeRowMutations() throws Exception {
+        Random random = new Random(7);
+        StaticBuffer key = KeyColumnValueStoreUtil.longToByteBuffer(5);
+        TreeMap<Long, Long> expected = new TreeMap<Long, Long>();
+        for (int round = 0; round < 200; round++) {
+            Map<Long, Long> additions = new HashMap<Long, Long>();
+            Set<Long> deletions = new HashSet<Long>();
+            //Alternate between large and small mutations concentrated on a part of the row
+            int num = round % 10 == 0 ? 1000 : random.nextInt(20) + 1;
+            long base = random.nextInt(5000);
+            for (int i = 0; i < num; i++) {
+                long column = round % 10 == 0 ? random.nextInt(10000) : base + random.nextInt(100);
+                if (random.nextInt(4) == 0) deletions.add(column);
+                else additions.put(column, random.nextLong());
+            }
+            //Additions take precedence over deletions of the same column
+            deletions.removeAll(additions.keySet());
+            List<Entry> addEntries = new ArrayList<Entry>();
+            for (Map.Entry<Long, Long> add : additions.entrySet()) {
+                addEntries.add(StaticArrayEntry.of(BufferUtil.getLongBuffer(add.getKey()), BufferUtil.getLongBuffer(add.getValue())));
+            }
+            List<StaticBuffer> delBuffers = new ArrayList<StaticBuffer>();
+            for (Long del : deletions) delBuffers.add(BufferUtil.getLongBuffer(del));
+            expected.keySet().removeAll(deletions);
+            expected.putAll(additions);
+            store.mutate(key, addEntries, delBuffers, tx);
+            if (round % 50 == 49) clopen();
+            verifyRow(key, expected, random);
+        }
+    }
+
+    private void verifyRow(StaticBuffer key, TreeMap<Long, Long> expected, Random random) throws StorageException {
+        List<Entry> all = store.getSlice(new KeySliceQuery(key, BufferUtil.zeroBuffer(8), BufferUtil.oneBuffer(8)), tx);
+        assertEquals(expected.size(), all.size());
+        Iterator<Map.Entry<Long, Long>> iter = expected.entrySet().iterator();
+        for (Entry e : all) {
+            Map.Entry<Long, Long> exp = iter.next();
+            assertEquals(exp.getKey().longValue(), e.getColumn().getLong(0));
+            assertEquals(exp.getValue().longValue(), e.getValue().getLong(0));
+        }
+        //Verify a random slice with limit
+        long start = random.nextInt(10000), end = start + random.nextInt(2000);
+        int limit = random.nextInt(100) + 1;
+        List<Entry> slice = store.getSlice(new KeySliceQuery(key, BufferUtil.getLongBuffer(start),
+                BufferUtil.getLongBuffer(end)).setLimit(limit), tx);
+        List<Long> expectedColumns = new ArrayList<Long>(expected.subMap(start, end).keySet());
+        if (expectedColumns.size() > limit) expectedColumns = expectedColumns.subList(0, limit);
+        assertEquals(expectedColumns.size(), slice.size());
+        for (int i = 0; i < slice.size(); i++) {
+            assertEquals(expectedColumns.get(i).longValue(), slice.get(i).getColumn().getLong(0));
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package com.thinkaurelius.titan.diskstorage.keycolumnvalue;
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
 import com.thinkaurelius.titan.diskstorage.*;
+import com.thinkaurelius.titan.diskstorage.util.BufferUtil;
 import com.thinkaurelius.titan.diskstorage.util.StaticArrayBuffer;
 import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
 import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntryList;
@@ -17,6 +18,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static org.junit.Assert.*;
 
@@ -156,6 +158,71 @@ public class StaticArrayEntryTest {
     }
 
 
+    @Test
+    public void testEntryListSubList() {
+        Map<Integer,Long> entries = new TreeMap<Integer,Long>();
+        for (int i=0;i<50;i++) entries.put(i*2+7,Math.round(Math.random()/2*Long.MAX_VALUE));
+        EntryList el = StaticArrayEntryList.ofStaticBuffer(entries.entrySet(), StaticEntryGetter.INSTANCE);
+        el.get(20).setCache(cache);
+
+        EntryList sub = (EntryList)el.subList(10,30);
+        assertEquals(20,sub.size());
+        for (int i = 0; i < sub.size(); i++) {
+            assertEquals(el.get(10+i),sub.get(i));
+            checkEntry(sub.get(i),entries);
+        }
+        //Sub lists share the relation caches with their parent
+        assertEquals(cache,sub.get(10).getCache());
+        sub.get(0).setCache(cache);
+        assertEquals(cache,el.get(10).getCache());
+        int num=0;
+        for (Iterator<Entry> iter = sub.reuseIterator(); iter.hasNext(); num++) {
+            Entry e = iter.next();
+            assertEquals(el.get(10+num),e);
+            checkEntry(e,entries);
+        }
+        assertEquals(20,num);
+
+        EntryList subsub = (EntryList)sub.subList(5,6);
+        assertEquals(1,subsub.size());
+        assertEquals(el.get(15),subsub.get(0));
+        assertTrue(sub.subList(3,3).isEmpty());
+
+        //Views must not expose the entries of their parent beyond their range
+        try {
+            sub.get(20);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+    }
+
+    @Test
+    public void testSliceQuerySubset() {
+        Map<Integer,Long> entries = new TreeMap<Integer,Long>();
+        for (int i=0;i<50;i++) entries.put(i*2+7,(long)i);
+        EntryList el = StaticArrayEntryList.ofStaticBuffer(entries.entrySet(), StaticEntryGetter.INSTANCE);
+        SliceQuery all = new SliceQuery(BufferUtil.getIntBuffer(0),BufferUtil.getIntBuffer(1000));
+
+        //Columns are 7,9,...,105
+        SliceQuery query = new SliceQuery(BufferUtil.getIntBuffer(20),BufferUtil.getIntBuffer(31));
+        EntryList subset = query.getSubset(all,el);
+        assertEquals(5,subset.size());
+        assertEquals(21,subset.get(0).getInt(0));
+        assertEquals(29,subset.get(4).getInt(0));
+
+        query = new SliceQuery(BufferUtil.getIntBuffer(21),BufferUtil.getIntBuffer(29)).setLimit(2);
+        subset = query.getSubset(all,el);
+        assertEquals(2,subset.size());
+        assertEquals(21,subset.get(0).getInt(0));
+        assertEquals(23,subset.get(1).getInt(0));
+
+        query = new SliceQuery(BufferUtil.getIntBuffer(200),BufferUtil.getIntBuffer(300));
+        assertTrue(query.getSubset(all,el).isEmpty());
+        query = new SliceQuery(BufferUtil.getIntBuffer(21),BufferUtil.getIntBuffer(22));
+        assertEquals(1,query.getSubset(all,el).size());
+        query = new SliceQuery(BufferUtil.getIntBuffer(22),BufferUtil.getIntBuffer(23));
+        assertTrue(query.getSubset(all,el).isEmpty());
+    }
 
     private static void checkEntry(Entry e, Map<Integer,Long> entries) {
         ReadBuffer rb = e.asReadBuffer();
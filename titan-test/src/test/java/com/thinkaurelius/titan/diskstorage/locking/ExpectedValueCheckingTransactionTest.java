@@ -0,0 +1,238 @@
+package com.thinkaurelius.titan.diskstorage.locking;
+
+import static com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeyColumnValueStore.NO_DELETIONS;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.thinkaurelius.titan.diskstorage.*;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.*;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.inmemory.InMemoryStoreManager;
+import com.thinkaurelius.titan.diskstorage.locking.consistentkey.ExpectedValueCheckingStoreManager;
+import com.thinkaurelius.titan.diskstorage.util.KeyColumn;
+import com.thinkaurelius.titan.diskstorage.util.StandardTransactionHandleConfig;
+import com.thinkaurelius.titan.diskstorage.util.StaticArrayEntry;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+
+/**
+ * Verifies the expected values of locks held on several stores with the checks running
+ * concurrently on an executor and locked keys grouped into multi-key slices.
+ */
+public class ExpectedValueCheckingTransactionTest {
+
+    private static final Locker NO_OP_LOCKER = new Locker() {
+        @Override
+        public void writeLock(KeyColumn lockID, StoreTransaction tx) {
+        }
+
+        @Override
+        public void checkLocks(StoreTransaction tx) {
+        }
+
+        @Override
+        public void deleteLocks(StoreTransaction tx) {
+        }
+    };
+
+    private final StaticBuffer c1 = KeyValueStoreUtil.getBuffer("col1"), c2 = KeyValueStoreUtil.getBuffer("col2"),
+            v1 = KeyValueStoreUtil.getBuffer("val1");
+
+    private ExecutorService executor;
+    private RecordingStoreManager dataManager;
+    private KeyColumnValueStoreManager manager;
+
+    @Before
+    public void setUp() throws StorageException {
+        executor = Executors.newFixedThreadPool(2);
+        dataManager = new RecordingStoreManager(new InMemoryStoreManager());
+        manager = new ExpectedValueCheckingStoreManager(dataManager, "_lock_", new LockerProvider() {
+            @Override
+            public Locker getLocker(String lockerName) {
+                return NO_OP_LOCKER;
+            }
+        }, GraphDatabaseConfiguration.STORAGE_READ_WAITTIME.getDefaultValue(), executor);
+    }
+
+    @After
+    public void tearDown() throws StorageException {
+        executor.shutdownNow();
+        manager.close();
+    }
+
+    private StoreTransaction newTransaction() throws StorageException {
+        return manager.beginTransaction(StandardTransactionHandleConfig.of());
+    }
+
+    @Test
+    public void concurrentChecksUseSeparateReadTransactions() throws StorageException {
+        KeyColumnValueStore a = manager.openDatabase("a"), b = manager.openDatabase("b");
+        StoreTransaction tx = newTransaction();
+        for (int i = 0; i < 5; i++) {
+            a.acquireLock(KeyColumnValueStoreUtil.longToByteBuffer(i), c1, null, tx);
+            b.acquireLock(KeyColumnValueStoreUtil.longToByteBuffer(i), c1, null, tx);
+        }
+        a.acquireLock(KeyColumnValueStoreUtil.longToByteBuffer(0), c2, null, tx);
+        a.mutate(KeyColumnValueStoreUtil.longToByteBuffer(0), Arrays.<Entry>asList(StaticArrayEntry.of(c1, v1)), NO_DELETIONS, tx);
+
+        //One multi-key slice per store for the shared column, a single slice for the lone column
+        assertEquals(2, dataManager.multiSlices.get());
+        assertEquals(1, dataManager.slices.get());
+        Set<StoreTransaction> readTxs = dataManager.readTxs.get("a");
+        assertEquals(1, readTxs.size());
+        assertEquals(1, dataManager.readTxs.get("b").size());
+        assertTrue(Collections.disjoint(readTxs, dataManager.readTxs.get("b")));
+        assertEquals(1, dataManager.writeTxs.size());
+        assertTrue(Collections.disjoint(readTxs, dataManager.writeTxs));
+        tx.commit();
+    }
+
+    @Test
+    public void concurrentMismatchCausesMutateFailure() throws StorageException {
+        KeyColumnValueStore a = manager.openDatabase("a"), b = manager.openDatabase("b");
+        StoreTransaction tx = newTransaction();
+        for (int i = 0; i < 5; i++) {
+            a.acquireLock(KeyColumnValueStoreUtil.longToByteBuffer(i), c1, null, tx);
+            b.acquireLock(KeyColumnValueStoreUtil.longToByteBuffer(i), c1, i == 3 ? v1 : null, tx);
+        }
+        try {
+            a.mutate(KeyColumnValueStoreUtil.longToByteBuffer(0), Arrays.<Entry>asList(StaticArrayEntry.of(c1, v1)), NO_DELETIONS, tx);
+            fail("Expected value mismatch not detected");
+        } catch (PermanentLockingException e) {
+            //Expected
+        }
+        assertTrue(dataManager.writeTxs.isEmpty());
+        tx.rollback();
+    }
+
+    private static class RecordingStoreManager implements KeyColumnValueStoreManager {
+
+        private final InMemoryStoreManager manager;
+        private final StoreFeatures features;
+        private final AtomicInteger slices = new AtomicInteger();
+        private final AtomicInteger multiSlices = new AtomicInteger();
+        private final Map<String, Set<StoreTransaction>> readTxs = new ConcurrentHashMap<String, Set<StoreTransaction>>();
+        private final Set<StoreTransaction> writeTxs = Collections.synchronizedSet(new HashSet<StoreTransaction>());
+
+        private RecordingStoreManager(InMemoryStoreManager manager) {
+            this.manager = manager;
+            this.features = new StandardStoreFeatures.Builder(manager.getFeatures()).multiQuery(true).build();
+        }
+
+        @Override
+        public KeyColumnValueStore openDatabase(String name) throws StorageException {
+            readTxs.put(name, Collections.synchronizedSet(new HashSet<StoreTransaction>()));
+            return new RecordingStore(manager.openDatabase(name));
+        }
+
+        @Override
+        public void mutateMany(Map<String, Map<StaticBuffer, KCVMutation>> mutations, StoreTransaction txh) throws StorageException {
+            manager.mutateMany(mutations, txh);
+        }
+
+        @Override
+        public StoreTransaction beginTransaction(TransactionHandleConfig config) throws StorageException {
+            return manager.beginTransaction(config);
+        }
+
+        @Override
+        public void close() throws StorageException {
+            manager.close();
+        }
+
+        @Override
+        public void clearStorage() throws StorageException {
+            manager.clearStorage();
+        }
+
+        @Override
+        public StoreFeatures getFeatures() {
+            return features;
+        }
+
+        @Override
+        public String getName() {
+            return manager.getName();
+        }
+
+        private class RecordingStore implements KeyColumnValueStore {
+
+            private final KeyColumnValueStore store;
+
+            private RecordingStore(KeyColumnValueStore store) {
+                this.store = store;
+            }
+
+            @Override
+            public boolean containsKey(StaticBuffer key, StoreTransaction txh) throws StorageException {
+                return store.containsKey(key, txh);
+            }
+
+            @Override
+            public EntryList getSlice(KeySliceQuery query, StoreTransaction txh) throws StorageException {
+                slices.incrementAndGet();
+                readTxs.get(getName()).add(txh);
+                return store.getSlice(query, txh);
+            }
+
+            @Override
+            public Map<StaticBuffer, EntryList> getSlice(List<StaticBuffer> keys, SliceQuery query, StoreTransaction txh) throws StorageException {
+                multiSlices.incrementAndGet();
+                readTxs.get(getName()).add(txh);
+                Map<StaticBuffer, EntryList> result = new HashMap<StaticBuffer, EntryList>(keys.size());
+                for (StaticBuffer key : keys) result.put(key, store.getSlice(new KeySliceQuery(key, query), txh));
+                return result;
+            }
+
+            @Override
+            public void mutate(StaticBuffer key, List<Entry> additions, List<StaticBuffer> deletions, StoreTransaction txh) throws StorageException {
+                writeTxs.add(txh);
+                store.mutate(key, additions, deletions, txh);
+            }
+
+            @Override
+            public void acquireLock(StaticBuffer key, StaticBuffer column, StaticBuffer expectedValue, StoreTransaction txh) throws StorageException {
+                store.acquireLock(key, column, expectedValue, txh);
+            }
+
+            @Override
+            public KeyIterator getKeys(KeyRangeQuery query, StoreTransaction txh) throws StorageException {
+                return store.getKeys(query, txh);
+            }
+
+            @Override
+            public KeyIterator getKeys(SliceQuery query, StoreTransaction txh) throws StorageException {
+                return store.getKeys(query, txh);
+            }
+
+            @Override
+            public List<KeyRange> getLocalKeyPartition() throws StorageException {
+                return store.getLocalKeyPartition();
+            }
+
+            @Override
+            public String getName() {
+                return store.getName();
+            }
+
+            @Override
+            public void close() throws StorageException {
+                store.close();
+            }
+        }
+    }
+
+}
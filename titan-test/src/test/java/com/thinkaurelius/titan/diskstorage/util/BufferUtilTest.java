@@ -73,6 +73,23 @@ public class BufferUtilTest {
 
     }
 
+    @Test
+    public void testImmediateSuccessor() {
+        int trials = 10000;
+        for (int t = 0; t < trials; t++) {
+            StaticBuffer b = BufferUtil.getLongBuffer(random.nextLong());
+            StaticBuffer bn = BufferUtil.immediateSuccessor(b);
+            assertEquals(9,bn.length());
+            Assert.assertTrue(b.compareTo(bn)<0);
+            //Nothing lies in between, in particular no longer buffer starting with b
+            Assert.assertTrue(bn.compareTo(BufferUtil.nextBiggerBufferAllowOverflow(b))<0 || b.getLong(0)==-1);
+            assertEquals(b,bn.subrange(0,8));
+            assertEquals(0,bn.getByte(8));
+        }
+        StaticBuffer empty = BufferUtil.zeroBuffer(0);
+        assertEquals(1,BufferUtil.immediateSuccessor(empty).length());
+    }
+
     public static ByteBuffer of(long val) {
         ByteBuffer bb = ByteBuffer.allocate(8).putLong(val);
         bb.flip();
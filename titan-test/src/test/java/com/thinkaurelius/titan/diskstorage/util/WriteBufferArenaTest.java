@@ -0,0 +1,99 @@
+package com.thinkaurelius.titan.diskstorage.util;
+
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WriteBufferArenaTest {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testSequentialBuffers() {
+        WriteBufferArena arena = new WriteBufferArena(1024);
+        List<byte[]> expected = new ArrayList<byte[]>();
+        List<StaticBuffer> buffers = new ArrayList<StaticBuffer>();
+        for (int i = 0; i < 2000; i++) {
+            //Occasionally exceed the maximum region size to test heap allocated buffers
+            byte[] content = randomBytes(random.nextInt(10)==0?random.nextInt(300):random.nextInt(40));
+            WriteByteBuffer out = new WriteByteBuffer(16, arena);
+            for (byte b : content) out.putByte(b);
+            expected.add(content);
+            buffers.add(out.getStaticBuffer());
+        }
+        verify(expected,buffers);
+    }
+
+    @Test
+    public void testInterleavedBuffers() {
+        WriteBufferArena arena = new WriteBufferArena(512);
+        List<byte[]> expected = new ArrayList<byte[]>();
+        List<StaticBuffer> buffers = new ArrayList<StaticBuffer>();
+        for (int i = 0; i < 500; i++) {
+            int num = random.nextInt(4)+1;
+            WriteByteBuffer[] outs = new WriteByteBuffer[num];
+            byte[][] contents = new byte[num][];
+            for (int j = 0; j < num; j++) {
+                outs[j] = new WriteByteBuffer(random.nextInt(8)+1, arena);
+                contents[j] = randomBytes(random.nextInt(30));
+            }
+            //Write into all buffers alternately
+            for (int pos = 0; pos < 30; pos++) {
+                for (int j = 0; j < num; j++) {
+                    if (pos<contents[j].length) outs[j].putByte(contents[j][pos]);
+                }
+            }
+            for (int j = 0; j < num; j++) {
+                //Continue writing after a static buffer has been retrieved
+                if (random.nextBoolean()) {
+                    expected.add(contents[j]);
+                    buffers.add(outs[j].getStaticBuffer());
+                    byte[] more = randomBytes(random.nextInt(20));
+                    for (byte b : more) outs[j].putByte(b);
+                    byte[] all = new byte[contents[j].length+more.length];
+                    System.arraycopy(contents[j],0,all,0,contents[j].length);
+                    System.arraycopy(more,0,all,contents[j].length,more.length);
+                    contents[j]=all;
+                }
+            }
+            for (int j = num-1; j >= 0; j--) {
+                expected.add(contents[j]);
+                buffers.add(outs[j].getStaticBuffer());
+            }
+        }
+        verify(expected,buffers);
+    }
+
+    @Test
+    public void testFlipBytes() {
+        WriteBufferArena arena = new WriteBufferArena();
+        WriteByteBuffer out = new WriteByteBuffer(4, arena);
+        out.putLong(5).putInt(7);
+        StaticBuffer flipped = out.getStaticBufferFlipBytes(0,8);
+        WriteByteBuffer other = new WriteByteBuffer(8, arena);
+        other.putLong(-1);
+        assertEquals(~5l,flipped.getLong(0));
+        assertEquals(7,flipped.getInt(8));
+        assertEquals(-1l,other.getStaticBuffer().getLong(0));
+        assertEquals(12,flipped.length());
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void verify(List<byte[]> expected, List<StaticBuffer> buffers) {
+        assertEquals(expected.size(),buffers.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(StaticArrayBuffer.of(expected.get(i)),buffers.get(i));
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.thinkaurelius.titan.graphdb.database;
+
+import com.google.common.collect.Iterables;
+import com.thinkaurelius.titan.core.*;
+import com.thinkaurelius.titan.core.attribute.Cmp;
+import com.thinkaurelius.titan.diskstorage.StaticBuffer;
+import com.thinkaurelius.titan.diskstorage.BackendTransaction;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeyIterator;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.KeySliceQuery;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.SliceQuery;
+import com.thinkaurelius.titan.diskstorage.util.BufferUtil;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import com.thinkaurelius.titan.graphdb.database.idhandling.IDHandler;
+import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
+import com.thinkaurelius.titan.graphdb.internal.RelationCategory;
+import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Edge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration.*;
+import static org.junit.Assert.*;
+
+public class PartitionedVertexTest {
+
+    private static final int NUM_CUTS = 4;
+
+    private StandardTitanGraph graph;
+
+    @Before
+    public void setUp() {
+        graph = (StandardTitanGraph) TitanFactory.open(GraphDatabaseConfiguration.buildConfiguration()
+                .set(STORAGE_BACKEND, "inmemory").set(IDS_PARTITIONED_VERTEX_CUTS, NUM_CUTS));
+        TitanManagement mgmt = graph.getManagementSystem();
+        mgmt.makeKey("name").dataType(String.class).make();
+        TitanKey weight = mgmt.makeKey("weight").dataType(Integer.class).make();
+        mgmt.makeLabel("rated").sortKey(weight).make();
+        mgmt.makeLabel("parent").multiplicity(Multiplicity.MANY2ONE).make();
+        mgmt.commit();
+    }
+
+    @After
+    public void tearDown() {
+        graph.shutdown();
+    }
+
+    @Test
+    public void testPartitionedVertex() {
+        TitanTransaction tx = graph.newTransaction();
+        TitanVertex hub = tx.addPartitionedVertex();
+        hub.setProperty("name", "hub");
+        for (int i = 0; i < 40; i++) {
+            hub.addEdge("rated", tx.addVertex()).setProperty("weight", i);
+        }
+        for (int i = 0; i < 10; i++) {
+            tx.addVertex().addEdge("rated", hub).setProperty("weight", i);
+        }
+        hub.addEdge("parent", tx.addVertex());
+        tx.commit();
+        long hubId = hub.getID();
+        assertTrue(graph.getIDInspector().isPartitionedVertexId(hubId));
+
+        tx = graph.newTransaction();
+        hub = tx.getVertex(hubId);
+        assertNotNull(hub);
+        //Partitioned vertices are user vertices and must not be treated as hidden
+        assertFalse(((InternalVertex) hub).isHidden());
+        assertEquals("hub", hub.getProperty("name"));
+        assertEquals(40, hub.query().labels("rated").direction(Direction.OUT).count());
+        assertEquals(10, hub.query().labels("rated").direction(Direction.IN).count());
+        assertEquals(50, hub.query().labels("rated").count());
+        assertEquals(10, hub.query().labels("rated").direction(Direction.OUT).has("weight", Cmp.GREATER_THAN_EQUAL, 30).count());
+        assertEquals(1, Iterables.size(hub.getVertices(Direction.OUT, "parent")));
+        //The slices of all rows are merged in sort order before the limit is applied
+        int expected = 0;
+        for (Edge e : hub.query().labels("rated").direction(Direction.OUT).limit(5).edges()) {
+            assertEquals(expected++, e.getProperty("weight"));
+        }
+        assertEquals(5, expected);
+        assertEquals(1 + 40 + 10 + 1, Iterables.size(tx.getVertices()));
+
+        //The edges are spread across the rows of the partitioned vertex
+        Set<StaticBuffer> cutKeys = new HashSet<StaticBuffer>();
+        KeyIterator keys = ((StandardTitanTx) tx).getTxHandle().edgeStoreKeys(
+                new SliceQuery(BufferUtil.zeroBuffer(4), BufferUtil.oneBuffer(4)).setLimit(1));
+        while (keys.hasNext()) {
+            StaticBuffer key = keys.next();
+            if (IDHandler.isCutKey(key)) cutKeys.add(key);
+        }
+        assertTrue(cutKeys.size() > 1 && cutKeys.size() <= NUM_CUTS);
+        //Reading the whole adjacency list merges the vertex row with all cut rows (as done by the Hadoop input format)
+        StaticBuffer[] bounds = IDHandler.getBounds(RelationCategory.RELATION);
+        SliceQuery allRelations = new SliceQuery(bounds[0], bounds[1]);
+        BackendTransaction txh = ((StandardTitanTx) tx).getTxHandle();
+        int numEntries = txh.edgeStoreQuery(new KeySliceQuery(IDHandler.getKey(hubId), allRelations)).size();
+        for (StaticBuffer cutKey : cutKeys) numEntries += txh.edgeStoreQuery(new KeySliceQuery(cutKey, allRelations)).size();
+        assertEquals(numEntries, graph.edgeQuery(hubId, allRelations, txh).size());
+
+        for (Edge e : hub.query().labels("rated").direction(Direction.OUT).has("weight", Cmp.LESS_THAN, 10).edges()) {
+            e.remove();
+        }
+        tx.commit();
+
+        tx = graph.newTransaction();
+        hub = tx.getVertex(hubId);
+        assertEquals(30, hub.query().labels("rated").direction(Direction.OUT).count());
+        assertEquals(10, hub.query().labels("rated").direction(Direction.IN).count());
+        hub.remove();
+        tx.commit();
+
+        tx = graph.newTransaction();
+        assertNull(tx.getVertex(hubId));
+        tx.commit();
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.thinkaurelius.titan.graphdb.database.cache;
+
+import com.google.common.collect.Iterables;
+import com.thinkaurelius.titan.StorageSetup;
+import com.thinkaurelius.titan.core.ConsistencyModifier;
+import com.thinkaurelius.titan.core.TitanFactory;
+import com.thinkaurelius.titan.core.TitanKey;
+import com.thinkaurelius.titan.core.TitanLabel;
+import com.thinkaurelius.titan.core.TitanManagement;
+import com.thinkaurelius.titan.core.TitanTransaction;
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.diskstorage.keycolumnvalue.inmemory.InMemoryStoreManager;
+import com.thinkaurelius.titan.graphdb.database.StandardTitanGraph;
+import com.thinkaurelius.titan.graphdb.internal.InternalType;
+import com.thinkaurelius.titan.util.stats.MetricManager;
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration.*;
+import static org.junit.Assert.*;
+
+public class SchemaPreloadTest {
+
+    private static final String HOME_DIR = "schemapreload";
+    private static final String METRICS = "schemapreload";
+
+    private StandardTitanGraph graph;
+
+    @Before
+    public void setUp() {
+        StorageSetup.deleteHomeDir(HOME_DIR);
+    }
+
+    @After
+    public void tearDown() {
+        if (graph != null) graph.shutdown();
+    }
+
+    private StandardTitanGraph open(boolean preload) {
+        ModifiableConfiguration config = buildConfiguration();
+        config.set(STORAGE_BACKEND, "inmemory");
+        config.set(STORAGE_DIRECTORY, StorageSetup.getHomeDir(HOME_DIR));
+        config.set(InMemoryStoreManager.PERSISTENCE, true);
+        config.set(SCHEMA_PRELOAD, preload);
+        config.set(BASIC_METRICS, true);
+        config.set(METRICS_PREFIX, METRICS);
+        return (StandardTitanGraph) TitanFactory.open(config);
+    }
+
+    @Test
+    public void testPreloadOnStartup() {
+        graph = open(false);
+        TitanManagement mgmt = graph.getManagementSystem();
+        TitanKey name = mgmt.makeKey("name").dataType(String.class).make();
+        TitanLabel knows = mgmt.makeLabel("knows").make();
+        mgmt.setConsistency(name, ConsistencyModifier.LOCK);
+        mgmt.createInternalIndex("byName", Vertex.class, name);
+        mgmt.commit();
+        long nameId = name.getID(), knowsId = knows.getID();
+        graph.shutdown();
+        assertEquals(0, MetricManager.INSTANCE.getTimer(METRICS, MetricInstrumentedSchemaCache.METRICS_NAME,
+                MetricInstrumentedSchemaCache.METRICS_PRELOAD, "time").getCount());
+
+        graph = open(true);
+        SchemaSnapshot snapshot = graph.getSchemaSnapshot();
+        assertEquals("name", snapshot.get(nameId).getName());
+        assertEquals("knows", snapshot.get(knowsId).getName());
+        assertEquals(1, MetricManager.INSTANCE.getTimer(METRICS, MetricInstrumentedSchemaCache.METRICS_NAME,
+                MetricInstrumentedSchemaCache.METRICS_PRELOAD, "time").getCount());
+
+        //Transactions use the preloaded schema
+        TitanTransaction tx = graph.newTransaction();
+        assertEquals(ConsistencyModifier.LOCK, ((InternalType) tx.getType("name")).getConsistencyModifier());
+        tx.addVertex().setProperty("name", "v1");
+        tx.commit();
+        tx = graph.newTransaction();
+        assertEquals(1, Iterables.size(tx.getVertices("name", "v1")));
+        tx.commit();
+    }
+
+}
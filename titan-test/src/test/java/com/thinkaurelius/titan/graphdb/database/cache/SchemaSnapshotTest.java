@@ -0,0 +1,80 @@
+package com.thinkaurelius.titan.graphdb.database.cache;
+
+import com.thinkaurelius.titan.StorageSetup;
+import com.thinkaurelius.titan.core.ConsistencyModifier;
+import com.thinkaurelius.titan.core.TitanKey;
+import com.thinkaurelius.titan.core.TitanManagement;
+import com.thinkaurelius.titan.graphdb.database.StandardTitanGraph;
+import com.thinkaurelius.titan.graphdb.internal.InternalType;
+import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
+import com.thinkaurelius.titan.graphdb.types.TypeDefinitionMap;
+import com.thinkaurelius.titan.graphdb.types.vertices.TitanSchemaVertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SchemaSnapshotTest {
+
+    private StandardTitanGraph graph;
+
+    @Before
+    public void setUp() {
+        graph = (StandardTitanGraph) StorageSetup.getInMemoryGraph();
+    }
+
+    @After
+    public void tearDown() {
+        graph.shutdown();
+    }
+
+    @Test
+    public void testDefinitionsSharedAcrossTransactions() {
+        TitanKey key = graph.makeKey("name").dataType(String.class).make();
+        long keyId = key.getID();
+        graph.commit();
+
+        StandardTitanTx tx1 = (StandardTitanTx) graph.newTransaction();
+        TitanSchemaVertex type1 = (TitanSchemaVertex) tx1.getType("name");
+        TypeDefinitionMap def1 = type1.getDefinition();
+        assertEquals("name", type1.getName());
+        assertNotNull(tx1.getSchemaSnapshot().get(keyId));
+
+        //A subsequent transaction does not compile the definition again
+        StandardTitanTx tx2 = (StandardTitanTx) graph.newTransaction();
+        assertSame(tx1.getSchemaSnapshot(), tx2.getSchemaSnapshot());
+        TitanSchemaVertex type2 = (TitanSchemaVertex) tx2.getType("name");
+        assertNotSame(type1, type2);
+        assertSame(def1, type2.getDefinition());
+
+        //Expiring the type yields a new version without affecting open transactions
+        long version = graph.getSchemaSnapshot().getVersion();
+        graph.expireSchemaSnapshot(keyId);
+        assertEquals(version + 1, graph.getSchemaSnapshot().getVersion());
+        assertNull(graph.getSchemaSnapshot().get(keyId));
+        StandardTitanTx tx3 = (StandardTitanTx) graph.newTransaction();
+        TitanSchemaVertex type3 = (TitanSchemaVertex) tx3.getType("name");
+        assertNotSame(def1, type3.getDefinition());
+        assertEquals(String.class, ((TitanKey) type3).getDataType());
+        assertSame(def1, tx2.getSchemaSnapshot().get(keyId).getDefinition());
+
+        tx1.commit();
+        tx2.commit();
+        tx3.commit();
+    }
+
+    @Test
+    public void testUnnamedSchemaVertices() {
+        TitanManagement mgmt = graph.getManagementSystem();
+        TitanKey uid = mgmt.makeKey("uid").dataType(String.class).make();
+        mgmt.setConsistency(uid, ConsistencyModifier.LOCK);
+        mgmt.commit();
+
+        //The consistency modifier is a schema vertex without a name
+        StandardTitanTx tx = (StandardTitanTx) graph.newTransaction();
+        assertEquals(ConsistencyModifier.LOCK, ((InternalType) tx.getType("uid")).getConsistencyModifier());
+        tx.commit();
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.thinkaurelius.titan.graphdb.database.idassigner.placement;
+
+import com.thinkaurelius.titan.core.TitanFactory;
+import com.thinkaurelius.titan.core.TitanTransaction;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.graphdb.database.StandardTitanGraph;
+import com.thinkaurelius.titan.graphdb.database.idassigner.VertexIDAssigner;
+import com.thinkaurelius.titan.graphdb.idmanagement.IDManager;
+import com.thinkaurelius.titan.graphdb.transaction.StandardTitanTx;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration.*;
+import static org.junit.Assert.*;
+
+public class LocalityPlacementStrategyTest {
+
+    private StandardTitanGraph graph;
+
+    @After
+    public void tearDown() {
+        if (graph != null) graph.shutdown();
+    }
+
+    private void open(int blockSize) {
+        open(blockSize, SimpleBulkPlacementStrategy.CONCURRENT_PARTITIONS.getDefaultValue());
+    }
+
+    private void open(int blockSize, int numPartitions) {
+        graph = (StandardTitanGraph) TitanFactory.open(getConfiguration(blockSize, numPartitions));
+    }
+
+    private static ModifiableConfiguration getConfiguration(int blockSize, int numPartitions) {
+        ModifiableConfiguration config = buildConfiguration();
+        config.set(STORAGE_BACKEND, "inmemory");
+        config.set(IDS_PARTITION, true);
+        config.set(IDS_FLUSH, false);
+        config.set(IDS_BLOCK_SIZE, blockSize);
+        config.set(SimpleBulkPlacementStrategy.CONCURRENT_PARTITIONS, numPartitions);
+        config.set(VertexIDAssigner.PLACEMENT_STRATEGY, "locality");
+        config.set(LocalityPlacementStrategy.LOCALITY_KEY, "tenant");
+        return config;
+    }
+
+    private long getPartition(TitanVertex vertex) {
+        return graph.getIDInspector().getPartitionId(vertex.getID());
+    }
+
+    @Test
+    public void testNeighborPlacement() {
+        open(10000);
+        TitanTransaction tx = graph.newTransaction();
+        TitanVertex hub = tx.addVertex();
+        tx.commit();
+
+        tx = graph.newTransaction();
+        hub = tx.getVertex(hub.getID());
+        List<TitanVertex> vertices = new ArrayList<TitanVertex>();
+        //A chain hanging off the existing vertex and an unconnected component
+        TitanVertex previous = hub;
+        for (int i = 0; i < 20; i++) {
+            TitanVertex v = tx.addVertex();
+            v.addEdge("next", previous);
+            vertices.add(v);
+            previous = v;
+        }
+        TitanVertex a = tx.addVertex(), b = tx.addVertex();
+        a.addEdge("next", b);
+        tx.commit();
+
+        for (TitanVertex v : vertices) assertEquals(getPartition(hub), getPartition(v));
+        assertEquals(getPartition(a), getPartition(b));
+    }
+
+    @Test
+    public void testKeyPlacement() {
+        open(10000);
+        Set<Long> partitions = new HashSet<Long>();
+        for (int i = 0; i < 5; i++) {
+            TitanTransaction tx = graph.newTransaction();
+            TitanVertex v = tx.addVertex();
+            v.setProperty("tenant", "acme");
+            tx.commit();
+            partitions.add(getPartition(v));
+        }
+        assertEquals(1, partitions.size());
+    }
+
+    @Test
+    public void testBalancing() {
+        open(50);
+        TitanTransaction tx = graph.newTransaction();
+        TitanVertex hub = tx.addVertex();
+        tx.commit();
+
+        tx = graph.newTransaction();
+        hub = tx.getVertex(hub.getID());
+        List<TitanVertex> leaves = new ArrayList<TitanVertex>();
+        for (int i = 0; i < 300; i++) {
+            TitanVertex v = tx.addVertex();
+            v.addEdge("in", hub);
+            leaves.add(v);
+        }
+        tx.commit();
+
+        int colocated = 0;
+        for (TitanVertex v : leaves) if (getPartition(v) == getPartition(hub)) colocated++;
+        //The leaves are co-located with the hub until its partition becomes overloaded
+        assertTrue(colocated >= 50);
+        assertTrue(colocated < leaves.size());
+    }
+
+    @Test
+    public void testDeterministicKeyPlacement() {
+        //Different instances choose different current partitions but hash keys onto the same partition
+        Set<Long> partitions = new HashSet<Long>();
+        for (int i = 0; i < 3; i++) {
+            open(10000);
+            TitanTransaction tx = graph.newTransaction();
+            TitanVertex v = tx.addVertex();
+            v.setProperty("tenant", "acme");
+            tx.commit();
+            partitions.add(getPartition(v));
+            graph.shutdown();
+            graph = null;
+        }
+        assertEquals(1, partitions.size());
+    }
+
+    @Test
+    public void testBoundedPools() {
+        ModifiableConfiguration config = getConfiguration(10000, 3);
+        config.set(VertexIDAssigner.MAX_OPEN_POOLS, 5);
+        graph = (StandardTitanGraph) TitanFactory.open(config);
+        Set<Long> partitions = new HashSet<Long>();
+        TitanTransaction tx = graph.newTransaction();
+        List<TitanVertex> vertices = new ArrayList<TitanVertex>();
+        for (int i = 0; i < 100; i++) {
+            TitanVertex v = tx.addVertex();
+            v.setProperty("tenant", "tenant" + i);
+            vertices.add(v);
+        }
+        tx.commit();
+        for (TitanVertex v : vertices) partitions.add(getPartition(v));
+        //Distinct key values are spread over the local partitions while the open pools are recycled
+        assertTrue(partitions.size() > 5);
+
+        //A neighbor in a local partition that is not a current partition pulls new vertices into it
+        int foreign = 0;
+        while (partitions.contains((long) foreign)) foreign++;
+        StandardTitanTx stx = (StandardTitanTx) graph.newTransaction();
+        TitanVertex outsider = stx.addVertex(IDManager.VertexIDType.Vertex, foreign);
+        stx.commit();
+        tx = graph.newTransaction();
+        outsider = tx.getVertex(outsider.getID());
+        TitanVertex v = tx.addVertex();
+        v.addEdge("next", outsider);
+        tx.commit();
+        assertEquals(foreign, getPartition(outsider));
+        assertEquals(foreign, getPartition(v));
+    }
+
+}
@@ -76,6 +76,26 @@ public class IDManagementTest {
         long id = eid.getVertexID(count, partition);
         assertTrue(isp.isVertexId(id));
         assertEquals(eid.getPartitionId(id), partition);
+        assertFalse(isp.isPartitionedVertexId(id));
+        assertFalse(IDManager.isHidden(id));
+
+        id = eid.getPartitionedVertexID(count, partition);
+        assertTrue(isp.isVertexId(id));
+        assertTrue(isp.isPartitionedVertexId(id));
+        assertEquals(eid.getPartitionId(id), partition);
+        assertFalse(IDManager.isHidden(id));
+        assertFalse(IDManager.VertexIDType.HiddenVertex.is(id));
+        int numCuts = 8;
+        for (int cut = 0; cut < numCuts; cut++) {
+            long cutId = eid.getPartitionedVertexCutID(id, cut, numCuts);
+            assertTrue(isp.isPartitionedVertexId(cutId));
+            assertTrue(eid.getPartitionId(cutId) < eid.getPartitionBound());
+            if (eid.getPartitionBound() >= numCuts) assertEquals(eid.getPartitionId(id) == eid.getPartitionId(cutId), cut == 0);
+            StaticBuffer cutKey = IDHandler.getCutKey(cutId, cut);
+            assertTrue(IDHandler.isCutKey(cutKey));
+            assertFalse(cutKey.equals(IDHandler.getKey(id)));
+        }
+        assertFalse(IDHandler.isCutKey(IDHandler.getKey(id)));
 
         id = eid.getRelationID(count, partition);
         assertEquals(eid.getPartitionId(id), partition);
@@ -109,6 +129,8 @@ public class IDManagementTest {
         id = IDManager.getTemporaryVertexID(IDManager.VertexIDType.HiddenVertex,1011);
         assertTrue(id<0);
         assertTrue(IDManager.VertexIDType.Hidden.is(id));
+        assertTrue(IDManager.isHidden(id));
+        assertFalse(IDManager.VertexIDType.PartitionedVertex.is(id));
 
         try {
             id = IDManager.getTemporaryVertexID(IDManager.VertexIDType.RelationType,5);
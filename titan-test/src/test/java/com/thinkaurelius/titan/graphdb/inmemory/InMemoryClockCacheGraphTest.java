@@ -0,0 +1,20 @@
+package com.thinkaurelius.titan.graphdb.inmemory;
+
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.diskstorage.configuration.WriteConfiguration;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+
+/**
+ * Runs the in-memory graph test suite with the primitive clock vertex cache.
+ */
+public class InMemoryClockCacheGraphTest extends InMemoryGraphTest {
+
+    @Override
+    public WriteConfiguration getConfiguration() {
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildConfiguration();
+        config.set(GraphDatabaseConfiguration.STORAGE_BACKEND,"inmemory");
+        config.set(GraphDatabaseConfiguration.TX_CACHE_TYPE, GraphDatabaseConfiguration.TX_CACHE_TYPE_CLOCK);
+        return config.getConfiguration();
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.thinkaurelius.titan.graphdb.inmemory;
+
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.diskstorage.configuration.WriteConfiguration;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+
+/**
+ * Runs the in-memory graph test suite with compression of all edge store and graph index values.
+ */
+public class InMemoryCompressionGraphTest extends InMemoryGraphTest {
+
+    @Override
+    public WriteConfiguration getConfiguration() {
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildConfiguration();
+        config.set(GraphDatabaseConfiguration.STORAGE_BACKEND,"inmemory");
+        config.set(GraphDatabaseConfiguration.STORAGE_VALUE_COMPRESSION,"deflate");
+        config.set(GraphDatabaseConfiguration.STORAGE_VALUE_COMPRESSION_LEVEL,9);
+        config.set(GraphDatabaseConfiguration.EDGESTORE_COMPRESSION_THRESHOLD,0);
+        config.set(GraphDatabaseConfiguration.INDEXSTORE_COMPRESSION_THRESHOLD,0);
+        return config.getConfiguration();
+    }
+
+}
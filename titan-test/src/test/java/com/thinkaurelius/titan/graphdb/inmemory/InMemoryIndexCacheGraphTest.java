@@ -0,0 +1,74 @@
+package com.thinkaurelius.titan.graphdb.inmemory;
+
+import com.google.common.collect.Iterables;
+import com.thinkaurelius.titan.core.TitanVertex;
+import com.thinkaurelius.titan.diskstorage.configuration.ModifiableConfiguration;
+import com.thinkaurelius.titan.diskstorage.configuration.WriteConfiguration;
+import com.thinkaurelius.titan.graphdb.configuration.GraphDatabaseConfiguration;
+import com.thinkaurelius.titan.graphdb.database.cache.IndexQueryCache;
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the in-memory graph test suite with the graph-wide index query result cache enabled.
+ */
+public class InMemoryIndexCacheGraphTest extends InMemoryGraphTest {
+
+    @Override
+    public WriteConfiguration getConfiguration() {
+        ModifiableConfiguration config = GraphDatabaseConfiguration.buildConfiguration();
+        config.set(GraphDatabaseConfiguration.STORAGE_BACKEND,"inmemory");
+        config.set(GraphDatabaseConfiguration.DB_INDEX_CACHE, true);
+        config.set(GraphDatabaseConfiguration.DB_INDEX_CACHE_TIME, 0l);
+        return config.getConfiguration();
+    }
+
+    @Test
+    public void testIndexCacheInvalidation() {
+        makeVertexIndexedKey("name", String.class);
+        makeVertexIndexedKey("age", Integer.class);
+        finishSchema();
+
+        TitanVertex v = tx.addVertex();
+        v.setProperty("name", "alice");
+        v.setProperty("age", 30);
+        clopen();
+
+        IndexQueryCache cache = graph.getIndexQueryCache();
+        assertNotNull(cache);
+        cache.invalidateAll();
+        assertEquals(1, Iterables.size(tx.getVertices("name", "alice")));
+        assertEquals(1, Iterables.size(tx.getVertices("age", 30)));
+        long size = cache.size();
+        assertTrue(size >= 2);
+        tx.commit();
+
+        //Other transactions are served from the cache
+        for (int i = 0; i < 3; i++) {
+            tx = graph.newTransaction();
+            assertEquals(1, Iterables.size(tx.getVertices("name", "alice")));
+            tx.commit();
+        }
+        assertEquals(size, cache.size());
+
+        //Committing a mutation against one index only invalidates results of that index
+        tx = graph.newTransaction();
+        TitanVertex w = tx.addVertex();
+        w.setProperty("name", "alice");
+        tx.commit();
+        assertTrue(cache.size() > 0 && cache.size() < size);
+
+        tx = graph.newTransaction();
+        assertEquals(2, Iterables.size(tx.getVertices("name", "alice")));
+        assertEquals(1, Iterables.size(tx.getVertices("age", 30)));
+        for (Vertex u : tx.getVertices("name", "alice")) u.remove();
+        tx.commit();
+
+        tx = graph.newTransaction();
+        assertEquals(0, Iterables.size(tx.getVertices("name", "alice")));
+        assertEquals(0, Iterables.size(tx.getVertices("age", 30)));
+    }
+
+}
@@ -0,0 +1,165 @@
+package com.thinkaurelius.titan.graphdb.query;
+
+import com.google.common.collect.ImmutableList;
+import com.thinkaurelius.titan.core.TitanException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class IntersectingRetrievalsTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static class RangeCall implements QueryUtil.IndexCall<Object> {
+
+        private final long start;
+        private final long end;
+        private final long step;
+        int invocations = 0;
+
+        private RangeCall(long start, long end, long step) {
+            this.start = start;
+            this.end = end;
+            this.step = step;
+        }
+
+        @Override
+        public Collection<Object> call(int limit) {
+            invocations++;
+            List<Object> result = new ArrayList<Object>();
+            for (long i = start; i < end && result.size() < limit; i += step) result.add(i);
+            return result;
+        }
+    }
+
+    @Test
+    public void testIntersection() {
+        RangeCall all = new RangeCall(0, 100000, 1);
+        RangeCall even = new RangeCall(0, 100000, 2);
+        RangeCall selective = new RangeCall(0, 300, 3);
+        List<Object> result = QueryUtil.processIntersectingRetrievals(
+                ImmutableList.<QueryUtil.IndexCall<Object>>of(all, even, selective), 1000);
+        Set<Object> expected = new HashSet<Object>();
+        for (long i = 0; i < 300; i += 6) expected.add(i);
+        assertEquals(expected, new HashSet<Object>(result));
+        assertEquals(expected.size(), result.size());
+        //The selective call is complete after the first round and must not be re-invoked
+        assertEquals(1, selective.invocations);
+        assertTrue(all.invocations > 1);
+    }
+
+    @Test
+    public void testPreservesOrderOfFirstRetrieval() {
+        //A sorted retrieval in descending order which is less selective than the second one
+        QueryUtil.IndexCall<Object> sorted = new QueryUtil.IndexCall<Object>() {
+            @Override
+            public Collection<Object> call(int limit) {
+                List<Object> result = new ArrayList<Object>();
+                for (long i = 999; i >= 0 && result.size() < limit; i--) result.add(i);
+                return result;
+            }
+        };
+        RangeCall selective = new RangeCall(0, 1000, 100);
+        List<Object> result = QueryUtil.processIntersectingRetrievals(
+                ImmutableList.<QueryUtil.IndexCall<Object>>of(sorted, selective), 10);
+        assertEquals(ImmutableList.<Object>of(900l, 800l, 700l, 600l, 500l, 400l, 300l, 200l, 100l, 0l), result);
+    }
+
+    @Test
+    public void testEmptyExhaustedShortcut() {
+        RangeCall empty = new RangeCall(0, 0, 1);
+        RangeCall large = new RangeCall(0, 100000, 1);
+        List<Object> result = QueryUtil.processIntersectingRetrievals(
+                ImmutableList.<QueryUtil.IndexCall<Object>>of(empty, large), 10);
+        assertTrue(result.isEmpty());
+        assertEquals(0, large.invocations);
+    }
+
+    @Test
+    public void testLimit() {
+        RangeCall a = new RangeCall(0, 100000, 1);
+        RangeCall b = new RangeCall(0, 100000, 5);
+        List<Object> result = QueryUtil.processIntersectingRetrievals(
+                ImmutableList.<QueryUtil.IndexCall<Object>>of(a, b), 10);
+        assertTrue(result.size() >= 10);
+        for (Object o : result) assertEquals(0, ((Long) o) % 5);
+    }
+
+    @Test
+    public void testConcurrentIntersection() {
+        RangeCall all = new RangeCall(0, 100000, 1);
+        RangeCall even = new RangeCall(0, 100000, 2);
+        RangeCall selective = new RangeCall(0, 300, 3);
+        List<QueryUtil.IndexCall<Object>> calls = ImmutableList.<QueryUtil.IndexCall<Object>>of(all, even, selective);
+        List<Object> result = QueryUtil.processIntersectingRetrievals(calls, 1000, executor);
+        //Concurrent retrieval yields the same results in the same order
+        assertEquals(QueryUtil.processIntersectingRetrievals(calls, 1000), result);
+        assertEquals(50, result.size());
+        //Each of the two invocations retrieved the selective call once
+        assertEquals(2, selective.invocations);
+    }
+
+    @Test
+    public void testConcurrentCancellation() {
+        final CountDownLatch release = new CountDownLatch(1);
+        QueryUtil.IndexCall<Object> slow = new QueryUtil.IndexCall<Object>() {
+            @Override
+            public Collection<Object> call(int limit) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                return ImmutableList.<Object>of(1l);
+            }
+        };
+        RangeCall empty = new RangeCall(0, 0, 1);
+        long start = System.currentTimeMillis();
+        List<Object> result = QueryUtil.processIntersectingRetrievals(
+                ImmutableList.<QueryUtil.IndexCall<Object>>of(slow, empty), 10, executor);
+        //Returns as soon as the empty call completes without waiting for the slow one
+        assertTrue(result.isEmpty());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        release.countDown();
+    }
+
+    @Test
+    public void testConcurrentFailure() {
+        QueryUtil.IndexCall<Object> failing = new QueryUtil.IndexCall<Object>() {
+            @Override
+            public Collection<Object> call(int limit) {
+                throw new IllegalStateException("index failure");
+            }
+        };
+        try {
+            QueryUtil.processIntersectingRetrievals(
+                    ImmutableList.<QueryUtil.IndexCall<Object>>of(new RangeCall(0, 100, 1), failing), 10, executor);
+            fail();
+        } catch (TitanException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.thinkaurelius.titan.graphdb.query;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class LimitAdjustingIteratorTest {
+
+    private static final int NUM_ELEMENTS = 1000;
+
+    /**
+     * Simulates a query over the integers [0,NUM_ELEMENTS) and counts how many elements are retrieved
+     */
+    private static class CountingIterator extends LimitAdjustingIterator<Integer> {
+
+        private final boolean resumable;
+        private int retrieved = 0;
+        private int executions = 0;
+
+        private CountingIterator(int maxLimit, int initialLimit, boolean resumable) {
+            super(maxLimit, initialLimit);
+            this.resumable = resumable;
+        }
+
+        private Iterator<Integer> range(int start, int limit) {
+            executions++;
+            List<Integer> result = Lists.newArrayList();
+            for (int i = start; i < NUM_ELEMENTS && result.size() < limit; i++) result.add(i);
+            retrieved += result.size();
+            return result.iterator();
+        }
+
+        @Override
+        public Iterator<Integer> getNewIterator(int newLimit) {
+            return range(0, newLimit);
+        }
+
+        @Override
+        public Iterator<Integer> getContinuationIterator(Integer last, int limit) {
+            if (!resumable) return null;
+            return range(last + 1, limit);
+        }
+    }
+
+    @Test
+    public void testContinuation() {
+        CountingIterator iter = new CountingIterator(Integer.MAX_VALUE, 10, true);
+        assertEquals(NUM_ELEMENTS, drain(iter));
+        //Every element is retrieved exactly once
+        assertEquals(NUM_ELEMENTS, iter.retrieved);
+        assertEquals(8, iter.executions);
+    }
+
+    @Test
+    public void testReexecution() {
+        CountingIterator iter = new CountingIterator(Integer.MAX_VALUE, 10, false);
+        assertEquals(NUM_ELEMENTS, drain(iter));
+        assertEquals(10 + 20 + 40 + 80 + 160 + 320 + 640 + NUM_ELEMENTS, iter.retrieved);
+        assertEquals(8, iter.executions);
+    }
+
+    @Test
+    public void testMaxLimit() {
+        for (boolean resumable : new boolean[]{true, false}) {
+            CountingIterator iter = new CountingIterator(55, 10, resumable);
+            assertEquals(55, drain(iter));
+            iter = new CountingIterator(NUM_ELEMENTS, 7, resumable);
+            assertEquals(NUM_ELEMENTS, drain(iter));
+        }
+    }
+
+    private static int drain(Iterator<Integer> iter) {
+        int count = 0;
+        while (iter.hasNext()) {
+            assertEquals(count, iter.next().intValue());
+            count++;
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.thinkaurelius.titan.graphdb.query;
+
+import com.google.common.collect.Iterables;
+import com.thinkaurelius.titan.StorageSetup;
+import com.thinkaurelius.titan.core.*;
+import com.thinkaurelius.titan.core.attribute.Cmp;
+import com.thinkaurelius.titan.graphdb.query.profile.QueryProfiler;
+import com.thinkaurelius.titan.graphdb.query.profile.SimpleQueryProfiler;
+import com.tinkerpop.blueprints.Direction;
+import com.tinkerpop.blueprints.Vertex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QueryProfilerTest {
+
+    private TitanGraph graph;
+
+    @Before
+    public void setUp() {
+        graph = StorageSetup.getInMemoryGraph();
+        TitanManagement mgmt = graph.getManagementSystem();
+        TitanKey name = mgmt.makeKey("name").dataType(String.class).make();
+        mgmt.makeKey("age").dataType(Integer.class).make();
+        mgmt.makeKey("weight").dataType(Integer.class).make();
+        mgmt.makeLabel("knows").make();
+        mgmt.createInternalIndex("byName", Vertex.class, name);
+        mgmt.commit();
+    }
+
+    @After
+    public void tearDown() {
+        graph.shutdown();
+    }
+
+    @Test
+    public void testGraphCentricProfile() {
+        TitanTransaction tx = graph.newTransaction();
+        for (int i = 0; i < 10; i++) {
+            TitanVertex v = tx.addVertex();
+            v.setProperty("name", "a");
+            v.setProperty("age", i);
+        }
+        tx.commit();
+
+        tx = graph.newTransaction();
+        SimpleQueryProfiler profiler = new SimpleQueryProfiler();
+        TitanGraphQuery query = tx.query().has("name", "a").has("age", Cmp.GREATER_THAN_EQUAL, 5);
+        assertEquals(5, Iterables.size(query.profiler(profiler).vertices()));
+        tx.commit();
+
+        assertEquals(5, profiler.getCount(QueryProfiler.RESULTS_ANNOTATION));
+        SimpleQueryProfiler construct = getSingle(profiler, QueryProfiler.CONSTRUCT_GRAPH_CENTRIC_QUERY);
+        assertEquals(false, construct.getAnnotation(QueryProfiler.FITTED_ANNOTATION));
+        assertEquals("byName", getSingle(construct, QueryProfiler.INDEX_CANDIDATE).getAnnotation(QueryProfiler.INDEX_ANNOTATION));
+
+        //The index returns all 10 vertices, half of which are filtered in memory
+        SimpleQueryProfiler backend = getSingle(profiler, QueryProfiler.BACKEND_QUERY);
+        assertEquals(10, backend.getCount(QueryProfiler.RESULTS_ANNOTATION));
+        assertEquals(5, backend.getCount(QueryProfiler.FILTERED_ANNOTATION));
+        assertEquals(1, backend.getCount(QueryProfiler.CALLS_ANNOTATION));
+        SimpleQueryProfiler index = getSingle(backend, QueryProfiler.INDEX_QUERY);
+        assertEquals("byName", index.getAnnotation(QueryProfiler.INDEX_ANNOTATION));
+        assertEquals(10, index.getCount(QueryProfiler.RESULTS_ANNOTATION));
+        assertTrue(profiler.getTime(TimeUnit.NANOSECONDS) > 0);
+        assertTrue(profiler.toString().contains("byName"));
+    }
+
+    @Test
+    public void testGraphCentricExplain() {
+        TitanTransaction tx = graph.newTransaction();
+        SimpleQueryProfiler explain = tx.query().has("name", "a").explainVertices();
+        SimpleQueryProfiler construct = getSingle(explain, QueryProfiler.CONSTRUCT_GRAPH_CENTRIC_QUERY);
+        assertEquals(true, construct.getAnnotation(QueryProfiler.FITTED_ANNOTATION));
+        assertEquals("byName", getSingle(construct, QueryProfiler.INDEX_CANDIDATE).getAnnotation(QueryProfiler.INDEX_ANNOTATION));
+        //Nothing is executed
+        assertTrue(explain.getNested(QueryProfiler.BACKEND_QUERY).isEmpty());
+
+        explain = tx.query().has("age", 5).explainVertices();
+        construct = getSingle(explain, QueryProfiler.CONSTRUCT_GRAPH_CENTRIC_QUERY);
+        assertEquals(true, construct.getAnnotation(QueryProfiler.FULLSCAN_ANNOTATION));
+        assertTrue(construct.getNested(QueryProfiler.INDEX_CANDIDATE).isEmpty());
+        tx.commit();
+    }
+
+    @Test
+    public void testVertexCentricProfile() {
+        TitanTransaction tx = graph.newTransaction();
+        TitanVertex v = tx.addVertex();
+        for (int i = 0; i < 20; i++) {
+            v.addEdge("knows", tx.addVertex()).setProperty("weight", i);
+        }
+        tx.commit();
+
+        tx = graph.newTransaction();
+        SimpleQueryProfiler explain = tx.getVertex(v.getID()).query().labels("knows").direction(Direction.OUT)
+                .has("weight", Cmp.GREATER_THAN_EQUAL, 10).limit(3).explainEdges();
+        SimpleQueryProfiler construct = getSingle(explain, QueryProfiler.CONSTRUCT_VERTEX_CENTRIC_QUERY);
+        assertEquals(3, construct.getAnnotation(QueryProfiler.LIMIT_ANNOTATION));
+        assertEquals(false, getSingle(construct, QueryProfiler.BACKEND_QUERY).getAnnotation(QueryProfiler.FITTED_ANNOTATION));
+        tx.commit();
+
+        tx = graph.newTransaction();
+        SimpleQueryProfiler profiler = new SimpleQueryProfiler();
+        assertEquals(3, Iterables.size(tx.getVertex(v.getID()).query().labels("knows").direction(Direction.OUT)
+                .has("weight", Cmp.GREATER_THAN_EQUAL, 10).limit(3).profiler(profiler).edges()));
+        tx.commit();
+
+        assertEquals(3, profiler.getCount(QueryProfiler.RESULTS_ANNOTATION));
+        SimpleQueryProfiler backend = getSingle(profiler, QueryProfiler.BACKEND_QUERY);
+        long retrieved = backend.getCount(QueryProfiler.RESULTS_ANNOTATION);
+        assertTrue(retrieved >= 3);
+        assertTrue(retrieved - backend.getCount(QueryProfiler.FILTERED_ANNOTATION) >= 3);
+        assertTrue(backend.getCount(QueryProfiler.BACKEND_CALLS_ANNOTATION) >= 1);
+        assertEquals(backend.getCount(QueryProfiler.CALLS_ANNOTATION), 1 + backend.getCount(QueryProfiler.REFETCHES_ANNOTATION)
+                + backend.getCount(QueryProfiler.CONTINUATIONS_ANNOTATION));
+    }
+
+    private static SimpleQueryProfiler getSingle(SimpleQueryProfiler profiler, String groupName) {
+        List<SimpleQueryProfiler> nested = profiler.getNested(groupName);
+        assertEquals(profiler.toString(), 1, nested.size());
+        return nested.get(0);
+    }
+
+}
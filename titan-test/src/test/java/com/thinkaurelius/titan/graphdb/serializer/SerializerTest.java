@@ -91,6 +91,40 @@ public class SerializerTest {
         }
     }
 
+    @Test
+    public void compactStringOrderSerialization() {
+        Serializer compact = new StandardSerializer(true, true);
+        for (int t = 0; t < 10000; t++) {
+            String s1 = getRandomOrderString(random.nextDouble()>0.5?ASCII_VALUE:Character.MAX_VALUE);
+            String s2 = getRandomOrderString(random.nextDouble()>0.5?ASCII_VALUE:Character.MAX_VALUE);
+            StaticBuffer b1 = compact.getDataOutput(32).writeObjectByteOrder(s1,String.class).getStaticBuffer();
+            StaticBuffer b2 = compact.getDataOutput(32).writeObjectByteOrder(s2,String.class).getStaticBuffer();
+            assertEquals(s1, compact.readObjectByteOrder(b1.asReadBuffer(), String.class));
+            assertEquals(s2, compact.readObjectByteOrder(b2.asReadBuffer(), String.class));
+            assertEquals(s1 + " vs " + s2, Integer.signum(s1.compareTo(s2)), Integer.signum(b1.compareTo(b2)));
+        }
+
+        //ASCII strings take one byte per character plus prefix and terminator
+        String ascii = "titan";
+        StaticBuffer b = compact.getDataOutput(32).writeObjectByteOrder(ascii,String.class).getStaticBuffer();
+        assertEquals(ascii.length() + 2, b.length());
+
+        //Both encodings can be read by either serializer
+        StaticBuffer legacy = serialize.getDataOutput(32).writeObjectByteOrder(ascii,String.class).getStaticBuffer();
+        assertEquals(ascii.length() * 2 + 3, legacy.length());
+        assertEquals(ascii, compact.readObjectByteOrder(legacy.asReadBuffer(), String.class));
+        assertEquals(ascii, serialize.readObjectByteOrder(b.asReadBuffer(), String.class));
+    }
+
+    private static String getRandomOrderString(int maxChar) {
+        int size = random.nextInt(16);
+        StringBuilder sb = new StringBuilder(size);
+        for (int i = 0; i < size; i++) {
+            sb.append((char)(random.nextInt(maxChar-1)+1));
+        }
+        return sb.toString();
+    }
+
     @Test
     public void classSerialization() {
         DataOutput out = serialize.getDataOutput(128);
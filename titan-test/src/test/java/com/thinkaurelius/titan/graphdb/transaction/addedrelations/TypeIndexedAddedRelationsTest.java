@@ -0,0 +1,86 @@
+package com.thinkaurelius.titan.graphdb.transaction.addedrelations;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.thinkaurelius.titan.core.TitanType;
+import com.thinkaurelius.titan.graphdb.internal.InternalRelation;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TypeIndexedAddedRelationsTest {
+
+    private static InternalRelation relation(long typeId) {
+        TitanType type = mock(TitanType.class);
+        when(type.getID()).thenReturn(typeId);
+        InternalRelation r = mock(InternalRelation.class);
+        when(r.getType()).thenReturn(type);
+        return r;
+    }
+
+    @Test
+    public void testTypedViews() {
+        TypeIndexedAddedRelations container = new TypeIndexedAddedRelations();
+        assertTrue(container.isEmpty());
+        List<InternalRelation> all = new ArrayList<InternalRelation>();
+        for (int i = 0; i < 1000; i++) {
+            InternalRelation r = relation(1 + (i % 7) * 10);
+            all.add(r);
+            assertTrue(container.add(r));
+        }
+        assertFalse(container.isEmpty());
+        assertEquals(all, container.getView(Predicates.<InternalRelation>alwaysTrue()));
+        assertEquals(all, new ArrayList<InternalRelation>(container.getAll()));
+
+        List<InternalRelation> typed = container.getView(new long[]{31}, Predicates.<InternalRelation>alwaysTrue());
+        assertEquals(1000 / 7 + 1, typed.size());
+        for (InternalRelation r : typed) assertEquals(31, r.getType().getID());
+        assertTrue(container.getView(new long[]{5}, Predicates.<InternalRelation>alwaysTrue()).isEmpty());
+
+        //Multiple types are returned in insertion order
+        List<InternalRelation> expected = new ArrayList<InternalRelation>();
+        for (InternalRelation r : all) {
+            long id = r.getType().getID();
+            if (id == 61 || id == 11) expected.add(r);
+        }
+        assertEquals(expected, container.getView(new long[]{61, 11, 5}, Predicates.<InternalRelation>alwaysTrue()));
+
+        final InternalRelation first = all.get(0);
+        assertEquals(1, container.getView(new long[]{1}, new Predicate<InternalRelation>() {
+            @Override
+            public boolean apply(@Nullable InternalRelation r) {
+                return r == first;
+            }
+        }).size());
+    }
+
+    @Test
+    public void testRemoveAndCompact() {
+        TypeIndexedAddedRelations container = new TypeIndexedAddedRelations();
+        List<InternalRelation> all = new ArrayList<InternalRelation>();
+        for (int i = 0; i < 200; i++) {
+            InternalRelation r = relation(i % 3);
+            all.add(r);
+            container.add(r);
+        }
+        List<InternalRelation> remaining = new ArrayList<InternalRelation>();
+        for (int i = 0; i < all.size(); i++) {
+            if (i % 4 != 0) assertTrue(container.remove(all.get(i)));
+            else remaining.add(all.get(i));
+        }
+        assertFalse(container.remove(all.get(1)));
+        assertFalse(container.remove(relation(42)));
+        assertEquals(remaining, container.getView(Predicates.<InternalRelation>alwaysTrue()));
+        assertEquals(remaining, container.getView(new long[]{0, 1, 2}, Predicates.<InternalRelation>alwaysTrue()));
+        for (InternalRelation r : remaining) assertTrue(container.remove(r));
+        assertTrue(container.isEmpty());
+        assertTrue(container.getAll().isEmpty());
+    }
+
+}
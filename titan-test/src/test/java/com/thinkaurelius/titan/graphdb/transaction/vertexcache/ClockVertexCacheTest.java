@@ -0,0 +1,117 @@
+package com.thinkaurelius.titan.graphdb.transaction.vertexcache;
+
+import com.thinkaurelius.titan.graphdb.internal.InternalVertex;
+import com.thinkaurelius.titan.util.datastructures.Retriever;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClockVertexCacheTest {
+
+    private final Map<Long, InternalVertex> vertices = new HashMap<Long, InternalVertex>();
+
+    private final Retriever<Long, InternalVertex> retriever = new Retriever<Long, InternalVertex>() {
+        @Override
+        public InternalVertex get(Long id) {
+            InternalVertex v = vertices.get(id);
+            if (v == null) {
+                v = mock(InternalVertex.class);
+                vertices.put(id, v);
+            }
+            return v;
+        }
+    };
+
+    @Test
+    public void testRetrieveAndEvict() {
+        ClockVertexCache cache = new ClockVertexCache(100, 10);
+        for (long id = 1; id <= 1000; id++) {
+            InternalVertex v = cache.get(id, retriever);
+            assertSame(vertices.get(id), v);
+            assertSame(v, cache.get(id, retriever));
+            assertTrue(cache.contains(id));
+        }
+        assertEquals(100, cache.size());
+        int contained = 0;
+        for (long id = 1; id <= 1000; id++) {
+            if (cache.contains(id)) contained++;
+        }
+        assertEquals(100, contained);
+        cache.close();
+        assertEquals(0, cache.size());
+        assertFalse(cache.contains(1000));
+    }
+
+    @Test
+    public void testDirtyVerticesArePinned() {
+        ClockVertexCache cache = new ClockVertexCache(10, 0);
+        for (long id = 1; id <= 50; id++) {
+            InternalVertex v = mock(InternalVertex.class);
+            when(v.isNew()).thenReturn(id % 2 == 0);
+            when(v.hasAddedRelations()).thenReturn(id % 3 == 0);
+            cache.add(v, id);
+        }
+        //Vertices that become dirty after they were added must survive eviction as well
+        InternalVertex modified = cache.get(7, retriever);
+        when(modified.hasAddedRelations()).thenReturn(true);
+        for (long id = 51; id <= 200; id++) {
+            cache.get(id, retriever);
+        }
+        for (long id = 1; id <= 50; id++) {
+            if (id % 2 == 0 || id % 3 == 0 || id == 7) assertTrue(cache.contains(id));
+        }
+        List<InternalVertex> allNew = cache.getAllNew();
+        assertEquals(25, allNew.size());
+        for (InternalVertex v : allNew) assertTrue(v.isNew());
+    }
+
+    @Test
+    public void testConcurrentSegments() throws InterruptedException {
+        final ConcurrentMap<Long, InternalVertex> shared = new ConcurrentHashMap<Long, InternalVertex>();
+        final Retriever<Long, InternalVertex> concurrentRetriever = new Retriever<Long, InternalVertex>() {
+            @Override
+            public InternalVertex get(Long id) {
+                InternalVertex v = shared.get(id);
+                if (v == null) {
+                    shared.putIfAbsent(id, mock(InternalVertex.class));
+                    v = shared.get(id);
+                }
+                return v;
+            }
+        };
+        final ClockVertexCache cache = new ClockVertexCache(500, 8, 0);
+        final AtomicInteger mismatches = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t * 100;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (long id = 1; id <= 2000; id++) {
+                        long vid = (id + offset) % 2000 + 1;
+                        if (cache.get(vid, concurrentRetriever) != shared.get(vid)) mismatches.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(0, mismatches.get());
+        assertTrue(cache.size() <= 500);
+        int contained = 0;
+        for (long id = 1; id <= 2000; id++) {
+            if (cache.contains(id)) contained++;
+        }
+        assertEquals(cache.size(), contained);
+    }
+
+}